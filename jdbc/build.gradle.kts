@@ -35,6 +35,25 @@ tasks.jar {
     dependsOn(copyRuntimeLibs)
 }
 
+// The SIMD aggregation kernels depend on the incubating jdk.incubator.vector module, which makes
+// javac and every JVM that loads it print incubator warnings. They are opt-in (-PvectorKernels) so
+// the default build stays warning-free; without them ColumnKernels uses its scalar loops.
+// A bare -PvectorKernels arrives as an empty string, so any value but "false" enables them.
+val vectorKernels =
+    providers.gradleProperty("vectorKernels").map { !it.equals("false", ignoreCase = true) }.getOrElse(false)
+
+if (vectorKernels) {
+    sourceSets.main {
+        java.srcDir("src/vector/java")
+    }
+    tasks.withType<JavaCompile>().configureEach {
+        options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+    }
+    tasks.withType<Test>().configureEach {
+        jvmArgs("--add-modules", "jdk.incubator.vector")
+    }
+}
+
 tasks.withType<AntlrTask>().configureEach {
     arguments.addAll(listOf("-visitor", "-long-messages"))
 }
@@ -0,0 +1,247 @@
+package com.beancount.jdbc;
+
+import com.beancount.jdbc.ledger.LedgerSnapshot;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.schema.SchemaPlus;
+
+/**
+ * Keeps idle, fully bootstrapped Beancount connections for one ledger.
+ *
+ * <p>Idle connections are handed out most-recently-used first. A connection is only reused while
+ * the {@link LedgerSnapshot} it was opened against is still the current one, which costs a stat of
+ * the ledger files rather than a parse. Connections idle for longer than the configured timeout
+ * are closed by a shared background evictor, which also tops the pool back up to {@code minIdle}.
+ * </p>
+ */
+final class BeancountConnectionPool implements ConnectionEventListener, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(BeancountConnectionPool.class.getName());
+    private static final ScheduledExecutorService EVICTOR =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "beancount-pool-evictor");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final BeancountDriver driver;
+    private final Path ledgerPath;
+    private final Properties properties;
+    private final int maxIdle;
+    private final int minIdle;
+    private final long idleTimeoutNanos;
+    private final Deque<BeancountPooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledFuture<?> evictionTask;
+    private boolean closed;
+
+    BeancountConnectionPool(
+            BeancountDriver driver,
+            Path ledgerPath,
+            Properties properties,
+            int maxIdle,
+            int minIdle,
+            long idleTimeoutMillis) {
+        this.driver = driver;
+        this.ledgerPath = ledgerPath;
+        this.properties = properties;
+        this.maxIdle = Math.max(0, maxIdle);
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxIdle));
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, idleTimeoutMillis));
+        if (idleTimeoutMillis > 0) {
+            long period = Math.max(1L, idleTimeoutMillis / 2);
+            this.evictionTask =
+                    EVICTOR.scheduleWithFixedDelay(this::evictSafely, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.evictionTask = null;
+        }
+    }
+
+    /** Opens connections until {@code minIdle} pre-warmed connections are waiting in the pool. */
+    void warmUp() throws SQLException {
+        LedgerSnapshot snapshot = BeancountDriver.loadSnapshot(ledgerPath);
+        while (true) {
+            synchronized (this) {
+                if (closed || idle.size() >= minIdle) {
+                    return;
+                }
+            }
+            BeancountPooledConnection pooled = open(snapshot);
+            synchronized (this) {
+                if (closed || idle.size() >= maxIdle) {
+                    discard(pooled);
+                    return;
+                }
+                idle.addLast(pooled);
+            }
+        }
+    }
+
+    Connection borrow() throws SQLException {
+        return acquire().getConnection();
+    }
+
+    /**
+     * Removes a pre-warmed connection from the pool for an external pool manager; closing its
+     * logical handles does not return it here.
+     */
+    BeancountPooledConnection detach() throws SQLException {
+        BeancountPooledConnection pooled = acquire();
+        pooled.removeConnectionEventListener(this);
+        return pooled;
+    }
+
+    private BeancountPooledConnection acquire() throws SQLException {
+        LedgerSnapshot snapshot = BeancountDriver.loadSnapshot(ledgerPath);
+        while (true) {
+            BeancountPooledConnection pooled;
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Beancount data source has been closed.");
+                }
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return open(snapshot);
+            }
+            if (isReusable(pooled, snapshot)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+    }
+
+    private BeancountPooledConnection open(LedgerSnapshot snapshot) throws SQLException {
+        Connection physical = driver.connect(snapshot, properties);
+        try {
+            prewarm(physical);
+        } catch (SQLException | RuntimeException ex) {
+            physical.close();
+            throw ex;
+        }
+        BeancountPooledConnection pooled = new BeancountPooledConnection(physical, snapshot);
+        pooled.addConnectionEventListener(this);
+        return pooled;
+    }
+
+    private static void prewarm(Connection physical) throws SQLException {
+        CalciteConnection calcite = physical.unwrap(CalciteConnection.class);
+        SchemaPlus schema = calcite.getRootSchema().getSubSchema(calcite.getSchema());
+        if (schema != null) {
+            // Forces the ledger tables and view macros to be registered before the first borrow.
+            schema.getTableNames();
+        }
+    }
+
+    private static boolean isReusable(BeancountPooledConnection pooled, LedgerSnapshot snapshot) {
+        return pooled.getSnapshotVersion() == snapshot.getVersion() && pooled.isUsable();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+        BeancountPooledConnection pooled = (BeancountPooledConnection) event.getSource();
+        try {
+            // Session state (DDL objects, default schema, auto-commit) must not leak to the next borrower.
+            pooled.resetSession();
+        } catch (SQLException | RuntimeException ex) {
+            LOGGER.log(Level.FINE, "Failed to reset pooled connection for " + ledgerPath, ex);
+            discard(pooled);
+            return;
+        }
+        synchronized (this) {
+            if (!closed && idle.size() < maxIdle && pooled.isUsable()) {
+                idle.addFirst(pooled);
+                return;
+            }
+        }
+        discard(pooled);
+    }
+
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+        discard((BeancountPooledConnection) event.getSource());
+    }
+
+    private void evictSafely() {
+        try {
+            evictIdle();
+            warmUp();
+        } catch (SQLException | RuntimeException ex) {
+            LOGGER.log(Level.FINE, "Idle eviction failed for " + ledgerPath, ex);
+        }
+    }
+
+    void evictIdle() throws SQLException {
+        LedgerSnapshot snapshot = BeancountDriver.loadSnapshot(ledgerPath);
+        long now = System.nanoTime();
+        List<BeancountPooledConnection> expired = new ArrayList<>();
+        synchronized (this) {
+            int keep = idle.size();
+            // Oldest connections sit at the tail because returns are pushed to the head.
+            for (Iterator<BeancountPooledConnection> it = idle.descendingIterator(); it.hasNext(); ) {
+                BeancountPooledConnection pooled = it.next();
+                boolean stale = !isReusable(pooled, snapshot);
+                boolean timedOut =
+                        idleTimeoutNanos > 0
+                                && keep > minIdle
+                                && now - pooled.getIdleSinceNanos() >= idleTimeoutNanos;
+                if (stale || timedOut) {
+                    it.remove();
+                    keep--;
+                    expired.add(pooled);
+                }
+            }
+        }
+        for (BeancountPooledConnection pooled : expired) {
+            discard(pooled);
+        }
+    }
+
+    synchronized int idleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        List<BeancountPooledConnection> drained;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            drained = new ArrayList<>(idle);
+            idle.clear();
+        }
+        if (evictionTask != null) {
+            evictionTask.cancel(false);
+        }
+        for (BeancountPooledConnection pooled : drained) {
+            discard(pooled);
+        }
+    }
+
+    private void discard(BeancountPooledConnection pooled) {
+        pooled.removeConnectionEventListener(this);
+        try {
+            pooled.close();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINE, "Failed to close pooled connection for " + ledgerPath, ex);
+        }
+    }
+}
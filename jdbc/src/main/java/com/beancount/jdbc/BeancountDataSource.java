@@ -0,0 +1,219 @@
+package com.beancount.jdbc;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.DataSource;
+import javax.sql.PooledConnection;
+
+/**
+ * Pooling {@link DataSource} for Beancount ledgers.
+ *
+ * <p>Connections are opened through the same path as {@link BeancountDriver}, but closing a
+ * connection returns its Calcite connection (with the Beancount schema and views already
+ * registered) to an idle pool instead of tearing it down. Pooled connections are validated against
+ * the ledger snapshot version on every borrow, so edits to the ledger (or any included file) are
+ * picked up by the next {@link #getConnection()}.</p>
+ *
+ * <p>As a {@link ConnectionPoolDataSource} it also hands pre-warmed physical connections to
+ * external pool managers such as application servers.</p>
+ */
+public final class BeancountDataSource implements DataSource, ConnectionPoolDataSource, AutoCloseable {
+
+    static final int DEFAULT_POOL_SIZE = 8;
+    static final int DEFAULT_MIN_IDLE = 1;
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+    private final BeancountDriver driver = new BeancountDriver();
+    private final Properties connectionProperties = new Properties();
+    private String url;
+    private int poolSize = DEFAULT_POOL_SIZE;
+    private int minIdle = DEFAULT_MIN_IDLE;
+    private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+    private int loginTimeout;
+    private PrintWriter logWriter;
+    private BeancountConnectionPool pool;
+
+    public BeancountDataSource() {}
+
+    public BeancountDataSource(String url) {
+        setUrl(url);
+    }
+
+    public synchronized String getUrl() {
+        return url;
+    }
+
+    /** Sets the {@code jdbc:beancount:} URL; query parameters are applied as connection properties. */
+    public synchronized void setUrl(String url) {
+        if (url != null && !driver.acceptsURL(url)) {
+            throw new IllegalArgumentException("Not a Beancount JDBC URL: " + url);
+        }
+        this.url = url;
+        resetPool();
+    }
+
+    /** Convenience for {@code setUrl("jdbc:beancount:" + ledgerPath)}. */
+    public void setLedger(String ledgerPath) {
+        setUrl(ledgerPath == null ? null : BeancountDriver.URL_PREFIX + ledgerPath);
+    }
+
+    public synchronized int getPoolSize() {
+        return poolSize;
+    }
+
+    /** Maximum number of idle connections kept for reuse. Extra connections close on release. */
+    public synchronized void setPoolSize(int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("poolSize must not be negative: " + poolSize);
+        }
+        this.poolSize = poolSize;
+        resetPool();
+    }
+
+    public synchronized int getMinIdle() {
+        return minIdle;
+    }
+
+    /** Number of pre-warmed connections the pool tries to keep ready. */
+    public synchronized void setMinIdle(int minIdle) {
+        if (minIdle < 0) {
+            throw new IllegalArgumentException("minIdle must not be negative: " + minIdle);
+        }
+        this.minIdle = minIdle;
+        resetPool();
+    }
+
+    public synchronized long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /** Idle connections beyond {@code minIdle} are closed after this long; {@code 0} disables eviction. */
+    public synchronized void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException(
+                    "idleTimeoutMillis must not be negative: " + idleTimeoutMillis);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        resetPool();
+    }
+
+    /** Adds a connection property (e.g. Calcite {@code lex} or {@code parserFactory}). */
+    public synchronized void setConnectionProperty(String key, String value) {
+        if (value == null) {
+            connectionProperties.remove(key);
+        } else {
+            connectionProperties.setProperty(key, value);
+        }
+        resetPool();
+    }
+
+    /** Opens the configured number of idle connections ahead of the first request. */
+    public void warmUp() throws SQLException {
+        pool().warmUp();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return pool().borrow();
+    }
+
+    /**
+     * Ledgers are plain files without accounts, so only empty credentials are accepted; anything
+     * else is rejected rather than silently ignored.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        requireNoCredentials(username, password);
+        return getConnection();
+    }
+
+    @Override
+    public PooledConnection getPooledConnection() throws SQLException {
+        return pool().detach();
+    }
+
+    @Override
+    public PooledConnection getPooledConnection(String user, String password) throws SQLException {
+        requireNoCredentials(user, password);
+        return getPooledConnection();
+    }
+
+    @Override
+    public synchronized PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public synchronized void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public synchronized void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public synchronized int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("Logging hierarchy not implemented.");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("BeancountDataSource does not implement " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /** Closes every idle connection; connections currently borrowed close when released. */
+    @Override
+    public synchronized void close() {
+        resetPool();
+    }
+
+    private synchronized BeancountConnectionPool pool() throws SQLException {
+        if (pool == null) {
+            if (url == null) {
+                throw new SQLException("BeancountDataSource URL has not been configured.");
+            }
+            BeancountDriver.ParsedUrl parsed = BeancountDriver.parseUrl(url);
+            Properties info = new Properties();
+            info.putAll(connectionProperties);
+            Properties properties = BeancountDriver.connectionProperties(parsed, info);
+            pool =
+                    new BeancountConnectionPool(
+                            driver, parsed.ledgerPath(), properties, poolSize, minIdle, idleTimeoutMillis);
+        }
+        return pool;
+    }
+
+    private static void requireNoCredentials(String user, String password) throws SQLException {
+        if ((user != null && !user.isEmpty()) || (password != null && !password.isEmpty())) {
+            throw new SQLFeatureNotSupportedException(
+                    "Beancount ledgers do not support authentication; use getConnection() instead.");
+        }
+    }
+
+    private void resetPool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.beancount.jdbc;
 
+import com.beancount.jdbc.calcite.BeancountMetadataCache;
 import com.beancount.jdbc.calcite.CalciteConnectionFactory;
+import com.beancount.jdbc.calcite.QueryAbortedException;
+import com.beancount.jdbc.calcite.QueryGuard;
 import com.beancount.jdbc.calcite.script.BeancountSqlScriptEngine;
 import com.beancount.jdbc.ledger.LedgerProvider;
+import com.beancount.jdbc.ledger.LedgerSnapshot;
 import com.beancount.jdbc.loader.LoaderException;
 import com.beancount.jdbc.loader.LoaderMessage;
 import com.beancount.jdbc.loader.LoaderResult;
 import com.beancount.jdbc.loader.semantic.SemanticAnalyzer;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.nio.file.Files;
@@ -18,8 +23,10 @@ import java.sql.DatabaseMetaData;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.ResultSet;
 import java.sql.Statement;
@@ -60,6 +67,26 @@ public final class BeancountDriver implements Driver {
             return null;
         }
         ParsedUrl parsed = parseUrl(url);
+        Properties properties = connectionProperties(parsed, info);
+        return connect(loadSnapshot(parsed.ledgerPath), properties);
+    }
+
+    /**
+     * Opens a wrapped Calcite connection for an already loaded snapshot. Shared by {@link
+     * #connect(String, Properties)} and {@link BeancountDataSource} so pooled and unpooled
+     * connections behave identically.
+     */
+    Connection connect(LedgerSnapshot snapshot, Properties properties) throws SQLException {
+        Path ledgerPath = snapshot.getLedgerPath();
+        LoaderResult loaderResult = snapshot.getLoaderResult();
+        Connection connection = CalciteConnectionFactory.connect(snapshot, properties);
+        SQLWarning warnings = buildWarningChain(loaderResult, ledgerPath);
+        logWarnings(loaderResult, ledgerPath);
+        return wrapCalciteConnection(
+                connection, warnings, hasPluginWarning(loaderResult), BeancountMetadataCache.of(snapshot));
+    }
+
+    static Properties connectionProperties(ParsedUrl parsed, Properties info) throws SQLException {
         Properties properties = info == null ? new Properties() : new Properties(info);
         properties.putAll(parsed.properties);
         properties.setProperty("ledger", parsed.ledgerPath.toString());
@@ -67,16 +94,20 @@ public final class BeancountDriver implements Driver {
         if ("deprecated".equals(mode)) {
             throw new SQLException("Legacy driver mode is not available in this build.");
         }
-        LoaderResult loaderResult;
         try {
-            loaderResult = LedgerProvider.load(parsed.ledgerPath);
+            QueryGuard.validateLimits(properties);
+        } catch (IllegalArgumentException ex) {
+            throw new SQLException(ex.getMessage(), ex);
+        }
+        return properties;
+    }
+
+    static LedgerSnapshot loadSnapshot(Path ledgerPath) throws SQLException {
+        try {
+            return LedgerProvider.snapshot(ledgerPath);
         } catch (LoaderException ex) {
-            throw new SQLException("Failed to load ledger: " + parsed.ledgerPath, ex);
+            throw new SQLException("Failed to load ledger: " + ledgerPath, ex);
         }
-        Connection connection = CalciteConnectionFactory.connect(parsed.ledgerPath, properties);
-        SQLWarning warnings = buildWarningChain(loaderResult, parsed.ledgerPath);
-        logWarnings(loaderResult, parsed.ledgerPath);
-        return wrapCalciteConnection(connection, warnings, hasPluginWarning(loaderResult));
     }
 
     @Override
@@ -112,7 +143,7 @@ public final class BeancountDriver implements Driver {
         throw new SQLFeatureNotSupportedException("Logging hierarchy not implemented.");
     }
 
-    private static ParsedUrl parseUrl(String url) throws SQLException {
+    static ParsedUrl parseUrl(String url) throws SQLException {
         String remainder = url.substring(URL_PREFIX.length());
         if (remainder.isEmpty()) {
             throw new SQLException("Ledger path missing from JDBC URL.");
@@ -170,7 +201,11 @@ public final class BeancountDriver implements Driver {
         return mode != null ? mode.toString().toLowerCase(Locale.ROOT) : null;
     }
 
-    private Connection wrapCalciteConnection(Connection delegate, SQLWarning warnings, boolean hasPluginWarning) {
+    private Connection wrapCalciteConnection(
+            Connection delegate,
+            SQLWarning warnings,
+            boolean hasPluginWarning,
+            BeancountMetadataCache metadataCache) {
         return (Connection)
                 Proxy.newProxyInstance(
                         Connection.class.getClassLoader(),
@@ -185,11 +220,16 @@ public final class BeancountDriver implements Driver {
                                 if ("getMetaData".equals(method.getName()) && args == null) {
                                     DatabaseMetaData meta =
                                             (DatabaseMetaData) method.invoke(delegate);
-                                    return wrapCalciteMetaData(meta, pluginWarningPresent);
+                                    return wrapCalciteMetaData(
+                                            meta, pluginWarningPresent, calciteConnection, metadataCache);
                                 } else if ("createStatement".equals(method.getName())) {
                                     Statement stmt = (Statement) method.invoke(delegate, args);
                                     return wrapCalciteStatement(
                                             stmt, calciteConnection.config(), calciteConnection);
+                                } else if ("prepareStatement".equals(method.getName())
+                                        || "prepareCall".equals(method.getName())) {
+                                    PreparedStatement stmt = (PreparedStatement) method.invoke(delegate, args);
+                                    return wrapPreparedStatement(stmt, method.getReturnType(), calciteConnection);
                                 } else if ("getWarnings".equals(method.getName())) {
                                     return localWarnings;
                                 } else if ("clearWarnings".equals(method.getName())) {
@@ -259,7 +299,11 @@ public final class BeancountDriver implements Driver {
         return false;
     }
 
-    private DatabaseMetaData wrapCalciteMetaData(DatabaseMetaData delegate, boolean pluginWarning) {
+    private DatabaseMetaData wrapCalciteMetaData(
+            DatabaseMetaData delegate,
+            boolean pluginWarning,
+            CalciteConnection calciteConnection,
+            BeancountMetadataCache metadataCache) {
         return (DatabaseMetaData)
                 Proxy.newProxyInstance(
                         DatabaseMetaData.class.getClassLoader(),
@@ -278,7 +322,24 @@ public final class BeancountDriver implements Driver {
                                         }
                                         yield "Beancount JDBC Driver (Calcite)";
                                     }
-                                    case "getTables" -> method.invoke(delegate, adjustMetadataTableArgs(args));
+                                    case "getTables" -> {
+                                        if (metadataCache.answers(
+                                                calciteConnection, (String) args[0], (String) args[1])) {
+                                            yield metadataCache.getTables((String) args[2], (String[]) args[3]);
+                                        }
+                                        yield method.invoke(delegate, adjustMetadataTableArgs(args));
+                                    }
+                                    case "getColumns" -> {
+                                        if (metadataCache.answers(
+                                                calciteConnection, (String) args[0], (String) args[1])) {
+                                            yield metadataCache.getColumns((String) args[2], (String) args[3]);
+                                        }
+                                        yield super.handle(proxy, method, args);
+                                    }
+                                    case "getPrimaryKeys" -> metadataCache.getPrimaryKeys(
+                                            (String) args[0], (String) args[1], (String) args[2]);
+                                    case "getIndexInfo" -> metadataCache.getIndexInfo(
+                                            (String) args[0], (String) args[1], (String) args[2], (Boolean) args[3]);
                                     default -> super.handle(proxy, method, args);
                                 };
                             }
@@ -293,10 +354,79 @@ public final class BeancountDriver implements Driver {
                         Statement.class.getClassLoader(),
                         new Class<?>[] {Statement.class},
                         new DelegatingHandler(delegate) {
+                            private final StatementTimeout timeout = new StatementTimeout(delegate);
+
                             @Override
                             Object handle(Object proxy, Method method, Object[] args) throws Throwable {
                                 if (isExecuteWithSql(method, args)) {
-                                    return handleScriptExecution(delegate, method, args, scriptEngine);
+                                    timeout.arm();
+                                    Object result;
+                                    try {
+                                        result = handleScriptExecution(delegate, method, args, scriptEngine);
+                                    } catch (Throwable ex) {
+                                        timeout.disarm();
+                                        throw translateQueryFailure(ex, timeout);
+                                    }
+                                    if (result instanceof ResultSet rs) {
+                                        return wrapCalciteResultSet(rs, (Statement) proxy, timeout);
+                                    }
+                                    if (!(result instanceof Boolean hasResultSet) || !hasResultSet) {
+                                        timeout.disarm();
+                                    }
+                                    return result;
+                                } else if ("getResultSet".equals(method.getName())) {
+                                    ResultSet rs = (ResultSet) super.handle(proxy, method, args);
+                                    return rs == null ? null : wrapCalciteResultSet(rs, (Statement) proxy, timeout);
+                                } else if ("close".equals(method.getName())) {
+                                    timeout.disarm();
+                                } else if ("unwrap".equals(method.getName())
+                                        && args != null
+                                        && args.length == 1
+                                        && args[0] == Connection.class) {
+                                    return owningConnection;
+                                }
+                                return super.handle(proxy, method, args);
+                            }
+                        });
+    }
+
+    /**
+     * Applies the same query timeout, guard translation and result-set wrapping as {@link
+     * #wrapCalciteStatement} to prepared and callable statements. Their SQL is fixed at prepare
+     * time, so only the argument-less execute methods arm the timeout.
+     */
+    private PreparedStatement wrapPreparedStatement(
+            PreparedStatement delegate, Class<?> statementType, Connection owningConnection) {
+        return (PreparedStatement)
+                Proxy.newProxyInstance(
+                        statementType.getClassLoader(),
+                        new Class<?>[] {statementType},
+                        new DelegatingHandler(delegate) {
+                            private final StatementTimeout timeout = new StatementTimeout(delegate);
+
+                            @Override
+                            Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+                                if (isPreparedExecute(method, args)) {
+                                    timeout.arm();
+                                    Object result;
+                                    try {
+                                        result = method.invoke(delegate, args);
+                                    } catch (Throwable ex) {
+                                        timeout.disarm();
+                                        throw translateQueryFailure(ex, timeout);
+                                    }
+                                    if (result instanceof ResultSet rs) {
+                                        return wrapCalciteResultSet(rs, (Statement) proxy, timeout);
+                                    }
+                                    if (!(result instanceof Boolean hasResultSet) || !hasResultSet) {
+                                        timeout.disarm();
+                                    }
+                                    return result;
+                                } else if ("getResultSet".equals(method.getName())) {
+                                    ResultSet rs = (ResultSet) super.handle(proxy, method, args);
+                                    return rs == null ? null : wrapCalciteResultSet(rs, (Statement) proxy, timeout);
+                                } else if ("close".equals(method.getName())) {
+                                    timeout.disarm();
                                 } else if ("unwrap".equals(method.getName())
                                         && args != null
                                         && args.length == 1
@@ -308,6 +438,84 @@ public final class BeancountDriver implements Driver {
                         });
     }
 
+    private static boolean isPreparedExecute(Method method, Object[] args) {
+        if (args != null && args.length > 0) {
+            return false;
+        }
+        return switch (method.getName()) {
+            case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch",
+                    "executeLargeBatch" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Wraps a Calcite result set so guard aborts surface as SQL exceptions and {@code maxRows} stops
+     * pulling from the (lazy) scans as soon as the limit is reached.
+     */
+    private ResultSet wrapCalciteResultSet(ResultSet delegate, Statement owningStatement, StatementTimeout timeout)
+            throws SQLException {
+        long maxRows = owningStatement.getLargeMaxRows();
+        int fetchSize = owningStatement.getFetchSize();
+        if (fetchSize > 0) {
+            delegate.setFetchSize(fetchSize);
+        }
+        return (ResultSet)
+                Proxy.newProxyInstance(
+                        ResultSet.class.getClassLoader(),
+                        new Class<?>[] {ResultSet.class},
+                        new DelegatingHandler(delegate) {
+                            private long rowsRead;
+
+                            @Override
+                            Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+                                switch (method.getName()) {
+                                    case "getStatement" -> {
+                                        return owningStatement;
+                                    }
+                                    case "next" -> {
+                                        if (maxRows > 0 && rowsRead >= maxRows) {
+                                            return false;
+                                        }
+                                    }
+                                    case "close" -> timeout.disarm();
+                                    default -> {
+                                    }
+                                }
+                                Object result;
+                                try {
+                                    result = super.handle(proxy, method, args);
+                                } catch (Throwable ex) {
+                                    throw translateQueryFailure(ex, timeout);
+                                }
+                                if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                                    rowsRead++;
+                                }
+                                return result;
+                            }
+                        });
+    }
+
+    /**
+     * Unwraps reflective failures and maps guard aborts to SQL exceptions: timeouts become {@link
+     * SQLTimeoutException}, cancellations and budget overruns plain {@link SQLException}s.
+     */
+    private static Throwable translateQueryFailure(Throwable error, StatementTimeout timeout) {
+        Throwable cause =
+                error instanceof InvocationTargetException invocation && invocation.getCause() != null
+                        ? invocation.getCause()
+                        : error;
+        QueryAbortedException aborted = QueryAbortedException.find(cause);
+        if (timeout.hasExpired() && (aborted != null || cause instanceof SQLException)) {
+            return new SQLTimeoutException(
+                    "Query exceeded its timeout of " + timeout.getArmedSeconds() + " s.", "HYT00", cause);
+        }
+        if (aborted != null) {
+            return aborted.toSqlException();
+        }
+        return cause;
+    }
+
     private boolean isExecuteWithSql(Method method, Object[] args) {
         if (args == null || args.length == 0 || !(args[0] instanceof String)) {
             return false;
@@ -364,7 +572,7 @@ public final class BeancountDriver implements Driver {
         };
     }
 
-    private record ParsedUrl(Path ledgerPath, Properties properties) {}
+    record ParsedUrl(Path ledgerPath, Properties properties) {}
 
     private abstract static class DelegatingHandler implements InvocationHandler {
         private final Object delegate;
@@ -0,0 +1,222 @@
+package com.beancount.jdbc;
+
+import com.beancount.jdbc.calcite.CalciteConnectionFactory;
+import com.beancount.jdbc.ledger.LedgerSnapshot;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+import javax.sql.StatementEventListener;
+
+/**
+ * {@link PooledConnection} around a fully initialized Beancount connection.
+ *
+ * <p>{@link #getConnection()} hands out a logical handle; closing that handle leaves the physical
+ * Calcite connection (and its already-registered schema) open and notifies listeners so the
+ * owning pool can reuse it. The handle remembers the {@link LedgerSnapshot} it was built from so
+ * pools can discard it once the ledger changes, and {@link #resetSession()} rebuilds the session
+ * state against that snapshot before the connection is reused.</p>
+ */
+final class BeancountPooledConnection implements PooledConnection {
+
+    private final Connection physical;
+    private final LedgerSnapshot snapshot;
+    private final List<ConnectionEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<StatementEventListener> statementListeners = new CopyOnWriteArrayList<>();
+    private volatile LogicalHandle activeHandle;
+    private volatile boolean closed;
+    private volatile long idleSinceNanos = System.nanoTime();
+
+    BeancountPooledConnection(Connection physical, LedgerSnapshot snapshot) {
+        this.physical = physical;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Pooled connection has been closed.");
+        }
+        LogicalHandle previous = activeHandle;
+        if (previous != null) {
+            // JDBC requires a new logical handle to invalidate the previous one.
+            previous.release(false);
+        }
+        LogicalHandle handle = new LogicalHandle();
+        activeHandle = handle;
+        return (Connection)
+                Proxy.newProxyInstance(
+                        Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, handle);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LogicalHandle handle = activeHandle;
+        if (handle != null) {
+            handle.release(false);
+        }
+        physical.close();
+    }
+
+    @Override
+    public void addConnectionEventListener(ConnectionEventListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeConnectionEventListener(ConnectionEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void addStatementEventListener(StatementEventListener listener) {
+        if (listener != null) {
+            statementListeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeStatementEventListener(StatementEventListener listener) {
+        statementListeners.remove(listener);
+    }
+
+    long getSnapshotVersion() {
+        return snapshot.getVersion();
+    }
+
+    /** Drops DDL objects and restores the default schema and transaction flags of the session. */
+    void resetSession() throws SQLException {
+        CalciteConnectionFactory.resetSession(physical, snapshot);
+    }
+
+    long getIdleSinceNanos() {
+        return idleSinceNanos;
+    }
+
+    boolean isUsable() {
+        if (closed) {
+            return false;
+        }
+        try {
+            return !physical.isClosed();
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    Connection getPhysicalConnection() {
+        return physical;
+    }
+
+    private void fireClosed() {
+        idleSinceNanos = System.nanoTime();
+        ConnectionEvent event = new ConnectionEvent(this);
+        for (ConnectionEventListener listener : listeners) {
+            listener.connectionClosed(event);
+        }
+    }
+
+    private void fireError(SQLException error) {
+        ConnectionEvent event = new ConnectionEvent(this, error);
+        for (ConnectionEventListener listener : listeners) {
+            listener.connectionErrorOccurred(event);
+        }
+    }
+
+    private final class LogicalHandle implements InvocationHandler {
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean handleClosed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (name) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "BeancountPooledConnection[" + physical + "]";
+                };
+            }
+            switch (name) {
+                case "close" -> {
+                    release(true);
+                    return null;
+                }
+                case "isClosed" -> {
+                    return isHandleClosed();
+                }
+                case "isValid" -> {
+                    return !isHandleClosed() && physical.isValid((Integer) args[0]);
+                }
+                default -> {
+                }
+            }
+            if (isHandleClosed()) {
+                throw new SQLException("Connection is closed.");
+            }
+            Object result;
+            try {
+                result = method.invoke(physical, args);
+            } catch (InvocationTargetException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof SQLException sql && isConnectionError(sql)) {
+                    fireError(sql);
+                }
+                throw cause;
+            }
+            if (result instanceof Statement statement) {
+                synchronized (this) {
+                    statements.add(statement);
+                }
+            }
+            return result;
+        }
+
+        private synchronized boolean isHandleClosed() {
+            return handleClosed || closed;
+        }
+
+        void release(boolean notify) {
+            List<Statement> open;
+            synchronized (this) {
+                if (handleClosed) {
+                    return;
+                }
+                handleClosed = true;
+                open = new ArrayList<>(statements);
+                statements.clear();
+            }
+            for (Statement statement : open) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                    // Best effort: a failing statement must not keep the connection out of the pool.
+                }
+            }
+            if (notify && activeHandle == this) {
+                activeHandle = null;
+                fireClosed();
+            }
+        }
+
+        private boolean isConnectionError(SQLException ex) {
+            String state = ex.getSQLState();
+            return state != null && state.startsWith("08");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.beancount.jdbc;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Enforces {@link Statement#setQueryTimeout(int)} for one wrapped statement.
+ *
+ * <p>{@link #arm()} schedules {@link Statement#cancel()} on a shared daemon thread when an
+ * execution starts. Cancelling flips Calcite's per-statement cancel flag, which stops planning as
+ * well as the guarded Beancount scans. The timer stays armed while the caller reads the result set
+ * and is disarmed when the result set or statement is closed, or on the next execution.</p>
+ */
+final class StatementTimeout {
+
+    private static final Logger LOGGER = Logger.getLogger(StatementTimeout.class.getName());
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "beancount-query-timeout");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final Statement statement;
+    private ScheduledFuture<?> pending;
+    private volatile boolean expired;
+    private int armedSeconds;
+
+    StatementTimeout(Statement statement) {
+        this.statement = statement;
+    }
+
+    synchronized void arm() throws SQLException {
+        disarm();
+        expired = false;
+        armedSeconds = statement.getQueryTimeout();
+        if (armedSeconds > 0) {
+            pending = SCHEDULER.schedule(this::expire, armedSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    synchronized void disarm() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    boolean hasExpired() {
+        return expired;
+    }
+
+    synchronized int getArmedSeconds() {
+        return armedSeconds;
+    }
+
+    private void expire() {
+        expired = true;
+        try {
+            statement.cancel();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINE, "Failed to cancel statement after query timeout", ex);
+        }
+    }
+}
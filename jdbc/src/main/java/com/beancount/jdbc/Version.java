@@ -3,7 +3,7 @@ package com.beancount.jdbc;
 public final class Version {
     static final int MAJOR = 0;
     static final int MINOR = 4;
-    static final int PATCH = 25;
+    static final int PATCH = 50;
     private static final String QUALIFIER = "alpha";
 
     public static final String FULL = MAJOR + "." + MINOR + "." + PATCH + "-" + QUALIFIER;
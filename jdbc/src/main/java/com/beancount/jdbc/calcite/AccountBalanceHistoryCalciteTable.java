@@ -0,0 +1,142 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.AccountBalanceHistory;
+import com.beancount.jdbc.schema.AccountBalanceHistoryTable;
+import com.beancount.jdbc.schema.ColumnDescriptor;
+import java.util.List;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.ImmutableBitSet;
+
+/**
+ * The {@code account_balance_history} table.
+ *
+ * <p>Scans narrow their row range with binary searches: an {@code account} equality selects that
+ * account's rows, an added {@code currency} equality one series, and date comparisons then bound
+ * the series by date. Filters are only used to skip rows and are left in place for Calcite to
+ * evaluate, so filters this table does not understand stay correct.</p>
+ */
+final class AccountBalanceHistoryCalciteTable extends AbstractTable implements ProjectableFilterableTable {
+
+    private final AccountBalanceHistory history;
+    private final List<Object[]> rows;
+
+    AccountBalanceHistoryCalciteTable(AccountBalanceHistory history) {
+        this.history = history;
+        this.rows = AccountBalanceHistoryTable.lazyRows(history);
+    }
+
+    @Override
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+        RelDataTypeFactory.Builder builder = typeFactory.builder();
+        for (ColumnDescriptor column : AccountBalanceHistoryTable.getDefinition().getColumns()) {
+            builder.add(column.getName(), CalciteTypeMapper.toRelDataType(typeFactory, column));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        Bounds bounds = new Bounds();
+        for (RexNode filter : filters) {
+            for (RexNode conjunct : RelOptUtil.conjunctions(filter)) {
+                bounds.apply(conjunct);
+            }
+        }
+        if (bounds.account == null) {
+            return QueryGuard.scan(root, rows, projects);
+        }
+        int from = history.firstRow(bounds.account, bounds.currency);
+        int to = history.endRow(bounds.account, bounds.currency);
+        if (bounds.currency != null) {
+            int first = history.firstRowOnOrAfter(from, to, bounds.fromDay);
+            to = bounds.toDay == Long.MAX_VALUE ? to : history.firstRowOnOrAfter(first, to, bounds.toDay + 1);
+            from = first;
+        }
+        return QueryGuard.scan(root, rows.subList(from, Math.max(from, to)), projects);
+    }
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of(
+                rows.size(),
+                List.of(ImmutableBitSet.of(
+                        AccountBalanceHistoryTable.ACCOUNT,
+                        AccountBalanceHistoryTable.CURRENCY,
+                        AccountBalanceHistoryTable.DATE)));
+    }
+
+    /** Key values and an inclusive date range implied by the scan's filters. */
+    private static final class Bounds {
+        String account;
+        String currency;
+        long fromDay = Long.MIN_VALUE;
+        long toDay = Long.MAX_VALUE;
+
+        void apply(RexNode node) {
+            if (!(node instanceof RexCall call) || call.getOperands().size() != 2) {
+                return;
+            }
+            SqlKind kind = call.getKind();
+            RexNode left = call.getOperands().get(0);
+            RexNode right = call.getOperands().get(1);
+            if (left instanceof RexLiteral && right instanceof RexInputRef) {
+                RexNode swapped = left;
+                left = right;
+                right = swapped;
+                kind = kind.reverse();
+            }
+            if (!(left instanceof RexInputRef ref) || !(right instanceof RexLiteral literal) || literal.isNull()) {
+                return;
+            }
+            switch (ref.getIndex()) {
+                case AccountBalanceHistoryTable.ACCOUNT -> {
+                    if (kind == SqlKind.EQUALS) {
+                        account = literal.getValueAs(String.class);
+                    }
+                }
+                case AccountBalanceHistoryTable.CURRENCY -> {
+                    if (kind == SqlKind.EQUALS) {
+                        currency = literal.getValueAs(String.class);
+                    }
+                }
+                case AccountBalanceHistoryTable.DATE -> {
+                    if (literal.getTypeName() == SqlTypeName.DATE) {
+                        applyDate(kind, literal.getValueAs(Integer.class));
+                    }
+                }
+                default -> {}
+            }
+        }
+
+        private void applyDate(SqlKind kind, Integer day) {
+            if (day == null) {
+                return;
+            }
+            switch (kind) {
+                case EQUALS -> {
+                    fromDay = Math.max(fromDay, day);
+                    toDay = Math.min(toDay, day);
+                }
+                case GREATER_THAN -> fromDay = Math.max(fromDay, day + 1L);
+                case GREATER_THAN_OR_EQUAL -> fromDay = Math.max(fromDay, day);
+                case LESS_THAN -> toDay = Math.min(toDay, day - 1L);
+                case LESS_THAN_OR_EQUAL -> toDay = Math.min(toDay, day);
+                default -> {}
+            }
+        }
+    }
+}
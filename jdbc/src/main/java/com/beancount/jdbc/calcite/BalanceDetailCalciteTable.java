@@ -5,13 +5,16 @@ import com.beancount.jdbc.schema.ColumnDescriptor;
 import java.util.List;
 import org.apache.calcite.DataContext;
 import org.apache.calcite.linq4j.Enumerable;
-import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
-import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.util.ImmutableBitSet;
 
-final class BalanceDetailCalciteTable extends AbstractTable implements ScannableTable {
+final class BalanceDetailCalciteTable extends AbstractTable implements ProjectableFilterableTable {
 
     private final List<Object[]> rows;
 
@@ -29,7 +32,12 @@ final class BalanceDetailCalciteTable extends AbstractTable implements Scannable
     }
 
     @Override
-    public Enumerable<Object[]> scan(DataContext root) {
-        return Linq4j.asEnumerable(rows);
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        return QueryGuard.scan(root, rows, projects);
+    }
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of(rows.size(), List.of(ImmutableBitSet.of(0)));
     }
 }
@@ -0,0 +1,367 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.calcite.InMemoryResultSet.Column;
+import com.beancount.jdbc.ledger.LedgerSnapshot;
+import com.beancount.jdbc.schema.IndexDefinition;
+import com.beancount.jdbc.schema.SchemaCatalog;
+import com.beancount.jdbc.schema.TableDefinition;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeFactoryImpl;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Table;
+
+/**
+ * Precomputed {@link DatabaseMetaData} answers for the Beancount schema of one ledger snapshot.
+ *
+ * <p>GUI clients such as DBeaver call {@code getTables}/{@code getColumns} for every navigator
+ * expansion. Calcite rebuilds those answers by walking the schema tree on each call; here they are
+ * derived once from the shared {@link BeancountSchemaTemplate} and the {@link SchemaCatalog}, and
+ * every call only filters the cached rows. The catalog also supplies the primary keys and indexes
+ * that Calcite does not publish at all.</p>
+ *
+ * <p>Column values mirror what Calcite reports for the same tables so switching between the cached
+ * and delegated paths is invisible to clients.</p>
+ */
+public final class BeancountMetadataCache {
+
+    private static final List<Column> TABLE_COLUMNS =
+            List.of(
+                    new Column("TABLE_CAT", Types.VARCHAR),
+                    new Column("TABLE_SCHEM", Types.VARCHAR),
+                    new Column("TABLE_NAME", Types.VARCHAR),
+                    new Column("TABLE_TYPE", Types.VARCHAR),
+                    new Column("REMARKS", Types.VARCHAR),
+                    new Column("TYPE_CAT", Types.VARCHAR),
+                    new Column("TYPE_SCHEM", Types.VARCHAR),
+                    new Column("TYPE_NAME", Types.VARCHAR),
+                    new Column("SELF_REFERENCING_COL_NAME", Types.VARCHAR),
+                    new Column("REF_GENERATION", Types.VARCHAR));
+    private static final List<Column> COLUMN_COLUMNS =
+            List.of(
+                    new Column("TABLE_CAT", Types.VARCHAR),
+                    new Column("TABLE_SCHEM", Types.VARCHAR),
+                    new Column("TABLE_NAME", Types.VARCHAR),
+                    new Column("COLUMN_NAME", Types.VARCHAR),
+                    new Column("DATA_TYPE", Types.INTEGER),
+                    new Column("TYPE_NAME", Types.VARCHAR),
+                    new Column("COLUMN_SIZE", Types.INTEGER),
+                    new Column("BUFFER_LENGTH", Types.INTEGER),
+                    new Column("DECIMAL_DIGITS", Types.INTEGER),
+                    new Column("NUM_PREC_RADIX", Types.INTEGER),
+                    new Column("NULLABLE", Types.INTEGER),
+                    new Column("REMARKS", Types.VARCHAR),
+                    new Column("COLUMN_DEF", Types.VARCHAR),
+                    new Column("SQL_DATA_TYPE", Types.INTEGER),
+                    new Column("SQL_DATETIME_SUB", Types.INTEGER),
+                    new Column("CHAR_OCTET_LENGTH", Types.INTEGER),
+                    new Column("ORDINAL_POSITION", Types.INTEGER),
+                    new Column("IS_NULLABLE", Types.VARCHAR),
+                    new Column("SCOPE_CATALOG", Types.VARCHAR),
+                    new Column("SCOPE_SCHEMA", Types.VARCHAR),
+                    new Column("SCOPE_TABLE", Types.VARCHAR),
+                    new Column("SOURCE_DATA_TYPE", Types.SMALLINT),
+                    new Column("IS_AUTOINCREMENT", Types.VARCHAR),
+                    new Column("IS_GENERATEDCOLUMN", Types.VARCHAR));
+    private static final List<Column> PRIMARY_KEY_COLUMNS =
+            List.of(
+                    new Column("TABLE_CAT", Types.VARCHAR),
+                    new Column("TABLE_SCHEM", Types.VARCHAR),
+                    new Column("TABLE_NAME", Types.VARCHAR),
+                    new Column("COLUMN_NAME", Types.VARCHAR),
+                    new Column("KEY_SEQ", Types.SMALLINT),
+                    new Column("PK_NAME", Types.VARCHAR));
+    private static final List<Column> INDEX_COLUMNS =
+            List.of(
+                    new Column("TABLE_CAT", Types.VARCHAR),
+                    new Column("TABLE_SCHEM", Types.VARCHAR),
+                    new Column("TABLE_NAME", Types.VARCHAR),
+                    new Column("NON_UNIQUE", Types.BOOLEAN),
+                    new Column("INDEX_QUALIFIER", Types.VARCHAR),
+                    new Column("INDEX_NAME", Types.VARCHAR),
+                    new Column("TYPE", Types.SMALLINT),
+                    new Column("ORDINAL_POSITION", Types.SMALLINT),
+                    new Column("COLUMN_NAME", Types.VARCHAR),
+                    new Column("ASC_OR_DESC", Types.VARCHAR),
+                    new Column("CARDINALITY", Types.BIGINT),
+                    new Column("PAGES", Types.BIGINT),
+                    new Column("FILTER_CONDITION", Types.VARCHAR));
+
+    private final String schemaName;
+    private final Set<String> tableNames;
+    private final List<Object[]> tableRows;
+    private final Map<String, List<Object[]>> columnRows;
+    private final Map<String, List<Object[]>> primaryKeyRows;
+    private final Map<String, List<Object[]>> indexRows;
+
+    private BeancountMetadataCache(String schemaName, Map<String, Table> tables) {
+        this.schemaName = schemaName;
+        this.tableNames = Set.copyOf(tables.keySet());
+        RelDataTypeFactory typeFactory = new JavaTypeFactoryImpl();
+        List<Object[]> tableList = new ArrayList<>();
+        Map<String, List<Object[]>> columns = new LinkedHashMap<>();
+        Map<String, List<Object[]>> keys = new LinkedHashMap<>();
+        Map<String, List<Object[]>> indexes = new LinkedHashMap<>();
+        for (Map.Entry<String, Table> entry : tables.entrySet()) {
+            String tableName = entry.getKey();
+            Table table = entry.getValue();
+            TableDefinition definition = SchemaCatalog.find(tableName).orElse(null);
+            String remarks = definition == null ? null : definition.getRemarks();
+            tableList.add(
+                    new Object[] {
+                        null, schemaName, tableName, table.getJdbcTableType().jdbcName, remarks,
+                        null, null, null, null, null
+                    });
+            columns.put(tableName, buildColumnRows(tableName, table.getRowType(typeFactory)));
+            if (definition != null) {
+                Double rowCount = table.getStatistic().getRowCount();
+                keys.put(tableName, buildPrimaryKeyRows(definition));
+                indexes.put(tableName, buildIndexRows(definition, rowCount == null ? null : rowCount.longValue()));
+            }
+        }
+        // JDBC orders getTables by TABLE_TYPE, then TABLE_NAME.
+        tableList.sort(
+                Comparator.comparing((Object[] row) -> (String) row[3])
+                        .thenComparing(row -> (String) row[2]));
+        this.tableRows = List.copyOf(tableList);
+        this.columnRows = Map.copyOf(columns);
+        this.primaryKeyRows = Map.copyOf(keys);
+        this.indexRows = Map.copyOf(indexes);
+    }
+
+    public static BeancountMetadataCache of(LedgerSnapshot snapshot) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        // Resolved up front: deriving the template inside the factory would re-enter derive().
+        BeancountSchemaTemplate template = BeancountSchemaTemplate.of(snapshot);
+        return snapshot.derive(
+                BeancountMetadataCache.class,
+                s ->
+                        new BeancountMetadataCache(
+                                CalciteConnectionFactory.SCHEMA_NAME,
+                                template.tables(List.of(CalciteConnectionFactory.SCHEMA_NAME))));
+    }
+
+    /**
+     * Returns {@code true} when the cached rows are a complete answer for a table/column lookup on
+     * {@code connection}: the request must target exactly the Beancount schema, and the connection
+     * must not have added tables or views to it through DDL.
+     */
+    public boolean answers(CalciteConnection connection, String catalog, String schemaPattern) {
+        if (catalog != null && !catalog.isEmpty()) {
+            return false;
+        }
+        if (schemaPattern == null || !schemaName.equals(unescape(schemaPattern))) {
+            return false;
+        }
+        SchemaPlus schema = connection.getRootSchema().getSubSchema(schemaName);
+        return schema != null && tableNames.equals(new HashSet<>(schema.getTableNames()));
+    }
+
+    public ResultSet getTables(String tableNamePattern, String[] types) {
+        Pattern names = likePattern(tableNamePattern);
+        Set<String> typeFilter = types == null ? null : new HashSet<>(Arrays.asList(types));
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row : tableRows) {
+            if (names.matcher((String) row[2]).matches()
+                    && (typeFilter == null || typeFilter.contains((String) row[3]))) {
+                rows.add(row);
+            }
+        }
+        return InMemoryResultSet.of(TABLE_COLUMNS, rows);
+    }
+
+    public ResultSet getColumns(String tableNamePattern, String columnNamePattern) {
+        Pattern tables = likePattern(tableNamePattern);
+        Pattern columns = likePattern(columnNamePattern);
+        List<Object[]> rows = new ArrayList<>();
+        for (String tableName : new TreeSet<>(columnRows.keySet())) {
+            if (!tables.matcher(tableName).matches()) {
+                continue;
+            }
+            for (Object[] row : columnRows.get(tableName)) {
+                if (columns.matcher((String) row[3]).matches()) {
+                    rows.add(row);
+                }
+            }
+        }
+        return InMemoryResultSet.of(COLUMN_COLUMNS, rows);
+    }
+
+    /**
+     * Primary keys are answered for the Beancount schema only; Calcite publishes none for any other
+     * schema, so an empty result is also the complete answer there.
+     */
+    public ResultSet getPrimaryKeys(String catalog, String schema, String table) throws SQLException {
+        return InMemoryResultSet.of(PRIMARY_KEY_COLUMNS, lookup(primaryKeyRows, catalog, schema, table));
+    }
+
+    public ResultSet getIndexInfo(String catalog, String schema, String table, boolean unique)
+            throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row : lookup(indexRows, catalog, schema, table)) {
+            if (!unique || !((Boolean) row[3])) {
+                rows.add(row);
+            }
+        }
+        return InMemoryResultSet.of(INDEX_COLUMNS, rows);
+    }
+
+    private List<Object[]> lookup(Map<String, List<Object[]>> source, String catalog, String schema, String table)
+            throws SQLException {
+        if (table == null) {
+            throw new SQLException("Table name must be provided.");
+        }
+        if ((catalog != null && !catalog.isEmpty()) || (schema != null && !schemaName.equals(schema))) {
+            return List.of();
+        }
+        return source.getOrDefault(table, List.of());
+    }
+
+    private List<Object[]> buildColumnRows(String tableName, RelDataType rowType) {
+        List<Object[]> rows = new ArrayList<>();
+        for (RelDataTypeField field : rowType.getFieldList()) {
+            RelDataType type = field.getType();
+            int precision =
+                    type.getSqlTypeName().allowsPrec() && !(type instanceof RelDataTypeFactoryImpl.JavaType)
+                            ? type.getPrecision()
+                            : -1;
+            Integer scale = type.getSqlTypeName().allowsScale() ? type.getScale() : null;
+            int nullable = type.isNullable() ? DatabaseMetaData.columnNullable : DatabaseMetaData.columnNoNulls;
+            rows.add(
+                    new Object[] {
+                        null,
+                        schemaName,
+                        tableName,
+                        field.getName(),
+                        type.getSqlTypeName().getJdbcOrdinal(),
+                        type.getFullTypeString(),
+                        precision,
+                        null,
+                        scale,
+                        10,
+                        nullable,
+                        null,
+                        null,
+                        null,
+                        null,
+                        precision,
+                        field.getIndex() + 1,
+                        type.isNullable() ? "YES" : "NO",
+                        null,
+                        null,
+                        null,
+                        null,
+                        "",
+                        ""
+                    });
+        }
+        return List.copyOf(rows);
+    }
+
+    private List<Object[]> buildPrimaryKeyRows(TableDefinition definition) {
+        List<String> key = definition.getPrimaryKey();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < key.size(); i++) {
+            rows.add(
+                    new Object[] {
+                        null, schemaName, definition.getName(), key.get(i), (short) (i + 1), primaryKeyName(definition)
+                    });
+        }
+        // JDBC orders primary key columns by COLUMN_NAME.
+        rows.sort(Comparator.comparing(row -> (String) row[3]));
+        return List.copyOf(rows);
+    }
+
+    private List<Object[]> buildIndexRows(TableDefinition definition, Long cardinality) {
+        List<IndexDefinition> all = new ArrayList<>();
+        if (!definition.getPrimaryKey().isEmpty()) {
+            all.add(new IndexDefinition(primaryKeyName(definition), true, definition.getPrimaryKey()));
+        }
+        all.addAll(definition.getIndexes());
+        List<Object[]> rows = new ArrayList<>();
+        for (IndexDefinition index : all) {
+            List<String> columns = index.getColumns();
+            for (int i = 0; i < columns.size(); i++) {
+                rows.add(
+                        new Object[] {
+                            null,
+                            schemaName,
+                            definition.getName(),
+                            !index.isUnique(),
+                            null,
+                            index.getName(),
+                            DatabaseMetaData.tableIndexOther,
+                            (short) (i + 1),
+                            columns.get(i),
+                            "A",
+                            cardinality,
+                            null,
+                            null
+                        });
+            }
+        }
+        // JDBC orders index rows by NON_UNIQUE, TYPE, INDEX_NAME, ORDINAL_POSITION.
+        rows.sort(
+                Comparator.comparing((Object[] row) -> (Boolean) row[3])
+                        .thenComparing(row -> (String) row[5])
+                        .thenComparing(row -> (Short) row[7]));
+        return List.copyOf(rows);
+    }
+
+    private static String primaryKeyName(TableDefinition definition) {
+        return definition.getName() + "_pk";
+    }
+
+    private static String unescape(String pattern) {
+        StringBuilder builder = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                builder.append(pattern.charAt(++i));
+            } else if (c == '%' || c == '_') {
+                return null;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static Pattern likePattern(String pattern) {
+        if (pattern == null) {
+            return Pattern.compile(".*", Pattern.DOTALL);
+        }
+        StringBuilder regex = new StringBuilder(pattern.length() + 8);
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
@@ -8,7 +8,7 @@ import org.apache.calcite.schema.SchemaPlus;
 
 /**
  * Calcite {@link SchemaFactory} entry point that wires {@link BeancountSchema} into a Calcite
- * connection. The schema is currently empty; tables will be registered in later stages.
+ * connection. Tables and views are shared per ledger snapshot through {@link BeancountSchemaTemplate}.
  */
 public final class BeancountSchemaFactory implements SchemaFactory {
 
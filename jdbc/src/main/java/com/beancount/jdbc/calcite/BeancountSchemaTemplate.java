@@ -0,0 +1,309 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.LedgerData;
+import com.beancount.jdbc.ledger.LedgerSnapshot;
+import com.beancount.jdbc.schema.AccountBalanceHistoryTable;
+import com.beancount.jdbc.schema.BalanceTable;
+import com.beancount.jdbc.schema.CloseTable;
+import com.beancount.jdbc.schema.DocumentTable;
+import com.beancount.jdbc.schema.EntryLabelsTable;
+import com.beancount.jdbc.schema.EntryTable;
+import com.beancount.jdbc.schema.EventTable;
+import com.beancount.jdbc.schema.HoldingsTable;
+import com.beancount.jdbc.schema.LazyRows;
+import com.beancount.jdbc.schema.LotsTable;
+import com.beancount.jdbc.schema.MetadataTable;
+import com.beancount.jdbc.schema.NetWorthTable;
+import com.beancount.jdbc.schema.NoteTable;
+import com.beancount.jdbc.schema.OpenTable;
+import com.beancount.jdbc.schema.PadTable;
+import com.beancount.jdbc.schema.PeriodTotalsTable;
+import com.beancount.jdbc.schema.PostingsTable;
+import com.beancount.jdbc.schema.PriceTable;
+import com.beancount.jdbc.schema.QueryTable;
+import com.beancount.jdbc.schema.RealizedGainsTable;
+import com.beancount.jdbc.schema.SearchTable;
+import com.beancount.jdbc.schema.TransactionsDetailTable;
+import com.beancount.jdbc.schema.TransactionsView;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.calcite.schema.Function;
+import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Table;
+import org.apache.calcite.schema.impl.AbstractSchema;
+import org.apache.calcite.schema.impl.ViewTable;
+
+/**
+ * Immutable Calcite objects derived from one {@link LedgerSnapshot}.
+ *
+ * <p>The base tables are materialized once per snapshot and the view SQL is parsed and validated
+ * once per mount path against a private root schema. Every connection then mounts a {@link
+ * BeancountSchema} that simply hands out these shared objects, so opening a connection no longer
+ * re-materializes rows or re-analyzes views. {@link ViewTable} only keeps the SQL, row type and
+ * schema path, and is expanded against the querying connection's root at plan time, which is what
+ * makes sharing it across connections safe. The table functions over the snapshot's lot history
+ * and prices and the price functions over its price index are shared the same way.</p>
+ */
+final class BeancountSchemaTemplate {
+
+    private static final List<ColumnMapping> ENTRY_VIEW_COLUMNS =
+            List.of(
+                    ColumnMapping.entry("id"),
+                    ColumnMapping.entry("date"),
+                    ColumnMapping.entry("type"),
+                    ColumnMapping.entry("source_filename"),
+                    ColumnMapping.entry("source_lineno"));
+    private static final Map<String, String> VIEW_SQL = buildViewSql();
+
+    private final Map<String, Table> baseTables;
+    private final Map<String, Function> functions;
+    private final ConcurrentMap<List<String>, Map<String, Table>> mountedTables = new ConcurrentHashMap<>();
+
+    private BeancountSchemaTemplate(LedgerData data) {
+        EntryLabelIndexes labels = new EntryLabelIndexes(data.getEntries());
+        this.baseTables = buildBaseTables(data, labels);
+        this.functions = buildFunctions(data, labels);
+    }
+
+    static BeancountSchemaTemplate of(LedgerSnapshot snapshot) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        return snapshot.derive(
+                BeancountSchemaTemplate.class, s -> new BeancountSchemaTemplate(s.getLedgerData()));
+    }
+
+    /**
+     * Returns base tables plus views for a schema mounted at {@code schemaPath}. Views are resolved
+     * relative to that path, so the result is cached per path.
+     */
+    Map<String, Table> tables(List<String> schemaPath) {
+        return mountedTables.computeIfAbsent(List.copyOf(schemaPath), this::buildMountedTables);
+    }
+
+    /** Table and scalar functions of the snapshot, by name. */
+    Map<String, Function> functions() {
+        return functions;
+    }
+
+    private static Map<String, Function> buildFunctions(LedgerData data, EntryLabelIndexes labels) {
+        Map<String, Function> map = new LinkedHashMap<>();
+        map.put(
+                HoldingsTable.NAME,
+                new LotHistoryTableMacro(data.getLotHistory(), HoldingsTable.getDefinition(), HoldingsTable::rows));
+        map.put(
+                LotsTable.NAME,
+                new LotHistoryTableMacro(data.getLotHistory(), LotsTable.getDefinition(), LotsTable::rows));
+        map.put(NetWorthTable.NAME, new NetWorthTableMacro(data));
+        map.put(PeriodTotalsTable.NAME, new PeriodTotalsTableMacro(data));
+        map.put(EntryLabelsTable.TAGGED_NAME, new TaggedTableMacro(labels));
+        map.put(SearchTable.NAME, new SearchTableMacro(data.getTextIndex()));
+        map.putAll(PriceFunctions.of(data.getPriceIndex()));
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static Map<String, Table> buildBaseTables(LedgerData data, EntryLabelIndexes labels) {
+        Map<String, Table> map = new LinkedHashMap<>();
+        map.put(EntryTable.NAME, new EntryCalciteTable(data.getEntries()));
+        map.put(TransactionsDetailTable.NAME, new TransactionsDetailCalciteTable(data.getEntries(), data.getTextIndex()));
+        map.put(OpenTable.DETAIL_NAME, new OpenDetailCalciteTable(LazyRows.of(data.getOpens(), OpenTable::toDetailRow)));
+        map.put(CloseTable.DETAIL_NAME, new CloseDetailCalciteTable(LazyRows.of(data.getCloses(), CloseTable::toDetailRow)));
+        map.put(PadTable.DETAIL_NAME, new PadDetailCalciteTable(LazyRows.of(data.getPads(), PadTable::toDetailRow)));
+        map.put(BalanceTable.DETAIL_NAME, new BalanceDetailCalciteTable(LazyRows.of(data.getBalances(), BalanceTable::toDetailRow)));
+        map.put(NoteTable.DETAIL_NAME, new NoteDetailCalciteTable(LazyRows.of(data.getNotes(), NoteTable::toDetailRow)));
+        map.put(DocumentTable.DETAIL_NAME, new DocumentDetailCalciteTable(LazyRows.of(data.getDocuments(), DocumentTable::toDetailRow)));
+        map.put(EventTable.DETAIL_NAME, new EventDetailCalciteTable(LazyRows.of(data.getEvents(), EventTable::toDetailRow)));
+        map.put(QueryTable.DETAIL_NAME, new QueryDetailCalciteTable(LazyRows.of(data.getQueries(), QueryTable::toDetailRow)));
+        map.put(PriceTable.DETAIL_NAME, new PriceDetailCalciteTable(LazyRows.of(data.getPrices(), PriceTable::toDetailRow)));
+        map.put(
+                PostingsTable.NAME,
+                new PostingsCalciteTable(
+                        PostingsTable.orderedPostings(data.getPostings(), data.getEntries()), data.getEntries()));
+        map.put(AccountBalanceHistoryTable.NAME, new AccountBalanceHistoryCalciteTable(data.getBalanceHistory()));
+        map.put(
+                RealizedGainsTable.NAME,
+                new RealizedGainsCalciteTable(LazyRows.of(data.getRealizedGains(), RealizedGainsTable::toRow)));
+        map.put(
+                MetadataTable.ENTRY_NAME,
+                new MetadataCalciteTable(data.getEntryMetadata(), MetadataTable.getEntryDefinition()));
+        map.put(
+                MetadataTable.POSTING_NAME,
+                new MetadataCalciteTable(data.getPostingMetadata(), MetadataTable.getPostingDefinition()));
+        map.put(EntryLabelsTable.TAGS_NAME, new EntryLabelsCalciteTable(labels::tags, EntryLabelsTable.getTagsDefinition()));
+        map.put(
+                EntryLabelsTable.LINKS_NAME,
+                new EntryLabelsCalciteTable(labels::links, EntryLabelsTable.getLinksDefinition()));
+        return Collections.unmodifiableMap(map);
+    }
+
+    private Map<String, Table> buildMountedTables(List<String> schemaPath) {
+        if (schemaPath.isEmpty()) {
+            throw new IllegalArgumentException("Beancount schema must be mounted below the root schema");
+        }
+        SchemaPlus schema = CalciteSchema.createRootSchema(false, false).plus();
+        for (int i = 0; i < schemaPath.size() - 1; i++) {
+            schema = schema.add(schemaPath.get(i), new AbstractSchema());
+        }
+        schema = schema.add(schemaPath.get(schemaPath.size() - 1), new BaseTablesSchema(baseTables));
+
+        Map<String, Table> map = new LinkedHashMap<>(baseTables);
+        for (Map.Entry<String, String> entry : VIEW_SQL.entrySet()) {
+            List<String> viewPath = buildViewPath(schemaPath, entry.getKey());
+            try {
+                var macro = ViewTable.viewMacro(schema, entry.getValue(), schemaPath, viewPath, Boolean.FALSE);
+                map.put(entry.getKey(), macro.apply(Collections.emptyList()));
+            } catch (RuntimeException ex) {
+                throw new IllegalStateException(
+                        "Failed to register Calcite view '" + entry.getKey() + "' with SQL:\n"
+                                + entry.getValue(),
+                        ex);
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static List<String> buildViewPath(List<String> schemaPath, String viewName) {
+        List<String> path = new ArrayList<>(schemaPath.size() + 1);
+        path.addAll(schemaPath);
+        path.add(viewName);
+        return List.copyOf(path);
+    }
+
+    private static Map<String, String> buildViewSql() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put(
+                OpenTable.VIEW_NAME,
+                buildViewSql(
+                        OpenTable.DETAIL_NAME,
+                        List.of(ColumnMapping.detail("account"), ColumnMapping.detail("currencies"))));
+        map.put(
+                CloseTable.VIEW_NAME,
+                buildViewSql(
+                        CloseTable.DETAIL_NAME,
+                        List.of(ColumnMapping.detail("account"))));
+        map.put(
+                PadTable.VIEW_NAME,
+                buildViewSql(
+                        PadTable.DETAIL_NAME,
+                        List.of(ColumnMapping.detail("account"), ColumnMapping.detail("source_account"))));
+        map.put(
+                BalanceTable.VIEW_NAME,
+                buildViewSql(
+                        BalanceTable.DETAIL_NAME,
+                        List.of(
+                                ColumnMapping.detail("account"),
+                                ColumnMapping.detail("amount_number"),
+                                ColumnMapping.detail("amount_currency"),
+                                ColumnMapping.detail("diff_number"),
+                                ColumnMapping.detail("diff_currency"))));
+        map.put(
+                NoteTable.VIEW_NAME,
+                buildViewSql(
+                        NoteTable.DETAIL_NAME,
+                        List.of(ColumnMapping.detail("account"), ColumnMapping.detail("comment"))));
+        map.put(
+                DocumentTable.VIEW_NAME,
+                buildViewSql(
+                        DocumentTable.DETAIL_NAME,
+                        List.of(ColumnMapping.detail("account"), ColumnMapping.detail("filenam"))));
+        map.put(
+                EventTable.VIEW_NAME,
+                buildViewSql(
+                        EventTable.DETAIL_NAME,
+                        List.of(
+                                ColumnMapping.detail("type", "event_type"),
+                                ColumnMapping.detail("description"))));
+        map.put(
+                QueryTable.VIEW_NAME,
+                buildViewSql(
+                        QueryTable.DETAIL_NAME,
+                        List.of(ColumnMapping.detail("name"), ColumnMapping.detail("query_string"))));
+        map.put(
+                PriceTable.VIEW_NAME,
+                buildViewSql(
+                        PriceTable.DETAIL_NAME,
+                        List.of(
+                                ColumnMapping.detail("currency"),
+                                ColumnMapping.detail("amount_number"),
+                                ColumnMapping.detail("amount_currency"))));
+        map.put(
+                TransactionsView.NAME,
+                buildViewSql(
+                        TransactionsDetailTable.NAME,
+                        List.of(
+                                ColumnMapping.detail("flag"),
+                                ColumnMapping.detail("payee"),
+                                ColumnMapping.detail("narration"),
+                                ColumnMapping.detail("tags"),
+                                ColumnMapping.detail("links"))));
+        return Map.copyOf(map);
+    }
+
+    private static String buildViewSql(String detailName, List<ColumnMapping> detailColumns) {
+        StringBuilder select = new StringBuilder("SELECT ");
+        appendColumns(select, "e", ENTRY_VIEW_COLUMNS);
+        if (!detailColumns.isEmpty()) {
+            select.append(", ");
+            appendColumns(select, "d", detailColumns);
+        }
+        select.append(" FROM \"entry\" AS e JOIN ")
+                .append(quoteIdentifier(detailName))
+                .append(" AS d ON e.\"id\" = d.\"id\"");
+        return select.toString();
+    }
+
+    private static void appendColumns(StringBuilder builder, String alias, List<ColumnMapping> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            ColumnMapping column = columns.get(i);
+            builder.append(alias)
+                    .append('.')
+                    .append(quoteIdentifier(column.source()))
+                    .append(" AS ")
+                    .append(quoteIdentifier(column.alias()));
+        }
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private record ColumnMapping(String source, String alias, boolean entry) {
+        static ColumnMapping entry(String column) {
+            return new ColumnMapping(column, column, true);
+        }
+
+        static ColumnMapping detail(String column) {
+            return new ColumnMapping(column, column, false);
+        }
+
+        static ColumnMapping detail(String column, String alias) {
+            return new ColumnMapping(column, alias, false);
+        }
+
+        boolean isEntry() {
+            return entry;
+        }
+    }
+
+    /** Base tables only; views are analyzed against this before being published. */
+    private static final class BaseTablesSchema extends AbstractSchema {
+        private final Map<String, Table> tables;
+
+        BaseTablesSchema(Map<String, Table> tables) {
+            this.tables = tables;
+        }
+
+        @Override
+        protected Map<String, Table> getTableMap() {
+            return tables;
+        }
+    }
+}
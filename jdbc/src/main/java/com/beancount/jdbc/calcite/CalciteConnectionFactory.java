@@ -1,27 +1,54 @@
 package com.beancount.jdbc.calcite;
 
+import com.beancount.jdbc.ledger.LedgerProvider;
+import com.beancount.jdbc.ledger.LedgerSnapshot;
+import com.beancount.jdbc.loader.LoaderException;
 import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import org.apache.calcite.jdbc.CalciteSchema;
 import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.jdbc.Driver;
 import org.apache.calcite.schema.SchemaPlus;
 
 /**
  * Helper for opening Calcite connections that are pre-wired with the Beancount schema.
+ *
+ * <p>The Beancount schema is mounted from the snapshot's shared {@link BeancountSchemaTemplate},
+ * so the per-connection cost is the Calcite connection itself plus a thin schema wrapper that
+ * holds any DDL objects created on that connection.</p>
  */
 public final class CalciteConnectionFactory {
 
+    public static final String SCHEMA_NAME = "beancount";
+
+    // Calcite mounts its own catalog schema under the root of every connection.
+    private static final String METADATA_SCHEMA_NAME = "metadata";
+    private static final String CALCITE_URL = "jdbc:calcite:";
+    private static final Driver CALCITE_DRIVER = new Driver();
+
     private CalciteConnectionFactory() {}
 
     public static Connection connect(Path ledgerPath, Properties properties) throws SQLException {
         Objects.requireNonNull(ledgerPath, "ledgerPath");
+        try {
+            return connect(LedgerProvider.snapshot(ledgerPath), properties);
+        } catch (LoaderException ex) {
+            throw new SQLException("Failed to load ledger: " + ledgerPath, ex);
+        }
+    }
+
+    public static Connection connect(LedgerSnapshot snapshot, Properties properties) throws SQLException {
+        Objects.requireNonNull(snapshot, "snapshot");
         Properties calciteProps = new Properties();
         if (properties != null) {
-            calciteProps.putAll(properties);
+            // stringPropertyNames() also walks defaults, which putAll() would silently drop.
+            for (String key : properties.stringPropertyNames()) {
+                calciteProps.setProperty(key, properties.getProperty(key));
+            }
         }
         setDefault(calciteProps, "lex", "JAVA");
         setDefault(calciteProps, "quoting", "DOUBLE_QUOTE");
@@ -35,19 +62,50 @@ public final class CalciteConnectionFactory {
         setDefault(calciteProps, "conformance", "BABEL");
         setDefault(calciteProps, "mutable", "true");
 
-        Connection connection = DriverManager.getConnection("jdbc:calcite:", calciteProps);
+        // Going straight to Calcite's driver skips the DriverManager scan on every connect.
+        Connection connection = CALCITE_DRIVER.connect(CALCITE_URL, calciteProps);
         CalciteConnection calcite = connection.unwrap(CalciteConnection.class);
         SchemaPlus root = calcite.getRootSchema();
-        root.add(
-                "beancount",
-                new BeancountSchema(
-                        root,
-                        "beancount",
-                        Map.of("ledger", ledgerPath.toAbsolutePath().toString())));
-        calcite.setSchema("beancount");
+        root.add(SCHEMA_NAME, new BeancountSchema(root, SCHEMA_NAME, snapshot));
+        calcite.setSchema(SCHEMA_NAME);
         return connection;
     }
 
+    /**
+     * Returns a connection opened by {@link #connect(LedgerSnapshot, Properties)} to the state it
+     * had right after opening: objects created through DDL are dropped by mounting a fresh Beancount
+     * schema (and removing any other schema added to the root), and the default schema, auto-commit
+     * and read-only flags are restored. Pools call this before handing a connection to the next
+     * borrower.
+     */
+    public static void resetSession(Connection connection, LedgerSnapshot snapshot) throws SQLException {
+        Objects.requireNonNull(connection, "connection");
+        Objects.requireNonNull(snapshot, "snapshot");
+        CalciteConnection calcite = connection.unwrap(CalciteConnection.class);
+        SchemaPlus root = calcite.getRootSchema();
+        CalciteSchema rootSchema = root.unwrap(CalciteSchema.class);
+        Set<String> mounted = Set.copyOf(rootSchema.getSubSchemaMap().keySet());
+        for (String name : mounted) {
+            if (!SCHEMA_NAME.equals(name) && !METADATA_SCHEMA_NAME.equals(name)) {
+                rootSchema.removeSubSchema(name);
+            }
+        }
+        for (String name : Set.copyOf(rootSchema.getTableNames())) {
+            rootSchema.removeTable(name);
+        }
+        for (String name : Set.copyOf(rootSchema.getFunctionNames())) {
+            rootSchema.removeFunction(name);
+        }
+        root.add(SCHEMA_NAME, new BeancountSchema(root, SCHEMA_NAME, snapshot));
+        calcite.setSchema(SCHEMA_NAME);
+        if (!calcite.getAutoCommit()) {
+            calcite.setAutoCommit(true);
+        }
+        if (calcite.isReadOnly()) {
+            calcite.setReadOnly(false);
+        }
+    }
+
     private static void setDefault(Properties properties, String key, String value) {
         if (!properties.containsKey(key)) {
             properties.setProperty(key, value);
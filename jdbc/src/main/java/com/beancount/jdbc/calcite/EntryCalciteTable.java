@@ -7,19 +7,22 @@ import java.sql.Types;
 import java.util.List;
 import org.apache.calcite.DataContext;
 import org.apache.calcite.linq4j.Enumerable;
-import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
-import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.ImmutableBitSet;
 
-final class EntryCalciteTable extends AbstractTable implements ScannableTable {
+final class EntryCalciteTable extends AbstractTable implements ProjectableFilterableTable {
 
     private final List<Object[]> rows;
 
     EntryCalciteTable(List<LedgerEntry> entries) {
-        this.rows = EntryTable.materializeRows(entries);
+        this.rows = EntryTable.lazyRows(entries);
     }
 
     @Override
@@ -32,8 +35,13 @@ final class EntryCalciteTable extends AbstractTable implements ScannableTable {
     }
 
     @Override
-    public Enumerable<Object[]> scan(DataContext root) {
-        return Linq4j.asEnumerable(rows);
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        return QueryGuard.scan(root, rows, projects);
+    }
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of(rows.size(), List.of(ImmutableBitSet.of(0)));
     }
 
     private RelDataType toRelDataType(RelDataTypeFactory factory, ColumnDescriptor column) {
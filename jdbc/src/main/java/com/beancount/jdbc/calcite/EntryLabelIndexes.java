@@ -0,0 +1,48 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.schema.EntryLabelIndex;
+import java.util.List;
+
+/**
+ * The tag and link indexes of a snapshot's transactions, shared by {@code entry_tags},
+ * {@code entry_links} and {@code tagged} and each built on first use.
+ */
+final class EntryLabelIndexes {
+
+    private final List<LedgerEntry> entries;
+    private volatile EntryLabelIndex tags;
+    private volatile EntryLabelIndex links;
+
+    EntryLabelIndexes(List<LedgerEntry> entries) {
+        this.entries = entries;
+    }
+
+    EntryLabelIndex tags() {
+        EntryLabelIndex index = tags;
+        if (index == null) {
+            synchronized (this) {
+                index = tags;
+                if (index == null) {
+                    index = EntryLabelIndex.tags(entries);
+                    tags = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    EntryLabelIndex links() {
+        EntryLabelIndex index = links;
+        if (index == null) {
+            synchronized (this) {
+                index = links;
+                if (index == null) {
+                    index = EntryLabelIndex.links(entries);
+                    links = index;
+                }
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,159 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.schema.ColumnDescriptor;
+import com.beancount.jdbc.schema.EntryLabelIndex;
+import com.beancount.jdbc.schema.EntryLabelsTable;
+import com.beancount.jdbc.schema.IdBitmap;
+import com.beancount.jdbc.schema.TableDefinition;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.util.ImmutableBitSet;
+
+/**
+ * The {@code entry_tags} and {@code entry_links} tables over an {@link EntryLabelIndex}.
+ *
+ * <p>A label equality, an {@code OR} of them or an {@code IN} list, against literals or
+ * parameters, is answered from the labels' {@link IdBitmap}s: their union gives the entries to
+ * read, and only those entries' rows are visited. Equalities on {@code id} narrow that to one
+ * entry. Filters are left in place for Calcite to evaluate, so filters this table does not
+ * understand stay correct.</p>
+ */
+final class EntryLabelsCalciteTable extends AbstractTable implements ProjectableFilterableTable {
+
+    private final Supplier<EntryLabelIndex> index;
+    private final TableDefinition definition;
+
+    EntryLabelsCalciteTable(Supplier<EntryLabelIndex> index, TableDefinition definition) {
+        this.index = index;
+        this.definition = definition;
+    }
+
+    @Override
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+        RelDataTypeFactory.Builder builder = typeFactory.builder();
+        for (ColumnDescriptor column : definition.getColumns()) {
+            builder.add(column.getName(), CalciteTypeMapper.toRelDataType(typeFactory, column));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        EntryLabelIndex labels = index.get();
+        Probe probe = new Probe(root);
+        for (RexNode filter : filters) {
+            for (RexNode conjunct : RelOptUtil.conjunctions(filter)) {
+                probe.apply(conjunct);
+            }
+        }
+        if (probe.empty) {
+            return QueryGuard.scan(root, List.of(), projects);
+        }
+        if (probe.labels == null) {
+            List<Object[]> rows = EntryLabelsTable.lazyRows(labels);
+            if (probe.id != null) {
+                int id = (int) (long) probe.id;
+                rows = rows.subList(labels.firstRow(id), labels.endRow(id));
+            }
+            return QueryGuard.scan(root, rows, projects);
+        }
+        return QueryGuard.scan(root, EntryLabelsTable.lazyRows(labels, rows(labels, probe)), projects);
+    }
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of(index.get().size(), List.of(ImmutableBitSet.of(0, 1)));
+    }
+
+    /** Rows of the entries carrying any of the probed labels, restricted to those labels. */
+    private static int[] rows(EntryLabelIndex labels, Probe probe) {
+        IdBitmap ids = IdBitmap.empty();
+        boolean[] wanted = new boolean[0];
+        for (String label : probe.labels) {
+            int code = labels.code(label);
+            if (code < 0) {
+                continue;
+            }
+            if (code >= wanted.length) {
+                wanted = Arrays.copyOf(wanted, code + 1);
+            }
+            wanted[code] = true;
+            ids = ids.or(labels.ids(label));
+        }
+        int[] entries;
+        if (probe.id != null) {
+            int id = (int) (long) probe.id;
+            entries = ids.contains(id) ? new int[] {id} : new int[0];
+        } else {
+            entries = ids.toArray();
+        }
+        int[] rows = new int[entries.length];
+        int count = 0;
+        for (int id : entries) {
+            for (int row = labels.firstRow(id); row < labels.endRow(id); row++) {
+                int code = labels.code(row);
+                if (code < wanted.length && wanted[code]) {
+                    if (count == rows.length) {
+                        rows = Arrays.copyOf(rows, count * 2);
+                    }
+                    rows[count++] = row;
+                }
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /** Label and id restrictions implied by the scan's filters, with parameters bound. */
+    private static final class Probe {
+        private final DataContext root;
+        Set<String> labels;
+        Long id;
+        boolean empty;
+
+        Probe(DataContext root) {
+            this.root = root;
+        }
+
+        void apply(RexNode node) {
+            Set<String> allowed = ScanFilters.stringsOf(root, node, EntryLabelsTable.LABEL);
+            if (allowed != null) {
+                if (labels == null) {
+                    labels = new LinkedHashSet<>(allowed);
+                } else {
+                    labels.retainAll(allowed);
+                }
+                empty |= labels.isEmpty();
+                return;
+            }
+            ScanFilters.Equality equality = ScanFilters.equality(node);
+            if (equality == null || equality.column() != EntryLabelsTable.ID || id != null) {
+                return;
+            }
+            Object bound = ScanFilters.value(root, equality.bound());
+            if (bound == null) {
+                // Nothing equals NULL.
+                empty = true;
+            } else if (ScanFilters.isIntegral(bound)) {
+                long candidate = ((Number) bound).longValue();
+                if (candidate < 0 || candidate > Integer.MAX_VALUE) {
+                    empty = true;
+                } else {
+                    id = candidate;
+                }
+            }
+        }
+    }
+}
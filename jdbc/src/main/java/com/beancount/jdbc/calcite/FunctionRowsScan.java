@@ -0,0 +1,87 @@
+package com.beancount.jdbc.calcite;
+
+import java.util.List;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.adapter.enumerable.PhysType;
+import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.tree.Blocks;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.AbstractRelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.runtime.Bindable;
+
+/**
+ * Rows of a table function call expanded by a macro such as {@link LotHistoryTableMacro} or
+ * {@link NetWorthTableMacro}, computed while planning and streamed through the
+ * {@link QueryGuard} when the statement runs.
+ */
+final class FunctionRowsScan extends AbstractRelNode implements EnumerableRel {
+
+    private final RelOptTable table;
+    private final String function;
+    private final String arguments;
+    private final List<Object[]> rows;
+
+    FunctionRowsScan(RelOptCluster cluster, RelOptTable table, String function, String arguments, List<Object[]> rows) {
+        super(cluster, cluster.traitSetOf(EnumerableConvention.INSTANCE));
+        this.table = table;
+        this.function = function;
+        this.arguments = arguments;
+        this.rows = rows;
+    }
+
+    @Override
+    protected RelDataType deriveRowType() {
+        return table.getRowType();
+    }
+
+    @Override
+    public RelOptTable getTable() {
+        return table;
+    }
+
+    @Override
+    public RelWriter explainTerms(RelWriter pw) {
+        return super.explainTerms(pw)
+                .item("function", function)
+                .item("arguments", arguments)
+                .item("rows", rows.size());
+    }
+
+    @Override
+    public double estimateRowCount(RelMetadataQuery mq) {
+        return Math.max(1, rows.size());
+    }
+
+    @Override
+    public RelOptCost computeSelfCost(RelOptPlanner planner, RelMetadataQuery mq) {
+        double count = estimateRowCount(mq);
+        return planner.getCostFactory().makeCost(count, count, 0);
+    }
+
+    @Override
+    public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+        // The rows are always arrays, even for one-column functions such as tagged, so the row
+        // format must not be optimized down to a bare scalar.
+        PhysType physType = PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(), pref.preferArray(), false);
+        Bindable<Object[]> bindable = this::scan;
+        Expression stashed = implementor.stash(bindable, Bindable.class);
+        Expression scan = Expressions.call(stashed, "bind", implementor.getRootExpression());
+        return implementor.result(physType, Blocks.toBlock(scan));
+    }
+
+    private Enumerable<Object[]> scan(DataContext root) {
+        return QueryGuard.scan(root, rows, null);
+    }
+}
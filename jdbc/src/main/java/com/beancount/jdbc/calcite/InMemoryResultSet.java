@@ -0,0 +1,299 @@
+package com.beancount.jdbc.calcite;
+
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.JDBCType;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Forward-only, read-only {@link ResultSet} over rows that are already in memory.
+ *
+ * <p>Used for {@link java.sql.DatabaseMetaData} answers that are precomputed per ledger snapshot,
+ * so the rows themselves are shared and never copied; each result set only owns a cursor. The
+ * typed getters convert between the stored values the way a driver would, so generic tools reading
+ * e.g. {@code KEY_SEQ} through {@code getBigDecimal} or {@code getByte} keep working.</p>
+ */
+final class InMemoryResultSet {
+
+    record Column(String label, int jdbcType) {}
+
+    private InMemoryResultSet() {}
+
+    static ResultSet of(List<Column> columns, List<Object[]> rows) {
+        return (ResultSet)
+                Proxy.newProxyInstance(
+                        ResultSet.class.getClassLoader(),
+                        new Class<?>[] {ResultSet.class},
+                        new CursorHandler(columns, rows));
+    }
+
+    private static final class CursorHandler implements InvocationHandler {
+        private final List<Column> columns;
+        private final List<Object[]> rows;
+        private int position = -1;
+        private boolean wasNull;
+        private boolean closed;
+
+        CursorHandler(List<Column> columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (name) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "InMemoryResultSet[" + rows.size() + " rows]";
+                };
+            }
+            switch (name) {
+                case "close" -> {
+                    closed = true;
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "unwrap" -> {
+                    Class<?> iface = (Class<?>) args[0];
+                    if (iface.isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("Not a wrapper for " + iface.getName());
+                }
+                case "isWrapperFor" -> {
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                }
+                default -> {
+                }
+            }
+            if (closed) {
+                throw new SQLException("ResultSet is closed.");
+            }
+            return switch (name) {
+                case "next" -> {
+                    if (position < rows.size()) {
+                        position++;
+                    }
+                    yield position < rows.size();
+                }
+                case "isBeforeFirst" -> position < 0 && !rows.isEmpty();
+                case "isAfterLast" -> position >= rows.size() && !rows.isEmpty();
+                case "isFirst" -> position == 0 && !rows.isEmpty();
+                case "isLast" -> position == rows.size() - 1 && !rows.isEmpty();
+                case "getRow" -> position >= 0 && position < rows.size() ? position + 1 : 0;
+                case "wasNull" -> wasNull;
+                case "findColumn" -> findColumn((String) args[0]);
+                case "getMetaData" -> metaData();
+                case "getType" -> ResultSet.TYPE_FORWARD_ONLY;
+                case "getConcurrency" -> ResultSet.CONCUR_READ_ONLY;
+                case "getHoldability" -> ResultSet.HOLD_CURSORS_OVER_COMMIT;
+                case "getFetchDirection" -> ResultSet.FETCH_FORWARD;
+                case "getFetchSize" -> 0;
+                case "setFetchSize", "setFetchDirection", "clearWarnings" -> null;
+                case "getWarnings", "getStatement" -> null;
+                case "getObject", "getString", "getNString", "getBoolean", "getByte", "getShort",
+                        "getInt", "getLong", "getFloat", "getDouble", "getBigDecimal", "getDate",
+                        "getTime", "getTimestamp", "getCharacterStream", "getNCharacterStream" ->
+                        read(name, args);
+                default -> throw new SQLFeatureNotSupportedException(
+                        "ResultSet." + name + " is not supported on metadata results.");
+            };
+        }
+
+        private Object read(String getter, Object[] args) throws SQLException {
+            if (position < 0 || position >= rows.size()) {
+                throw new SQLException("ResultSet is not positioned on a row.");
+            }
+            int index = args[0] instanceof String label ? findColumn(label) : (Integer) args[0];
+            if (index < 1 || index > columns.size()) {
+                throw new SQLException("Column index out of range: " + index);
+            }
+            Object value = rows.get(position)[index - 1];
+            wasNull = value == null;
+            Object extra = args.length > 1 ? args[1] : null;
+            return switch (getter) {
+                case "getObject" -> extra instanceof Class<?> type ? convert(value, type) : value;
+                case "getString", "getNString" -> convert(value, String.class);
+                case "getBoolean" -> value == null ? false : convert(value, Boolean.class);
+                case "getByte" -> value == null ? (byte) 0 : convert(value, Byte.class);
+                case "getShort" -> value == null ? (short) 0 : convert(value, Short.class);
+                case "getInt" -> value == null ? 0 : convert(value, Integer.class);
+                case "getLong" -> value == null ? 0L : convert(value, Long.class);
+                case "getFloat" -> value == null ? 0f : convert(value, Float.class);
+                case "getDouble" -> value == null ? 0d : convert(value, Double.class);
+                case "getBigDecimal" -> {
+                    BigDecimal decimal = convert(value, BigDecimal.class);
+                    yield decimal != null && extra instanceof Integer scale
+                            ? decimal.setScale(scale, RoundingMode.HALF_UP)
+                            : decimal;
+                }
+                case "getDate" -> convert(value, Date.class);
+                case "getTime" -> convert(value, Time.class);
+                case "getTimestamp" -> convert(value, Timestamp.class);
+                case "getCharacterStream", "getNCharacterStream" ->
+                        value == null ? null : new StringReader(value.toString());
+                default -> value;
+            };
+        }
+
+        private static <T> T convert(Object value, Class<T> type) throws SQLException {
+            if (value == null || type.isInstance(value)) {
+                return type.cast(value);
+            }
+            try {
+                Object converted;
+                if (type == String.class) {
+                    converted = value.toString();
+                } else if (type == Boolean.class) {
+                    converted = toBoolean(value);
+                } else if (type == BigDecimal.class) {
+                    converted = toDecimal(value);
+                } else if (type == Byte.class) {
+                    converted = toDecimal(value).byteValueExact();
+                } else if (type == Short.class) {
+                    converted = toDecimal(value).shortValueExact();
+                } else if (type == Integer.class) {
+                    converted = toDecimal(value).intValueExact();
+                } else if (type == Long.class) {
+                    converted = toDecimal(value).longValueExact();
+                } else if (type == Float.class) {
+                    converted = toDecimal(value).floatValue();
+                } else if (type == Double.class) {
+                    converted = toDecimal(value).doubleValue();
+                } else if (type == Date.class || type == LocalDate.class) {
+                    LocalDate date = LocalDate.parse(value.toString());
+                    converted = type == Date.class ? Date.valueOf(date) : date;
+                } else if (type == Time.class || type == LocalTime.class) {
+                    LocalTime time = LocalTime.parse(value.toString());
+                    converted = type == Time.class ? Time.valueOf(time) : time;
+                } else if (type == Timestamp.class || type == LocalDateTime.class) {
+                    LocalDateTime timestamp = LocalDateTime.parse(value.toString().replace(' ', 'T'));
+                    converted = type == Timestamp.class ? Timestamp.valueOf(timestamp) : timestamp;
+                } else {
+                    throw new SQLDataException(
+                            "Cannot convert " + value.getClass().getSimpleName() + " to " + type.getName());
+                }
+                return type.cast(converted);
+            } catch (ArithmeticException | IllegalArgumentException | DateTimeException ex) {
+                throw new SQLDataException(
+                        "Cannot convert '" + value + "' to " + type.getSimpleName(), ex);
+            }
+        }
+
+        private static boolean toBoolean(Object value) throws SQLDataException {
+            if (value instanceof Boolean bool) {
+                return bool;
+            }
+            if (value instanceof Number number) {
+                return toDecimal(number).signum() != 0;
+            }
+            return switch (value.toString().trim().toLowerCase(Locale.ROOT)) {
+                case "true", "t", "yes", "y", "1" -> true;
+                case "false", "f", "no", "n", "0" -> false;
+                default -> throw new SQLDataException("Cannot convert '" + value + "' to boolean");
+            };
+        }
+
+        private static BigDecimal toDecimal(Object value) {
+            if (value instanceof BigDecimal decimal) {
+                return decimal;
+            }
+            if (value instanceof Boolean bool) {
+                return bool ? BigDecimal.ONE : BigDecimal.ZERO;
+            }
+            if (value instanceof Long
+                    || value instanceof Integer
+                    || value instanceof Short
+                    || value instanceof Byte) {
+                return BigDecimal.valueOf(((Number) value).longValue());
+            }
+            if (value instanceof Number number) {
+                return new BigDecimal(number.toString());
+            }
+            return new BigDecimal(value.toString().trim());
+        }
+
+        private int findColumn(String label) throws SQLException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).label().equalsIgnoreCase(label)) {
+                    return i + 1;
+                }
+            }
+            throw new SQLException("Unknown column: " + label);
+        }
+
+        private ResultSetMetaData metaData() {
+            return (ResultSetMetaData)
+                    Proxy.newProxyInstance(
+                            ResultSetMetaData.class.getClassLoader(),
+                            new Class<?>[] {ResultSetMetaData.class},
+                            (proxy, method, args) -> {
+                                if (method.getDeclaringClass() == Object.class) {
+                                    return switch (method.getName()) {
+                                        case "equals" -> proxy == args[0];
+                                        case "hashCode" -> System.identityHashCode(proxy);
+                                        default -> "InMemoryResultSetMetaData";
+                                    };
+                                }
+                                if ("getColumnCount".equals(method.getName())) {
+                                    return columns.size();
+                                }
+                                if (args == null || !(args[0] instanceof Integer index)) {
+                                    throw new SQLFeatureNotSupportedException(
+                                            "ResultSetMetaData." + method.getName() + " is not supported.");
+                                }
+                                Column column = columns.get(index - 1);
+                                return switch (method.getName()) {
+                                    case "getColumnLabel", "getColumnName" -> column.label();
+                                    case "getColumnType" -> column.jdbcType();
+                                    case "getColumnTypeName" -> JDBCType.valueOf(column.jdbcType()).getName();
+                                    case "getColumnClassName" -> javaClassName(column.jdbcType());
+                                    case "isNullable" -> ResultSetMetaData.columnNullableUnknown;
+                                    case "getSchemaName", "getTableName", "getCatalogName" -> "";
+                                    case "getPrecision", "getScale", "getColumnDisplaySize" -> 0;
+                                    case "isReadOnly" -> true;
+                                    case "isAutoIncrement", "isCaseSensitive", "isCurrency",
+                                            "isDefinitelyWritable", "isWritable" -> false;
+                                    case "isSearchable" -> true;
+                                    case "isSigned" -> column.jdbcType() == Types.INTEGER
+                                            || column.jdbcType() == Types.SMALLINT
+                                            || column.jdbcType() == Types.BIGINT;
+                                    default -> throw new SQLFeatureNotSupportedException(
+                                            "ResultSetMetaData." + method.getName() + " is not supported.");
+                                };
+                            });
+        }
+
+        private static String javaClassName(int jdbcType) {
+            return switch (JDBCType.valueOf(jdbcType)) {
+                case INTEGER -> Integer.class.getName();
+                case SMALLINT -> Short.class.getName();
+                case BIGINT -> Long.class.getName();
+                case BOOLEAN -> Boolean.class.getName();
+                default -> String.class.getName();
+            };
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.LotHistory;
+import com.beancount.jdbc.schema.TableDefinition;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BiFunction;
+import org.apache.calcite.schema.FunctionParameter;
+import org.apache.calcite.schema.TableMacro;
+import org.apache.calcite.schema.TranslatableTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+/**
+ * A table function over the snapshot's {@link LotHistory} taking one optional {@code as_of DATE},
+ * such as {@code holdings(DATE '2020-12-31')} or {@code lots()} for the end of the ledger.
+ *
+ * <p>Being a macro, the function is expanded while the query is planned: the argument must be a
+ * literal, and the rows for that date are computed from the history once and handed to a
+ * {@link FunctionRowsScan}.</p>
+ */
+final class LotHistoryTableMacro implements TableMacro {
+
+    private static final FunctionParameter AS_OF = TableMacros.parameter(0, "as_of", SqlTypeName.DATE, true);
+
+    private final LotHistory history;
+    private final TableDefinition definition;
+    private final BiFunction<LotHistory, LocalDate, List<Object[]>> rows;
+
+    LotHistoryTableMacro(
+            LotHistory history,
+            TableDefinition definition,
+            BiFunction<LotHistory, LocalDate, List<Object[]>> rows) {
+        this.history = history;
+        this.definition = definition;
+        this.rows = rows;
+    }
+
+    @Override
+    public List<FunctionParameter> getParameters() {
+        return List.of(AS_OF);
+    }
+
+    @Override
+    public TranslatableTable apply(List<? extends Object> arguments) {
+        LocalDate asOf = arguments.isEmpty() ? null : TableMacros.toLocalDate(arguments.get(0));
+        return new TableMacros.Table(
+                definition, "asOf=" + (asOf == null ? "end of ledger" : asOf), rows.apply(history, asOf));
+    }
+}
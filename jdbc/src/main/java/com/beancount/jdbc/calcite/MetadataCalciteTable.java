@@ -0,0 +1,145 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.MetadataStore;
+import com.beancount.jdbc.schema.ColumnDescriptor;
+import com.beancount.jdbc.schema.MetadataTable;
+import com.beancount.jdbc.schema.TableDefinition;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.impl.AbstractTable;
+
+/**
+ * The {@code entry_meta} and {@code posting_meta} tables over a {@link MetadataStore}.
+ *
+ * <p>Equalities on {@code key} and {@code value}, against literals or parameters, are answered
+ * from the store's inverted index, so {@code WHERE key = 'invoice' AND value = ?} reads only the
+ * matching rows; an id equality narrows them, or on its own the id's rows, by binary search.
+ * Filters are only used to skip rows and are left in place for Calcite to evaluate, so filters
+ * this table does not understand stay correct.</p>
+ */
+final class MetadataCalciteTable extends AbstractTable implements ProjectableFilterableTable {
+
+    private final MetadataStore store;
+    private final TableDefinition definition;
+    private final List<Object[]> rows;
+
+    MetadataCalciteTable(MetadataStore store, TableDefinition definition) {
+        this.store = store;
+        this.definition = definition;
+        this.rows = MetadataTable.lazyRows(store);
+    }
+
+    @Override
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+        RelDataTypeFactory.Builder builder = typeFactory.builder();
+        for (ColumnDescriptor column : definition.getColumns()) {
+            builder.add(column.getName(), CalciteTypeMapper.toRelDataType(typeFactory, column));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        Probe probe = new Probe(root);
+        for (RexNode filter : filters) {
+            for (RexNode conjunct : RelOptUtil.conjunctions(filter)) {
+                probe.apply(conjunct);
+            }
+        }
+        if (probe.empty) {
+            return QueryGuard.scan(root, List.of(), projects);
+        }
+        if (probe.key == null) {
+            List<Object[]> candidates = probe.id == null ? rows : rows.subList(firstRow(probe.id), endRow(probe.id));
+            return QueryGuard.scan(root, candidates, projects);
+        }
+        int[] matches = probe.value == null ? store.rows(probe.key) : store.rows(probe.key, probe.value);
+        if (probe.id != null) {
+            matches = within(matches, firstRow(probe.id), endRow(probe.id));
+        }
+        return QueryGuard.scan(root, MetadataTable.lazyRows(store, matches), projects);
+    }
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of(store.size(), List.of());
+    }
+
+    private int firstRow(long id) {
+        return store.firstRow((int) id);
+    }
+
+    private int endRow(long id) {
+        return store.endRow((int) id);
+    }
+
+    /** The part of the ascending {@code rows} in {@code [from, to)}. */
+    private static int[] within(int[] rows, int from, int to) {
+        int start = Arrays.binarySearch(rows, from);
+        int end = Arrays.binarySearch(rows, to);
+        start = start < 0 ? -start - 1 : start;
+        end = end < 0 ? -end - 1 : end;
+        return Arrays.copyOfRange(rows, start, Math.max(start, end));
+    }
+
+    /** Key, value and id equalities implied by the scan's filters, with parameters bound. */
+    private static final class Probe {
+        private final DataContext root;
+        String key;
+        String value;
+        Long id;
+        boolean empty;
+
+        Probe(DataContext root) {
+            this.root = root;
+        }
+
+        void apply(RexNode node) {
+            ScanFilters.Equality equality = ScanFilters.equality(node);
+            if (equality == null) {
+                return;
+            }
+            Object bound = ScanFilters.value(root, equality.bound());
+            if (bound == ScanFilters.UNSUPPORTED) {
+                return;
+            }
+            if (bound == null) {
+                // Nothing equals NULL.
+                empty = true;
+                return;
+            }
+            switch (equality.column()) {
+                case MetadataTable.ID -> {
+                    if (id == null && ScanFilters.isIntegral(bound)) {
+                        long candidate = ((Number) bound).longValue();
+                        if (candidate < 0 || candidate > Integer.MAX_VALUE) {
+                            empty = true;
+                        } else {
+                            id = candidate;
+                        }
+                    }
+                }
+                case MetadataTable.KEY -> {
+                    if (key == null && bound instanceof String text) {
+                        key = text;
+                    }
+                }
+                case MetadataTable.VALUE -> {
+                    if (value == null && bound instanceof String text) {
+                        value = text;
+                    }
+                }
+                default -> {}
+            }
+        }
+    }
+}
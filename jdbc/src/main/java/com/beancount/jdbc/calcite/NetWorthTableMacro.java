@@ -0,0 +1,52 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.LedgerData;
+import com.beancount.jdbc.schema.NetWorthTable;
+import java.util.List;
+import org.apache.calcite.schema.FunctionParameter;
+import org.apache.calcite.schema.TableMacro;
+import org.apache.calcite.schema.TranslatableTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+/**
+ * The {@code networth(interval, currency [, account_prefix])} table function over the snapshot's
+ * postings and price index, such as {@code networth('month', 'USD')}.
+ *
+ * <p>Like {@link LotHistoryTableMacro}, it is expanded while the query is planned: the arguments
+ * must be literals, and the series is computed once by {@link NetWorthTable} and handed to a
+ * {@link FunctionRowsScan}.</p>
+ */
+final class NetWorthTableMacro implements TableMacro {
+
+    private static final List<FunctionParameter> PARAMETERS =
+            List.of(
+                    TableMacros.parameter(0, "interval", SqlTypeName.VARCHAR, false),
+                    TableMacros.parameter(1, "currency", SqlTypeName.VARCHAR, false),
+                    TableMacros.parameter(2, "account_prefix", SqlTypeName.VARCHAR, true));
+
+    private final LedgerData data;
+
+    NetWorthTableMacro(LedgerData data) {
+        this.data = data;
+    }
+
+    @Override
+    public List<FunctionParameter> getParameters() {
+        return PARAMETERS;
+    }
+
+    @Override
+    public TranslatableTable apply(List<? extends Object> arguments) {
+        NetWorthTable.Interval interval =
+                NetWorthTable.Interval.parse(TableMacros.requiredString(arguments, 0, "networth", "interval"));
+        String currency = TableMacros.requiredString(arguments, 1, "networth", "currency");
+        String accountPrefix = arguments.size() > 2 ? TableMacros.toString(arguments.get(2)) : null;
+        List<Object[]> rows =
+                NetWorthTable.rows(
+                        data.getPostings(), data.getEntries(), data.getPriceIndex(), interval, currency, accountPrefix);
+        String description =
+                "interval=" + interval + ", currency=" + currency
+                        + (accountPrefix == null ? "" : ", account_prefix=" + accountPrefix);
+        return new TableMacros.Table(NetWorthTable.getDefinition(), description, rows);
+    }
+}
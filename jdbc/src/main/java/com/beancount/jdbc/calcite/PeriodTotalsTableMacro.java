@@ -0,0 +1,56 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.LedgerData;
+import com.beancount.jdbc.schema.NetWorthTable;
+import com.beancount.jdbc.schema.PeriodTotalsTable;
+import java.time.LocalDate;
+import java.util.List;
+import org.apache.calcite.schema.FunctionParameter;
+import org.apache.calcite.schema.TableMacro;
+import org.apache.calcite.schema.TranslatableTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+/**
+ * The {@code period_totals(account_prefix, bucket [, from [, to]])} table function over the
+ * snapshot's postings, such as {@code period_totals('Expenses', 'month', DATE '2024-01-01')}.
+ *
+ * <p>Like {@link NetWorthTableMacro}, it is expanded while the query is planned: the arguments
+ * must be literals, and the totals are computed once by {@link PeriodTotalsTable} and handed to a
+ * {@link FunctionRowsScan}.</p>
+ */
+final class PeriodTotalsTableMacro implements TableMacro {
+
+    private static final List<FunctionParameter> PARAMETERS =
+            List.of(
+                    TableMacros.parameter(0, "account_prefix", SqlTypeName.VARCHAR, true),
+                    TableMacros.parameter(1, "bucket", SqlTypeName.VARCHAR, false),
+                    TableMacros.parameter(2, "from", SqlTypeName.DATE, true),
+                    TableMacros.parameter(3, "to", SqlTypeName.DATE, true));
+
+    private final LedgerData data;
+
+    PeriodTotalsTableMacro(LedgerData data) {
+        this.data = data;
+    }
+
+    @Override
+    public List<FunctionParameter> getParameters() {
+        return PARAMETERS;
+    }
+
+    @Override
+    public TranslatableTable apply(List<? extends Object> arguments) {
+        String accountPrefix = TableMacros.toString(arguments.get(0));
+        NetWorthTable.Interval bucket =
+                NetWorthTable.Interval.parse(TableMacros.requiredString(arguments, 1, "period_totals", "bucket"));
+        LocalDate from = arguments.size() > 2 ? TableMacros.toLocalDate(arguments.get(2)) : null;
+        LocalDate to = arguments.size() > 3 ? TableMacros.toLocalDate(arguments.get(3)) : null;
+        List<Object[]> rows =
+                PeriodTotalsTable.rows(data.getPostings(), data.getEntries(), accountPrefix, bucket, from, to);
+        String description =
+                "account_prefix=" + (accountPrefix == null ? "all" : accountPrefix) + ", bucket=" + bucket
+                        + (from == null ? "" : ", from=" + from)
+                        + (to == null ? "" : ", to=" + to);
+        return new TableMacros.Table(PeriodTotalsTable.getDefinition(), description, rows);
+    }
+}
@@ -0,0 +1,198 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.PostingRecord;
+import com.beancount.jdbc.schema.ColumnKernels;
+import com.beancount.jdbc.schema.DecimalColumn;
+import com.beancount.jdbc.schema.DictionaryColumn;
+import com.beancount.jdbc.schema.GroupIds;
+import com.beancount.jdbc.schema.PostingsTable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.adapter.enumerable.PhysType;
+import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.tree.Blocks;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.AbstractRelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.runtime.Bindable;
+import org.apache.calcite.util.BuiltInMethod;
+
+/**
+ * {@code GROUP BY} with {@code SUM}/{@code COUNT} evaluated straight from the columns of a
+ * {@link PostingsCalciteTable}, planned by {@link PostingsAggregateRule}.
+ *
+ * <p>Calcite's own aggregate builds every scanned row, hashes its keys and adds one {@link
+ * BigDecimal} per row. Here the group keys are {@link DictionaryColumn} codes folded into dense
+ * {@link GroupIds}, and sums run over the scaled longs of the table's {@link DecimalColumn}s with
+ * {@link ColumnKernels#best()}, SIMD lanes when {@code jdk.incubator.vector} is enabled. Only each
+ * group's result becomes a {@link BigDecimal}, with the value and scale Calcite's {@code SUM}
+ * would have produced. Groups come out in order of their first row, like a hash aggregate's. The
+ * table's rows are charged to the {@link QueryGuard} before the columns are read.</p>
+ */
+final class PostingsAggregate extends AbstractRelNode implements EnumerableRel {
+
+    enum Kind {
+        /** {@code SUM}: null for a group without non-null values. */
+        SUM,
+        /** {@code $SUM0}: zero for a group without non-null values. */
+        SUM0,
+        /** {@code COUNT(*)} for column -1, else {@code COUNT(column)}. */
+        COUNT
+    }
+
+    /** One aggregate call over table column {@code column}. */
+    record Measure(Kind kind, int column) {
+        @Override
+        public String toString() {
+            String argument = column < 0 ? "*" : PostingsTable.getDefinition().getColumns().get(column).getName();
+            return kind + "(" + argument + ")";
+        }
+    }
+
+    private final RelOptTable table;
+    private final PostingsCalciteTable postings;
+    private final RelDataType outputType;
+    private final int[] groupColumns;
+    private final Measure[] measures;
+    private final double rowCount;
+
+    PostingsAggregate(
+            RelOptCluster cluster,
+            RelOptTable table,
+            PostingsCalciteTable postings,
+            RelDataType outputType,
+            int[] groupColumns,
+            Measure[] measures,
+            double rowCount) {
+        super(cluster, cluster.traitSetOf(EnumerableConvention.INSTANCE));
+        this.table = table;
+        this.postings = postings;
+        this.outputType = outputType;
+        this.groupColumns = groupColumns;
+        this.measures = measures;
+        this.rowCount = rowCount;
+    }
+
+    @Override
+    protected RelDataType deriveRowType() {
+        return outputType;
+    }
+
+    @Override
+    public RelOptTable getTable() {
+        return table;
+    }
+
+    @Override
+    public RelWriter explainTerms(RelWriter pw) {
+        return super.explainTerms(pw)
+                .item("table", table.getQualifiedName())
+                .item("group", Arrays.toString(groupColumns))
+                .item("aggs", Arrays.toString(measures));
+    }
+
+    @Override
+    public double estimateRowCount(RelMetadataQuery mq) {
+        return rowCount;
+    }
+
+    @Override
+    public RelOptCost computeSelfCost(RelOptPlanner planner, RelMetadataQuery mq) {
+        // A pass over compact columns that emits only the groups; far below scan plus aggregate.
+        return planner.getCostFactory().makeCost(rowCount, rowCount, 0);
+    }
+
+    @Override
+    public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+        PhysType physType = PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(), pref.preferArray());
+        Bindable<Object[]> bindable = this::aggregate;
+        Expression stashed = implementor.stash(bindable, Bindable.class);
+        Expression rows = Expressions.call(stashed, "bind", implementor.getRootExpression());
+        if (getRowType().getFieldCount() == 1) {
+            // Single-column rows are scalars in Calcite's physical row format.
+            rows = Expressions.call(BuiltInMethod.SLICE0.method, rows);
+        }
+        return implementor.result(physType, Blocks.toBlock(rows));
+    }
+
+    private Enumerable<Object[]> aggregate(DataContext root) {
+        List<PostingRecord> records = postings.postings();
+        QueryGuard guard = root == null ? null : QueryGuard.forContext(root);
+        if (guard != null) {
+            // The columns are read in bulk, so the whole table is charged before the first pass.
+            guard.onRow(records.size());
+        }
+        ColumnKernels kernels = ColumnKernels.best();
+        GroupIds groups;
+        if (groupColumns.length == 0) {
+            groups = GroupIds.all(records.size());
+        } else {
+            DictionaryColumn[] keys = new DictionaryColumn[groupColumns.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = postings.dictionaryColumn(groupColumns[i]);
+            }
+            groups = GroupIds.of(kernels, keys);
+        }
+        Object[][] results = new Object[measures.length][];
+        for (int i = 0; i < measures.length; i++) {
+            results[i] = measure(measures[i], records, groups, kernels);
+        }
+        List<Object[]> rows = new ArrayList<>(groups.count());
+        for (int group = 0; group < groups.count(); group++) {
+            Object[] row = new Object[groupColumns.length + measures.length];
+            for (int i = 0; i < groupColumns.length; i++) {
+                row[i] = PostingsTable.value(records.get(groups.firstRow(group)), groupColumns[i]);
+            }
+            for (int i = 0; i < measures.length; i++) {
+                row[groupColumns.length + i] = results[i][group];
+            }
+            rows.add(row);
+        }
+        return Linq4j.asEnumerable(rows);
+    }
+
+    private Object[] measure(Measure measure, List<PostingRecord> records, GroupIds groups, ColumnKernels kernels) {
+        if (measure.kind() != Kind.COUNT) {
+            BigDecimal[] sums = postings.decimalColumn(measure.column()).sumByGroup(groups, kernels);
+            if (measure.kind() == Kind.SUM0) {
+                for (int group = 0; group < sums.length; group++) {
+                    if (sums[group] == null) {
+                        sums[group] = BigDecimal.ZERO;
+                    }
+                }
+            }
+            return sums;
+        }
+        long[] counts;
+        if (measure.column() < 0) {
+            counts = groups.sizes();
+        } else {
+            counts = new long[groups.count()];
+            for (int row = 0; row < records.size(); row++) {
+                if (PostingsTable.value(records.get(row), measure.column()) != null) {
+                    counts[groups.groupOf(row)]++;
+                }
+            }
+        }
+        Object[] boxed = new Object[counts.length];
+        for (int group = 0; group < counts.length; group++) {
+            boxed[group] = counts[group];
+        }
+        return boxed;
+    }
+}
@@ -0,0 +1,177 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.schema.ColumnDescriptor;
+import com.beancount.jdbc.schema.PostingsTable;
+import java.sql.Types;
+import java.util.List;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelRule;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rel.logical.LogicalProject;
+import org.apache.calcite.rel.logical.LogicalTableScan;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.tools.RelBuilderFactory;
+
+/**
+ * Replaces an aggregate directly over the {@code postings} table, optionally through a project of
+ * plain column references, with a {@link PostingsAggregate}.
+ *
+ * <p>Only simple {@code GROUP BY}s whose calls are {@code SUM}/{@code $SUM0} of a DECIMAL column or
+ * {@code COUNT} without {@code DISTINCT}, {@code FILTER} or {@code WITHIN} clauses are pushed down;
+ * anything else, including aggregates above a {@code WHERE}, keeps Calcite's own plan.</p>
+ */
+final class PostingsAggregateRule extends RelRule<PostingsAggregateRule.Config> {
+
+    private static final PostingsAggregateRule SCAN =
+            new Config(
+                            "PostingsAggregateRule(scan)",
+                            aggregate -> aggregate.operand(LogicalAggregate.class)
+                                    .oneInput(scan -> scan.operand(LogicalTableScan.class).noInputs()),
+                            RelFactories.LOGICAL_BUILDER)
+                    .toRule();
+    private static final PostingsAggregateRule PROJECT_SCAN =
+            new Config(
+                            "PostingsAggregateRule(project)",
+                            aggregate -> aggregate.operand(LogicalAggregate.class)
+                                    .oneInput(project -> project.operand(LogicalProject.class)
+                                            .oneInput(scan -> scan.operand(LogicalTableScan.class).noInputs())),
+                            RelFactories.LOGICAL_BUILDER)
+                    .toRule();
+
+    private PostingsAggregateRule(Config config) {
+        super(config);
+    }
+
+    /** Adds both rule variants; planners ignore rules they already have. */
+    static void register(RelOptPlanner planner) {
+        planner.addRule(SCAN);
+        planner.addRule(PROJECT_SCAN);
+    }
+
+    @Override
+    public void onMatch(RelOptRuleCall call) {
+        Aggregate aggregate = call.rel(0);
+        LogicalTableScan scan = call.rel(call.getRelList().size() - 1);
+        RelOptTable relOptTable = scan.getTable();
+        PostingsCalciteTable table = relOptTable.unwrap(PostingsCalciteTable.class);
+        if (table == null || aggregate.getGroupType() != Aggregate.Group.SIMPLE) {
+            return;
+        }
+        int[] inputColumns = inputColumns(call, scan);
+        if (inputColumns == null) {
+            return;
+        }
+        int[] groupColumns = aggregate.getGroupSet().toArray();
+        for (int i = 0; i < groupColumns.length; i++) {
+            groupColumns[i] = inputColumns[groupColumns[i]];
+        }
+        List<AggregateCall> calls = aggregate.getAggCallList();
+        PostingsAggregate.Measure[] measures = new PostingsAggregate.Measure[calls.size()];
+        for (int i = 0; i < measures.length; i++) {
+            measures[i] = measure(calls.get(i), inputColumns);
+            if (measures[i] == null) {
+                return;
+            }
+        }
+        call.transformTo(
+                new PostingsAggregate(
+                        aggregate.getCluster(),
+                        relOptTable,
+                        table,
+                        aggregate.getRowType(),
+                        groupColumns,
+                        measures,
+                        call.getMetadataQuery().getRowCount(aggregate)));
+    }
+
+    /** Table column behind each aggregate input field, or {@code null} if a field is computed. */
+    private static int[] inputColumns(RelOptRuleCall call, LogicalTableScan scan) {
+        if (call.getRelList().size() == 2) {
+            int[] identity = new int[scan.getRowType().getFieldCount()];
+            for (int i = 0; i < identity.length; i++) {
+                identity[i] = i;
+            }
+            return identity;
+        }
+        LogicalProject project = call.rel(1);
+        List<RexNode> projects = project.getProjects();
+        int[] columns = new int[projects.size()];
+        for (int i = 0; i < columns.length; i++) {
+            if (!(projects.get(i) instanceof RexInputRef ref)) {
+                return null;
+            }
+            columns[i] = ref.getIndex();
+        }
+        return columns;
+    }
+
+    private static PostingsAggregate.Measure measure(AggregateCall call, int[] inputColumns) {
+        if (call.isDistinct()
+                || call.isApproximate()
+                || call.filterArg >= 0
+                || call.distinctKeys != null
+                || !call.getCollation().getFieldCollations().isEmpty()) {
+            return null;
+        }
+        List<Integer> args = call.getArgList();
+        SqlKind kind = call.getAggregation().getKind();
+        switch (kind) {
+            case SUM, SUM0 -> {
+                if (args.size() != 1 || !isDecimal(inputColumns[args.get(0)])) {
+                    return null;
+                }
+                return new PostingsAggregate.Measure(
+                        kind == SqlKind.SUM ? PostingsAggregate.Kind.SUM : PostingsAggregate.Kind.SUM0,
+                        inputColumns[args.get(0)]);
+            }
+            case COUNT -> {
+                if (args.isEmpty()) {
+                    return new PostingsAggregate.Measure(PostingsAggregate.Kind.COUNT, -1);
+                }
+                return args.size() == 1
+                        ? new PostingsAggregate.Measure(PostingsAggregate.Kind.COUNT, inputColumns[args.get(0)])
+                        : null;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static boolean isDecimal(int column) {
+        ColumnDescriptor descriptor = PostingsTable.getDefinition().getColumns().get(column);
+        return descriptor.getJdbcType() == Types.DECIMAL;
+    }
+
+    /** Operands and description of one variant of the rule. */
+    record Config(String description, OperandTransform operandSupplier, RelBuilderFactory relBuilderFactory)
+            implements RelRule.Config {
+
+        @Override
+        public PostingsAggregateRule toRule() {
+            return new PostingsAggregateRule(this);
+        }
+
+        @Override
+        public Config withDescription(String description) {
+            return new Config(description, operandSupplier, relBuilderFactory);
+        }
+
+        @Override
+        public Config withOperandSupplier(OperandTransform operandSupplier) {
+            return new Config(description, operandSupplier, relBuilderFactory);
+        }
+
+        @Override
+        public Config withRelBuilderFactory(RelBuilderFactory relBuilderFactory) {
+            return new Config(description, operandSupplier, relBuilderFactory);
+        }
+    }
+}
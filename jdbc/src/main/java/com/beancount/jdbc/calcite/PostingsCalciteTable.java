@@ -1,22 +1,53 @@
 package com.beancount.jdbc.calcite;
 
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
 import com.beancount.jdbc.schema.ColumnDescriptor;
+import com.beancount.jdbc.schema.DecimalColumn;
+import com.beancount.jdbc.schema.DictionaryColumn;
+import com.beancount.jdbc.schema.LazyRows;
+import com.beancount.jdbc.schema.PostingRangeIndex;
 import com.beancount.jdbc.schema.PostingsTable;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.apache.calcite.DataContext;
 import org.apache.calcite.linq4j.Enumerable;
-import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.logical.LogicalTableScan;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
-import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.TranslatableTable;
 import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.util.ImmutableBitSet;
 
-final class PostingsCalciteTable extends AbstractTable implements ScannableTable {
+/**
+ * The {@code postings} table. Scans go through {@link QueryGuard#scan} like every other table;
+ * {@link #toRel} additionally registers {@link PostingsAggregateRule} so that plain {@code SUM} and
+ * {@code COUNT} aggregates over this table run on compact {@link DecimalColumn}s and
+ * {@link DictionaryColumn}s instead, and {@link PostingsRangeAggregateRule} so that period sums
+ * over this table joined with {@code entry} are answered from a {@link PostingRangeIndex}.
+ */
+final class PostingsCalciteTable extends AbstractTable implements ProjectableFilterableTable, TranslatableTable {
 
+    private final List<PostingRecord> postings;
+    private final List<LedgerEntry> entries;
     private final List<Object[]> rows;
+    private final ConcurrentMap<Integer, DecimalColumn> decimalColumns = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, DictionaryColumn> dictionaryColumns = new ConcurrentHashMap<>();
+    private volatile PostingRangeIndex rangeIndex;
 
-    PostingsCalciteTable(List<Object[]> postingRows) {
-        this.rows = postingRows;
+    PostingsCalciteTable(List<PostingRecord> orderedPostings, List<LedgerEntry> entries) {
+        this.postings = orderedPostings;
+        this.entries = entries;
+        this.rows = LazyRows.of(orderedPostings, PostingsTable::toRow);
     }
 
     @Override
@@ -29,7 +60,53 @@ final class PostingsCalciteTable extends AbstractTable implements ScannableTable
     }
 
     @Override
-    public Enumerable<Object[]> scan(DataContext root) {
-        return Linq4j.asEnumerable(rows);
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        return QueryGuard.scan(root, rows, projects);
+    }
+
+    @Override
+    public RelNode toRel(RelOptTable.ToRelContext context, RelOptTable relOptTable) {
+        RelOptCluster cluster = context.getCluster();
+        PostingsAggregateRule.register(cluster.getPlanner());
+        PostingsRangeAggregateRule.register(cluster.getPlanner());
+        // The same scan Calcite creates for any other table, so projection pushdown is unaffected.
+        return LogicalTableScan.create(cluster, relOptTable, context.getTableHints());
+    }
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of(rows.size(), List.of(ImmutableBitSet.of(0)));
+    }
+
+    /** Postings in row order; row {@code i} of every scan is built from element {@code i}. */
+    List<PostingRecord> postings() {
+        return postings;
+    }
+
+    /** Compact copy of DECIMAL column {@code column}, built on first use and kept with the table. */
+    DecimalColumn decimalColumn(int column) {
+        return decimalColumns.computeIfAbsent(
+                column, key -> DecimalColumn.of(postings, posting -> (BigDecimal) PostingsTable.value(posting, key)));
+    }
+
+    /** Dictionary-coded copy of column {@code column} for grouping, built on first use. */
+    DictionaryColumn dictionaryColumn(int column) {
+        return dictionaryColumns.computeIfAbsent(
+                column, key -> DictionaryColumn.of(postings, posting -> PostingsTable.value(posting, key)));
+    }
+
+    /** Date-range index over these postings and their entries' dates, built on first use. */
+    PostingRangeIndex rangeIndex() {
+        PostingRangeIndex index = rangeIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = rangeIndex;
+                if (index == null) {
+                    index = PostingRangeIndex.of(postings, entries);
+                    rangeIndex = index;
+                }
+            }
+        }
+        return index;
     }
 }
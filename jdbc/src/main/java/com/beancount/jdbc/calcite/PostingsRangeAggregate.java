@@ -0,0 +1,215 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.schema.PostingRangeIndex;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.adapter.enumerable.PhysType;
+import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.tree.Blocks;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.AbstractRelNode;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.runtime.Bindable;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.util.BuiltInMethod;
+
+/**
+ * {@code SUM(number)} over the postings of one account or account subtree within a date range,
+ * optionally per currency, answered from the {@link PostingRangeIndex} of a
+ * {@link PostingsCalciteTable} and planned by {@link PostingsRangeAggregateRule}.
+ *
+ * <p>Each currency costs two binary searches and a range-max over scales, whatever the number of
+ * postings or the length of the range; no row is read, so nothing is charged to the
+ * {@link QueryGuard}. Date bounds given as dynamic parameters are resolved when the statement
+ * runs.</p>
+ */
+final class PostingsRangeAggregate extends AbstractRelNode implements EnumerableRel {
+
+    /** One comparison {@code date <kind> bound}, with the bound a literal day or a parameter. */
+    record DateBound(SqlKind kind, int day, int parameter) {
+        static DateBound literal(SqlKind kind, int day) {
+            return new DateBound(kind, day, -1);
+        }
+
+        static DateBound parameter(SqlKind kind, int parameter) {
+            return new DateBound(kind, 0, parameter);
+        }
+
+        /** The bound's epoch day, or {@code null} for a NULL parameter. */
+        Long resolve(DataContext root) {
+            if (parameter < 0) {
+                return (long) day;
+            }
+            Object value = root.get("?" + parameter);
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof Number number) {
+                return number.longValue();
+            }
+            if (value instanceof java.sql.Date date) {
+                return date.toLocalDate().toEpochDay();
+            }
+            if (value instanceof LocalDate date) {
+                return date.toEpochDay();
+            }
+            throw new IllegalStateException("Unsupported DATE parameter value: " + value.getClass().getName());
+        }
+
+        @Override
+        public String toString() {
+            return kind.sql + " " + (parameter < 0 ? LocalDate.ofEpochDay(day) : "?" + parameter);
+        }
+    }
+
+    private final RelOptTable table;
+    private final PostingsCalciteTable postings;
+    private final RelDataType outputType;
+    private final String account;
+    private final PostingRangeIndex.Scope scope;
+    private final String currency;
+    private final boolean groupByCurrency;
+    private final List<DateBound> dateBounds;
+    private final PostingsAggregate.Kind[] measures;
+
+    PostingsRangeAggregate(
+            RelOptCluster cluster,
+            RelOptTable table,
+            PostingsCalciteTable postings,
+            RelDataType outputType,
+            String account,
+            PostingRangeIndex.Scope scope,
+            String currency,
+            boolean groupByCurrency,
+            List<DateBound> dateBounds,
+            PostingsAggregate.Kind[] measures) {
+        super(cluster, cluster.traitSetOf(EnumerableConvention.INSTANCE));
+        this.table = table;
+        this.postings = postings;
+        this.outputType = outputType;
+        this.account = account;
+        this.scope = scope;
+        this.currency = currency;
+        this.groupByCurrency = groupByCurrency;
+        this.dateBounds = dateBounds;
+        this.measures = measures;
+    }
+
+    @Override
+    protected RelDataType deriveRowType() {
+        return outputType;
+    }
+
+    @Override
+    public RelOptTable getTable() {
+        return table;
+    }
+
+    @Override
+    public RelWriter explainTerms(RelWriter pw) {
+        return super.explainTerms(pw)
+                .item("table", table.getQualifiedName())
+                .item("account", account)
+                .item("scope", scope)
+                .itemIf("currency", currency, currency != null)
+                .item("groupByCurrency", groupByCurrency)
+                .item("date", dateBounds)
+                .item("aggs", Arrays.toString(measures));
+    }
+
+    @Override
+    public double estimateRowCount(RelMetadataQuery mq) {
+        return groupByCurrency && currency == null ? 4 : 1;
+    }
+
+    @Override
+    public RelOptCost computeSelfCost(RelOptPlanner planner, RelMetadataQuery mq) {
+        // A handful of binary searches, independent of the number of postings.
+        double rows = estimateRowCount(mq);
+        return planner.getCostFactory().makeCost(rows, rows, 0);
+    }
+
+    @Override
+    public Result implement(EnumerableRelImplementor implementor, Prefer pref) {
+        PhysType physType = PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(), pref.preferArray());
+        Bindable<Object[]> bindable = this::aggregate;
+        Expression stashed = implementor.stash(bindable, Bindable.class);
+        Expression rows = Expressions.call(stashed, "bind", implementor.getRootExpression());
+        if (getRowType().getFieldCount() == 1) {
+            // Single-column rows are scalars in Calcite's physical row format.
+            rows = Expressions.call(BuiltInMethod.SLICE0.method, rows);
+        }
+        return implementor.result(physType, Blocks.toBlock(rows));
+    }
+
+    private Enumerable<Object[]> aggregate(DataContext root) {
+        long fromDay = Long.MIN_VALUE;
+        long toDay = Long.MAX_VALUE;
+        boolean unknown = false;
+        for (DateBound bound : dateBounds) {
+            Long day = bound.resolve(root);
+            if (day == null) {
+                // A comparison with NULL holds for no row.
+                unknown = true;
+                continue;
+            }
+            switch (bound.kind()) {
+                case EQUALS -> {
+                    fromDay = Math.max(fromDay, day);
+                    toDay = Math.min(toDay, day);
+                }
+                case GREATER_THAN -> fromDay = Math.max(fromDay, day + 1);
+                case GREATER_THAN_OR_EQUAL -> fromDay = Math.max(fromDay, day);
+                case LESS_THAN -> toDay = Math.min(toDay, day - 1);
+                case LESS_THAN_OR_EQUAL -> toDay = Math.min(toDay, day);
+                default -> throw new IllegalStateException("Unexpected date comparison " + bound);
+            }
+        }
+        PostingRangeIndex index = postings.rangeIndex();
+        List<String> currencies = currency != null ? List.of(currency) : index.currencies(account, scope);
+        List<Object[]> rows = new ArrayList<>();
+        BigDecimal total = null;
+        for (String candidate : unknown ? List.<String>of() : currencies) {
+            PostingRangeIndex.RangeSum sum = index.sum(account, scope, candidate, fromDay, toDay);
+            if (groupByCurrency) {
+                if (sum.rows() > 0) {
+                    rows.add(row(candidate, sum.sum()));
+                }
+            } else if (sum.sum() != null) {
+                total = total == null ? sum.sum() : total.add(sum.sum());
+            }
+        }
+        if (!groupByCurrency) {
+            rows.add(row(null, total));
+        }
+        return Linq4j.asEnumerable(rows);
+    }
+
+    private Object[] row(String group, BigDecimal sum) {
+        int offset = groupByCurrency ? 1 : 0;
+        Object[] row = new Object[offset + measures.length];
+        if (groupByCurrency) {
+            row[0] = group;
+        }
+        for (int i = 0; i < measures.length; i++) {
+            row[offset + i] = sum == null && measures[i] == PostingsAggregate.Kind.SUM0 ? BigDecimal.ZERO : sum;
+        }
+        return row;
+    }
+}
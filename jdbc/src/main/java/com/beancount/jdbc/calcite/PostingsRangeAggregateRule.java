@@ -0,0 +1,343 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.schema.EntryTable;
+import com.beancount.jdbc.schema.PostingRangeIndex;
+import com.beancount.jdbc.schema.PostingsTable;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.plan.RelRule;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
+import org.apache.calcite.rel.core.AggregateCall;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Join;
+import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.logical.LogicalAggregate;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexDynamicParam;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.tools.RelBuilderFactory;
+
+/**
+ * Answers period aggregates over {@code postings JOIN entry} from a {@link PostingRangeIndex}
+ * instead of joining and scanning, by replacing the aggregate with a
+ * {@link PostingsRangeAggregate}.
+ *
+ * <p>The aggregate must be {@code SUM}/{@code $SUM0} of {@code number}, grouped by nothing or by
+ * {@code currency}, over projects, filters and one inner join of the two plain tables on
+ * {@code postings.id = entry.id}. Every conjunct of the join and filter conditions must be that
+ * join key, {@code account = 'A'} or {@code account LIKE 'A:%'} (exactly one of the two),
+ * {@code currency = 'C'}, or a comparison of {@code entry.date} with a DATE literal or a dynamic
+ * parameter; {@code BETWEEN} arrives as such a pair. Any other shape keeps Calcite's plan. The
+ * input is read from the planner's original expressions, so the rule matches the tree the query
+ * was translated into regardless of which rewrites have been explored since.</p>
+ */
+final class PostingsRangeAggregateRule extends RelRule<PostingsRangeAggregateRule.Config> {
+
+    private static final PostingsRangeAggregateRule INSTANCE =
+            new Config(
+                            "PostingsRangeAggregateRule",
+                            aggregate -> aggregate.operand(LogicalAggregate.class).anyInputs(),
+                            RelFactories.LOGICAL_BUILDER)
+                    .toRule();
+
+    private static final int ENTRY_COLUMNS = 1_000;
+    private static final int POSTING_ENTRY_ID = 1;
+    private static final int POSTING_ACCOUNT = 3;
+    private static final int POSTING_NUMBER = 4;
+    private static final int POSTING_CURRENCY = 5;
+    private static final int ENTRY_ID = ENTRY_COLUMNS;
+    private static final int ENTRY_DATE = ENTRY_COLUMNS + 1;
+
+    private PostingsRangeAggregateRule(Config config) {
+        super(config);
+    }
+
+    static void register(RelOptPlanner planner) {
+        planner.addRule(INSTANCE);
+    }
+
+    @Override
+    public void onMatch(RelOptRuleCall call) {
+        Aggregate aggregate = call.rel(0);
+        if (aggregate.getGroupType() != Aggregate.Group.SIMPLE) {
+            return;
+        }
+        Shape shape = new Shape();
+        int[] columns = shape.resolve(aggregate.getInput());
+        if (columns == null || !shape.isComplete()) {
+            return;
+        }
+        int[] groups = aggregate.getGroupSet().toArray();
+        if (groups.length > 1 || (groups.length == 1 && columns[groups[0]] != POSTING_CURRENCY)) {
+            return;
+        }
+        List<AggregateCall> calls = aggregate.getAggCallList();
+        PostingsAggregate.Kind[] measures = new PostingsAggregate.Kind[calls.size()];
+        for (int i = 0; i < measures.length; i++) {
+            measures[i] = measure(calls.get(i), columns);
+            if (measures[i] == null) {
+                return;
+            }
+        }
+        call.transformTo(
+                new PostingsRangeAggregate(
+                        aggregate.getCluster(),
+                        shape.postingsTable,
+                        shape.postings,
+                        aggregate.getRowType(),
+                        shape.account,
+                        shape.scope,
+                        shape.currency,
+                        groups.length == 1,
+                        List.copyOf(shape.dateBounds),
+                        measures));
+    }
+
+    private static PostingsAggregate.Kind measure(AggregateCall call, int[] columns) {
+        if (call.isDistinct()
+                || call.isApproximate()
+                || call.filterArg >= 0
+                || call.distinctKeys != null
+                || !call.getCollation().getFieldCollations().isEmpty()
+                || call.getArgList().size() != 1
+                || columns[call.getArgList().get(0)] != POSTING_NUMBER) {
+            return null;
+        }
+        return switch (call.getAggregation().getKind()) {
+            case SUM -> PostingsAggregate.Kind.SUM;
+            case SUM0 -> PostingsAggregate.Kind.SUM0;
+            default -> null;
+        };
+    }
+
+    /** The filters, join and tables found below the aggregate. */
+    private static final class Shape {
+        RelOptTable postingsTable;
+        PostingsCalciteTable postings;
+        boolean entry;
+        boolean joined;
+        String account;
+        PostingRangeIndex.Scope scope;
+        String currency;
+        final List<PostingsRangeAggregate.DateBound> dateBounds = new ArrayList<>();
+
+        boolean isComplete() {
+            return postings != null && entry && joined && account != null;
+        }
+
+        /**
+         * Column behind each output field of {@code node}: a postings ordinal, an entry ordinal
+         * plus {@link #ENTRY_COLUMNS}, or -1 if computed. {@code null} if the shape is not
+         * supported.
+         */
+        int[] resolve(RelNode node) {
+            RelNode rel = node.stripped();
+            if (rel instanceof Project project) {
+                int[] input = resolve(project.getInput());
+                if (input == null) {
+                    return null;
+                }
+                List<RexNode> projects = project.getProjects();
+                int[] columns = new int[projects.size()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = projects.get(i) instanceof RexInputRef ref ? input[ref.getIndex()] : -1;
+                }
+                return columns;
+            }
+            if (rel instanceof Filter filter) {
+                int[] input = resolve(filter.getInput());
+                return input != null && addConditions(filter, filter.getCondition(), input) ? input : null;
+            }
+            if (rel instanceof Join join) {
+                if (join.getJoinType() != JoinRelType.INNER) {
+                    return null;
+                }
+                int[] left = resolve(join.getLeft());
+                int[] right = left == null ? null : resolve(join.getRight());
+                if (right == null) {
+                    return null;
+                }
+                int[] columns = new int[left.length + right.length];
+                System.arraycopy(left, 0, columns, 0, left.length);
+                System.arraycopy(right, 0, columns, left.length, right.length);
+                return addConditions(join, join.getCondition(), columns) ? columns : null;
+            }
+            if (rel instanceof TableScan scan) {
+                return resolveScan(scan);
+            }
+            return null;
+        }
+
+        private int[] resolveScan(TableScan scan) {
+            RelOptTable table = scan.getTable();
+            PostingsCalciteTable postingsTable = table.unwrap(PostingsCalciteTable.class);
+            int fields = scan.getRowType().getFieldCount();
+            if (postingsTable != null
+                    && postings == null
+                    && fields == PostingsTable.getDefinition().getColumns().size()) {
+                this.postings = postingsTable;
+                this.postingsTable = table;
+                return identity(fields, 0);
+            }
+            if (table.unwrap(EntryCalciteTable.class) != null
+                    && !entry
+                    && fields == EntryTable.getDefinition().getColumns().size()) {
+                entry = true;
+                return identity(fields, ENTRY_COLUMNS);
+            }
+            return null;
+        }
+
+        private boolean addConditions(RelNode rel, RexNode condition, int[] columns) {
+            RexNode expanded = RexUtil.expandSearch(rel.getCluster().getRexBuilder(), null, condition);
+            for (RexNode conjunct : RelOptUtil.conjunctions(expanded)) {
+                if (!conjunct.isAlwaysTrue() && !addCondition(conjunct, columns)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean addCondition(RexNode node, int[] columns) {
+            if (!(node instanceof RexCall call) || call.getOperands().size() != 2) {
+                return false;
+            }
+            SqlKind kind = call.getKind();
+            RexNode left = call.getOperands().get(0);
+            RexNode right = call.getOperands().get(1);
+            if (!(left instanceof RexInputRef) && right instanceof RexInputRef && kind != SqlKind.LIKE) {
+                RexNode swapped = left;
+                left = right;
+                right = swapped;
+                kind = kind.reverse();
+            }
+            if (!(left instanceof RexInputRef ref)) {
+                return false;
+            }
+            int column = columns[ref.getIndex()];
+            if (right instanceof RexInputRef other) {
+                int otherColumn = columns[other.getIndex()];
+                boolean joinKey =
+                        (column == POSTING_ENTRY_ID && otherColumn == ENTRY_ID)
+                                || (column == ENTRY_ID && otherColumn == POSTING_ENTRY_ID);
+                if (kind != SqlKind.EQUALS || !joinKey || joined) {
+                    return false;
+                }
+                joined = true;
+                return true;
+            }
+            if (column == ENTRY_DATE) {
+                return addDateBound(kind, right);
+            }
+            if (column != POSTING_CURRENCY && column != POSTING_ACCOUNT) {
+                return false;
+            }
+            // Only character literals convert to String; numeric ones would throw an AssertionError.
+            if (!(right instanceof RexLiteral literal)
+                    || literal.isNull()
+                    || !SqlTypeName.CHAR_TYPES.contains(literal.getTypeName())) {
+                return false;
+            }
+            String value = literal.getValueAs(String.class);
+            if (value == null) {
+                return false;
+            }
+            if (column == POSTING_CURRENCY && kind == SqlKind.EQUALS && currency == null) {
+                currency = value;
+                return true;
+            }
+            if (column != POSTING_ACCOUNT || account != null) {
+                return false;
+            }
+            if (kind == SqlKind.EQUALS) {
+                account = value;
+                scope = PostingRangeIndex.Scope.ACCOUNT;
+                return true;
+            }
+            // NOT LIKE and the case-insensitive variants share SqlKind.LIKE; only plain LIKE matches.
+            if (call.getOperator() == SqlStdOperatorTable.LIKE && isSubtreePattern(value)) {
+                account = value.substring(0, value.length() - 2);
+                scope = PostingRangeIndex.Scope.DESCENDANTS;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean addDateBound(SqlKind kind, RexNode bound) {
+            switch (kind) {
+                case EQUALS, LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL -> {}
+                default -> {
+                    return false;
+                }
+            }
+            if (bound instanceof RexDynamicParam param) {
+                dateBounds.add(PostingsRangeAggregate.DateBound.parameter(kind, param.getIndex()));
+                return true;
+            }
+            if (bound instanceof RexLiteral literal && literal.getTypeName() == SqlTypeName.DATE) {
+                Integer day = literal.getValueAs(Integer.class);
+                if (day != null) {
+                    dateBounds.add(PostingsRangeAggregate.DateBound.literal(kind, day));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** {@code A:%} with no other wildcard, i.e. every account strictly below {@code A}. */
+        private static boolean isSubtreePattern(String pattern) {
+            if (!pattern.endsWith(":%") || pattern.length() < 3) {
+                return false;
+            }
+            String prefix = pattern.substring(0, pattern.length() - 2);
+            return prefix.indexOf('%') < 0 && prefix.indexOf('_') < 0 && prefix.indexOf('\\') < 0;
+        }
+
+        private static int[] identity(int fields, int offset) {
+            int[] columns = new int[fields];
+            for (int i = 0; i < fields; i++) {
+                columns[i] = offset + i;
+            }
+            return columns;
+        }
+    }
+
+    /** Operands and description of the rule. */
+    record Config(String description, OperandTransform operandSupplier, RelBuilderFactory relBuilderFactory)
+            implements RelRule.Config {
+
+        @Override
+        public PostingsRangeAggregateRule toRule() {
+            return new PostingsRangeAggregateRule(this);
+        }
+
+        @Override
+        public Config withDescription(String description) {
+            return new Config(description, operandSupplier, relBuilderFactory);
+        }
+
+        @Override
+        public Config withOperandSupplier(OperandTransform operandSupplier) {
+            return new Config(description, operandSupplier, relBuilderFactory);
+        }
+
+        @Override
+        public Config withRelBuilderFactory(RelBuilderFactory relBuilderFactory) {
+            return new Config(description, operandSupplier, relBuilderFactory);
+        }
+    }
+}
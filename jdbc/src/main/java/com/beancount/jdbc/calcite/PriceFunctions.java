@@ -0,0 +1,221 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.PriceIndex;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.adapter.enumerable.CallImplementor;
+import org.apache.calcite.adapter.enumerable.NullPolicy;
+import org.apache.calcite.adapter.enumerable.RexImpTable;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.Types;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.Function;
+import org.apache.calcite.schema.FunctionParameter;
+import org.apache.calcite.schema.ImplementableFunction;
+import org.apache.calcite.schema.ScalarFunction;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+/**
+ * The scalar functions over the snapshot's {@link PriceIndex}: {@code price_at(currency, quote,
+ * date)}, the price of one unit in effect on {@code date}, and {@code convert(number, currency,
+ * quote, date)}, {@code number} units valued at that price. Both are NULL when an argument is NULL
+ * or no price is known; {@code convert} is a keyword, so it is called as {@code "convert"(...)}.
+ *
+ * <p>Generated code reaches the index through a registry id compiled into the call, and each
+ * execution keeps a memo of the prices it looked up, keyed by pair and date, so valuing many rows
+ * at a handful of dates resolves each price, inverse or path through an operating currency once.
+ * </p>
+ */
+public final class PriceFunctions {
+
+    public static final String PRICE_AT = "price_at";
+    public static final String CONVERT = "convert";
+
+    /** Same as the amount columns of {@code price_detail}. */
+    private static final int DECIMAL_PRECISION = 16;
+    private static final int DECIMAL_SCALE = 6;
+
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final ConcurrentMap<Long, WeakReference<PriceFunctions>> REGISTRY = new ConcurrentHashMap<>();
+
+    private static final Method PRICE_AT_METHOD =
+            Types.lookupMethod(
+                    PriceFunctions.class, "priceAt", DataContext.class, long.class, String.class, String.class,
+                    Number.class);
+    private static final Method CONVERT_METHOD =
+            Types.lookupMethod(
+                    PriceFunctions.class, "convert", DataContext.class, long.class, Number.class, String.class,
+                    String.class, Number.class);
+
+    private final long id;
+    private final PriceIndex index;
+    private final Map<DataContext, Memo> memos = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private PriceFunctions(long id, PriceIndex index) {
+        this.id = id;
+        this.index = index;
+    }
+
+    /**
+     * Functions over {@code index}, by name. They stay callable for as long as the returned map is
+     * reachable.
+     */
+    static Map<String, Function> of(PriceIndex index) {
+        REGISTRY.values().removeIf(reference -> reference.get() == null);
+        PriceFunctions functions = new PriceFunctions(IDS.incrementAndGet(), index);
+        REGISTRY.put(functions.id, new WeakReference<>(functions));
+        Map<String, Function> map = new LinkedHashMap<>();
+        map.put(
+                PRICE_AT,
+                functions.new Definition(
+                        PRICE_AT_METHOD,
+                        List.of(
+                                parameter(0, "currency", SqlTypeName.VARCHAR),
+                                parameter(1, "quote", SqlTypeName.VARCHAR),
+                                parameter(2, "date", SqlTypeName.DATE))));
+        map.put(
+                CONVERT,
+                functions.new Definition(
+                        CONVERT_METHOD,
+                        List.of(
+                                parameter(0, "number", SqlTypeName.DECIMAL),
+                                parameter(1, "currency", SqlTypeName.VARCHAR),
+                                parameter(2, "quote", SqlTypeName.VARCHAR),
+                                parameter(3, "date", SqlTypeName.DATE))));
+        return map;
+    }
+
+    /** Implements {@code price_at}; called by generated code. */
+    public static BigDecimal priceAt(DataContext root, long id, String currency, String quote, Number date) {
+        if (currency == null || quote == null || date == null) {
+            return null;
+        }
+        return lookup(id).memo(root).price(currency, quote, date.intValue());
+    }
+
+    /** Implements {@code convert}; called by generated code. */
+    public static BigDecimal convert(
+            DataContext root, long id, Number number, String currency, String quote, Number date) {
+        if (number == null || currency == null || quote == null || date == null) {
+            return null;
+        }
+        BigDecimal price = lookup(id).memo(root).price(currency, quote, date.intValue());
+        if (price == null) {
+            return null;
+        }
+        BigDecimal amount = number instanceof BigDecimal decimal ? decimal : new BigDecimal(number.toString());
+        return amount.multiply(price);
+    }
+
+    private static PriceFunctions lookup(long id) {
+        WeakReference<PriceFunctions> reference = REGISTRY.get(id);
+        PriceFunctions functions = reference == null ? null : reference.get();
+        if (functions == null) {
+            throw new IllegalStateException("Price functions " + id + " are no longer registered");
+        }
+        return functions;
+    }
+
+    /**
+     * The memo of the execution running under {@code root}. Connections share these functions, so
+     * memos are kept per execution and weakly, like {@link QueryGuard}'s guards.
+     */
+    private Memo memo(DataContext root) {
+        return memos.computeIfAbsent(root, key -> new Memo());
+    }
+
+    private static FunctionParameter parameter(int ordinal, String name, SqlTypeName type) {
+        return new FunctionParameter() {
+            @Override
+            public int getOrdinal() {
+                return ordinal;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public RelDataType getType(RelDataTypeFactory typeFactory) {
+                return typeFactory.createTypeWithNullability(typeFactory.createSqlType(type), true);
+            }
+
+            @Override
+            public boolean isOptional() {
+                return false;
+            }
+        };
+    }
+
+    /** Prices looked up during one execution; an execution runs on one thread. */
+    private final class Memo {
+        private static final BigDecimal MISSING = new BigDecimal(-1);
+
+        private final Map<Key, BigDecimal> prices = new HashMap<>();
+
+        BigDecimal price(String currency, String quote, int day) {
+            Key key = new Key(currency, quote, day);
+            BigDecimal price = prices.get(key);
+            if (price == null) {
+                price = index.priceAt(currency, quote, day);
+                prices.put(key, price == null ? MISSING : price);
+            }
+            return price == MISSING ? null : price;
+        }
+    }
+
+    private record Key(String currency, String quote, int day) {}
+
+    /** One function as Calcite sees it: its signature and how to call it from generated code. */
+    private final class Definition implements ScalarFunction, ImplementableFunction {
+        private final Method method;
+        private final List<FunctionParameter> parameters;
+
+        Definition(Method method, List<FunctionParameter> parameters) {
+            this.method = method;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public List<FunctionParameter> getParameters() {
+            return parameters;
+        }
+
+        @Override
+        public RelDataType getReturnType(RelDataTypeFactory typeFactory) {
+            return typeFactory.createTypeWithNullability(
+                    typeFactory.createSqlType(SqlTypeName.DECIMAL, DECIMAL_PRECISION, DECIMAL_SCALE), true);
+        }
+
+        @Override
+        public CallImplementor getImplementor() {
+            return RexImpTable.createImplementor(
+                    (translator, call, operands) -> {
+                        List<Expression> arguments = new ArrayList<>(operands.size() + 2);
+                        arguments.add(DataContext.ROOT);
+                        arguments.add(Expressions.constant(id));
+                        for (Expression operand : operands) {
+                            arguments.add(Expressions.box(operand));
+                        }
+                        return Expressions.call(method, arguments);
+                    },
+                    NullPolicy.NONE,
+                    false);
+        }
+    }
+}
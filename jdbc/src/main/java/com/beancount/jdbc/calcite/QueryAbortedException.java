@@ -0,0 +1,50 @@
+package com.beancount.jdbc.calcite;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+/**
+ * Raised from inside a table scan when {@link QueryGuard} stops a query. Calcite surfaces it as a
+ * runtime failure; the driver maps it back to a {@link SQLException} via {@link #toSqlException()}.
+ */
+public final class QueryAbortedException extends RuntimeException {
+
+    public enum Reason {
+        CANCELLED,
+        TIMEOUT,
+        ROW_BUDGET,
+        MEMORY_BUDGET
+    }
+
+    private final Reason reason;
+
+    QueryAbortedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public SQLException toSqlException() {
+        return switch (reason) {
+            case TIMEOUT -> new SQLTimeoutException(getMessage(), "HYT00", this);
+            case CANCELLED -> new SQLException(getMessage(), "HY008", this);
+            case ROW_BUDGET, MEMORY_BUDGET -> new SQLException(getMessage(), "54000", this);
+        };
+    }
+
+    /** Returns the {@code QueryAbortedException} in {@code error}'s cause chain, if any. */
+    public static QueryAbortedException find(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof QueryAbortedException aborted) {
+                return aborted;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,249 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.calcite.QueryAbortedException.Reason;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+
+/**
+ * Cooperative cancellation, timeout and resource budgets for Beancount table scans.
+ *
+ * <p>Every scan of a Beancount table pulls its rows through a guarded enumerator. The enumerator
+ * checks Calcite's per-statement {@link DataContext.Variable#CANCEL_FLAG} on every row and, every
+ * {@value #CHECK_INTERVAL} rows, the statement deadline ({@link DataContext.Variable#TIMEOUT}) and
+ * the optional per-query budgets configured as connection properties:</p>
+ *
+ * <ul>
+ *   <li>{@value #MAX_SCAN_ROWS}: total rows all Beancount scans of one query may produce;</li>
+ *   <li>{@value #MAX_QUERY_BYTES}: heap the executing thread may allocate while the query runs.</li>
+ * </ul>
+ *
+ * <p>Operators above the scan (joins, sorts, aggregates) run on the same thread between two pulls
+ * from a scan, so even a cross join that only materializes in memory is caught at the next pull.
+ * Aggregates pushed into a table ({@link PostingsAggregate}) report their rows the same way.
+ * Budgets are tracked per {@link DataContext}, i.e. per execution.</p>
+ */
+public final class QueryGuard {
+
+    public static final String MAX_SCAN_ROWS = "maxScanRows";
+    public static final String MAX_QUERY_BYTES = "maxQueryBytes";
+
+    static final int CHECK_INTERVAL = 64;
+    private static final Map<DataContext, QueryGuard> GUARDS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final AtomicBoolean cancelFlag;
+    private final long timeoutMillis;
+    private final long deadlineNanos;
+    private final long maxScanRows;
+    private final long maxQueryBytes;
+    private final AtomicLong scannedRows = new AtomicLong();
+    private volatile long allocationThread = -1L;
+    private volatile long allocationBaseline;
+
+    private QueryGuard(AtomicBoolean cancelFlag, long timeoutMillis, long maxScanRows, long maxQueryBytes) {
+        this.cancelFlag = cancelFlag;
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos =
+                timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0L;
+        this.maxScanRows = maxScanRows;
+        this.maxQueryBytes = THREADS == null ? 0L : maxQueryBytes;
+        if (this.maxQueryBytes > 0) {
+            allocatedSinceStart();
+        }
+    }
+
+    /** Rejects malformed budget properties at connect time instead of on the first scan. */
+    public static void validateLimits(Properties properties) {
+        parseLimit(properties, MAX_SCAN_ROWS);
+        parseLimit(properties, MAX_QUERY_BYTES);
+    }
+
+    /**
+     * Streams {@code rows} through the guard. When {@code projects} is non-null only those column
+     * ordinals are copied into each emitted row, so operators above the scan never hold full rows.
+     */
+    static Enumerable<Object[]> scan(DataContext root, List<Object[]> rows, int[] projects) {
+        QueryGuard guard = root == null ? null : forContext(root);
+        if (guard == null && projects == null) {
+            return Linq4j.asEnumerable(rows);
+        }
+        return new AbstractEnumerable<>() {
+            @Override
+            public Enumerator<Object[]> enumerator() {
+                return new GuardedEnumerator(rows, guard, projects);
+            }
+        };
+    }
+
+    /** The guard of the execution behind {@code root}, or {@code null} if nothing is limited. */
+    static QueryGuard forContext(DataContext root) {
+        synchronized (GUARDS) {
+            QueryGuard guard = GUARDS.get(root);
+            if (guard == null && !GUARDS.containsKey(root)) {
+                guard = create(root);
+                GUARDS.put(root, guard);
+            }
+            return guard;
+        }
+    }
+
+    private static QueryGuard create(DataContext root) {
+        Object flag = root.get(DataContext.Variable.CANCEL_FLAG.camelName);
+        AtomicBoolean cancelFlag = flag instanceof AtomicBoolean atomic ? atomic : null;
+        Object timeout = root.get(DataContext.Variable.TIMEOUT.camelName);
+        long timeoutMillis = timeout instanceof Number number ? number.longValue() : 0L;
+        Properties properties =
+                root.getQueryProvider() instanceof CalciteConnection connection
+                        ? connection.getProperties()
+                        : null;
+        long maxScanRows = parseLimit(properties, MAX_SCAN_ROWS);
+        long maxQueryBytes = parseLimit(properties, MAX_QUERY_BYTES);
+        if (cancelFlag == null && timeoutMillis <= 0 && maxScanRows <= 0 && maxQueryBytes <= 0) {
+            return null;
+        }
+        return new QueryGuard(cancelFlag, timeoutMillis, maxScanRows, maxQueryBytes);
+    }
+
+    private static long parseLimit(Properties properties, String key) {
+        String value = properties == null ? null : properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return 0L;
+        }
+        try {
+            long limit = Long.parseLong(value.trim());
+            if (limit < 0) {
+                throw new IllegalArgumentException(key + " must not be negative: " + value);
+            }
+            return limit;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(key + " must be a whole number: " + value, ex);
+        }
+    }
+
+    /**
+     * Checks the cancel flag and, once {@code rowsSinceCheck} reaches {@link #CHECK_INTERVAL},
+     * charges those rows and checks the deadline and budgets. Operators that read ledger records
+     * without going through {@link #scan} call this themselves.
+     */
+    void onRow(long rowsSinceCheck) {
+        if (cancelFlag != null && cancelFlag.get()) {
+            throw new QueryAbortedException(Reason.CANCELLED, "Query was cancelled.");
+        }
+        if (rowsSinceCheck < CHECK_INTERVAL) {
+            return;
+        }
+        long scanned = scannedRows.addAndGet(rowsSinceCheck);
+        if (maxScanRows > 0 && scanned > maxScanRows) {
+            throw new QueryAbortedException(
+                    Reason.ROW_BUDGET,
+                    "Query scanned more than " + maxScanRows + " ledger rows (" + MAX_SCAN_ROWS + ").");
+        }
+        if (deadlineNanos != 0L && System.nanoTime() - deadlineNanos > 0) {
+            throw new QueryAbortedException(
+                    Reason.TIMEOUT, "Query exceeded its timeout of " + timeoutMillis + " ms.");
+        }
+        if (maxQueryBytes > 0 && allocatedSinceStart() > maxQueryBytes) {
+            throw new QueryAbortedException(
+                    Reason.MEMORY_BUDGET,
+                    "Query allocated more than " + maxQueryBytes + " bytes (" + MAX_QUERY_BYTES + ").");
+        }
+    }
+
+    private long allocatedSinceStart() {
+        long thread = Thread.currentThread().threadId();
+        long allocated = THREADS.getCurrentThreadAllocatedBytes();
+        if (allocationThread != thread) {
+            // Allocation counters are per thread; restart the window if the result set moved threads.
+            allocationThread = thread;
+            allocationBaseline = allocated;
+            return 0L;
+        }
+        return allocated - allocationBaseline;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()) {
+                if (!bean.isThreadAllocatedMemoryEnabled()) {
+                    bean.setThreadAllocatedMemoryEnabled(true);
+                }
+                return bean;
+            }
+        } catch (RuntimeException | LinkageError ex) {
+            // Memory budgets are best effort on JVMs without allocation accounting.
+        }
+        return null;
+    }
+
+    private static final class GuardedEnumerator implements Enumerator<Object[]> {
+        private final List<Object[]> rows;
+        private final QueryGuard guard;
+        private final int[] projects;
+        private Iterator<Object[]> iterator;
+        private Object[] current;
+        private long sinceCheck;
+
+        GuardedEnumerator(List<Object[]> rows, QueryGuard guard, int[] projects) {
+            this.rows = rows;
+            this.guard = guard;
+            this.projects = projects;
+            this.iterator = rows.iterator();
+        }
+
+        @Override
+        public Object[] current() {
+            return current;
+        }
+
+        @Override
+        public boolean moveNext() {
+            if (guard != null) {
+                guard.onRow(++sinceCheck);
+                if (sinceCheck >= CHECK_INTERVAL) {
+                    sinceCheck = 0;
+                }
+            }
+            if (!iterator.hasNext()) {
+                current = null;
+                return false;
+            }
+            Object[] row = iterator.next();
+            if (projects != null) {
+                Object[] projected = new Object[projects.length];
+                for (int i = 0; i < projects.length; i++) {
+                    projected[i] = row[projects[i]];
+                }
+                row = projected;
+            }
+            current = row;
+            return true;
+        }
+
+        @Override
+        public void reset() {
+            iterator = rows.iterator();
+            current = null;
+        }
+
+        @Override
+        public void close() {
+            current = null;
+        }
+    }
+}
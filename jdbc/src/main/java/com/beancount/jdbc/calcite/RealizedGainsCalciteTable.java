@@ -0,0 +1,44 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.schema.ColumnDescriptor;
+import com.beancount.jdbc.schema.RealizedGainsTable;
+import java.util.List;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.util.ImmutableBitSet;
+
+/** The {@code realized_gains} table, keyed by the posting each row was booked as. */
+final class RealizedGainsCalciteTable extends AbstractTable implements ProjectableFilterableTable {
+
+    private final List<Object[]> rows;
+
+    RealizedGainsCalciteTable(List<Object[]> rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+        RelDataTypeFactory.Builder builder = typeFactory.builder();
+        for (ColumnDescriptor column : RealizedGainsTable.getDefinition().getColumns()) {
+            builder.add(column.getName(), CalciteTypeMapper.toRelDataType(typeFactory, column));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        return QueryGuard.scan(root, rows, projects);
+    }
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of(rows.size(), List.of(ImmutableBitSet.of(0)));
+    }
+}
@@ -0,0 +1,116 @@
+package com.beancount.jdbc.calcite;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.apache.calcite.DataContext;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexDynamicParam;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.Sarg;
+
+/**
+ * Reads column equalities out of the filters Calcite hands to {@code scan}, for tables that answer
+ * them from an index. Literals and dynamic parameters are both resolved, the latter from the
+ * {@link DataContext} of the execution, so a prepared statement probes with each bound value.
+ */
+final class ScanFilters {
+
+    /** The value of a literal of a type these helpers do not compare. */
+    static final Object UNSUPPORTED = new Object();
+
+    private ScanFilters() {}
+
+    /** {@code column = bound}, written either way round, with a literal or parameter bound. */
+    record Equality(int column, RexNode bound) {}
+
+    /** The equality {@code node} is, or {@code null}. */
+    static Equality equality(RexNode node) {
+        if (!(node instanceof RexCall call)
+                || call.getKind() != SqlKind.EQUALS
+                || call.getOperands().size() != 2) {
+            return null;
+        }
+        RexNode left = call.getOperands().get(0);
+        RexNode right = call.getOperands().get(1);
+        if (!(left instanceof RexInputRef)) {
+            RexNode swapped = left;
+            left = right;
+            right = swapped;
+        }
+        if (!(left instanceof RexInputRef ref)
+                || !(right instanceof RexLiteral || right instanceof RexDynamicParam)) {
+            return null;
+        }
+        return new Equality(ref.getIndex(), right);
+    }
+
+    /** The bound's value, {@code null} for NULL, or {@link #UNSUPPORTED} for other literals. */
+    static Object value(DataContext root, RexNode bound) {
+        if (bound instanceof RexDynamicParam param) {
+            return root.get("?" + param.getIndex());
+        }
+        RexLiteral literal = (RexLiteral) bound;
+        if (literal.isNull()) {
+            return null;
+        }
+        return switch (literal.getTypeName()) {
+            case CHAR, VARCHAR -> literal.getValueAs(String.class);
+            case TINYINT, SMALLINT, INTEGER, BIGINT -> literal.getValueAs(Long.class);
+            default -> UNSUPPORTED;
+        };
+    }
+
+    static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * The strings VARCHAR column {@code column} is restricted to by {@code node}, an equality, a
+     * disjunction of equalities or an {@code IN} list of that column, or {@code null} when
+     * {@code node} is anything else. NULL bounds match nothing and are left out.
+     */
+    static Set<String> stringsOf(DataContext root, RexNode node, int column) {
+        if (node instanceof RexCall call && call.getKind() == SqlKind.SEARCH) {
+            return searchPoints(call, column);
+        }
+        Set<String> strings = new LinkedHashSet<>();
+        for (RexNode disjunct : RelOptUtil.disjunctions(node)) {
+            Equality equality = equality(disjunct);
+            if (equality == null || equality.column() != column) {
+                return null;
+            }
+            Object value = value(root, equality.bound());
+            if (value == UNSUPPORTED || (value != null && !(value instanceof String))) {
+                return null;
+            }
+            if (value != null) {
+                strings.add((String) value);
+            }
+        }
+        return strings;
+    }
+
+    /** The points of {@code column IN (...)}, which Calcite plans as a {@code SEARCH}. */
+    private static Set<String> searchPoints(RexCall call, int column) {
+        if (!(call.getOperands().get(0) instanceof RexInputRef ref)
+                || ref.getIndex() != column
+                || !(call.getOperands().get(1) instanceof RexLiteral literal)
+                || !(literal.getValue() instanceof Sarg<?> sarg)
+                || !sarg.isPoints()) {
+            return null;
+        }
+        // Points of mixed lengths may be typed CHAR and padded; CHAR compares ignoring the padding.
+        boolean padded = literal.getType().getSqlTypeName() == SqlTypeName.CHAR;
+        Set<String> strings = new LinkedHashSet<>();
+        for (var range : sarg.rangeSet.asRanges()) {
+            String point = TableMacros.toString(range.lowerEndpoint());
+            strings.add(padded ? point.stripTrailing() : point);
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,46 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.ledger.TextSearchIndex;
+import com.beancount.jdbc.schema.SearchTable;
+import java.util.List;
+import org.apache.calcite.schema.FunctionParameter;
+import org.apache.calcite.schema.TableMacro;
+import org.apache.calcite.schema.TranslatableTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+/**
+ * The {@code search(query [, limit])} table function over the snapshot's text index, such as
+ * {@code search('amazon books', 20)}.
+ *
+ * <p>Like {@link PeriodTotalsTableMacro}, it is expanded while the query is planned, so the
+ * arguments must be literals; the hits are ranked once by {@link SearchTable} and handed to a
+ * {@link FunctionRowsScan}.</p>
+ */
+final class SearchTableMacro implements TableMacro {
+
+    private static final List<FunctionParameter> PARAMETERS =
+            List.of(
+                    TableMacros.parameter(0, "query", SqlTypeName.VARCHAR, false),
+                    TableMacros.parameter(1, "limit", SqlTypeName.INTEGER, true));
+
+    private final TextSearchIndex index;
+
+    SearchTableMacro(TextSearchIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public List<FunctionParameter> getParameters() {
+        return PARAMETERS;
+    }
+
+    @Override
+    public TranslatableTable apply(List<? extends Object> arguments) {
+        String query = TableMacros.requiredString(arguments, 0, "search", "query");
+        Integer limit =
+                arguments.size() > 1 && arguments.get(1) != null ? ((Number) arguments.get(1)).intValue() : null;
+        List<Object[]> rows = SearchTable.rows(index, query, limit);
+        String description = "query=" + query + (limit == null ? "" : ", limit=" + limit);
+        return new TableMacros.Table(SearchTable.getDefinition(), description, rows);
+    }
+}
@@ -0,0 +1,161 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.schema.ColumnDescriptor;
+import com.beancount.jdbc.schema.TableDefinition;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeFactoryImpl;
+import org.apache.calcite.rel.type.RelDataTypeFamily;
+import org.apache.calcite.schema.FunctionParameter;
+import org.apache.calcite.schema.TranslatableTable;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.type.SqlTypeFamily;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.DateString;
+import org.apache.calcite.util.NlsString;
+
+/**
+ * Pieces shared by the table functions that are expanded while the query is planned: their
+ * parameters, the conversion of the literal arguments the planner hands over, and the table of
+ * precomputed rows they expand to.
+ */
+final class TableMacros {
+
+    private TableMacros() {}
+
+    /** A parameter of type {@code type}, nullable when it is optional. */
+    static FunctionParameter parameter(int ordinal, String name, SqlTypeName type, boolean optional) {
+        return new FunctionParameter() {
+            @Override
+            public int getOrdinal() {
+                return ordinal;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public RelDataType getType(RelDataTypeFactory typeFactory) {
+                return javaType(typeFactory, type, optional);
+            }
+
+            @Override
+            public boolean isOptional() {
+                return optional;
+            }
+        };
+    }
+
+    /**
+     * The planner only hands a literal argument over when the parameter has a Java type, and only
+     * as an instance of that type. DATE literals are not handed over as {@link java.sql.Date}, so
+     * DATE parameters accept any object, still check as a DATE, and go through {@link #toLocalDate}.
+     */
+    private static RelDataType javaType(RelDataTypeFactory typeFactory, SqlTypeName type, boolean nullable) {
+        JavaTypeFactory javaTypes = (JavaTypeFactory) typeFactory;
+        return switch (type) {
+            case VARCHAR, CHAR -> typeFactory.createTypeWithNullability(javaTypes.createType(String.class), nullable);
+            case INTEGER -> typeFactory.createTypeWithNullability(javaTypes.createType(Integer.class), nullable);
+            case DATE -> ((RelDataTypeFactoryImpl) typeFactory).new JavaType(Object.class, nullable) {
+                @Override
+                public SqlTypeName getSqlTypeName() {
+                    return SqlTypeName.DATE;
+                }
+
+                @Override
+                public RelDataTypeFamily getFamily() {
+                    return SqlTypeFamily.DATE;
+                }
+            };
+            default -> throw new IllegalArgumentException("Unsupported parameter type: " + type);
+        };
+    }
+
+    /** A VARCHAR argument in whichever form the planner hands a literal over. */
+    static String toString(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof NlsString string) {
+            return string.getValue();
+        }
+        return value.toString();
+    }
+
+    /**
+     * A VARCHAR argument that may not be null, such as {@code CAST(NULL AS VARCHAR)}; rejected with
+     * a message naming the function and parameter, which the driver reports as an SQLException.
+     */
+    static String requiredString(List<? extends Object> arguments, int ordinal, String function, String name) {
+        String value = ordinal < arguments.size() ? toString(arguments.get(ordinal)) : null;
+        if (value == null) {
+            throw new IllegalArgumentException(function + " requires a non-null " + name);
+        }
+        return value;
+    }
+
+    /** A DATE argument in whichever form the planner hands a literal over. */
+    static LocalDate toLocalDate(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof DateString date) {
+            return LocalDate.ofEpochDay(date.getDaysSinceEpoch());
+        }
+        if (value instanceof Number days) {
+            return LocalDate.ofEpochDay(days.longValue());
+        }
+        if (value instanceof Calendar calendar) {
+            Calendar utc = (Calendar) calendar.clone();
+            utc.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return LocalDate.of(
+                    utc.get(Calendar.YEAR), utc.get(Calendar.MONTH) + 1, utc.get(Calendar.DAY_OF_MONTH));
+        }
+        if (value instanceof String text) {
+            return LocalDate.parse(text);
+        }
+        throw new IllegalArgumentException("Unsupported DATE value: " + value.getClass().getName());
+    }
+
+    /** Rows of a function for one set of arguments, described by {@code arguments} in plans. */
+    static final class Table extends AbstractTable implements TranslatableTable {
+        private final TableDefinition definition;
+        private final String arguments;
+        private final List<Object[]> rows;
+
+        Table(TableDefinition definition, String arguments, List<Object[]> rows) {
+            this.definition = definition;
+            this.arguments = arguments;
+            this.rows = rows;
+        }
+
+        @Override
+        public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+            RelDataTypeFactory.Builder builder = typeFactory.builder();
+            for (ColumnDescriptor column : definition.getColumns()) {
+                builder.add(column.getName(), CalciteTypeMapper.toRelDataType(typeFactory, column));
+            }
+            return builder.build();
+        }
+
+        @Override
+        public RelNode toRel(RelOptTable.ToRelContext context, RelOptTable relOptTable) {
+            return new FunctionRowsScan(context.getCluster(), relOptTable, definition.getName(), arguments, rows);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.beancount.jdbc.calcite;
+
+import com.beancount.jdbc.schema.EntryLabelsTable;
+import java.util.List;
+import org.apache.calcite.schema.FunctionParameter;
+import org.apache.calcite.schema.TableMacro;
+import org.apache.calcite.schema.TranslatableTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+
+/**
+ * The {@code tagged(tags [, links])} table function, such as {@code tagged('trip-2024, business')}:
+ * the ids of the transactions carrying every listed tag and link, from an intersection of their
+ * bitmaps instead of one {@code LIKE} per tag over {@code transactions_detail}.
+ *
+ * <p>Like {@link PeriodTotalsTableMacro}, it is expanded while the query is planned, so the
+ * arguments must be literals; the ids are computed once by {@link EntryLabelsTable} and handed to
+ * a {@link FunctionRowsScan}.</p>
+ */
+final class TaggedTableMacro implements TableMacro {
+
+    private static final List<FunctionParameter> PARAMETERS =
+            List.of(
+                    TableMacros.parameter(0, "tags", SqlTypeName.VARCHAR, true),
+                    TableMacros.parameter(1, "links", SqlTypeName.VARCHAR, true));
+
+    private final EntryLabelIndexes indexes;
+
+    TaggedTableMacro(EntryLabelIndexes indexes) {
+        this.indexes = indexes;
+    }
+
+    @Override
+    public List<FunctionParameter> getParameters() {
+        return PARAMETERS;
+    }
+
+    @Override
+    public TranslatableTable apply(List<? extends Object> arguments) {
+        String tags = arguments.isEmpty() ? null : TableMacros.toString(arguments.get(0));
+        String links = arguments.size() > 1 ? TableMacros.toString(arguments.get(1)) : null;
+        List<Object[]> rows = EntryLabelsTable.taggedRows(indexes.tags(), indexes.links(), tags, links);
+        String description = "tags=" + (tags == null ? "none" : tags) + (links == null ? "" : ", links=" + links);
+        return new TableMacros.Table(EntryLabelsTable.getTaggedDefinition(), description, rows);
+    }
+}
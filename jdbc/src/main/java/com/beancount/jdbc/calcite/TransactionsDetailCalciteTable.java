@@ -1,25 +1,54 @@
 package com.beancount.jdbc.calcite;
 
 import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.TextSearchIndex;
 import com.beancount.jdbc.schema.ColumnDescriptor;
 import com.beancount.jdbc.schema.TransactionsDetailTable;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.apache.calcite.DataContext;
 import org.apache.calcite.linq4j.Enumerable;
-import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
-import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexDynamicParam;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.schema.ProjectableFilterableTable;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.fun.SqlLibraryOperators;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.ImmutableBitSet;
 
-final class TransactionsDetailCalciteTable extends AbstractTable implements ScannableTable {
+/**
+ * The {@code transactions_detail} table. {@code LIKE} and {@code ILIKE} filters on {@code payee}
+ * or {@code narration}, also under {@code LOWER} or {@code UPPER}, with a literal or parameter
+ * pattern, read only the transactions the {@link TextSearchIndex} finds for the pattern's
+ * fragments of three or more characters. The filters stay in place for Calcite to evaluate, as
+ * the index only rules transactions out.
+ */
+final class TransactionsDetailCalciteTable extends AbstractTable implements ProjectableFilterableTable {
 
     private final List<Object[]> rows;
+    private final int[] rowIds;
+    private final TextSearchIndex textIndex;
 
-    TransactionsDetailCalciteTable(List<LedgerEntry> entries) {
-        this.rows = TransactionsDetailTable.materializeRows(entries);
+    TransactionsDetailCalciteTable(List<LedgerEntry> entries, TextSearchIndex textIndex) {
+        this.rows = TransactionsDetailTable.lazyRows(entries);
+        // Entry ids ascend in ledger order, so the ids of the rows are sorted.
+        this.rowIds =
+                entries.stream()
+                        .filter(entry -> "txn".equals(entry.getType()))
+                        .mapToInt(LedgerEntry::getId)
+                        .toArray();
+        this.textIndex = textIndex;
     }
 
     @Override
@@ -32,8 +61,69 @@ final class TransactionsDetailCalciteTable extends AbstractTable implements Scan
     }
 
     @Override
-    public Enumerable<Object[]> scan(DataContext root) {
-        return Linq4j.asEnumerable(rows);
+    public Enumerable<Object[]> scan(DataContext root, List<RexNode> filters, int[] projects) {
+        List<String> fragments = new ArrayList<>();
+        for (RexNode filter : filters) {
+            for (RexNode conjunct : RelOptUtil.conjunctions(filter)) {
+                addLikeFragments(root, conjunct, fragments);
+            }
+        }
+        int[] candidates = fragments.isEmpty() ? null : textIndex.candidates(fragments);
+        if (candidates == null) {
+            return QueryGuard.scan(root, rows, projects);
+        }
+        List<Object[]> matches = new ArrayList<>(candidates.length);
+        for (int id : candidates) {
+            int row = Arrays.binarySearch(rowIds, id);
+            if (row >= 0) {
+                matches.add(rows.get(row));
+            }
+        }
+        return QueryGuard.scan(root, matches, projects);
+    }
+
+    @Override
+    public Statistic getStatistic() {
+        return Statistics.of(rows.size(), List.of(ImmutableBitSet.of(0)));
+    }
+
+    /**
+     * Adds the literal runs of {@code node}'s pattern if it is a {@code LIKE} on the payee or the
+     * narration that the text index can narrow down.
+     */
+    private static void addLikeFragments(DataContext root, RexNode node, List<String> fragments) {
+        if (!(node instanceof RexCall call)
+                || (call.getOperator() != SqlStdOperatorTable.LIKE && call.getOperator() != SqlLibraryOperators.ILIKE)
+                || call.getOperands().size() != 2) {
+            return;
+        }
+        RexNode target = call.getOperands().get(0);
+        if (target instanceof RexCall function
+                && (function.getOperator() == SqlStdOperatorTable.LOWER
+                        || function.getOperator() == SqlStdOperatorTable.UPPER)) {
+            target = function.getOperands().get(0);
+        }
+        RexNode pattern = call.getOperands().get(1);
+        if (!(target instanceof RexInputRef ref)
+                || (ref.getIndex() != TransactionsDetailTable.PAYEE
+                        && ref.getIndex() != TransactionsDetailTable.NARRATION)
+                || !(pattern instanceof RexLiteral || pattern instanceof RexDynamicParam)
+                || !(ScanFilters.value(root, pattern) instanceof String value)) {
+            return;
+        }
+        // Without an ESCAPE clause every character but the two wildcards stands for itself.
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i < value.length() ? value.charAt(i) : '%';
+            if (c == '%' || c == '_') {
+                if (run.length() >= 3) {
+                    fragments.add(run.toString());
+                }
+                run.setLength(0);
+            } else {
+                run.append(c);
+            }
+        }
     }
 
     private RelDataType toRelDataType(RelDataTypeFactory factory, ColumnDescriptor column) {
@@ -0,0 +1,216 @@
+package com.beancount.jdbc.ledger;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Cumulative balance of every account and currency at each date its postings change it.
+ *
+ * <p>Rows are sorted by account, currency and date, so the rows of one account, and within them
+ * the rows of one currency, are contiguous and the dates of a currency ascend. Row {@code i}
+ * holds the balance after every posting dated on or before {@link #date(int) date(i)}; it equals
+ * {@code SUM(number) OVER (PARTITION BY account, currency ORDER BY date)} over the postings joined
+ * with their entries, without the sort and window that query needs. Balances are per account and
+ * are not rolled up into parent accounts. {@link #balanceAt} and the row bounds are binary
+ * searches.</p>
+ */
+public final class AccountBalanceHistory {
+    private static final AccountBalanceHistory EMPTY =
+            new AccountBalanceHistory(new String[0], new String[0], new int[] {0}, new int[0], new BigDecimal[0]);
+
+    private final String[] accounts;
+    private final String[] currencies;
+    private final int[] seriesStarts;
+    private final int[] days;
+    private final BigDecimal[] balances;
+
+    private AccountBalanceHistory(
+            String[] accounts, String[] currencies, int[] seriesStarts, int[] days, BigDecimal[] balances) {
+        this.accounts = accounts;
+        this.currencies = currencies;
+        this.seriesStarts = seriesStarts;
+        this.days = days;
+        this.balances = balances;
+    }
+
+    public static AccountBalanceHistory empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public String account(int row) {
+        return accounts[seriesOf(row)];
+    }
+
+    public String currency(int row) {
+        return currencies[seriesOf(row)];
+    }
+
+    public LocalDate date(int row) {
+        return LocalDate.ofEpochDay(days[row]);
+    }
+
+    public int epochDay(int row) {
+        return days[row];
+    }
+
+    public BigDecimal balance(int row) {
+        return balances[row];
+    }
+
+    /**
+     * Balance of {@code account} in {@code currency} at the end of {@code date}; zero if nothing
+     * was posted to it on or before that date.
+     */
+    public BigDecimal balanceAt(String account, String currency, LocalDate date) {
+        Objects.requireNonNull(account, "account");
+        Objects.requireNonNull(currency, "currency");
+        int from = firstRow(account, currency);
+        int to = endRow(account, currency);
+        int next = firstRowOnOrAfter(from, to, date.toEpochDay() + 1);
+        return next == from ? BigDecimal.ZERO : balances[next - 1];
+    }
+
+    /**
+     * First row of {@code account} in {@code currency}, or of every currency when {@code currency}
+     * is {@code null}; equals {@link #endRow} when there is none.
+     */
+    public int firstRow(String account, String currency) {
+        return seriesStarts[seriesBound(account, currency, false)];
+    }
+
+    /** Row after the last one of {@code account} in {@code currency} (any currency if {@code null}). */
+    public int endRow(String account, String currency) {
+        return seriesStarts[seriesBound(account, currency, true)];
+    }
+
+    /**
+     * First row in {@code [from, to)} dated on or after {@code epochDay}, or {@code to}. The range
+     * must lie within one account and currency, as returned by {@link #firstRow} and
+     * {@link #endRow} with a currency.
+     */
+    public int firstRowOnOrAfter(int from, int to, long epochDay) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int seriesOf(int row) {
+        Objects.checkIndex(row, days.length);
+        int series = Arrays.binarySearch(seriesStarts, row);
+        // Series are never empty, so an exact hit is the first row of that series.
+        return series >= 0 ? series : -series - 2;
+    }
+
+    /** First series ordered after the key ({@code after}) or not before it. */
+    private int seriesBound(String account, String currency, boolean after) {
+        int low = 0;
+        int high = accounts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = accounts[mid].compareTo(account);
+            if (cmp == 0 && currency != null) {
+                cmp = currencies[mid].compareTo(currency);
+            }
+            if (cmp < 0 || (after && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Collects postings in date order while the ledger is finalized. Postings without an account,
+     * currency or number do not move a balance and are ignored.
+     */
+    public static final class Builder {
+        private final Map<String, Map<String, Series>> series = new HashMap<>();
+        private int rows;
+
+        public void add(String account, String currency, LocalDate date, BigDecimal number) {
+            if (account == null || currency == null || date == null || number == null) {
+                return;
+            }
+            Series target =
+                    series.computeIfAbsent(account, key -> new HashMap<>())
+                            .computeIfAbsent(currency, key -> new Series());
+            if (target.add(Math.toIntExact(date.toEpochDay()), number)) {
+                rows++;
+            }
+        }
+
+        public AccountBalanceHistory build() {
+            if (rows == 0) {
+                return EMPTY;
+            }
+            int count = 0;
+            for (Map<String, Series> byCurrency : series.values()) {
+                count += byCurrency.size();
+            }
+            String[] accounts = new String[count];
+            String[] currencies = new String[count];
+            int[] seriesStarts = new int[count + 1];
+            int[] days = new int[rows];
+            BigDecimal[] balances = new BigDecimal[rows];
+            int index = 0;
+            int row = 0;
+            for (Map.Entry<String, Map<String, Series>> account : new TreeMap<>(series).entrySet()) {
+                for (Map.Entry<String, Series> currency : new TreeMap<>(account.getValue()).entrySet()) {
+                    Series values = currency.getValue();
+                    accounts[index] = account.getKey();
+                    currencies[index] = currency.getKey();
+                    seriesStarts[index++] = row;
+                    System.arraycopy(values.days, 0, days, row, values.size);
+                    System.arraycopy(values.balances, 0, balances, row, values.size);
+                    row += values.size;
+                }
+            }
+            seriesStarts[count] = row;
+            return new AccountBalanceHistory(accounts, currencies, seriesStarts, days, balances);
+        }
+    }
+
+    /** Change points of one account and currency, one per date. */
+    private static final class Series {
+        private int[] days = new int[4];
+        private BigDecimal[] balances = new BigDecimal[4];
+        private int size;
+
+        /** Returns whether {@code day} opened a new row. */
+        boolean add(int day, BigDecimal number) {
+            if (size > 0 && day == days[size - 1]) {
+                balances[size - 1] = balances[size - 1].add(number);
+                return false;
+            }
+            if (size > 0 && day < days[size - 1]) {
+                throw new IllegalArgumentException("postings must be added in date order");
+            }
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                balances = Arrays.copyOf(balances, size * 2);
+            }
+            days[size] = day;
+            balances[size] = size == 0 ? number : balances[size - 1].add(number);
+            size++;
+            return true;
+        }
+    }
+}
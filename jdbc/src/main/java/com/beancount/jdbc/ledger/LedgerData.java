@@ -15,6 +15,13 @@ public final class LedgerData {
     private final List<EventRecord> events;
     private final List<QueryRecord> queries;
     private final List<PriceRecord> prices;
+    private final AccountBalanceHistory balanceHistory;
+    private final LotHistory lotHistory;
+    private final List<RealizedGainRecord> realizedGains;
+    private final PriceIndex priceIndex;
+    private final MetadataStore entryMetadata;
+    private final MetadataStore postingMetadata;
+    private final TextSearchIndex textIndex;
 
     public LedgerData(
             List<LedgerEntry> entries,
@@ -29,6 +36,132 @@ public final class LedgerData {
             List<EventRecord> events,
             List<QueryRecord> queries,
             List<PriceRecord> prices) {
+        this(entries, postings, rawPostings, opens, closes, pads, balances, notes, documents, events, queries, prices,
+                AccountBalanceHistory.empty());
+    }
+
+    public LedgerData(
+            List<LedgerEntry> entries,
+            List<PostingRecord> postings,
+            List<PostingRecord> rawPostings,
+            List<OpenRecord> opens,
+            List<CloseRecord> closes,
+            List<PadRecord> pads,
+            List<BalanceRecord> balances,
+            List<NoteRecord> notes,
+            List<DocumentRecord> documents,
+            List<EventRecord> events,
+            List<QueryRecord> queries,
+            List<PriceRecord> prices,
+            AccountBalanceHistory balanceHistory) {
+        this(entries, postings, rawPostings, opens, closes, pads, balances, notes, documents, events, queries, prices,
+                balanceHistory, LotHistory.empty());
+    }
+
+    public LedgerData(
+            List<LedgerEntry> entries,
+            List<PostingRecord> postings,
+            List<PostingRecord> rawPostings,
+            List<OpenRecord> opens,
+            List<CloseRecord> closes,
+            List<PadRecord> pads,
+            List<BalanceRecord> balances,
+            List<NoteRecord> notes,
+            List<DocumentRecord> documents,
+            List<EventRecord> events,
+            List<QueryRecord> queries,
+            List<PriceRecord> prices,
+            AccountBalanceHistory balanceHistory,
+            LotHistory lotHistory) {
+        this(entries, postings, rawPostings, opens, closes, pads, balances, notes, documents, events, queries, prices,
+                balanceHistory, lotHistory, List.of());
+    }
+
+    public LedgerData(
+            List<LedgerEntry> entries,
+            List<PostingRecord> postings,
+            List<PostingRecord> rawPostings,
+            List<OpenRecord> opens,
+            List<CloseRecord> closes,
+            List<PadRecord> pads,
+            List<BalanceRecord> balances,
+            List<NoteRecord> notes,
+            List<DocumentRecord> documents,
+            List<EventRecord> events,
+            List<QueryRecord> queries,
+            List<PriceRecord> prices,
+            AccountBalanceHistory balanceHistory,
+            LotHistory lotHistory,
+            List<RealizedGainRecord> realizedGains) {
+        this(entries, postings, rawPostings, opens, closes, pads, balances, notes, documents, events, queries, prices,
+                balanceHistory, lotHistory, realizedGains, PriceIndex.empty());
+    }
+
+    public LedgerData(
+            List<LedgerEntry> entries,
+            List<PostingRecord> postings,
+            List<PostingRecord> rawPostings,
+            List<OpenRecord> opens,
+            List<CloseRecord> closes,
+            List<PadRecord> pads,
+            List<BalanceRecord> balances,
+            List<NoteRecord> notes,
+            List<DocumentRecord> documents,
+            List<EventRecord> events,
+            List<QueryRecord> queries,
+            List<PriceRecord> prices,
+            AccountBalanceHistory balanceHistory,
+            LotHistory lotHistory,
+            List<RealizedGainRecord> realizedGains,
+            PriceIndex priceIndex) {
+        this(entries, postings, rawPostings, opens, closes, pads, balances, notes, documents, events, queries, prices,
+                balanceHistory, lotHistory, realizedGains, priceIndex, MetadataStore.empty(), MetadataStore.empty());
+    }
+
+    public LedgerData(
+            List<LedgerEntry> entries,
+            List<PostingRecord> postings,
+            List<PostingRecord> rawPostings,
+            List<OpenRecord> opens,
+            List<CloseRecord> closes,
+            List<PadRecord> pads,
+            List<BalanceRecord> balances,
+            List<NoteRecord> notes,
+            List<DocumentRecord> documents,
+            List<EventRecord> events,
+            List<QueryRecord> queries,
+            List<PriceRecord> prices,
+            AccountBalanceHistory balanceHistory,
+            LotHistory lotHistory,
+            List<RealizedGainRecord> realizedGains,
+            PriceIndex priceIndex,
+            MetadataStore entryMetadata,
+            MetadataStore postingMetadata) {
+        this(entries, postings, rawPostings, opens, closes, pads, balances, notes, documents, events, queries, prices,
+                balanceHistory, lotHistory, realizedGains, priceIndex, entryMetadata, postingMetadata,
+                TextSearchIndex.empty());
+    }
+
+    public LedgerData(
+            List<LedgerEntry> entries,
+            List<PostingRecord> postings,
+            List<PostingRecord> rawPostings,
+            List<OpenRecord> opens,
+            List<CloseRecord> closes,
+            List<PadRecord> pads,
+            List<BalanceRecord> balances,
+            List<NoteRecord> notes,
+            List<DocumentRecord> documents,
+            List<EventRecord> events,
+            List<QueryRecord> queries,
+            List<PriceRecord> prices,
+            AccountBalanceHistory balanceHistory,
+            LotHistory lotHistory,
+            List<RealizedGainRecord> realizedGains,
+            PriceIndex priceIndex,
+            MetadataStore entryMetadata,
+            MetadataStore postingMetadata,
+            TextSearchIndex textIndex) {
         this.entries = entries;
         this.postings = postings;
         this.rawPostings = rawPostings;
@@ -41,6 +174,13 @@ public final class LedgerData {
         this.events = events;
         this.queries = queries;
         this.prices = prices;
+        this.balanceHistory = balanceHistory;
+        this.lotHistory = lotHistory;
+        this.realizedGains = realizedGains;
+        this.priceIndex = priceIndex;
+        this.entryMetadata = entryMetadata;
+        this.postingMetadata = postingMetadata;
+        this.textIndex = textIndex;
     }
 
     public List<LedgerEntry> getEntries() {
@@ -90,4 +230,37 @@ public final class LedgerData {
     public List<PriceRecord> getPrices() {
         return prices;
     }
+
+    /** Per-account, per-currency balances at each date they change; built while loading. */
+    public AccountBalanceHistory getBalanceHistory() {
+        return balanceHistory;
+    }
+
+    public LotHistory getLotHistory() {
+        return lotHistory;
+    }
+
+    public List<RealizedGainRecord> getRealizedGains() {
+        return realizedGains;
+    }
+
+    /** Prices by currency pair and date, for as-of lookups and conversions; built while loading. */
+    public PriceIndex getPriceIndex() {
+        return priceIndex;
+    }
+
+    /** Metadata of transactions by final entry id, including keys pushed with {@code pushmeta}. */
+    public MetadataStore getEntryMetadata() {
+        return entryMetadata;
+    }
+
+    /** Metadata of postings by final posting id, shared by the lots a posting was booked into. */
+    public MetadataStore getPostingMetadata() {
+        return postingMetadata;
+    }
+
+    /** Trigram index over the payee, narration and comments of transactions; built while loading. */
+    public TextSearchIndex getTextIndex() {
+        return textIndex;
+    }
 }
@@ -4,7 +4,14 @@ import com.beancount.jdbc.loader.BeancountLoader;
 import com.beancount.jdbc.loader.LoaderException;
 import com.beancount.jdbc.loader.LoaderResult;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Shared entry point for loading Beancount ledgers.
@@ -12,13 +19,121 @@ import java.util.Objects;
  * <p>This thin wrapper around {@link BeancountLoader} makes it easy for both the legacy JDBC path
  * and the upcoming Calcite-backed implementation to reuse the same parsing pipeline without
  * duplicating instantiation logic.</p>
+ *
+ * <p>{@link #snapshot(Path)} additionally caches the most recent load per ledger path and only
+ * re-parses once one of the underlying files changes, so connections opened against the same
+ * ledger share a single {@link LedgerSnapshot}. Only the {@value #MAX_CACHED_LEDGERS} most recently
+ * used ledgers stay cached; connections keep their own reference to the snapshot they were opened
+ * against, so eviction never invalidates open connections.</p>
  */
 public final class LedgerProvider {
 
+    static final int MAX_CACHED_LEDGERS = 8;
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+    // Covers coarse file systems that round modification times to whole seconds (or two, on FAT).
+    private static final long MTIME_GRANULARITY_MILLIS = 2_000L;
+
+    private static final Map<Path, CacheSlot> SNAPSHOTS =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, CacheSlot> eldest) {
+                    return size() > MAX_CACHED_LEDGERS;
+                }
+            };
+
     private LedgerProvider() {}
 
     public static LoaderResult load(Path ledgerPath) throws LoaderException {
         Objects.requireNonNull(ledgerPath, "ledgerPath");
         return new BeancountLoader().load(ledgerPath);
     }
+
+    public static LedgerSnapshot snapshot(Path ledgerPath) throws LoaderException {
+        Objects.requireNonNull(ledgerPath, "ledgerPath");
+        Path key = ledgerPath.toAbsolutePath().normalize();
+        CacheSlot slot;
+        synchronized (SNAPSHOTS) {
+            slot = SNAPSHOTS.computeIfAbsent(key, path -> new CacheSlot());
+        }
+        LedgerSnapshot current = slot.snapshot;
+        if (current != null && current.isCurrent()) {
+            return current;
+        }
+        synchronized (slot) {
+            current = slot.snapshot;
+            if (current != null && current.isCurrent()) {
+                return current;
+            }
+            LedgerSnapshot loaded = loadConsistent(key, current);
+            slot.snapshot = loaded;
+            return loaded;
+        }
+    }
+
+    /** Drops any cached snapshot for the ledger so the next {@link #snapshot(Path)} re-parses. */
+    public static void invalidate(Path ledgerPath) {
+        Objects.requireNonNull(ledgerPath, "ledgerPath");
+        synchronized (SNAPSHOTS) {
+            SNAPSHOTS.remove(ledgerPath.toAbsolutePath().normalize());
+        }
+    }
+
+    static int cachedLedgerCount() {
+        synchronized (SNAPSHOTS) {
+            return SNAPSHOTS.size();
+        }
+    }
+
+    /**
+     * Loads the ledger and stamps its files with the state they had <em>before</em> the parse, so
+     * an edit that lands mid-load makes the snapshot stale instead of being credited to the old
+     * content. Includes only discovered by this load have no earlier stamp; they are trusted when
+     * their modification time predates the load and otherwise trigger another attempt.
+     */
+    private static LedgerSnapshot loadConsistent(Path key, LedgerSnapshot previous) throws LoaderException {
+        Set<Path> known = new LinkedHashSet<>();
+        known.add(key);
+        if (previous != null) {
+            for (LedgerSnapshot.SourceStamp source : previous.getSources()) {
+                known.add(source.path());
+            }
+        }
+        for (int attempt = 1; ; attempt++) {
+            long startedMillis = System.currentTimeMillis();
+            Map<Path, LedgerSnapshot.SourceStamp> before = new HashMap<>();
+            for (LedgerSnapshot.SourceStamp stamp : LedgerSnapshot.stamp(known)) {
+                before.put(stamp.path(), stamp);
+            }
+            LoaderResult result = load(key);
+            Set<Path> sources = new LinkedHashSet<>();
+            sources.add(key);
+            sources.addAll(result.getSourceFiles());
+
+            List<LedgerSnapshot.SourceStamp> stamps = new ArrayList<>(sources.size());
+            boolean consistent = true;
+            for (LedgerSnapshot.SourceStamp after : LedgerSnapshot.stamp(sources)) {
+                LedgerSnapshot.SourceStamp earlier = before.get(after.path());
+                if (earlier != null) {
+                    consistent &= earlier.equals(after);
+                    stamps.add(earlier);
+                } else if (after.lastModifiedMillis() >= 0
+                        && after.lastModifiedMillis() + MTIME_GRANULARITY_MILLIS < startedMillis) {
+                    stamps.add(after);
+                } else {
+                    consistent = false;
+                    stamps.add(LedgerSnapshot.SourceStamp.unverified(after.path()));
+                }
+            }
+            if (consistent || attempt == MAX_LOAD_ATTEMPTS) {
+                // An inconsistent final attempt still carries stamps that fail isCurrent(), so the
+                // next caller reloads rather than trusting a possibly torn read.
+                return LedgerSnapshot.capture(key, result, stamps);
+            }
+            known = sources;
+        }
+    }
+
+    private static final class CacheSlot {
+        private volatile LedgerSnapshot snapshot;
+    }
 }
@@ -0,0 +1,113 @@
+package com.beancount.jdbc.ledger;
+
+import com.beancount.jdbc.loader.LoaderResult;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Immutable result of loading a ledger at a point in time.
+ *
+ * <p>Every snapshot carries a process-unique version plus the size and modification time of each
+ * file that was read (the root ledger and all resolved includes). {@link #isCurrent()} only stats
+ * those files, so callers can cheaply decide whether state derived from the snapshot (Calcite
+ * schemas, pooled connections) is still valid without re-parsing anything.</p>
+ */
+public final class LedgerSnapshot {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final Path ledgerPath;
+    private final LoaderResult loaderResult;
+    private final long version;
+    private final List<SourceStamp> sources;
+    private final ConcurrentMap<Class<?>, Object> derived = new ConcurrentHashMap<>();
+
+    private LedgerSnapshot(Path ledgerPath, LoaderResult loaderResult, List<SourceStamp> sources) {
+        this.ledgerPath = ledgerPath;
+        this.loaderResult = loaderResult;
+        this.version = VERSIONS.incrementAndGet();
+        this.sources = List.copyOf(sources);
+    }
+
+    static LedgerSnapshot capture(Path ledgerPath, LoaderResult loaderResult, List<SourceStamp> sources) {
+        Objects.requireNonNull(ledgerPath, "ledgerPath");
+        Objects.requireNonNull(loaderResult, "loaderResult");
+        return new LedgerSnapshot(ledgerPath, loaderResult, sources);
+    }
+
+    public Path getLedgerPath() {
+        return ledgerPath;
+    }
+
+    public LoaderResult getLoaderResult() {
+        return loaderResult;
+    }
+
+    public LedgerData getLedgerData() {
+        return loaderResult.getLedgerData();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns state derived from this snapshot, computing it at most once. Consumers such as the
+     * Calcite schema template use this to share expensive, immutable structures between every
+     * connection opened against the same snapshot; the cached value is released with the snapshot.
+     * The factory must not call {@code derive} itself: state it depends on has to be derived first.
+     */
+    public <T> T derive(Class<T> type, Function<? super LedgerSnapshot, ? extends T> factory) {
+        Objects.requireNonNull(type, "type");
+        Objects.requireNonNull(factory, "factory");
+        return type.cast(derived.computeIfAbsent(type, key -> factory.apply(this)));
+    }
+
+    /** Returns {@code true} when none of the files backing this snapshot changed on disk. */
+    public boolean isCurrent() {
+        for (SourceStamp source : sources) {
+            if (!source.equals(SourceStamp.of(source.path()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<SourceStamp> getSources() {
+        return sources;
+    }
+
+    static List<SourceStamp> stamp(Iterable<Path> files) {
+        List<SourceStamp> stamps = new ArrayList<>();
+        for (Path file : files) {
+            stamps.add(SourceStamp.of(file));
+        }
+        return stamps;
+    }
+
+    record SourceStamp(Path path, long size, long lastModifiedMillis) {
+        private static final long UNVERIFIED = Long.MIN_VALUE;
+
+        /** A stamp no file on disk ever matches, forcing a reload on the next currency check. */
+        static SourceStamp unverified(Path path) {
+            return new SourceStamp(path, UNVERIFIED, UNVERIFIED);
+        }
+
+        static SourceStamp of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new SourceStamp(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException ex) {
+                return new SourceStamp(path, -1L, -1L);
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.beancount.jdbc.ledger;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Every lot held at cost that booking opened, with the quantity it held over time.
+ *
+ * <p>A lot's account, currency and cost are stored once; each change of its quantity only adds a
+ * version holding the new quantity and the dates it was held, so the inventories at every date
+ * share the same lots instead of being copied. Version {@code v} holds {@link #quantity(int)
+ * quantity(v)} at the end of every date from the day it was booked up to, excluding, the day the
+ * lot was next reduced. Versions are kept in the order they were booked, so the versions open at
+ * a date are found with one binary search over their start dates and one pass over the versions
+ * before it, without replaying the postings.</p>
+ */
+public final class LotHistory {
+    private static final LotHistory EMPTY =
+            new LotHistory(
+                    new String[0], new String[0], new BigDecimal[0], new String[0], new LocalDate[0], new String[0],
+                    new int[0], new int[0], new int[0], new BigDecimal[0]);
+
+    private final String[] accounts;
+    private final String[] currencies;
+    private final BigDecimal[] costNumbers;
+    private final String[] costCurrencies;
+    private final LocalDate[] costDates;
+    private final String[] costLabels;
+    private final int[] versionLots;
+    private final int[] fromDays;
+    private final int[] toDays;
+    private final BigDecimal[] quantities;
+
+    private LotHistory(
+            String[] accounts,
+            String[] currencies,
+            BigDecimal[] costNumbers,
+            String[] costCurrencies,
+            LocalDate[] costDates,
+            String[] costLabels,
+            int[] versionLots,
+            int[] fromDays,
+            int[] toDays,
+            BigDecimal[] quantities) {
+        this.accounts = accounts;
+        this.currencies = currencies;
+        this.costNumbers = costNumbers;
+        this.costCurrencies = costCurrencies;
+        this.costDates = costDates;
+        this.costLabels = costLabels;
+        this.versionLots = versionLots;
+        this.fromDays = fromDays;
+        this.toDays = toDays;
+        this.quantities = quantities;
+    }
+
+    public static LotHistory empty() {
+        return EMPTY;
+    }
+
+    /** Number of lots ever opened; lot ids are {@code 0..lotCount()-1} in booking order. */
+    public int lotCount() {
+        return accounts.length;
+    }
+
+    public String account(int lot) {
+        return accounts[lot];
+    }
+
+    public String currency(int lot) {
+        return currencies[lot];
+    }
+
+    public BigDecimal costNumber(int lot) {
+        return costNumbers[lot];
+    }
+
+    public String costCurrency(int lot) {
+        return costCurrencies[lot];
+    }
+
+    public LocalDate costDate(int lot) {
+        return costDates[lot];
+    }
+
+    public String costLabel(int lot) {
+        return costLabels[lot];
+    }
+
+    /** Lot a version belongs to. */
+    public int lot(int version) {
+        return versionLots[version];
+    }
+
+    public BigDecimal quantity(int version) {
+        return quantities[version];
+    }
+
+    /**
+     * Versions of the lots open at the end of {@code date}, one per lot in lot order, or at the
+     * end of the ledger when {@code date} is {@code null}.
+     */
+    public int[] openAt(LocalDate date) {
+        long day = date == null ? Integer.MAX_VALUE - 1L : date.toEpochDay();
+        int low = 0;
+        int high = fromDays.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fromDays[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int[] open = new int[low];
+        int count = 0;
+        for (int version = 0; version < low; version++) {
+            if (toDays[version] > day) {
+                open[count++] = version;
+            }
+        }
+        open = Arrays.copyOf(open, count);
+        // A lot has at most one version open at a time; lot order is opening order.
+        sortByLot(open);
+        return open;
+    }
+
+    private void sortByLot(int[] versions) {
+        for (int i = 1; i < versions.length; i++) {
+            if (versionLots[versions[i - 1]] > versionLots[versions[i]]) {
+                long[] keyed = new long[versions.length];
+                for (int j = 0; j < versions.length; j++) {
+                    keyed[j] = ((long) versionLots[versions[j]] << 32) | versions[j];
+                }
+                Arrays.sort(keyed);
+                for (int j = 0; j < versions.length; j++) {
+                    versions[j] = (int) keyed[j];
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records lots as booking opens and reduces them, in ledger date order. Reductions on the day
+     * a version started replace its quantity instead of adding a version.
+     */
+    public static final class Builder {
+        private String[] accounts = new String[16];
+        private String[] currencies = new String[16];
+        private BigDecimal[] costNumbers = new BigDecimal[16];
+        private String[] costCurrencies = new String[16];
+        private LocalDate[] costDates = new LocalDate[16];
+        private String[] costLabels = new String[16];
+        private int[] currentVersions = new int[16];
+        private int lots;
+
+        private int[] versionLots = new int[16];
+        private int[] fromDays = new int[16];
+        private int[] toDays = new int[16];
+        private BigDecimal[] quantities = new BigDecimal[16];
+        private int versions;
+        private int lastDay = Integer.MIN_VALUE;
+
+        /** Opens a lot holding {@code quantity} from {@code date} and returns its id. */
+        public int open(
+                String account,
+                String currency,
+                BigDecimal quantity,
+                BigDecimal costNumber,
+                String costCurrency,
+                LocalDate costDate,
+                String costLabel,
+                LocalDate date) {
+            Objects.requireNonNull(quantity, "quantity");
+            int day = advance(date);
+            if (lots == accounts.length) {
+                int capacity = lots * 2;
+                accounts = Arrays.copyOf(accounts, capacity);
+                currencies = Arrays.copyOf(currencies, capacity);
+                costNumbers = Arrays.copyOf(costNumbers, capacity);
+                costCurrencies = Arrays.copyOf(costCurrencies, capacity);
+                costDates = Arrays.copyOf(costDates, capacity);
+                costLabels = Arrays.copyOf(costLabels, capacity);
+                currentVersions = Arrays.copyOf(currentVersions, capacity);
+            }
+            int lot = lots++;
+            accounts[lot] = account;
+            currencies[lot] = currency;
+            costNumbers[lot] = costNumber;
+            costCurrencies[lot] = costCurrency;
+            costDates[lot] = costDate;
+            costLabels[lot] = costLabel;
+            currentVersions[lot] = addVersion(lot, day, quantity);
+            return lot;
+        }
+
+        /** Sets the quantity {@code lot} holds from {@code date}; zero closes it. */
+        public void change(int lot, LocalDate date, BigDecimal quantity) {
+            Objects.checkIndex(lot, lots);
+            Objects.requireNonNull(quantity, "quantity");
+            int day = advance(date);
+            int current = currentVersions[lot];
+            if (current < 0) {
+                throw new IllegalStateException("Lot " + lot + " is already closed");
+            }
+            boolean closed = quantity.signum() == 0;
+            if (fromDays[current] == day) {
+                // Only the quantity at the end of a day is visible; an emptied version holds no day.
+                quantities[current] = quantity;
+                if (closed) {
+                    toDays[current] = day;
+                }
+            } else {
+                toDays[current] = day;
+                if (!closed) {
+                    current = addVersion(lot, day, quantity);
+                }
+            }
+            currentVersions[lot] = closed ? -1 : current;
+        }
+
+        public LotHistory build() {
+            if (lots == 0) {
+                return EMPTY;
+            }
+            return new LotHistory(
+                    Arrays.copyOf(accounts, lots),
+                    Arrays.copyOf(currencies, lots),
+                    Arrays.copyOf(costNumbers, lots),
+                    Arrays.copyOf(costCurrencies, lots),
+                    Arrays.copyOf(costDates, lots),
+                    Arrays.copyOf(costLabels, lots),
+                    Arrays.copyOf(versionLots, versions),
+                    Arrays.copyOf(fromDays, versions),
+                    Arrays.copyOf(toDays, versions),
+                    Arrays.copyOf(quantities, versions));
+        }
+
+        private int advance(LocalDate date) {
+            Objects.requireNonNull(date, "date");
+            int day = Math.toIntExact(date.toEpochDay());
+            if (day < lastDay) {
+                throw new IllegalArgumentException(
+                        "Lot changes must be recorded in date order: " + date + " after "
+                                + LocalDate.ofEpochDay(lastDay));
+            }
+            lastDay = day;
+            return day;
+        }
+
+        private int addVersion(int lot, int day, BigDecimal quantity) {
+            if (versions == versionLots.length) {
+                int capacity = versions * 2;
+                versionLots = Arrays.copyOf(versionLots, capacity);
+                fromDays = Arrays.copyOf(fromDays, capacity);
+                toDays = Arrays.copyOf(toDays, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+            }
+            int version = versions++;
+            versionLots[version] = lot;
+            fromDays[version] = day;
+            toDays[version] = Integer.MAX_VALUE;
+            quantities[version] = quantity;
+            return version;
+        }
+    }
+}
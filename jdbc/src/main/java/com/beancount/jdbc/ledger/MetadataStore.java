@@ -0,0 +1,205 @@
+package com.beancount.jdbc.ledger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Key/value metadata of entries or postings, one row per pair, held as columns of owner ids and
+ * dictionary codes.
+ *
+ * <p>Rows are sorted by owner id and keep the order pairs were added in for one owner. An inverted
+ * index maps each key, and each key and non-null value, to the ascending rows holding it, so
+ * {@link #rows(String, String)} answers {@code key = ? AND value = ?} without a scan.</p>
+ */
+public final class MetadataStore {
+    private static final int[] NO_ROWS = new int[0];
+    private static final MetadataStore EMPTY =
+            new MetadataStore(new int[0], new int[0], new int[0], new String[0], new String[0], Map.of(), Map.of());
+
+    private final int[] ids;
+    private final int[] keyCodes;
+    private final int[] valueCodes;
+    private final String[] keys;
+    private final String[] values;
+    private final Map<String, int[]> rowsByKey;
+    private final Map<String, Map<String, int[]>> rowsByKeyAndValue;
+
+    private MetadataStore(
+            int[] ids,
+            int[] keyCodes,
+            int[] valueCodes,
+            String[] keys,
+            String[] values,
+            Map<String, int[]> rowsByKey,
+            Map<String, Map<String, int[]>> rowsByKeyAndValue) {
+        this.ids = ids;
+        this.keyCodes = keyCodes;
+        this.valueCodes = valueCodes;
+        this.keys = keys;
+        this.values = values;
+        this.rowsByKey = rowsByKey;
+        this.rowsByKeyAndValue = rowsByKeyAndValue;
+    }
+
+    public static MetadataStore empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /** Id of the entry or posting row {@code row} belongs to. */
+    public int id(int row) {
+        return ids[row];
+    }
+
+    public String key(int row) {
+        return keys[keyCodes[row]];
+    }
+
+    /** Value of {@code row}, {@code null} for a key written without one. */
+    public String value(int row) {
+        int code = valueCodes[row];
+        return code < 0 ? null : values[code];
+    }
+
+    /** First row of {@code id}; equals {@link #endRow} when it has no metadata. */
+    public int firstRow(int id) {
+        return rowBound(id, false);
+    }
+
+    /** Row after the last one of {@code id}. */
+    public int endRow(int id) {
+        return rowBound(id, true);
+    }
+
+    /** Ascending rows holding {@code key}; do not modify the returned array. */
+    public int[] rows(String key) {
+        return rowsByKey.getOrDefault(key, NO_ROWS);
+    }
+
+    /** Ascending rows holding {@code key} with {@code value}; do not modify the returned array. */
+    public int[] rows(String key, String value) {
+        Map<String, int[]> byValue = rowsByKeyAndValue.get(key);
+        if (byValue == null || value == null) {
+            return NO_ROWS;
+        }
+        return byValue.getOrDefault(value, NO_ROWS);
+    }
+
+    /** First row whose id is after {@code id} ({@code after}) or not before it. */
+    private int rowBound(int id, boolean after) {
+        int low = 0;
+        int high = ids.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < id || (after && ids[mid] == id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Collects pairs while the ledger is finalized, normally in owner id order. */
+    public static final class Builder {
+        private final List<Integer> ids = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+
+        public Builder add(int id, String key, String value) {
+            if (id < 0) {
+                throw new IllegalArgumentException("Metadata id must not be negative: " + id);
+            }
+            ids.add(id);
+            keys.add(Objects.requireNonNull(key, "key"));
+            values.add(value);
+            return this;
+        }
+
+        public MetadataStore build() {
+            int size = ids.size();
+            if (size == 0) {
+                return EMPTY;
+            }
+            // Owner id in the high half and insertion position in the low half, so a sort is
+            // stable and skipped when pairs were added in id order.
+            long[] order = new long[size];
+            boolean sorted = true;
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) ids.get(i) << 32) | i;
+                sorted &= i == 0 || order[i] > order[i - 1];
+            }
+            if (!sorted) {
+                Arrays.sort(order);
+            }
+            int[] rowIds = new int[size];
+            int[] keyCodes = new int[size];
+            int[] valueCodes = new int[size];
+            Map<String, Integer> keyDictionary = new HashMap<>();
+            Map<String, Integer> valueDictionary = new HashMap<>();
+            Map<String, IntList> rowsByKey = new HashMap<>();
+            Map<String, Map<String, IntList>> rowsByKeyAndValue = new HashMap<>();
+            for (int row = 0; row < size; row++) {
+                int position = (int) order[row];
+                String key = keys.get(position);
+                String value = values.get(position);
+                rowIds[row] = (int) (order[row] >> 32);
+                keyCodes[row] = keyDictionary.computeIfAbsent(key, k -> keyDictionary.size());
+                valueCodes[row] =
+                        value == null ? -1 : valueDictionary.computeIfAbsent(value, v -> valueDictionary.size());
+                rowsByKey.computeIfAbsent(key, k -> new IntList()).add(row);
+                if (value != null) {
+                    rowsByKeyAndValue
+                            .computeIfAbsent(key, k -> new HashMap<>())
+                            .computeIfAbsent(value, v -> new IntList())
+                            .add(row);
+                }
+            }
+            Map<String, int[]> keyIndex = new HashMap<>();
+            rowsByKey.forEach((key, rows) -> keyIndex.put(key, rows.toArray()));
+            Map<String, Map<String, int[]>> valueIndex = new HashMap<>();
+            rowsByKeyAndValue.forEach((key, byValue) -> {
+                Map<String, int[]> index = new HashMap<>();
+                byValue.forEach((value, rows) -> index.put(value, rows.toArray()));
+                valueIndex.put(key, index);
+            });
+            return new MetadataStore(
+                    rowIds,
+                    keyCodes,
+                    valueCodes,
+                    dictionary(keyDictionary),
+                    dictionary(valueDictionary),
+                    keyIndex,
+                    valueIndex);
+        }
+
+        private static String[] dictionary(Map<String, Integer> codes) {
+            String[] names = new String[codes.size()];
+            codes.forEach((name, code) -> names[code] = name);
+            return names;
+        }
+    }
+
+    private static final class IntList {
+        private int[] items = new int[4];
+        private int size;
+
+        void add(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -6,11 +6,17 @@ public final class OpenRecord {
     private final int entryId;
     private final String account;
     private final List<String> currencies;
+    private final String bookingMethod;
 
     public OpenRecord(int entryId, String account, List<String> currencies) {
+        this(entryId, account, currencies, null);
+    }
+
+    public OpenRecord(int entryId, String account, List<String> currencies, String bookingMethod) {
         this.entryId = entryId;
         this.account = account;
         this.currencies = List.copyOf(currencies);
+        this.bookingMethod = bookingMethod;
     }
 
     public int getEntryId() {
@@ -24,4 +30,8 @@ public final class OpenRecord {
     public List<String> getCurrencies() {
         return currencies;
     }
+
+    public String getBookingMethod() {
+        return bookingMethod;
+    }
 }
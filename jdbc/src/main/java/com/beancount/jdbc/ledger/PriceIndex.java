@@ -0,0 +1,188 @@
+package com.beancount.jdbc.ledger;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Prices of one currency in another by date, for looking up the price in effect on any date.
+ *
+ * <p>Every (base, quote) pair has its own series of dates and prices in date order, one price per
+ * date, so the price on or before a date is one binary search. A pair without a price of its own
+ * is answered from the inverse pair, and failing that through one of the operating currencies,
+ * e.g. {@code HOOL} in {@code EUR} as {@code HOOL} in {@code USD} times {@code USD} in
+ * {@code EUR}. The index is immutable once built.</p>
+ */
+public final class PriceIndex {
+
+    /** Precision of inverted prices, that of Python's default decimal context. */
+    private static final MathContext INVERSE = new MathContext(28, RoundingMode.HALF_EVEN);
+
+    private static final PriceIndex EMPTY = new PriceIndex(Map.of(), List.of());
+
+    private final Map<String, Map<String, Series>> pairs;
+    private final List<String> operatingCurrencies;
+
+    private PriceIndex(Map<String, Map<String, Series>> pairs, List<String> operatingCurrencies) {
+        this.pairs = pairs;
+        this.operatingCurrencies = operatingCurrencies;
+    }
+
+    public static PriceIndex empty() {
+        return EMPTY;
+    }
+
+    public List<String> getOperatingCurrencies() {
+        return operatingCurrencies;
+    }
+
+    /**
+     * Price of one unit of {@code base} in {@code quote} in effect at the end of the epoch day
+     * {@code day}, or {@code null} if none is known by then. A currency is worth one of itself.
+     */
+    public BigDecimal priceAt(String base, String quote, long day) {
+        Objects.requireNonNull(base, "base");
+        Objects.requireNonNull(quote, "quote");
+        if (base.equals(quote)) {
+            return BigDecimal.ONE;
+        }
+        BigDecimal price = pairPrice(base, quote, day);
+        if (price != null) {
+            return price;
+        }
+        for (String via : operatingCurrencies) {
+            if (via.equals(base) || via.equals(quote)) {
+                continue;
+            }
+            BigDecimal first = pairPrice(base, via, day);
+            BigDecimal second = first == null ? null : pairPrice(via, quote, day);
+            if (second != null) {
+                return first.multiply(second);
+            }
+        }
+        return null;
+    }
+
+    /** {@code number} units of {@code currency} in {@code quote} at {@code day}, or {@code null} without a price. */
+    public BigDecimal convert(BigDecimal number, String currency, String quote, long day) {
+        Objects.requireNonNull(number, "number");
+        BigDecimal price = priceAt(currency, quote, day);
+        return price == null ? null : number.multiply(price);
+    }
+
+    /** The later of the pair's own price and its inverse's, the pair's own on the same date. */
+    private BigDecimal pairPrice(String base, String quote, long day) {
+        Series direct = series(base, quote);
+        Series inverse = series(quote, base);
+        int directAt = direct == null ? -1 : direct.lastOnOrBefore(day);
+        int inverseAt = inverse == null ? -1 : inverse.lastOnOrBefore(day);
+        if (directAt >= 0 && (inverseAt < 0 || direct.days[directAt] >= inverse.days[inverseAt])) {
+            return direct.prices[directAt];
+        }
+        if (inverseAt >= 0 && inverse.prices[inverseAt].signum() != 0) {
+            return BigDecimal.ONE.divide(inverse.prices[inverseAt], INVERSE);
+        }
+        return directAt >= 0 ? direct.prices[directAt] : null;
+    }
+
+    private Series series(String base, String quote) {
+        Map<String, Series> byQuote = pairs.get(base);
+        return byQuote == null ? null : byQuote.get(quote);
+    }
+
+    /**
+     * Collects prices in any order; of several prices for a pair on one date, the last added wins.
+     */
+    public static final class Builder {
+        private final Map<String, Map<String, SeriesBuilder>> pairs = new HashMap<>();
+
+        public Builder add(String base, String quote, LocalDate date, BigDecimal price) {
+            if (base == null || quote == null || date == null || price == null || base.equals(quote)) {
+                return this;
+            }
+            pairs.computeIfAbsent(base, key -> new HashMap<>())
+                    .computeIfAbsent(quote, key -> new SeriesBuilder())
+                    .add(Math.toIntExact(date.toEpochDay()), price);
+            return this;
+        }
+
+        public PriceIndex build(List<String> operatingCurrencies) {
+            List<String> via = List.copyOf(operatingCurrencies);
+            if (pairs.isEmpty() && via.isEmpty()) {
+                return EMPTY;
+            }
+            Map<String, Map<String, Series>> built = new HashMap<>(pairs.size() * 2);
+            for (Map.Entry<String, Map<String, SeriesBuilder>> base : pairs.entrySet()) {
+                Map<String, Series> byQuote = new HashMap<>(base.getValue().size() * 2);
+                base.getValue().forEach((quote, builder) -> byQuote.put(quote, builder.build()));
+                built.put(base.getKey(), byQuote);
+            }
+            return new PriceIndex(built, via);
+        }
+    }
+
+    private static final class SeriesBuilder {
+        private long[] keys = new long[4];
+        private BigDecimal[] prices = new BigDecimal[4];
+        private int size;
+
+        void add(int day, BigDecimal price) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            // Pack (day, position) so one primitive sort yields date order, stable within a day.
+            keys[size] = ((long) day << 32) | size;
+            prices[size++] = price;
+        }
+
+        Series build() {
+            long[] order = Arrays.copyOf(keys, size);
+            Arrays.sort(order);
+            int[] days = new int[size];
+            BigDecimal[] values = new BigDecimal[size];
+            int count = 0;
+            for (long key : order) {
+                int day = (int) (key >> 32);
+                if (count > 0 && days[count - 1] == day) {
+                    count--;
+                }
+                days[count] = day;
+                values[count++] = prices[(int) key];
+            }
+            return new Series(Arrays.copyOf(days, count), Arrays.copyOf(values, count));
+        }
+    }
+
+    /** One price per date, in date order. */
+    private static final class Series {
+        private final int[] days;
+        private final BigDecimal[] prices;
+
+        Series(int[] days, BigDecimal[] prices) {
+            this.days = days;
+            this.prices = prices;
+        }
+
+        /** Index of the last date on or before {@code day}, or -1. */
+        int lastOnOrBefore(long day) {
+            int low = 0;
+            int high = days.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (days[mid] <= day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low - 1;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.beancount.jdbc.ledger;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Part of a reduction that booking matched against one lot: {@code quantity} units, positive, of
+ * a lot acquired on {@code lotCostDate} at {@code costNumber}, disposed of at
+ * {@code proceedsNumber} per unit, both in {@code currency}.
+ */
+public final class RealizedGainRecord {
+    private final int postingId;
+    private final LocalDate lotCostDate;
+    private final BigDecimal quantity;
+    private final BigDecimal costNumber;
+    private final BigDecimal proceedsNumber;
+    private final String currency;
+    private final int holdingDays;
+
+    public RealizedGainRecord(
+            int postingId,
+            LocalDate lotCostDate,
+            BigDecimal quantity,
+            BigDecimal costNumber,
+            BigDecimal proceedsNumber,
+            String currency,
+            int holdingDays) {
+        this.postingId = postingId;
+        this.lotCostDate = lotCostDate;
+        this.quantity = quantity;
+        this.costNumber = costNumber;
+        this.proceedsNumber = proceedsNumber;
+        this.currency = currency;
+        this.holdingDays = holdingDays;
+    }
+
+    /** The booked posting this part of the reduction became. */
+    public int getPostingId() {
+        return postingId;
+    }
+
+    public LocalDate getLotCostDate() {
+        return lotCostDate;
+    }
+
+    public BigDecimal getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getCostNumber() {
+        return costNumber;
+    }
+
+    /** Price per unit the reduction was written with, or {@code null} without a price in {@link #getCurrency()}. */
+    public BigDecimal getProceedsNumber() {
+        return proceedsNumber;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    /** Days from {@link #getLotCostDate()} to the date of the reducing entry. */
+    public int getHoldingDays() {
+        return holdingDays;
+    }
+}
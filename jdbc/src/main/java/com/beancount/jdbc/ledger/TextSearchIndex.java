@@ -0,0 +1,265 @@
+package com.beancount.jdbc.ledger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A trigram index over the payee, narration and comments of the transactions, built while the
+ * ledger is finalized.
+ *
+ * <p>Texts are case folded one character at a time, so folding never changes a text's length and
+ * a fragment contained in a text is contained in the folded text. Every three consecutive folded
+ * characters of a field map to the ascending transactions holding them; the transactions that can
+ * contain a fragment of three or more characters are the intersection of its trigrams' lists.
+ * Trigrams of the upper and lower cased forms are indexed too where those differ in length (such
+ * as {@code ß}), so fragments of {@code UPPER(narration)} or {@code LOWER(narration)} are found as
+ * well.</p>
+ *
+ * <p>{@link #search} matches transactions whose fields contain every whitespace separated term of
+ * a query, ignoring case, and ranks them by where and how often the terms occur.</p>
+ */
+public final class TextSearchIndex {
+    private static final TextSearchIndex EMPTY = new TextSearchIndex(new int[0], new String[0][], Map.of());
+
+    /** Weight of a term occurrence in the payee, the narration and the comments. */
+    private static final int[] FIELD_WEIGHTS = {3, 2, 1};
+
+    private static final int[] NO_DOCUMENTS = new int[0];
+
+    /** Ranked match of {@link #search}. */
+    public record Hit(int id, int score) {}
+
+    /** Entry id of each document, ascending. */
+    private final int[] ids;
+    /** Folded payee, narration and comments of each document; a missing field is empty. */
+    private final String[][] fields;
+    private final Map<Long, int[]> documentsByTrigram;
+
+    private TextSearchIndex(int[] ids, String[][] fields, Map<Long, int[]> documentsByTrigram) {
+        this.ids = ids;
+        this.fields = fields;
+        this.documentsByTrigram = documentsByTrigram;
+    }
+
+    public static TextSearchIndex empty() {
+        return EMPTY;
+    }
+
+    /** Number of indexed transactions. */
+    public int size() {
+        return ids.length;
+    }
+
+    /** {@code text} with each character lower cased after upper casing, as case-insensitive matching does. */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Ascending entry ids of the transactions that may contain every fragment in one of their
+     * fields, ignoring case; {@code null} when no fragment is long enough to narrow anything down.
+     * Every transaction containing all fragments is included, and callers check the others.
+     */
+    public int[] candidates(List<String> fragments) {
+        int[] documents = documents(fragments);
+        if (documents == null) {
+            return null;
+        }
+        int[] result = new int[documents.length];
+        for (int i = 0; i < documents.length; i++) {
+            result[i] = ids[documents[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Transactions containing every term of {@code query}, ignoring case, best first: each
+     * occurrence scores by field, payee over narration over comments, doubled where a word starts.
+     * Equal scores put later transactions first. {@code limit} caps the hits when positive.
+     */
+    public List<Hit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : fold(query).trim().split("\\s+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        int[] documents = documents(new ArrayList<>(terms));
+        List<Hit> hits = new ArrayList<>();
+        int count = documents == null ? ids.length : documents.length;
+        for (int i = 0; i < count; i++) {
+            int document = documents == null ? i : documents[i];
+            int score = score(fields[document], terms);
+            if (score > 0) {
+                hits.add(new Hit(ids[document], score));
+            }
+        }
+        hits.sort(Comparator.comparingInt(Hit::score).thenComparingInt(Hit::id).reversed());
+        return limit > 0 && hits.size() > limit ? List.copyOf(hits.subList(0, limit)) : hits;
+    }
+
+    /** Sum of the terms' weighted occurrences, or 0 when a term occurs nowhere. */
+    private static int score(String[] documentFields, Set<String> terms) {
+        int total = 0;
+        for (String term : terms) {
+            int termScore = 0;
+            for (int field = 0; field < documentFields.length; field++) {
+                String text = documentFields[field];
+                for (int at = text.indexOf(term); at >= 0; at = text.indexOf(term, at + 1)) {
+                    boolean wordStart = at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1));
+                    termScore += FIELD_WEIGHTS[field] * (wordStart ? 2 : 1);
+                }
+            }
+            if (termScore == 0) {
+                return 0;
+            }
+            total += termScore;
+        }
+        return total;
+    }
+
+    /** Ascending documents holding every trigram of the fragments, or {@code null} for no trigram. */
+    private int[] documents(List<String> fragments) {
+        List<int[]> lists = new ArrayList<>();
+        Set<Long> seen = new LinkedHashSet<>();
+        for (String fragment : fragments) {
+            String folded = fold(fragment);
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                long trigram = trigram(folded, i);
+                if (seen.add(trigram)) {
+                    lists.add(documentsByTrigram.getOrDefault(trigram, NO_DOCUMENTS));
+                }
+            }
+        }
+        if (lists.isEmpty()) {
+            return null;
+        }
+        // Shortest first, so each step intersects with the smallest running result.
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    /** Ascending values in both lists; binary searches the larger one when sizes differ a lot. */
+    private static int[] intersect(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        if ((long) small.length * 16 < large.length) {
+            int from = 0;
+            for (int value : small) {
+                int found = Arrays.binarySearch(large, from, large.length, value);
+                if (found >= 0) {
+                    result[count++] = value;
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+        } else {
+            int j = 0;
+            for (int value : small) {
+                while (j < large.length && large[j] < value) {
+                    j++;
+                }
+                if (j < large.length && large[j] == value) {
+                    result[count++] = value;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long trigram(String text, int at) {
+        return ((long) text.charAt(at) << 32) | ((long) text.charAt(at + 1) << 16) | text.charAt(at + 2);
+    }
+
+    /** Collects the transactions while the ledger is finalized, in ascending id order. */
+    public static final class Builder {
+        private final List<Integer> ids = new ArrayList<>();
+        private final List<String[]> fields = new ArrayList<>();
+        private final Map<Long, IntList> documentsByTrigram = new HashMap<>();
+
+        public Builder add(int id, String payee, String narration, List<String> comments) {
+            if (!ids.isEmpty() && id <= ids.get(ids.size() - 1)) {
+                throw new IllegalArgumentException("Text search ids must ascend: " + id);
+            }
+            String joinedComments = comments == null || comments.isEmpty() ? "" : String.join("\n", comments);
+            String[] folded = {fold(payee), fold(narration), fold(joinedComments)};
+            int document = ids.size();
+            ids.add(id);
+            fields.add(folded);
+            String[] raw = {payee, narration, joinedComments};
+            for (int field = 0; field < folded.length; field++) {
+                addTrigrams(document, folded[field]);
+                if (raw[field] != null) {
+                    addCaseVariant(document, folded[field], raw[field].toUpperCase(Locale.ROOT));
+                    addCaseVariant(document, folded[field], raw[field].toLowerCase(Locale.ROOT));
+                }
+            }
+            return this;
+        }
+
+        public TextSearchIndex build() {
+            if (ids.isEmpty()) {
+                return EMPTY;
+            }
+            Map<Long, int[]> index = new HashMap<>(documentsByTrigram.size() * 2);
+            documentsByTrigram.forEach((trigram, documents) -> index.put(trigram, documents.toArray()));
+            return new TextSearchIndex(
+                    ids.stream().mapToInt(Integer::intValue).toArray(), fields.toArray(new String[0][]), index);
+        }
+
+        private void addCaseVariant(int document, String folded, String variant) {
+            String foldedVariant = fold(variant);
+            if (!foldedVariant.equals(folded)) {
+                addTrigrams(document, foldedVariant);
+            }
+        }
+
+        private void addTrigrams(int document, String text) {
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                // Documents arrive in order, so a repeated trigram only needs the last entry checked.
+                documentsByTrigram.computeIfAbsent(trigram(text, i), t -> new IntList()).addIfAbsent(document);
+            }
+        }
+    }
+
+    private static final class IntList {
+        private int[] items = new int[2];
+        private int size;
+
+        void addIfAbsent(int item) {
+            if (size > 0 && items[size - 1] == item) {
+                return;
+            }
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -391,7 +391,8 @@ public final class BeancountAstBuilder {
                             directiveType,
                             contentLines,
                             components.account(),
-                            components.currencies());
+                            components.currencies(),
+                            components.bookingMethod());
                 }
                 case "close" -> {
                     List<String> tokens = tokenize(header.text, 1);
@@ -590,7 +591,7 @@ public final class BeancountAstBuilder {
         private OpenComponents parseOpenComponents(String headerText) {
             String text = stripComment(headerText).trim();
             if (text.isEmpty()) {
-                return new OpenComponents("", List.of());
+                return new OpenComponents("", List.of(), null);
             }
             int splitIndex = firstWhitespaceIndex(text);
             String account;
@@ -601,7 +602,15 @@ public final class BeancountAstBuilder {
             } else {
                 account = text;
             }
-            return new OpenComponents(account, parseOpenCurrencies(remainder));
+            String bookingMethod = null;
+            if (remainder.length() >= 2 && remainder.endsWith("\"")) {
+                int quoteStart = remainder.lastIndexOf('"', remainder.length() - 2);
+                if (quoteStart >= 0) {
+                    bookingMethod = remainder.substring(quoteStart + 1, remainder.length() - 1);
+                    remainder = remainder.substring(0, quoteStart).trim();
+                }
+            }
+            return new OpenComponents(account, parseOpenCurrencies(remainder), bookingMethod);
         }
 
         private int firstWhitespaceIndex(String text) {
@@ -954,7 +963,8 @@ public final class BeancountAstBuilder {
             return ch == '!' || ch == '?' || ch == '*';
         }
 
-        private record OpenComponents(String account, List<String> currencies) {}
+        private record OpenComponents(
+                String account, List<String> currencies, String bookingMethod) {}
 
         private record BalanceComponents(
                 String account,
@@ -32,6 +32,7 @@ public final class BeancountLoader {
                             + (location.isEmpty() ? "" : " (" + location + ")"));
         }
 
-        return new LoaderResult(analysis.getLedgerData(), messages, analysis.getLedger());
+        return new LoaderResult(
+                analysis.getLedgerData(), messages, analysis.getLedger(), analysis.getSourceFiles());
     }
 }
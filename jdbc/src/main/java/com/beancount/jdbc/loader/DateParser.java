@@ -0,0 +1,80 @@
+package com.beancount.jdbc.loader;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses ledger dates of the form {@code YYYY-M-D}: a four-digit year and one- or two-digit month
+ * and day. Like the {@code DateTimeFormatter} it replaces, a day past the end of a valid month is
+ * clamped to the month's last day, while months outside 1-12 and days outside 1-31 are rejected.
+ *
+ * <p>The fields are decoded in place from the text, so parsing a date costs no more than the
+ * resulting {@link LocalDate}.</p>
+ */
+public final class DateParser {
+
+    private DateParser() {}
+
+    /**
+     * Parses {@code text} or throws {@link DateTimeParseException} with the index of the first
+     * offending character.
+     */
+    public static LocalDate parse(CharSequence text) {
+        if (text == null) {
+            throw new NullPointerException("text");
+        }
+        int length = text.length();
+        int year = 0;
+        for (int i = 0; i < 4; i++) {
+            year = year * 10 + digitAt(text, i);
+        }
+        int index = expect(text, 4, '-');
+        int month = digitAt(text, index++);
+        if (index < length && isDigit(text.charAt(index))) {
+            month = month * 10 + digitAt(text, index++);
+        }
+        index = expect(text, index, '-');
+        int day = digitAt(text, index++);
+        if (index < length && isDigit(text.charAt(index))) {
+            day = day * 10 + digitAt(text, index++);
+        }
+        if (index != length) {
+            throw error(text, index);
+        }
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            throw new DateTimeParseException("Invalid date: " + text, text, 0);
+        }
+        return LocalDate.of(year, month, Math.min(day, lengthOfMonth(year, month)));
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static int expect(CharSequence text, int index, char expected) {
+        if (index >= text.length() || text.charAt(index) != expected) {
+            throw error(text, index);
+        }
+        return index + 1;
+    }
+
+    private static int digitAt(CharSequence text, int index) {
+        if (index >= text.length() || !isDigit(text.charAt(index))) {
+            throw error(text, index);
+        }
+        return text.charAt(index) - '0';
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static DateTimeParseException error(CharSequence text, int index) {
+        return new DateTimeParseException(
+                "Text '" + text + "' could not be parsed at index " + index, text, index);
+    }
+}
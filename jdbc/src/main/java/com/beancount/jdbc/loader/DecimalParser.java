@@ -1,22 +1,21 @@
 package com.beancount.jdbc.loader;
 
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.text.ParsePosition;
-import java.util.Locale;
 
 /**
  * Locale-neutral decimal parser that accepts either dot or comma as the decimal separator and
  * rejects grouping/mixed separators. Centralizing this keeps amount parsing consistent across
  * ledger amounts and option values while avoiding accidental locale-dependent behavior.
+ *
+ * <p>The grammar is the one a non-grouping {@code DecimalFormat} accepted: an optional leading
+ * {@code -}, digits with at most one decimal separator, and an optional {@code E} exponent with an
+ * optional {@code -}. Amounts of up to 18 significant digits are accumulated straight into an
+ * unscaled {@code long}; longer ones and exponents go through {@link BigDecimal#BigDecimal(char[])}
+ * with the same value and scale.</p>
  */
 public final class DecimalParser {
 
-    private static final ThreadLocal<DecimalFormat> DOT_FORMAT =
-            ThreadLocal.withInitial(() -> buildFormat('.'));
-    private static final ThreadLocal<DecimalFormat> COMMA_FORMAT =
-            ThreadLocal.withInitial(() -> buildFormat(','));
+    private static final long MAX_COMPACT = 100_000_000_000_000_000L; // 10^17
 
     private DecimalParser() {}
 
@@ -38,28 +37,102 @@ public final class DecimalParser {
         if (hasDot && hasComma) {
             throw new NumberFormatException("Mixed decimal separators not allowed: " + text);
         }
-        DecimalFormat format = hasComma ? COMMA_FORMAT.get() : DOT_FORMAT.get();
-        ParsePosition position = new ParsePosition(0);
-        Number parsed = format.parse(trimmed, position);
-        if (parsed == null || position.getIndex() != trimmed.length()) {
-            throw new NumberFormatException("Invalid decimal: " + text);
+        char separator = hasComma ? ',' : '.';
+        int length = trimmed.length();
+        boolean negative = trimmed.charAt(0) == '-';
+        int index = negative ? 1 : 0;
+        long unscaled = 0;
+        int scale = 0;
+        boolean sawDigit = false;
+        boolean sawSeparator = false;
+        boolean compact = true;
+        for (; index < length; index++) {
+            char ch = trimmed.charAt(index);
+            if (ch == separator) {
+                if (sawSeparator) {
+                    throw invalid(text);
+                }
+                sawSeparator = true;
+                continue;
+            }
+            int digit = digit(ch);
+            if (digit < 0) {
+                break;
+            }
+            sawDigit = true;
+            if (sawSeparator) {
+                scale++;
+            }
+            if (unscaled >= MAX_COMPACT) {
+                compact = false;
+            } else {
+                unscaled = unscaled * 10 + digit;
+            }
         }
-        if (!(parsed instanceof BigDecimal)) {
-            return new BigDecimal(parsed.toString());
+        if (!sawDigit) {
+            throw invalid(text);
         }
-        return (BigDecimal) parsed;
+        if (index == length && compact) {
+            return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+        }
+        if (index < length && !validExponent(trimmed, index)) {
+            throw invalid(text);
+        }
+        return new BigDecimal(toAscii(trimmed, separator));
+    }
+
+    /**
+     * An exponent is {@code E}, an optional {@code -} and at least one digit, up to the end. Its
+     * magnitude must fit in an {@code int}; larger exponents are rejected instead of wrapping.
+     */
+    private static boolean validExponent(String text, int index) {
+        if (text.charAt(index) != 'E') {
+            return false;
+        }
+        int start = index + 1;
+        if (start < text.length() && text.charAt(start) == '-') {
+            start++;
+        }
+        if (start == text.length()) {
+            return false;
+        }
+        long magnitude = 0;
+        for (int i = start; i < text.length(); i++) {
+            int digit = digit(text.charAt(i));
+            if (digit < 0) {
+                return false;
+            }
+            magnitude = magnitude * 10 + digit;
+            if (magnitude > Integer.MAX_VALUE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Rewrites an already validated literal with ASCII digits and '.' for {@link BigDecimal}. */
+    private static char[] toAscii(String text, char separator) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            char ch = text.charAt(i);
+            int digit = digit(ch);
+            if (digit >= 0) {
+                chars[i] = (char) ('0' + digit);
+            } else {
+                chars[i] = ch == separator ? '.' : ch;
+            }
+        }
+        return chars;
+    }
+
+    private static int digit(char ch) {
+        if (ch >= '0' && ch <= '9') {
+            return ch - '0';
+        }
+        return ch < 0x80 ? -1 : Character.digit(ch, 10);
     }
 
-    private static DecimalFormat buildFormat(char decimalSeparator) {
-        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.ROOT);
-        symbols.setDecimalSeparator(decimalSeparator);
-        // Disable grouping to avoid silently accepting locale-specific thousand separators.
-        DecimalFormat format = new DecimalFormat();
-        format.setDecimalFormatSymbols(symbols);
-        format.setParseBigDecimal(true);
-        format.setGroupingUsed(false);
-        format.setMaximumFractionDigits(Integer.MAX_VALUE);
-        format.setMaximumIntegerDigits(Integer.MAX_VALUE);
-        return format;
+    private static NumberFormatException invalid(String text) {
+        return new NumberFormatException("Invalid decimal: " + text);
     }
 }
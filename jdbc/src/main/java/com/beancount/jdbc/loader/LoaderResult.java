@@ -2,7 +2,9 @@ package com.beancount.jdbc.loader;
 
 import com.beancount.jdbc.ledger.LedgerData;
 import com.beancount.jdbc.loader.semantic.SemanticLedger;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Container for the results of loading a Beancount ledger. Future iterations will surface additional metadata and
@@ -12,11 +14,21 @@ public final class LoaderResult {
     private final LedgerData ledgerData;
     private final List<LoaderMessage> messages;
     private final SemanticLedger semanticLedger;
+    private final Set<Path> sourceFiles;
 
     public LoaderResult(LedgerData ledgerData, List<LoaderMessage> messages, SemanticLedger semanticLedger) {
+        this(ledgerData, messages, semanticLedger, Set.of());
+    }
+
+    public LoaderResult(
+            LedgerData ledgerData,
+            List<LoaderMessage> messages,
+            SemanticLedger semanticLedger,
+            Set<Path> sourceFiles) {
         this.ledgerData = ledgerData;
         this.messages = messages;
         this.semanticLedger = semanticLedger;
+        this.sourceFiles = Set.copyOf(sourceFiles);
     }
 
     public LedgerData getLedgerData() {
@@ -30,4 +42,8 @@ public final class LoaderResult {
     public SemanticLedger getSemanticLedger() {
         return semanticLedger;
     }
+
+    public Set<Path> getSourceFiles() {
+        return sourceFiles;
+    }
 }
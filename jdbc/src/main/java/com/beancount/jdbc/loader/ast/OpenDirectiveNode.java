@@ -6,6 +6,7 @@ public final class OpenDirectiveNode extends DirectiveNode {
 
     private final String account;
     private final List<String> currencies;
+    private final String bookingMethod;
 
     public OpenDirectiveNode(
             SourceLocation location,
@@ -14,9 +15,21 @@ public final class OpenDirectiveNode extends DirectiveNode {
             List<String> contentLines,
             String account,
             List<String> currencies) {
+        this(location, date, directiveType, contentLines, account, currencies, null);
+    }
+
+    public OpenDirectiveNode(
+            SourceLocation location,
+            String date,
+            String directiveType,
+            List<String> contentLines,
+            String account,
+            List<String> currencies,
+            String bookingMethod) {
         super(location, date, directiveType, contentLines);
         this.account = account == null ? "" : account;
         this.currencies = List.copyOf(currencies);
+        this.bookingMethod = bookingMethod;
     }
 
     public String getAccount() {
@@ -26,4 +39,8 @@ public final class OpenDirectiveNode extends DirectiveNode {
     public List<String> getCurrencies() {
         return currencies;
     }
+
+    public String getBookingMethod() {
+        return bookingMethod;
+    }
 }
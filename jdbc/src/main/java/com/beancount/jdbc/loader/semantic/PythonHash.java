@@ -1,32 +1,36 @@
 package com.beancount.jdbc.loader.semantic;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Minimal reimplementation of CPython's string hashing so we can mimic frozenset iteration order.
  *
- * <p>Hashes are computed with SipHash-1-3 using the process hash secret. When available, the secret
- * is fetched from a short-lived Python interpreter (respecting {@code PYTHONHASHSEED}) so Calcite
- * can mirror whatever ordering bean-sql produced. If Python is unavailable, we fall back to a zero
- * key, which matches {@code PYTHONHASHSEED=0}.</p>
+ * <p>Hashes are computed with SipHash-1-3 using the process hash secret. The secret is derived from
+ * {@code PYTHONHASHSEED} (or {@code beancount.pythonhashseed}) exactly as CPython does it, by
+ * filling {@code _Py_HashSecret} from a linear congruential generator seeded with the value, so
+ * Calcite can mirror whatever ordering bean-sql produced without running a Python interpreter. A
+ * seed of {@code 0} yields the all-zero key, as in CPython.</p>
+ *
+ * <p>Tags and links repeat across thousands of transactions, so hashes are cached per string (up
+ * to {@value #MAX_CACHED_HASHES} distinct values) and SipHash itself runs on local state.</p>
  */
 final class PythonHash {
-    private static final long FALLBACK_K0 = 0L;
-    private static final long FALLBACK_K1 = 0L;
     private static final long DEFAULT_SEED = 979L; // Matches current bean-sql baselines.
-    private static final long DEFAULT_K0 = 0x935fc1c7e57669a3L;
-    private static final long DEFAULT_K1 = 0x0d8e8de5e363d06c1L;
+    private static final long MAX_SEED = 0xFFFF_FFFFL; // CPython rejects larger PYTHONHASHSEED values.
+    private static final int SECRET_SIZE = 24; // sizeof(_Py_HashSecret_t)
     private static final String HASH_SEED_PROPERTY = "beancount.pythonhashseed";
-    private static final String[] PYTHON_BIN_CANDIDATES = new String[] {"python3", "python"};
+    private static final int MAX_CACHED_HASHES = 65_536;
+    private static final VarHandle LITTLE_ENDIAN_LONG =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
 
     private final long k0;
     private final long k1;
+    private final Map<String, Long> hashes = new ConcurrentHashMap<>();
 
     private PythonHash(long k0, long k1) {
         this.k0 = k0;
@@ -34,17 +38,30 @@ final class PythonHash {
     }
 
     static PythonHash fromEnvironment() {
-        long seed = resolveSeed();
-        PythonHash secret = loadSecretFromPython(seed);
-        if (secret != null) {
-            return secret;
+        return forSeed(resolveSeed());
+    }
+
+    /**
+     * Derives the SipHash key CPython uses for {@code PYTHONHASHSEED=seed}: {@code lcg_urandom} in
+     * {@code Python/bootstrap_hash.c} fills the secret bytes, and k0/k1 are its first two
+     * little-endian words.
+     */
+    static PythonHash forSeed(long seed) {
+        if (seed < 0 || seed > MAX_SEED) {
+            throw new IllegalArgumentException("PYTHONHASHSEED must be in [0; 4294967295]: " + seed);
         }
-        if (seed == DEFAULT_SEED) {
-            return new PythonHash(DEFAULT_K0, DEFAULT_K1);
+        if (seed == 0) {
+            return new PythonHash(0L, 0L);
         }
-        // Deterministic fallback so Calcite stays stable even without Python available.
-        long[] generated = deterministicSecret(seed);
-        return new PythonHash(generated[0], generated[1]);
+        byte[] secret = new byte[SECRET_SIZE];
+        int x = (int) seed;
+        for (int i = 0; i < secret.length; i++) {
+            x = x * 214013 + 2531011;
+            secret[i] = (byte) (x >>> 16);
+        }
+        return new PythonHash(
+                (long) LITTLE_ENDIAN_LONG.get(secret, 0),
+                (long) LITTLE_ENDIAN_LONG.get(secret, Long.BYTES));
     }
 
     static PythonHash withSecret(long k0, long k1) {
@@ -56,10 +73,17 @@ final class PythonHash {
         if (value.isEmpty()) {
             return 0L;
         }
-        byte[] data = encodeToPythonLayout(value);
-        long raw = SipHash13.hash(k0, k1, data);
+        Long cached = hashes.get(value);
+        if (cached != null) {
+            return cached;
+        }
+        long raw = SipHash13.hash(k0, k1, encodeToPythonLayout(value));
         // CPython remaps -1 to -2
-        return raw == -1L ? -2L : raw;
+        long hash = raw == -1L ? -2L : raw;
+        if (hashes.size() < MAX_CACHED_HASHES) {
+            hashes.put(value, hash);
+        }
+        return hash;
     }
 
     private static long resolveSeed() {
@@ -69,80 +93,13 @@ final class PythonHash {
             return DEFAULT_SEED;
         }
         try {
-            return Long.parseUnsignedLong(configured.trim());
+            long seed = Long.parseLong(configured.trim());
+            return seed >= 0 && seed <= MAX_SEED ? seed : DEFAULT_SEED;
         } catch (NumberFormatException ex) {
             return DEFAULT_SEED;
         }
     }
 
-    private static PythonHash loadSecretFromPython(long seed) {
-        for (String candidate : PYTHON_BIN_CANDIDATES) {
-            PythonHash secret = tryLoadWith(candidate, seed);
-            if (secret != null) {
-                return secret;
-            }
-        }
-        return null;
-    }
-
-    private static PythonHash tryLoadWith(String pythonBinary, long seed) {
-        // Use a minimal inline script that prints k0/k1 as unsigned decimals.
-        String script =
-                ""
-                        + "import ctypes\n"
-                        + "class Sip(ctypes.Structure):\n"
-                        + "    _fields_ = [('k0', ctypes.c_uint64), ('k1', ctypes.c_uint64)]\n"
-                        + "class Secret(ctypes.Union):\n"
-                        + "    _fields_ = [('uc', ctypes.c_ubyte * 24), ('siphash', Sip)]\n"
-                        + "secret = Secret.in_dll(ctypes.CDLL(None), '_Py_HashSecret')\n"
-                        + "print(secret.siphash.k0)\n"
-                        + "print(secret.siphash.k1)\n";
-        ProcessBuilder builder = new ProcessBuilder(pythonBinary, "-c", script);
-        builder.environment().put("PYTHONHASHSEED", Long.toUnsignedString(seed));
-        builder.redirectErrorStream(true);
-        try {
-            Process process = builder.start();
-            List<String> lines = new ArrayList<>(2);
-            try (BufferedReader reader =
-                    new BufferedReader(
-                            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (!line.isBlank()) {
-                        lines.add(line.trim());
-                    }
-                }
-            }
-            int exit = process.waitFor();
-            if (exit != 0 || lines.size() < 2) {
-                return null;
-            }
-            long k0 = Long.parseUnsignedLong(lines.get(0));
-            long k1 = Long.parseUnsignedLong(lines.get(1));
-            return new PythonHash(k0, k1);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            return null;
-        } catch (IOException | NumberFormatException ex) {
-            return null;
-        }
-    }
-
-    private static long[] deterministicSecret(long seed) {
-        // Lightweight stand-in: splitmix64 to synthesize two 64-bit keys deterministically.
-        long s = seed;
-        long first = splitmix64(s);
-        long second = splitmix64(first);
-        return new long[] {first, second};
-    }
-
-    private static long splitmix64(long x) {
-        long z = (x + 0x9E3779B97F4A7C15L);
-        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
-        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
-        return z ^ (z >>> 31);
-    }
-
     /**
      * Encodes a Java string into the byte layout CPython uses for hashing: choose the smallest code
      * unit width (1, 2, or 4 bytes) that fits every character, and emit native-endian units.
@@ -199,70 +156,50 @@ final class PythonHash {
             long v2 = k0 ^ C2;
             long v3 = k1 ^ C3;
 
-            int fullWords = data.length / 8;
-            int remaining = data.length % 8;
-            int offset = 0;
-            for (int i = 0; i < fullWords; i++) {
-                long m = toLongLE(data, offset);
-                offset += 8;
+            int tail = data.length & ~7;
+            long last = (long) data.length << 56;
+            for (int i = tail; i < data.length; i++) {
+                last |= ((long) data[i] & 0xFF) << ((i - tail) * 8);
+            }
+            // One compression round per 8-byte word, the final one on the padded tail.
+            for (int offset = 0; offset <= tail; offset += 8) {
+                long m = offset < tail ? (long) LITTLE_ENDIAN_LONG.get(data, offset) : last;
                 v3 ^= m;
-                long[] state = sipRound(v0, v1, v2, v3);
-                v0 = state[0];
-                v1 = state[1];
-                v2 = state[2];
-                v3 = state[3];
+                v0 += v1;
+                v1 = Long.rotateLeft(v1, 13);
+                v1 ^= v0;
+                v0 = Long.rotateLeft(v0, 32);
+                v2 += v3;
+                v3 = Long.rotateLeft(v3, 16);
+                v3 ^= v2;
+                v0 += v3;
+                v3 = Long.rotateLeft(v3, 21);
+                v3 ^= v0;
+                v2 += v1;
+                v1 = Long.rotateLeft(v1, 17);
+                v1 ^= v2;
+                v2 = Long.rotateLeft(v2, 32);
                 v0 ^= m;
             }
-            long last = (long) data.length << 56;
-            for (int i = 0; i < remaining; i++) {
-                last |= ((long) data[offset + i] & 0xFF) << (i * 8);
-            }
-            v3 ^= last;
-            long[] after = sipRound(v0, v1, v2, v3);
-            v0 = after[0];
-            v1 = after[1];
-            v2 = after[2];
-            v3 = after[3];
-            v0 ^= last;
 
             v2 ^= 0xFF;
-            after = sipRound(v0, v1, v2, v3);
-            after = sipRound(after[0], after[1], after[2], after[3]);
-            after = sipRound(after[0], after[1], after[2], after[3]);
-            return after[0] ^ after[1] ^ after[2] ^ after[3];
-        }
-
-        private static long[] sipRound(long v0, long v1, long v2, long v3) {
-            v0 += v1;
-            v1 = rotateLeft(v1, 13);
-            v1 ^= v0;
-            v0 = rotateLeft(v0, 32);
-            v2 += v3;
-            v3 = rotateLeft(v3, 16);
-            v3 ^= v2;
-            v0 += v3;
-            v3 = rotateLeft(v3, 21);
-            v3 ^= v0;
-            v2 += v1;
-            v1 = rotateLeft(v1, 17);
-            v1 ^= v2;
-            v2 = rotateLeft(v2, 32);
-            return new long[] {v0, v1, v2, v3};
-        }
-
-        private static long rotateLeft(long value, int distance) {
-            return (value << distance) | (value >>> (64 - distance));
-        }
-
-        private static long toLongLE(byte[] data, int offset) {
-            return ((long) data[offset] & 0xFF)
-                    | (((long) data[offset + 1] & 0xFF) << 8)
-                    | (((long) data[offset + 2] & 0xFF) << 16)
-                    | (((long) data[offset + 3] & 0xFF) << 24)
-                    | (((long) data[offset + 4] & 0xFF) << 32)
-                    | (((long) data[offset + 5] & 0xFF) << 40)
-                    | (((long) data[offset + 6] & 0xFF) << 48)
-                    | (((long) data[offset + 7] & 0xFF) << 56);
+            for (int round = 0; round < 3; round++) {
+                v0 += v1;
+                v1 = Long.rotateLeft(v1, 13);
+                v1 ^= v0;
+                v0 = Long.rotateLeft(v0, 32);
+                v2 += v3;
+                v3 = Long.rotateLeft(v3, 16);
+                v3 ^= v2;
+                v0 += v3;
+                v3 = Long.rotateLeft(v3, 21);
+                v3 ^= v0;
+                v2 += v1;
+                v1 = Long.rotateLeft(v1, 17);
+                v1 ^= v2;
+                v2 = Long.rotateLeft(v2, 32);
+            }
+            return v0 ^ v1 ^ v2 ^ v3;
         }
     }
 }
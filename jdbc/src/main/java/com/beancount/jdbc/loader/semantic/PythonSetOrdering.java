@@ -3,16 +3,23 @@ package com.beancount.jdbc.loader.semantic;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Replays CPython's set insertion so iteration order (and thus tag/link join order) matches
  * bean-sql.
+ *
+ * <p>The same few tag and link sets recur across a ledger, so orderings are memoized per input
+ * sequence (up to {@value #MAX_MEMOIZED} distinct ones) and returned as immutable lists.</p>
  */
 final class PythonSetOrdering {
     private static final int MIN_TABLE_SIZE = 8; // PySet_MINSIZE
+    private static final int MAX_MEMOIZED = 16_384;
 
     private final PythonHash hasher;
+    private final Map<List<String>, List<String>> orderings = new ConcurrentHashMap<>();
 
     PythonSetOrdering(PythonHash hasher) {
         this.hasher = Objects.requireNonNull(hasher, "hasher");
@@ -22,6 +29,19 @@ final class PythonSetOrdering {
         if (values == null || values.isEmpty()) {
             return List.of();
         }
+        List<String> key = new ArrayList<>(values);
+        List<String> memoized = orderings.get(key);
+        if (memoized != null) {
+            return memoized;
+        }
+        List<String> ordered = replay(values);
+        if (orderings.size() < MAX_MEMOIZED) {
+            orderings.put(key, ordered);
+        }
+        return ordered;
+    }
+
+    private List<String> replay(Collection<String> values) {
         int size = MIN_TABLE_SIZE;
         int mask = size - 1;
         String[] table = new String[size];
@@ -62,7 +82,7 @@ final class PythonSetOrdering {
                 ordered.add(value);
             }
         }
-        return ordered;
+        return List.copyOf(ordered);
     }
 
     private static boolean needsResize(int used, int size) {
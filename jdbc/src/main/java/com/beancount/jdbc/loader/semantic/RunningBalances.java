@@ -0,0 +1,173 @@
+package com.beancount.jdbc.loader.semantic;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running per-account, per-currency balances that roll every amount up into the account's
+ * ancestors, the way balance assertions on parent accounts see them.
+ *
+ * <p>Accounts are nodes of a trie with int ids; the node path from the root to an account is
+ * resolved once per distinct account name and reused for every later amount. Each currency owns a
+ * column of slots indexed by node id that hold the sum as an unscaled {@code long} plus the scale
+ * {@link BigDecimal#add} would produce, and switch to a {@link BigDecimal} only when the long
+ * overflows. Adding an amount therefore builds no ancestor names and no per-ancestor sums; the
+ * only allocation left is {@link BigDecimal#unscaledValue} for amounts with a fractional part,
+ * once per amount rather than once per ancestor.</p>
+ */
+final class RunningBalances {
+    private static final int ABSENT = Integer.MIN_VALUE;
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private final Map<String, Integer> nodes = new HashMap<>();
+    private final Map<String, int[]> paths = new HashMap<>();
+    private final Map<String, CurrencyColumn> columns = new HashMap<>();
+
+    /** Adds {@code number} to {@code account} and all of its ancestors. */
+    void add(String account, String currency, BigDecimal number) {
+        if (account == null || currency == null || number == null) {
+            return;
+        }
+        int[] path = path(account);
+        if (path.length == 0) {
+            return;
+        }
+        CurrencyColumn column = columns.computeIfAbsent(currency, key -> new CurrencyColumn());
+        column.ensureCapacity(nodes.size());
+        int scale = number.scale();
+        if (scale < 0 || number.precision() > 18) {
+            for (int node : path) {
+                column.addBig(node, number);
+            }
+            return;
+        }
+        // longValue() of a whole number reads the compact value; unscaledValue() builds a BigInteger.
+        long unscaled = scale == 0 ? number.longValue() : number.unscaledValue().longValue();
+        for (int node : path) {
+            column.add(node, unscaled, scale, number);
+        }
+    }
+
+    /** Balance of {@code account} including its descendants; zero if nothing was posted. */
+    BigDecimal get(String account, String currency) {
+        if (account == null || currency == null) {
+            return BigDecimal.ZERO;
+        }
+        Integer node = nodes.get(account);
+        CurrencyColumn column = columns.get(currency);
+        if (node == null || column == null) {
+            return BigDecimal.ZERO;
+        }
+        return column.get(node);
+    }
+
+    private int[] path(String account) {
+        int[] path = paths.get(account);
+        if (path == null) {
+            List<String> hierarchy = accountHierarchy(account);
+            path = new int[hierarchy.size()];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = nodes.computeIfAbsent(hierarchy.get(i), key -> nodes.size());
+            }
+            paths.put(account, path);
+        }
+        return path;
+    }
+
+    private static List<String> accountHierarchy(String account) {
+        if (account == null || account.isEmpty()) {
+            return List.of();
+        }
+        List<String> hierarchy = new ArrayList<>();
+        String[] parts = account.split(":");
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                current.append(":");
+            }
+            current.append(parts[i]);
+            hierarchy.add(current.toString());
+        }
+        return hierarchy;
+    }
+
+    /** Sums of one currency, one slot per trie node. */
+    private static final class CurrencyColumn {
+        private long[] unscaled = new long[0];
+        private int[] scales = new int[0];
+        private BigDecimal[] overflow = new BigDecimal[0];
+
+        void ensureCapacity(int nodeCount) {
+            if (nodeCount <= scales.length) {
+                return;
+            }
+            int capacity = Math.max(nodeCount, scales.length * 2);
+            int previous = scales.length;
+            unscaled = Arrays.copyOf(unscaled, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+            overflow = Arrays.copyOf(overflow, capacity);
+            Arrays.fill(scales, previous, capacity, ABSENT);
+        }
+
+        void add(int node, long value, int scale, BigDecimal number) {
+            if (overflow[node] != null) {
+                overflow[node] = overflow[node].add(number);
+                return;
+            }
+            int current = scales[node];
+            if (current == ABSENT) {
+                unscaled[node] = value;
+                scales[node] = scale;
+                return;
+            }
+            try {
+                if (scale > current) {
+                    unscaled[node] =
+                            Math.addExact(Math.multiplyExact(unscaled[node], pow10(scale - current)), value);
+                    scales[node] = scale;
+                } else {
+                    unscaled[node] =
+                            Math.addExact(unscaled[node], Math.multiplyExact(value, pow10(current - scale)));
+                }
+            } catch (ArithmeticException e) {
+                addBig(node, number);
+            }
+        }
+
+        void addBig(int node, BigDecimal number) {
+            BigDecimal sum = overflow[node];
+            if (sum == null) {
+                sum = scales[node] == ABSENT ? null : BigDecimal.valueOf(unscaled[node], scales[node]);
+            }
+            overflow[node] = sum == null ? number : sum.add(number);
+        }
+
+        BigDecimal get(int node) {
+            if (node >= scales.length) {
+                return BigDecimal.ZERO;
+            }
+            if (overflow[node] != null) {
+                return overflow[node];
+            }
+            return scales[node] == ABSENT ? BigDecimal.ZERO : BigDecimal.valueOf(unscaled[node], scales[node]);
+        }
+
+        private static long pow10(int exponent) {
+            if (exponent >= POWERS_OF_TEN.length) {
+                throw new ArithmeticException("scale difference too large");
+            }
+            return POWERS_OF_TEN[exponent];
+        }
+    }
+}
@@ -2,17 +2,25 @@ package com.beancount.jdbc.loader.semantic;
 
 import com.beancount.jdbc.ledger.LedgerData;
 import com.beancount.jdbc.loader.LoaderMessage;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 
 public final class SemanticAnalysis {
     private final LedgerData ledgerData;
     private final SemanticLedger ledger;
     private final List<LoaderMessage> messages;
+    private final Set<Path> sourceFiles;
 
-    public SemanticAnalysis(LedgerData ledgerData, SemanticLedger ledger, List<LoaderMessage> messages) {
+    public SemanticAnalysis(
+            LedgerData ledgerData,
+            SemanticLedger ledger,
+            List<LoaderMessage> messages,
+            Set<Path> sourceFiles) {
         this.ledgerData = ledgerData;
         this.ledger = ledger;
         this.messages = List.copyOf(messages);
+        this.sourceFiles = Set.copyOf(sourceFiles);
     }
 
     public LedgerData getLedgerData() {
@@ -26,4 +34,9 @@ public final class SemanticAnalysis {
     public List<LoaderMessage> getMessages() {
         return messages;
     }
+
+    /** Every ledger file that was read while analyzing, including resolved includes. */
+    public Set<Path> getSourceFiles() {
+        return sourceFiles;
+    }
 }
@@ -1,6 +1,7 @@
 package com.beancount.jdbc.loader.semantic;
 import com.beancount.jdbc.loader.BeancountAstBuilder;
 import com.beancount.jdbc.loader.BeancountParseException;
+import com.beancount.jdbc.loader.DateParser;
 import com.beancount.jdbc.loader.DecimalParser;
 import com.beancount.jdbc.loader.LoaderException;
 import com.beancount.jdbc.loader.LoaderMessage;
@@ -23,19 +24,27 @@ import com.beancount.jdbc.loader.ast.StatementNode;
 import com.beancount.jdbc.loader.ast.TransactionMetadataNode;
 import com.beancount.jdbc.loader.ast.TransactionNode;
 import com.beancount.jdbc.loader.ast.SourceLocation;
+import com.beancount.jdbc.ledger.AccountBalanceHistory;
 import com.beancount.jdbc.ledger.BalanceRecord;
 import com.beancount.jdbc.ledger.CloseRecord;
 import com.beancount.jdbc.ledger.DocumentRecord;
 import com.beancount.jdbc.ledger.EventRecord;
 import com.beancount.jdbc.ledger.LedgerData;
 import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.LotHistory;
+import com.beancount.jdbc.ledger.MetadataStore;
 import com.beancount.jdbc.ledger.NoteRecord;
 import com.beancount.jdbc.ledger.OpenRecord;
 import com.beancount.jdbc.ledger.PadRecord;
 import com.beancount.jdbc.ledger.PostingRecord;
+import com.beancount.jdbc.ledger.PriceIndex;
 import com.beancount.jdbc.ledger.PriceRecord;
 import com.beancount.jdbc.ledger.QueryRecord;
+import com.beancount.jdbc.ledger.RealizedGainRecord;
+import com.beancount.jdbc.ledger.TextSearchIndex;
 import com.beancount.jdbc.ledger.TransactionPayload;
+import com.beancount.jdbc.loader.semantic.booking.BookingEngine;
+import com.beancount.jdbc.loader.semantic.booking.BookingMethod;
 import com.beancount.jdbc.loader.semantic.display.DisplayContext;
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -46,13 +55,10 @@ import java.nio.file.Path;
 import java.nio.file.FileSystems;
 import java.nio.file.PathMatcher;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.SignStyle;
-import java.time.temporal.ChronoField;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -69,38 +75,23 @@ public final class SemanticAnalyzer {
     private final BeancountAstBuilder astBuilder = new BeancountAstBuilder();
     private static final PythonSetOrdering PYTHON_SET_ORDERING =
             new PythonSetOrdering(PythonHash.fromEnvironment());
-    private static final DateTimeFormatter FLEXIBLE_DATE_FORMATTER =
-            new DateTimeFormatterBuilder()
-                    .appendValue(ChronoField.YEAR, 4)
-                    .appendLiteral('-')
-                    .appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
-                    .appendLiteral('-')
-                    .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
-                    .toFormatter();
     private static final Set<String> SUPPORTED_DIRECTIVES =
             Set.of("open", "close", "pad", "balance", "note", "document", "event", "query", "price");
     private static final Map<String, Integer> ENTRY_TYPE_ORDER =
             Map.of("open", -2, "balance", -1, "document", 1, "close", 2);
-    private static final Comparator<DirectiveDescriptor> DIRECTIVE_COMPARATOR =
+    private static final int MIN_TYPE_RANK = -2;
+    private static final int TYPE_RANK_BITS = 3;
+    private static final String IMPLICIT_PRICES_PLUGIN = "beancount.plugins.implicit_prices";
+    static final Comparator<DirectiveDescriptor> DIRECTIVE_COMPARATOR =
             Comparator.comparing(DirectiveDescriptor::date)
                     .thenComparingInt(descriptor -> ENTRY_TYPE_ORDER.getOrDefault(descriptor.type(), 0))
                     .thenComparingInt(DirectiveDescriptor::sourceLineno)
                     .thenComparingInt(DirectiveDescriptor::tempId);
-    private static final Comparator<LedgerEntry> LEDGER_ENTRY_COMPARATOR =
-            Comparator.comparing(LedgerEntry::getDate)
-                    .thenComparingInt(entry -> ENTRY_TYPE_ORDER.getOrDefault(entry.getType(), 0))
-                    .thenComparingInt(LedgerEntry::getSourceLineno)
-                    .thenComparingInt(LedgerEntry::getId);
     public SemanticAnalysis analyze(Path ledgerPath) throws LoaderException {
         Objects.requireNonNull(ledgerPath, "ledgerPath");
         AnalyzerState state = new AnalyzerState();
         processFile(ledgerPath.toAbsolutePath().normalize(), state);
         finalizeState(state);
-        assignEntryIds(state);
-        bookInventoryLots(state);
-        reorderPostingsByCurrencyBuckets(state);
-        assignPostingIds(state);
-        rebuildPostings(state);
         LedgerData ledgerData = buildLedgerData(state);
         SemanticLedger ledger =
                 new SemanticLedger(
@@ -108,7 +99,7 @@ public final class SemanticAnalyzer {
                         state.openAccounts,
                         dedupePreserveOrder(state.operatingCurrencies),
                         state.displayContext.copy());
-        return new SemanticAnalysis(ledgerData, ledger, state.messages);
+        return new SemanticAnalysis(ledgerData, ledger, state.messages, state.sourceFiles);
     }
     private void processFile(Path file, AnalyzerState state) throws LoaderException {
         if (!Files.exists(file)) {
@@ -132,6 +123,7 @@ public final class SemanticAnalyzer {
         LedgerNode ledger;
         try {
             String contents = Files.readString(file, StandardCharsets.UTF_8);
+            state.sourceFiles.add(file);
             ledger = astBuilder.parse(file.toString(), contents);
             if (DebugFlags.isTokenDebugEnabled()) {
                 for (String tokenLine : DebugFlags.drainCapturedTokens()) {
@@ -333,7 +325,7 @@ public final class SemanticAnalyzer {
     private void processDirective(Path file, DirectiveNode directive, AnalyzerState state) {
         LocalDate date;
         try {
-            date = LocalDate.parse(directive.getDate(), FLEXIBLE_DATE_FORMATTER);
+            date = DateParser.parse(directive.getDate());
         } catch (DateTimeParseException ex) {
             state.messages.add(
                     new LoaderMessage(
@@ -395,7 +387,7 @@ public final class SemanticAnalyzer {
     private void processTransaction(Path file, TransactionNode transaction, AnalyzerState state) {
         LocalDate date;
         try {
-            date = LocalDate.parse(transaction.getDate(), FLEXIBLE_DATE_FORMATTER);
+            date = DateParser.parse(transaction.getDate());
         } catch (DateTimeParseException ex) {
             state.messages.add(
                     new LoaderMessage(
@@ -478,6 +470,10 @@ public final class SemanticAnalyzer {
             MetadataEntry entryMeta = it.next();
             metadataEntries.add(new SemanticMetadataEntry(entryMeta.key, entryMeta.value));
         }
+        if (!metadataEntries.isEmpty()) {
+            state.entryMetadata.put(entryId, List.copyOf(metadataEntries));
+        }
+        List<String> searchableComments = new ArrayList<>(transactionComments);
         List<PostingRecord> postingRecords = new ArrayList<>();
         for (PostingNode posting : transaction.getPostings()) {
             List<SemanticMetadataEntry> postingMetadata = new ArrayList<>();
@@ -490,6 +486,7 @@ public final class SemanticAnalyzer {
                     postingComments.add(comment.trim());
                 }
             }
+            searchableComments.addAll(postingComments);
             LocalDate costDate = posting.getCostDate();
             if (costDate == null
                     && posting.getCostNumber() != null
@@ -513,11 +510,17 @@ public final class SemanticAnalyzer {
                             posting.getPriceCurrency());
             postingRecords.add(record);
             validateAccount(posting.getAccount(), posting.getLocation(), file, state);
+            if (!postingMetadata.isEmpty()) {
+                state.postingMetadata.put(record.getPostingId(), List.copyOf(postingMetadata));
+            }
             if (!postingMetadata.isEmpty() || !postingComments.isEmpty()) {
                 state.postingExtras.put(
                         record.getPostingId(), new PostingExtras(postingMetadata, postingComments));
             }
         }
+        if (!searchableComments.isEmpty()) {
+            state.entryComments.put(entryId, List.copyOf(searchableComments));
+        }
         List<PostingRecord> expandedRecords = expandAutoPostings(postingRecords);
         List<PostingRecord> normalizedRecords = inferMissingPostingNumbers(expandedRecords);
         for (PostingRecord record : normalizedRecords) {
@@ -558,8 +561,20 @@ public final class SemanticAnalyzer {
         state.entries.add(entry);
         parsedDirective.setLedgerEntry(entry);
         if (directive instanceof OpenDirectiveNode open) {
-            OpenRecord record = new OpenRecord(entryId, open.getAccount(), open.getCurrencies());
+            OpenRecord record =
+                    new OpenRecord(
+                            entryId, open.getAccount(), open.getCurrencies(), open.getBookingMethod());
             state.opens.add(record);
+            if (record.getBookingMethod() != null
+                    && BookingMethod.parse(record.getBookingMethod()) == null) {
+                state.messages.add(
+                        new LoaderMessage(
+                                LoaderMessage.Level.WARNING,
+                                "Unsupported booking method \"" + record.getBookingMethod()
+                                        + "\" for " + record.getAccount() + "; using the default",
+                                file.toString(),
+                                directive.getLocation().getLine()));
+            }
             if (record.getAccount() != null && !record.getAccount().isEmpty()) {
                 state.openAccounts.add(record.getAccount());
             }
@@ -808,6 +823,15 @@ public final class SemanticAnalyzer {
                 }
                 break;
             }
+            case "booking_method": {
+                BookingMethod parsed = BookingMethod.parse(value);
+                if (parsed == null) {
+                    recordWarning(state, file, directive, "unsupported booking_method value: " + value);
+                } else {
+                    state.defaultBookingMethod = parsed;
+                }
+                break;
+            }
             case "display_precision": {
                 String[] parts = value.split(":", 2);
                 if (parts.length != 2) {
@@ -838,6 +862,10 @@ public final class SemanticAnalyzer {
     private void handlePlugin(Path file, GlobalDirectiveNode directive, AnalyzerState state) {
         String pluginName =
                 directive.getArguments().isEmpty() ? "<unknown>" : directive.getArguments().get(0);
+        if (IMPLICIT_PRICES_PLUGIN.equals(pluginName)) {
+            // The price index takes posting prices in; price_detail still lists only price directives.
+            state.implicitPrices = true;
+        }
         recordWarning(
                 state,
                 file,
@@ -895,6 +923,11 @@ public final class SemanticAnalyzer {
             state.metadataStack.pop();
             return;
         }
+        // "popmeta trip:" names the key the way pushmeta wrote it, colon included.
+        int colon = key.indexOf(':');
+        if (colon >= 0) {
+            key = key.substring(0, colon).trim();
+        }
         if (!removeMetadataFromStack(state.metadataStack, key)) {
             recordWarning(state, file, directive, "popmeta could not find metadata key: " + key);
         }
@@ -1302,39 +1335,84 @@ public final class SemanticAnalyzer {
                 List.copyOf(state.documents),
                 List.copyOf(state.events),
                 List.copyOf(state.queries),
-                List.copyOf(state.prices));
+                List.copyOf(state.prices),
+                state.balanceHistory,
+                state.lotHistory,
+                List.copyOf(state.realizedGains),
+                state.priceIndex,
+                state.entryMetadataStore,
+                state.postingMetadataStore,
+                state.textIndex);
     }
+    /**
+     * Turns the parsed directives into the final ledger after a single sort.
+     *
+     * <p>The first walk over the sorted directives tracks running balances, checks balance
+     * assertions and synthesizes padding transactions. Padding entries are then merged into the
+     * order and a second, streaming walk assigns final entry ids, books lots, groups postings by
+     * currency, assigns final posting ids and records the {@link AccountBalanceHistory} of the
+     * booked postings, the {@link LotHistory} of the lots booking opened and a
+     * {@link RealizedGainRecord} for every part of a reduction booked against a lot. Entries, postings and records are rebuilt only when their ids actually
+     * move, so a ledger written in date order is finalized without copies.</p>
+     */
     private static void finalizeState(AnalyzerState state) {
-        Map<Integer, BalanceRecord> balanceByEntry = new LinkedHashMap<>();
+        int parsedDescriptors = state.directiveDescriptors.size();
+        int parsedPostings = state.rawPostings.size();
+        LedgerEntry[] entriesByTempId = new LedgerEntry[state.nextEntryId];
+        for (LedgerEntry entry : state.entries) {
+            entriesByTempId[entry.getId()] = entry;
+        }
+        PostingsByEntry postingsByEntry = PostingsByEntry.group(state.rawPostings, state.nextEntryId);
+        List<DirectiveDescriptor> ordered = sortDirectives(state.directiveDescriptors);
+
+        List<LedgerEntry> paddingEntries =
+                resolveBalances(state, ordered, entriesByTempId, postingsByEntry);
+        if (!paddingEntries.isEmpty()) {
+            List<DirectiveDescriptor> padding =
+                    sortDirectives(
+                            state.directiveDescriptors.subList(
+                                    parsedDescriptors, state.directiveDescriptors.size()));
+            ordered = mergeOrdered(ordered, padding);
+            entriesByTempId = Arrays.copyOf(entriesByTempId, state.nextEntryId);
+            for (LedgerEntry entry : paddingEntries) {
+                entriesByTempId[entry.getId()] = entry;
+            }
+            postingsByEntry.addAll(
+                    state.rawPostings.subList(parsedPostings, state.rawPostings.size()));
+        }
+        emitLedger(state, ordered, entriesByTempId, postingsByEntry);
+    }
+
+    private static List<LedgerEntry> resolveBalances(
+            AnalyzerState state,
+            List<DirectiveDescriptor> ordered,
+            LedgerEntry[] entriesByTempId,
+            PostingsByEntry postingsByEntry) {
+        BalanceRecord[] balanceByEntry = new BalanceRecord[entriesByTempId.length];
         for (BalanceRecord record : state.balances) {
-            balanceByEntry.put(record.getEntryId(), record);
+            balanceByEntry[record.getEntryId()] = record;
         }
-        Map<Integer, List<PostingRecord>> postingsByEntry = new HashMap<>();
-        for (PostingRecord posting : state.postings) {
-            postingsByEntry.computeIfAbsent(posting.getEntryId(), key -> new ArrayList<>()).add(posting);
-        }
-        Map<Integer, PadRecord> padByEntry = new HashMap<>();
+        PadRecord[] padByEntry = new PadRecord[entriesByTempId.length];
         for (PadRecord pad : state.pads) {
-            padByEntry.put(pad.getEntryId(), pad);
+            padByEntry[pad.getEntryId()] = pad;
         }
         state.costToleranceByCurrency.clear();
         state.costToleranceByCurrency.putAll(
                 computeCostTolerances(state, state.inferToleranceFromCost));
-        Map<String, Map<String, BigDecimal>> runningBalances = new HashMap<>();
+        RunningBalances runningBalances = new RunningBalances();
         Map<String, PadContext> activePadContexts = new HashMap<>();
         List<LedgerEntry> paddingEntries = new ArrayList<>();
         List<BalanceRecord> normalizedBalances = new ArrayList<>(state.balances.size());
-        List<LedgerEntry> orderedEntries = new ArrayList<>(state.entries);
-        orderedEntries.sort(LEDGER_ENTRY_COMPARATOR);
-        for (LedgerEntry entry : orderedEntries) {
+        for (DirectiveDescriptor descriptor : ordered) {
+            LedgerEntry entry = entriesByTempId[descriptor.tempId()];
+            if (entry == null) {
+                continue;
+            }
             String type = entry.getType();
             if ("txn".equals(type)) {
-                List<PostingRecord> postings = postingsByEntry.get(entry.getId());
-                if (postings != null) {
-                    updateRunningBalances(runningBalances, postings);
-                }
+                updateRunningBalances(runningBalances, postingsByEntry.of(entry.getId()));
             } else if ("pad".equals(type)) {
-                PadRecord pad = padByEntry.get(entry.getId());
+                PadRecord pad = padByEntry[entry.getId()];
                 if (pad != null) {
                     PadContext context =
                             state.padContextsByEntryId.getOrDefault(
@@ -1343,7 +1421,7 @@ public final class SemanticAnalyzer {
                     activePadContexts.put(pad.getAccount(), context);
                 }
             } else if ("balance".equals(type)) {
-                BalanceRecord record = balanceByEntry.get(entry.getId());
+                BalanceRecord record = balanceByEntry[entry.getId()];
                 if (record != null) {
                     BalanceRecord adjusted =
                             adjustBalanceRecord(
@@ -1358,101 +1436,232 @@ public final class SemanticAnalyzer {
         }
         state.balances.clear();
         state.balances.addAll(normalizedBalances);
-        if (!paddingEntries.isEmpty()) {
-            state.entries.addAll(paddingEntries);
-        }
+        return paddingEntries;
     }
 
-    private static void assignEntryIds(AnalyzerState state) {
-        if (state.directiveDescriptors.isEmpty()) {
-            return;
-        }
-        List<DirectiveDescriptor> sorted = new ArrayList<>(state.directiveDescriptors);
-        sorted.sort(DIRECTIVE_COMPARATOR);
-        Map<Integer, Integer> idMap = new HashMap<>();
-        for (int newId = 0; newId < sorted.size(); newId++) {
-            idMap.put(sorted.get(newId).tempId(), newId);
-        }
-        remapLedgerEntries(state, idMap);
-        remapOpenRecords(state, idMap);
-        remapCloseRecords(state, idMap);
-        remapPadRecords(state, idMap);
-        remapBalanceRecords(state, idMap);
-        remapNoteRecords(state, idMap);
-        remapDocumentRecords(state, idMap);
-        remapEventRecords(state, idMap);
-        remapQueryRecords(state, idMap);
-        remapPriceRecords(state, idMap);
-        remapPostings(state.postings, idMap);
-        remapPostings(state.rawPostings, idMap);
-        state.nextEntryId = sorted.size();
+    /**
+     * Sorts directives into {@link #DIRECTIVE_COMPARATOR} order. Date, type rank, line and
+     * temporary id are packed into one {@code long} per directive, relative to the ledger's
+     * minimum date and line, so the sort runs over primitives and decodes the permutation from the
+     * id bits. Ledgers whose ranges do not fit into 63 bits fall back to the comparator.
+     */
+    static List<DirectiveDescriptor> sortDirectives(List<DirectiveDescriptor> descriptors) {
+        List<DirectiveDescriptor> sorted = new ArrayList<>(descriptors);
+        if (sorted.size() < 2) {
+            return sorted;
+        }
+        long minDay = Long.MAX_VALUE;
+        long maxDay = Long.MIN_VALUE;
+        long minLine = Long.MAX_VALUE;
+        long maxLine = Long.MIN_VALUE;
+        int maxId = 0;
+        for (DirectiveDescriptor descriptor : sorted) {
+            long day = descriptor.date().toEpochDay();
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+            minLine = Math.min(minLine, descriptor.sourceLineno());
+            maxLine = Math.max(maxLine, descriptor.sourceLineno());
+            maxId = Math.max(maxId, descriptor.tempId());
+        }
+        int lineBits = bitsFor(maxLine - minLine);
+        int idBits = bitsFor(maxId);
+        if (bitsFor(maxDay - minDay) + TYPE_RANK_BITS + lineBits + idBits > 63) {
+            sorted.sort(DIRECTIVE_COMPARATOR);
+            return sorted;
+        }
+        DirectiveDescriptor[] byId = new DirectiveDescriptor[maxId + 1];
+        long[] keys = new long[sorted.size()];
+        for (int i = 0; i < keys.length; i++) {
+            DirectiveDescriptor descriptor = sorted.get(i);
+            int rank = ENTRY_TYPE_ORDER.getOrDefault(descriptor.type(), 0) - MIN_TYPE_RANK;
+            long key = descriptor.date().toEpochDay() - minDay;
+            key = (key << TYPE_RANK_BITS) | rank;
+            key = (key << lineBits) | (descriptor.sourceLineno() - minLine);
+            keys[i] = (key << idBits) | descriptor.tempId();
+            byId[descriptor.tempId()] = descriptor;
+        }
+        Arrays.parallelSort(keys);
+        long idMask = (1L << idBits) - 1;
+        for (int i = 0; i < keys.length; i++) {
+            sorted.set(i, byId[(int) (keys[i] & idMask)]);
+        }
+        return sorted;
     }
 
-    private static void assignPostingIds(AnalyzerState state) {
-        if (state.rawPostings.isEmpty()) {
-            state.nextPostingId = 0;
-            return;
-        }
-        Map<Integer, Deque<PostingRecord>> postingsByEntry = groupPostingsByEntry(state.rawPostings);
-        List<PostingRecord> ordered = new ArrayList<>(state.rawPostings.size());
-        int nextPostingId = 0;
-        for (LedgerEntry entry : state.entries) {
-            Deque<PostingRecord> queue = postingsByEntry.remove(entry.getId());
-            if (queue == null) {
-                continue;
-            }
-            while (!queue.isEmpty()) {
-                PostingRecord posting = queue.removeFirst();
-                ordered.add(copyPosting(posting, nextPostingId++, entry.getId()));
-            }
-        }
-        for (Map.Entry<Integer, Deque<PostingRecord>> leftover : postingsByEntry.entrySet()) {
-            Deque<PostingRecord> queue = leftover.getValue();
-            while (!queue.isEmpty()) {
-                PostingRecord posting = queue.removeFirst();
-                ordered.add(copyPosting(posting, nextPostingId++, leftover.getKey()));
-            }
-        }
-        state.rawPostings.clear();
-        state.rawPostings.addAll(ordered);
-        state.nextPostingId = nextPostingId;
+    private static int bitsFor(long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value);
     }
 
-    private static void reorderPostingsByCurrencyBuckets(AnalyzerState state) {
-        if (state.rawPostings.isEmpty()) {
-            return;
+    private static List<DirectiveDescriptor> mergeOrdered(
+            List<DirectiveDescriptor> left, List<DirectiveDescriptor> right) {
+        List<DirectiveDescriptor> merged = new ArrayList<>(left.size() + right.size());
+        int i = 0;
+        int j = 0;
+        while (i < left.size() && j < right.size()) {
+            if (DIRECTIVE_COMPARATOR.compare(left.get(i), right.get(j)) <= 0) {
+                merged.add(left.get(i++));
+            } else {
+                merged.add(right.get(j++));
+            }
         }
-        List<PostingRecord> reorderedRaw = reorderPostingsForEntries(state.rawPostings, state.entries);
-        List<PostingRecord> reorderedPostings = reorderPostingsForEntries(state.postings, state.entries);
-        state.rawPostings.clear();
-        state.rawPostings.addAll(reorderedRaw);
-        state.postings.clear();
-        state.postings.addAll(reorderedPostings);
+        merged.addAll(left.subList(i, left.size()));
+        merged.addAll(right.subList(j, right.size()));
+        return merged;
     }
 
-    private static List<PostingRecord> reorderPostingsForEntries(
-            List<PostingRecord> postings, List<LedgerEntry> entries) {
-        Map<Integer, List<PostingRecord>> byEntry = new LinkedHashMap<>();
-        for (PostingRecord posting : postings) {
-            byEntry.computeIfAbsent(posting.getEntryId(), key -> new ArrayList<>()).add(posting);
-        }
-        List<PostingRecord> ordered = new ArrayList<>(postings.size());
-        for (LedgerEntry entry : entries) {
-            List<PostingRecord> entryPostings = byEntry.remove(entry.getId());
-            if (entryPostings == null) {
+    private static void emitLedger(
+            AnalyzerState state,
+            List<DirectiveDescriptor> ordered,
+            LedgerEntry[] entriesByTempId,
+            PostingsByEntry postingsByEntry) {
+        int[] finalIds = new int[entriesByTempId.length];
+        Arrays.fill(finalIds, -1);
+        List<LedgerEntry> entries = new ArrayList<>(entriesByTempId.length);
+        List<PostingRecord> rawPostings = new ArrayList<>(state.rawPostings.size());
+        List<PostingRecord> postings = new ArrayList<>(state.rawPostings.size());
+        BookingEngine engine = newBookingEngine(state);
+        AccountBalanceHistory.Builder history = new AccountBalanceHistory.Builder();
+        PriceIndex.Builder prices = new PriceIndex.Builder();
+        MetadataStore.Builder entryMetadata = new MetadataStore.Builder();
+        MetadataStore.Builder postingMetadata = new MetadataStore.Builder();
+        TextSearchIndex.Builder text = new TextSearchIndex.Builder();
+        LocalDate[] datesById = new LocalDate[ordered.size()];
+        int consumed = 0;
+        for (int id = 0; id < ordered.size(); id++) {
+            int tempId = ordered.get(id).tempId();
+            finalIds[tempId] = id;
+            LedgerEntry parsed = entriesByTempId[tempId];
+            if (parsed == null) {
+                continue;
+            }
+            LedgerEntry entry =
+                    parsed.getId() == id
+                            ? parsed
+                            : new LedgerEntry(
+                                    id,
+                                    parsed.getDate(),
+                                    parsed.getType(),
+                                    parsed.getSourceFilename(),
+                                    parsed.getSourceLineno(),
+                                    parsed.getTransactionPayload());
+            entries.add(entry);
+            datesById[id] = entry.getDate();
+            addMetadata(entryMetadata, id, state.entryMetadata.get(tempId));
+            TransactionPayload payload = entry.getTransactionPayload();
+            if (payload != null && "txn".equals(entry.getType())) {
+                text.add(id, payload.getPayee(), payload.getNarration(), state.entryComments.get(tempId));
+            }
+            List<PostingRecord> entryPostings = postingsByEntry.of(tempId);
+            if (entryPostings.isEmpty()) {
                 continue;
             }
-            ordered.addAll(orderEntryPostings(entryPostings));
+            consumed += entryPostings.size();
+            boolean transaction = "txn".equals(entry.getType());
+            for (PostingRecord posting : orderEntryPostings(engine.book(entry, entryPostings))) {
+                PostingRecord copy = withIds(posting, rawPostings.size(), id);
+                rawPostings.add(copy);
+                addMetadata(postingMetadata, copy.getPostingId(), state.postingMetadata.get(posting.getPostingId()));
+                if (engine.isBookedReduction(posting)) {
+                    state.realizedGains.add(realizedGain(copy, entry.getDate()));
+                }
+                if (transaction) {
+                    postings.add(copy);
+                    history.add(copy.getAccount(), copy.getCurrency(), entry.getDate(), copy.getNumber());
+                    if (state.implicitPrices) {
+                        addImpliedPrice(prices, copy, entry.getDate());
+                    }
+                }
+            }
         }
-        for (List<PostingRecord> leftovers : byEntry.values()) {
-            ordered.addAll(orderEntryPostings(leftovers));
+        if (consumed < state.rawPostings.size()) {
+            for (PostingRecord posting : state.rawPostings) {
+                int tempId = posting.getEntryId();
+                if (tempId >= 0 && tempId < entriesByTempId.length && entriesByTempId[tempId] != null) {
+                    continue;
+                }
+                int entryId = finalId(finalIds, tempId);
+                PostingRecord copy =
+                        copyPosting(posting, rawPostings.size(), entryId < 0 ? tempId : entryId);
+                rawPostings.add(copy);
+                addMetadata(postingMetadata, copy.getPostingId(), state.postingMetadata.get(posting.getPostingId()));
+                postings.add(copy);
+            }
+        }
+        remapOpenRecords(state, finalIds);
+        remapCloseRecords(state, finalIds);
+        remapPadRecords(state, finalIds);
+        remapBalanceRecords(state, finalIds);
+        remapNoteRecords(state, finalIds);
+        remapDocumentRecords(state, finalIds);
+        remapEventRecords(state, finalIds);
+        remapQueryRecords(state, finalIds);
+        remapPriceRecords(state, finalIds);
+        // Added after the implied prices, so a price directive wins over a posting on its date.
+        for (PriceRecord price : state.prices) {
+            int entryId = price.getEntryId();
+            if (entryId >= 0 && entryId < datesById.length) {
+                prices.add(price.getCurrency(), price.getAmountCurrency(), datesById[entryId], price.getAmountNumber());
+            }
         }
-        return ordered;
+        state.entries.clear();
+        state.entries.addAll(entries);
+        state.rawPostings.clear();
+        state.rawPostings.addAll(rawPostings);
+        state.postings.clear();
+        state.postings.addAll(postings);
+        state.messages.addAll(engine.getMessages());
+        state.balanceHistory = history.build();
+        state.lotHistory = engine.lotHistory();
+        state.priceIndex = prices.build(dedupePreserveOrder(state.operatingCurrencies));
+        state.entryMetadataStore = entryMetadata.build();
+        state.postingMetadataStore = postingMetadata.build();
+        state.textIndex = text.build();
+        state.nextEntryId = ordered.size();
+        state.nextPostingId = rawPostings.size();
     }
 
+    /**
+     * Adds the metadata captured while parsing under the final id; a posting booked into several
+     * lots, or an auto posting split by currency, repeats it under each of its final ids.
+     */
+    private static void addMetadata(MetadataStore.Builder store, int id, List<SemanticMetadataEntry> metadata) {
+        if (metadata == null) {
+            return;
+        }
+        for (SemanticMetadataEntry entry : metadata) {
+            store.add(id, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** The price a posting implies, per unit at its price or else at its cost. */
+    private static void addImpliedPrice(PriceIndex.Builder prices, PostingRecord posting, LocalDate date) {
+        if (posting.getPriceNumber() != null && posting.getPriceCurrency() != null) {
+            prices.add(posting.getCurrency(), posting.getPriceCurrency(), date, posting.getPriceNumber());
+        } else if (posting.getCostNumber() != null && posting.getCostCurrency() != null) {
+            prices.add(posting.getCurrency(), posting.getCostCurrency(), date, posting.getCostNumber());
+        }
+    }
+
+    /** The part of a reduction booked against one lot as {@code posting}, disposed of on {@code date}. */
+    private static RealizedGainRecord realizedGain(PostingRecord posting, LocalDate date) {
+        String currency =
+                posting.getCostCurrency() != null ? posting.getCostCurrency() : posting.getPriceCurrency();
+        boolean priced =
+                posting.getPriceNumber() != null
+                        && (posting.getPriceCurrency() == null || posting.getPriceCurrency().equals(currency));
+        return new RealizedGainRecord(
+                posting.getPostingId(),
+                posting.getCostDate(),
+                posting.getNumber().negate(),
+                posting.getCostNumber(),
+                priced ? posting.getPriceNumber() : null,
+                currency,
+                Math.toIntExact(date.toEpochDay() - posting.getCostDate().toEpochDay()));
+    }
+
     private static List<PostingRecord> orderEntryPostings(List<PostingRecord> postings) {
         if (postings.size() <= 1) {
-            return new ArrayList<>(postings);
+            return postings;
         }
         Map<String, List<PostingRecord>> groups = new LinkedHashMap<>();
         List<PostingRecord> unknownCurrency = new ArrayList<>();
@@ -1465,7 +1674,7 @@ public final class SemanticAnalyzer {
             }
         }
         if (groups.isEmpty()) {
-            return new ArrayList<>(postings);
+            return postings;
         }
         List<PostingRecord> ordered = new ArrayList<>(postings.size());
         for (List<PostingRecord> group : groups.values()) {
@@ -1495,286 +1704,73 @@ public final class SemanticAnalyzer {
         return trimmed.isEmpty() ? null : trimmed;
     }
 
-    private static void bookInventoryLots(AnalyzerState state) {
-        if (state.postings.isEmpty()) {
-            return;
-        }
-        List<PostingRecord> bookedPostings = bookPostings(state.entries, state.postings);
-        state.postings.clear();
-        state.postings.addAll(bookedPostings);
-        List<PostingRecord> bookedRaw = bookPostings(state.entries, state.rawPostings);
-        state.rawPostings.clear();
-        state.rawPostings.addAll(bookedRaw);
-    }
-
-    private static List<PostingRecord> bookPostings(
-            List<LedgerEntry> entries, List<PostingRecord> postings) {
-        Map<Integer, List<PostingRecord>> byEntry = new LinkedHashMap<>();
-        for (PostingRecord posting : postings) {
-            byEntry.computeIfAbsent(posting.getEntryId(), key -> new ArrayList<>()).add(posting);
-        }
-        Map<String, List<InventoryLot>> inventory = new LinkedHashMap<>();
-        List<PostingRecord> booked = new ArrayList<>(postings.size());
-        for (LedgerEntry entry : entries) {
-            List<PostingRecord> entryPostings = byEntry.remove(entry.getId());
-            if (entryPostings == null) {
-                continue;
-            }
-            booked.addAll(bookEntryPostings(entry, entryPostings, inventory));
-        }
-        for (List<PostingRecord> leftovers : byEntry.values()) {
-            booked.addAll(leftovers);
-        }
-        return booked;
-    }
-
-    private static List<PostingRecord> bookEntryPostings(
-            LedgerEntry entry,
-            List<PostingRecord> postings,
-            Map<String, List<InventoryLot>> inventory) {
-        List<PostingRecord> booked = new ArrayList<>(postings.size());
-        for (PostingRecord posting : postings) {
-            BigDecimal number = posting.getNumber();
-            String currency = posting.getCurrency();
-            if (number == null || currency == null || !isInventoryPosting(posting)) {
-                booked.add(posting);
-                continue;
-            }
-            String key = inventoryKey(posting.getAccount(), currency);
-            if (key == null) {
-                booked.add(posting);
-                continue;
-            }
-            if (number.signum() >= 0) {
-                LocalDate costDate = posting.getCostDate();
-                if (costDate == null) {
-                    costDate = entry.getDate();
-                    posting.setCostDate(costDate);
-                }
-                addInventoryLot(
-                        inventory,
-                        key,
-                        number.abs(),
-                        posting.getCostNumber(),
-                        posting.getCostCurrency(),
-                        posting.getCostDate(),
-                        posting.getCostLabel());
-                booked.add(posting);
-            } else {
-                List<PostingRecord> reductions =
-                        reduceInventory(posting, entry, inventory, key);
-                if (reductions == null) {
-                    booked.add(posting);
-                } else {
-                    booked.addAll(reductions);
-                }
-            }
-        }
-        return booked;
-    }
-
-    private static boolean isInventoryPosting(PostingRecord posting) {
-        return posting.getAccount() != null
-                && posting.getCurrency() != null
-                && (posting.getCostNumber() != null
-                        || posting.getCostCurrency() != null
-                        || posting.getCostDate() != null);
-    }
-
-    private static String inventoryKey(String account, String currency) {
-        if (account == null || currency == null) {
-            return null;
-        }
-        return account + "|" + currency;
-    }
-
-    private static void addInventoryLot(
-            Map<String, List<InventoryLot>> inventory,
-            String key,
-            BigDecimal quantity,
-            BigDecimal costNumber,
-            String costCurrency,
-            LocalDate costDate,
-            String costLabel) {
-        if (key == null || quantity == null || quantity.signum() <= 0) {
-            return;
-        }
-        inventory.computeIfAbsent(key, k -> new ArrayList<>())
-                .add(new InventoryLot(quantity, costNumber, costCurrency, costDate, costLabel));
-    }
-
-    private static List<PostingRecord> reduceInventory(
-            PostingRecord posting,
-            LedgerEntry entry,
-            Map<String, List<InventoryLot>> inventory,
-            String key) {
-        List<InventoryLot> lots = inventory.get(key);
-        if (lots == null || lots.isEmpty()) {
-            return null;
-        }
-        List<InventoryLot> matches = new ArrayList<>();
-        for (InventoryLot lot : lots) {
-            if (matchesLot(posting, lot)) {
-                matches.add(lot);
-            }
-        }
-        if (matches.isEmpty()) {
-            return null;
-        }
-        BigDecimal remaining = posting.getNumber().abs();
-        BigDecimal available = BigDecimal.ZERO;
-        for (InventoryLot lot : matches) {
-            available = available.add(lot.quantity);
-            if (available.compareTo(remaining) >= 0) {
-                break;
-            }
-        }
-        if (available.compareTo(remaining) < 0) {
-            return null;
-        }
-        List<PostingRecord> reductions = new ArrayList<>();
-        for (Iterator<InventoryLot> iterator = lots.iterator();
-                iterator.hasNext() && remaining.signum() > 0; ) {
-            InventoryLot lot = iterator.next();
-            if (!matchesLot(posting, lot)) {
-                continue;
-            }
-            BigDecimal chunk = lot.quantity.min(remaining);
-            LocalDate costDate = lot.costDate != null ? lot.costDate : entry.getDate();
-            BigDecimal costNumber =
-                    posting.getCostNumber() != null ? posting.getCostNumber() : lot.costNumber;
-            String costCurrency =
-                    posting.getCostCurrency() != null ? posting.getCostCurrency() : lot.costCurrency;
-            String costLabel =
-                    posting.getCostLabel() != null ? posting.getCostLabel() : lot.costLabel;
-            reductions.add(
-                    new PostingRecord(
-                            posting.getPostingId(),
-                            posting.getEntryId(),
-                            posting.getFlag(),
-                            posting.getAccount(),
-                            chunk.negate(),
-                            posting.getCurrency(),
-                            costNumber,
-                            costCurrency,
-                            costDate,
-                            costLabel,
-                            posting.getPriceNumber(),
-                            posting.getPriceCurrency()));
-            remaining = remaining.subtract(chunk);
-            if (chunk.compareTo(lot.quantity) == 0) {
-                iterator.remove();
-            } else {
-                lot.quantity = lot.quantity.subtract(chunk);
+    private static BookingEngine newBookingEngine(AnalyzerState state) {
+        Map<String, BookingMethod> accountMethods = new HashMap<>();
+        for (OpenRecord open : state.opens) {
+            BookingMethod method = BookingMethod.parse(open.getBookingMethod());
+            if (method != null) {
+                accountMethods.put(open.getAccount(), method);
             }
         }
-        return reductions;
+        return new BookingEngine(state.defaultBookingMethod, accountMethods);
     }
 
-    private static boolean matchesLot(PostingRecord posting, InventoryLot lot) {
-        if (posting.getCostNumber() != null
-                && lot.costNumber != null
-                && posting.getCostNumber().compareTo(lot.costNumber) != 0) {
-            return false;
-        }
-        if (posting.getCostCurrency() != null
-                && lot.costCurrency != null
-                && !posting.getCostCurrency().equals(lot.costCurrency)) {
-            return false;
-        }
-        if (posting.getCostDate() != null
-                && lot.costDate != null
-                && !posting.getCostDate().equals(lot.costDate)) {
-            return false;
-        }
-        if (posting.getCostLabel() != null
-                && lot.costLabel != null
-                && !posting.getCostLabel().equals(lot.costLabel)) {
-            return false;
-        }
-        return true;
-    }
-
-    private static final class InventoryLot {
-        BigDecimal quantity;
-        final BigDecimal costNumber;
-        final String costCurrency;
-        final LocalDate costDate;
-        final String costLabel;
-
-        InventoryLot(
-                BigDecimal quantity,
-                BigDecimal costNumber,
-                String costCurrency,
-                LocalDate costDate,
-                String costLabel) {
-            this.quantity = quantity;
-            this.costNumber = costNumber;
-            this.costCurrency = costCurrency;
-            this.costDate = costDate;
-            this.costLabel = costLabel;
+    /** Returns {@code posting} itself when it already carries the final ids, else a copy. */
+    private static PostingRecord withIds(PostingRecord posting, int postingId, int entryId) {
+        if (posting.getPostingId() == postingId && posting.getEntryId() == entryId) {
+            return posting;
         }
+        return copyPosting(posting, postingId, entryId);
     }
 
-    private static void remapLedgerEntries(AnalyzerState state, Map<Integer, Integer> idMap) {
-        List<LedgerEntry> updated = new ArrayList<>(state.entries.size());
-        for (LedgerEntry entry : state.entries) {
-            Integer newId = idMap.get(entry.getId());
-            if (newId == null) {
-                continue;
-            }
-            updated.add(
-                    new LedgerEntry(
-                            newId,
-                            entry.getDate(),
-                            entry.getType(),
-                            entry.getSourceFilename(),
-                            entry.getSourceLineno(),
-                            entry.getTransactionPayload()));
-        }
-        updated.sort(Comparator.comparingInt(LedgerEntry::getId));
-        state.entries.clear();
-        state.entries.addAll(updated);
+    private static int finalId(int[] finalIds, int tempId) {
+        return tempId >= 0 && tempId < finalIds.length ? finalIds[tempId] : -1;
     }
 
-    private static void remapOpenRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapOpenRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.opens.size(); i++) {
             OpenRecord record = state.opens.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
-            state.opens.set(i, new OpenRecord(newId, record.getAccount(), record.getCurrencies()));
+            state.opens.set(
+                    i,
+                    new OpenRecord(
+                            newId,
+                            record.getAccount(),
+                            record.getCurrencies(),
+                            record.getBookingMethod()));
         }
     }
 
-    private static void remapCloseRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapCloseRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.closes.size(); i++) {
             CloseRecord record = state.closes.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
             state.closes.set(i, new CloseRecord(newId, record.getAccount()));
         }
     }
 
-    private static void remapPadRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapPadRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.pads.size(); i++) {
             PadRecord record = state.pads.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
             state.pads.set(i, new PadRecord(newId, record.getAccount(), record.getSourceAccount()));
         }
     }
 
-    private static void remapBalanceRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapBalanceRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.balances.size(); i++) {
             BalanceRecord record = state.balances.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
             state.balances.set(
@@ -1791,55 +1787,55 @@ public final class SemanticAnalyzer {
         }
     }
 
-    private static void remapNoteRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapNoteRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.notes.size(); i++) {
             NoteRecord record = state.notes.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
             state.notes.set(i, new NoteRecord(newId, record.getAccount(), record.getComment()));
         }
     }
 
-    private static void remapDocumentRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapDocumentRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.documents.size(); i++) {
             DocumentRecord record = state.documents.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
             state.documents.set(i, new DocumentRecord(newId, record.getAccount(), record.getFilename()));
         }
     }
 
-    private static void remapEventRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapEventRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.events.size(); i++) {
             EventRecord record = state.events.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
             state.events.set(i, new EventRecord(newId, record.getType(), record.getDescription()));
         }
     }
 
-    private static void remapQueryRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapQueryRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.queries.size(); i++) {
             QueryRecord record = state.queries.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
             state.queries.set(i, new QueryRecord(newId, record.getName(), record.getQueryString()));
         }
     }
 
-    private static void remapPriceRecords(AnalyzerState state, Map<Integer, Integer> idMap) {
+    private static void remapPriceRecords(AnalyzerState state, int[] finalIds) {
         for (int i = 0; i < state.prices.size(); i++) {
             PriceRecord record = state.prices.get(i);
-            Integer newId = idMap.get(record.getEntryId());
-            if (newId == null) {
+            int newId = finalId(finalIds, record.getEntryId());
+            if (newId < 0 || newId == record.getEntryId()) {
                 continue;
             }
             state.prices.set(
@@ -1852,57 +1848,6 @@ public final class SemanticAnalyzer {
         }
     }
 
-    private static void remapPostings(List<PostingRecord> records, Map<Integer, Integer> idMap) {
-        for (int i = 0; i < records.size(); i++) {
-            records.set(i, remapPosting(records.get(i), idMap));
-        }
-    }
-
-    private static PostingRecord remapPosting(PostingRecord record, Map<Integer, Integer> idMap) {
-        Integer newEntryId = idMap.get(record.getEntryId());
-        if (newEntryId == null) {
-            return record;
-        }
-        return copyPosting(record, record.getPostingId(), newEntryId);
-    }
-
-    private static void rebuildPostings(AnalyzerState state) {
-        Map<Integer, Deque<PostingRecord>> postingsByEntry = groupPostingsByEntry(state.rawPostings);
-        List<PostingRecord> ordered = new ArrayList<>(state.rawPostings.size());
-        for (LedgerEntry entry : state.entries) {
-            if (!"txn".equals(entry.getType())) {
-                continue;
-            }
-            Deque<PostingRecord> queue = postingsByEntry.remove(entry.getId());
-            if (queue == null) {
-                continue;
-            }
-            while (!queue.isEmpty()) {
-                PostingRecord posting = queue.removeFirst();
-                ordered.add(copyPosting(posting, posting.getPostingId(), entry.getId()));
-            }
-        }
-        for (Map.Entry<Integer, Deque<PostingRecord>> leftover : postingsByEntry.entrySet()) {
-            Deque<PostingRecord> queue = leftover.getValue();
-            while (!queue.isEmpty()) {
-                PostingRecord posting = queue.removeFirst();
-                ordered.add(copyPosting(posting, posting.getPostingId(), leftover.getKey()));
-            }
-        }
-        state.postings.clear();
-        state.postings.addAll(ordered);
-        state.nextPostingId = state.rawPostings.size();
-    }
-
-    private static Map<Integer, Deque<PostingRecord>> groupPostingsByEntry(List<PostingRecord> postings) {
-        Map<Integer, Deque<PostingRecord>> byEntry = new LinkedHashMap<>();
-        for (PostingRecord posting : postings) {
-            byEntry.computeIfAbsent(posting.getEntryId(), key -> new ArrayDeque<>()).addLast(posting);
-        }
-        return byEntry;
-    }
-
-
     private static PostingRecord copyPosting(PostingRecord source, int postingId, int entryId) {
         return new PostingRecord(
                 postingId,
@@ -1919,24 +1864,20 @@ public final class SemanticAnalyzer {
                 source.getPriceCurrency());
     }
     private static void updateRunningBalances(
-            Map<String, Map<String, BigDecimal>> runningBalances, List<PostingRecord> postings) {
+            RunningBalances runningBalances, List<PostingRecord> postings) {
         for (PostingRecord posting : postings) {
             BigDecimal number = posting.getNumber();
             String currency = posting.getCurrency();
             if (number == null || currency == null) {
                 continue;
             }
-            for (String account : accountHierarchy(posting.getAccount())) {
-                runningBalances
-                        .computeIfAbsent(account, key -> new HashMap<>())
-                        .merge(currency, number, BigDecimal::add);
-            }
+            runningBalances.add(posting.getAccount(), currency, number);
         }
     }
     private static BalanceRecord adjustBalanceRecord(
             AnalyzerState state,
             BalanceRecord record,
-            Map<String, Map<String, BigDecimal>> runningBalances,
+            RunningBalances runningBalances,
             Map<String, PadContext> padContexts,
             List<LedgerEntry> paddingEntries) {
         BigDecimal targetNumber = record.getAmountNumber();
@@ -1944,7 +1885,7 @@ public final class SemanticAnalyzer {
         if (targetNumber == null || currency == null) {
             return record;
         }
-        BigDecimal actual = getBalance(runningBalances, record.getAccount(), currency);
+        BigDecimal actual = runningBalances.get(record.getAccount(), currency);
         BigDecimal diff = actual.subtract(targetNumber);
         BigDecimal tolerance = computeBalanceTolerance(state, record);
         BigDecimal diffNumber = null;
@@ -2152,19 +2093,8 @@ public final class SemanticAnalyzer {
         }
         return applyCostTolerance(state, record.getAmountCurrency(), inferred.abs());
     }
-    private static BigDecimal getBalance(
-            Map<String, Map<String, BigDecimal>> runningBalances, String account, String currency) {
-        if (account == null || currency == null) {
-            return BigDecimal.ZERO;
-        }
-        Map<String, BigDecimal> balancesByCurrency = runningBalances.get(account);
-        if (balancesByCurrency == null) {
-            return BigDecimal.ZERO;
-        }
-        return balancesByCurrency.getOrDefault(currency, BigDecimal.ZERO);
-    }
     private static void applyAdjustment(
-            Map<String, Map<String, BigDecimal>> runningBalances,
+            RunningBalances runningBalances,
             String account,
             String currency,
             BigDecimal adjustment) {
@@ -2174,15 +2104,12 @@ public final class SemanticAnalyzer {
         if (adjustment.compareTo(BigDecimal.ZERO) == 0) {
             return;
         }
-        for (String acct : accountHierarchy(account)) {
-            runningBalances
-                    .computeIfAbsent(acct, key -> new HashMap<>())
-                    .merge(currency, adjustment, BigDecimal::add);
-        }
+        runningBalances.add(account, currency, adjustment);
     }
     private static final class AnalyzerState {
         final Set<Path> activeFiles = new HashSet<>();
         final Set<Path> includeOnceVisited = new HashSet<>();
+        final Set<Path> sourceFiles = new LinkedHashSet<>();
         final Set<String> openAccounts = new HashSet<>();
         final List<SemanticTransaction> transactions = new ArrayList<>();
         final List<LoaderMessage> messages = new ArrayList<>();
@@ -2204,6 +2131,11 @@ public final class SemanticAnalyzer {
         final List<EventRecord> events = new ArrayList<>();
         final List<QueryRecord> queries = new ArrayList<>();
         final List<PriceRecord> prices = new ArrayList<>();
+        AccountBalanceHistory balanceHistory = AccountBalanceHistory.empty();
+        LotHistory lotHistory = LotHistory.empty();
+        final List<RealizedGainRecord> realizedGains = new ArrayList<>();
+        PriceIndex priceIndex = PriceIndex.empty();
+        boolean implicitPrices;
         final List<String> operatingCurrencies = new ArrayList<>();
         BigDecimal toleranceMultiplier = new BigDecimal("0.5");
         BigDecimal defaultToleranceOverride = null;
@@ -2212,8 +2144,17 @@ public final class SemanticAnalyzer {
         final DisplayContext displayContext = new DisplayContext();
         boolean inferToleranceFromCost;
         boolean allowPipeSeparator;
+        BookingMethod defaultBookingMethod = BookingMethod.FIFO;
         final Map<Integer, PadContext> padContextsByEntryId = new HashMap<>();
         final Map<Integer, PostingExtras> postingExtras = new HashMap<>();
+        // Transaction metadata by parse-time entry id and posting metadata by parse-time posting id.
+        final Map<Integer, List<SemanticMetadataEntry>> entryMetadata = new HashMap<>();
+        final Map<Integer, List<SemanticMetadataEntry>> postingMetadata = new HashMap<>();
+        MetadataStore entryMetadataStore = MetadataStore.empty();
+        MetadataStore postingMetadataStore = MetadataStore.empty();
+        // Transaction and posting comments by parse-time entry id, for the text search index.
+        final Map<Integer, List<String>> entryComments = new HashMap<>();
+        TextSearchIndex textIndex = TextSearchIndex.empty();
         int nextPostingId;
         int nextEntryId;
         final Deque<String> tagStack = new ArrayDeque<>();
@@ -2251,7 +2192,61 @@ public final class SemanticAnalyzer {
             return ledgerEntry;
         }
     }
-    private static final class DirectiveDescriptor {
+    /**
+     * Postings grouped by temporary entry id with one stable counting sort, so finalization needs
+     * neither a map of per-entry lists nor a second copy of every posting.
+     */
+    private static final class PostingsByEntry {
+        private final List<PostingRecord> sorted;
+        private final int[] offsets;
+        private final Map<Integer, List<PostingRecord>> overflow = new HashMap<>();
+
+        private PostingsByEntry(List<PostingRecord> sorted, int[] offsets) {
+            this.sorted = sorted;
+            this.offsets = offsets;
+        }
+
+        static PostingsByEntry group(List<PostingRecord> postings, int entryCount) {
+            int[] offsets = new int[entryCount + 1];
+            for (PostingRecord posting : postings) {
+                int entryId = posting.getEntryId();
+                if (entryId >= 0 && entryId < entryCount) {
+                    offsets[entryId + 1]++;
+                }
+            }
+            for (int i = 0; i < entryCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            PostingRecord[] sorted = new PostingRecord[offsets[entryCount]];
+            int[] cursor = Arrays.copyOf(offsets, entryCount);
+            PostingsByEntry grouped = new PostingsByEntry(Arrays.asList(sorted), offsets);
+            for (PostingRecord posting : postings) {
+                int entryId = posting.getEntryId();
+                if (entryId >= 0 && entryId < entryCount) {
+                    sorted[cursor[entryId]++] = posting;
+                } else {
+                    grouped.overflow.computeIfAbsent(entryId, id -> new ArrayList<>(2)).add(posting);
+                }
+            }
+            return grouped;
+        }
+
+        /** Adds postings created after grouping, such as those of synthesized padding entries. */
+        void addAll(List<PostingRecord> postings) {
+            for (PostingRecord posting : postings) {
+                overflow.computeIfAbsent(posting.getEntryId(), id -> new ArrayList<>(2)).add(posting);
+            }
+        }
+
+        List<PostingRecord> of(int entryId) {
+            if (entryId >= 0 && entryId < offsets.length - 1) {
+                return sorted.subList(offsets[entryId], offsets[entryId + 1]);
+            }
+            return overflow.getOrDefault(entryId, List.of());
+        }
+    }
+
+    static final class DirectiveDescriptor {
         private final int tempId;
         private final LocalDate date;
         private final String type;
@@ -2400,20 +2395,4 @@ public final class SemanticAnalyzer {
                 tolerance.abs(),
                 (existing, incoming) -> existing.compareTo(incoming) >= 0 ? existing : incoming);
     }
-    private static List<String> accountHierarchy(String account) {
-        if (account == null || account.isEmpty()) {
-            return List.of();
-        }
-        List<String> hierarchy = new ArrayList<>();
-        String[] parts = account.split(":");
-        StringBuilder current = new StringBuilder();
-        for (int i = 0; i < parts.length; i++) {
-            if (i > 0) {
-                current.append(":");
-            }
-            current.append(parts[i]);
-            hierarchy.add(current.toString());
-        }
-        return hierarchy;
-    }
 }
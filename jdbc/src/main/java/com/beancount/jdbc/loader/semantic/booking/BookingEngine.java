@@ -0,0 +1,198 @@
+package com.beancount.jdbc.loader.semantic.booking;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.LotHistory;
+import com.beancount.jdbc.ledger.PostingRecord;
+import com.beancount.jdbc.loader.LoaderMessage;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Books postings held at cost against per-account inventories, splitting each reduction into one
+ * posting per consumed lot.
+ *
+ * <p>Entries must be fed in ledger order. Inventories are keyed by interned account and currency
+ * names and indexed by {@link LotIndex}; the lots a reduction consumes are chosen by the account's
+ * {@link BookingMethod}. A reduction that cannot be covered by matching lots, or that is ambiguous
+ * under {@link BookingMethod#STRICT}, is kept as written.</p>
+ *
+ * <p>Every lot opened and every quantity it is reduced to is recorded in a {@link LotHistory}, so
+ * the open lots at any date stay available after booking, and the postings a reduction was split
+ * into can be told apart from postings kept as written with {@link #isBookedReduction}.</p>
+ */
+public final class BookingEngine {
+
+    private record InventoryKey(String account, String currency) {}
+
+    private final BookingMethod defaultMethod;
+    private final Map<String, BookingMethod> accountMethods;
+    private final Map<String, String> names = new HashMap<>();
+    private final Map<InventoryKey, LotIndex> inventories = new HashMap<>();
+    private final List<LoaderMessage> messages = new ArrayList<>();
+    private final LotHistory.Builder lotHistory = new LotHistory.Builder();
+    private final Set<PostingRecord> bookedReductions = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public BookingEngine(BookingMethod defaultMethod, Map<String, BookingMethod> accountMethods) {
+        this.defaultMethod = defaultMethod;
+        this.accountMethods = Map.copyOf(accountMethods);
+    }
+
+    /** Warnings for reductions that were left unbooked because they were ambiguous. */
+    public List<LoaderMessage> getMessages() {
+        return List.copyOf(messages);
+    }
+
+    /** Lots opened and reduced by the entries booked so far. */
+    public LotHistory lotHistory() {
+        return lotHistory.build();
+    }
+
+    /**
+     * Whether {@code posting}, one of those returned by the latest {@link #book} call, is part of a
+     * reduction matched against a lot, rather than a posting kept as written.
+     */
+    public boolean isBookedReduction(PostingRecord posting) {
+        return bookedReductions.contains(posting);
+    }
+
+    public List<PostingRecord> book(LedgerEntry entry, List<PostingRecord> postings) {
+        bookedReductions.clear();
+        List<PostingRecord> booked = new ArrayList<>(postings.size());
+        for (PostingRecord posting : postings) {
+            BigDecimal number = posting.getNumber();
+            if (number == null || !isInventoryPosting(posting)) {
+                booked.add(posting);
+                continue;
+            }
+            InventoryKey key =
+                    new InventoryKey(intern(posting.getAccount()), intern(posting.getCurrency()));
+            if (number.signum() >= 0) {
+                if (posting.getCostDate() == null) {
+                    posting.setCostDate(entry.getDate());
+                }
+                if (number.signum() > 0) {
+                    int historyId =
+                            lotHistory.open(
+                                    key.account(),
+                                    key.currency(),
+                                    number,
+                                    posting.getCostNumber(),
+                                    posting.getCostCurrency(),
+                                    posting.getCostDate(),
+                                    posting.getCostLabel(),
+                                    entry.getDate());
+                    inventories
+                            .computeIfAbsent(key, k -> new LotIndex())
+                            .add(
+                                    historyId,
+                                    number,
+                                    posting.getCostNumber(),
+                                    posting.getCostCurrency(),
+                                    posting.getCostDate(),
+                                    posting.getCostLabel());
+                }
+                booked.add(posting);
+                continue;
+            }
+            LotIndex lots = inventories.get(key);
+            List<PostingRecord> reductions =
+                    lots == null || lots.size() == 0 ? null : reduce(posting, entry, lots);
+            if (reductions == null) {
+                booked.add(posting);
+            } else {
+                booked.addAll(reductions);
+                bookedReductions.addAll(reductions);
+            }
+        }
+        return booked;
+    }
+
+    private List<PostingRecord> reduce(PostingRecord posting, LedgerEntry entry, LotIndex lots) {
+        BookingMethod method = accountMethods.getOrDefault(posting.getAccount(), defaultMethod);
+        if (method == BookingMethod.NONE) {
+            return null;
+        }
+        BigDecimal remaining = posting.getNumber().abs();
+        List<Lot> matches = lots.select(posting, method, remaining);
+        BigDecimal available = BigDecimal.ZERO;
+        for (Lot lot : matches) {
+            available = available.add(lot.quantity);
+        }
+        if (matches.isEmpty() || available.compareTo(remaining) < 0) {
+            return null;
+        }
+        if (method == BookingMethod.STRICT
+                && matches.size() > 1
+                && available.compareTo(remaining) != 0) {
+            messages.add(
+                    new LoaderMessage(
+                            LoaderMessage.Level.WARNING,
+                            "Ambiguous STRICT reduction of %s %s in %s matches %d lots; posting left unbooked"
+                                    .formatted(
+                                            remaining.toPlainString(),
+                                            posting.getCurrency(),
+                                            posting.getAccount(),
+                                            matches.size()),
+                            entry.getSourceFilename(),
+                            entry.getSourceLineno()));
+            return null;
+        }
+        List<PostingRecord> reductions = new ArrayList<>();
+        for (Lot lot : matches) {
+            if (remaining.signum() <= 0) {
+                break;
+            }
+            BigDecimal chunk = lot.quantity.min(remaining);
+            LocalDate costDate = lot.costDate != null ? lot.costDate : entry.getDate();
+            BigDecimal costNumber =
+                    posting.getCostNumber() != null ? posting.getCostNumber() : lot.costNumber;
+            String costCurrency =
+                    posting.getCostCurrency() != null ? posting.getCostCurrency() : lot.costCurrency;
+            String costLabel =
+                    posting.getCostLabel() != null ? posting.getCostLabel() : lot.costLabel;
+            reductions.add(
+                    new PostingRecord(
+                            posting.getPostingId(),
+                            posting.getEntryId(),
+                            posting.getFlag(),
+                            posting.getAccount(),
+                            chunk.negate(),
+                            posting.getCurrency(),
+                            costNumber,
+                            costCurrency,
+                            costDate,
+                            costLabel,
+                            posting.getPriceNumber(),
+                            posting.getPriceCurrency()));
+            remaining = remaining.subtract(chunk);
+            if (chunk.compareTo(lot.quantity) == 0) {
+                lots.remove(lot);
+                lotHistory.change(lot.historyId, entry.getDate(), BigDecimal.ZERO);
+            } else {
+                lot.quantity = lot.quantity.subtract(chunk);
+                lotHistory.change(lot.historyId, entry.getDate(), lot.quantity);
+            }
+        }
+        return reductions;
+    }
+
+    private String intern(String name) {
+        String existing = names.putIfAbsent(name, name);
+        return existing != null ? existing : name;
+    }
+
+    private static boolean isInventoryPosting(PostingRecord posting) {
+        return posting.getAccount() != null
+                && posting.getCurrency() != null
+                && (posting.getCostNumber() != null
+                        || posting.getCostCurrency() != null
+                        || posting.getCostDate() != null);
+    }
+}
@@ -0,0 +1,37 @@
+package com.beancount.jdbc.loader.semantic.booking;
+
+import java.util.Locale;
+
+/**
+ * Lot selection strategy used when a posting reduces an inventory held at cost.
+ *
+ * <p>Chosen per account from the quoted token of the {@code open} directive, falling back to the
+ * ledger-wide {@code booking_method} option.</p>
+ */
+public enum BookingMethod {
+    /** Oldest matching lots first. */
+    FIFO,
+    /** Newest matching lots first. */
+    LIFO,
+    /** Matching lots with the highest cost number first. */
+    HIFO,
+    /**
+     * A single matching lot, or every matching lot when the reduction consumes them all; anything
+     * else is ambiguous and leaves the posting unbooked.
+     */
+    STRICT,
+    /** No lot matching; reductions are kept exactly as written. */
+    NONE;
+
+    /** Returns the method named by {@code token} (case-insensitive), or null if it is not supported. */
+    public static BookingMethod parse(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            return valueOf(token.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.beancount.jdbc.loader.semantic.booking;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** One open position held at cost. Only {@link #quantity} changes, as reductions consume it. */
+final class Lot {
+    final long sequence;
+    /** Id of this lot in the engine's {@link com.beancount.jdbc.ledger.LotHistory}. */
+    final int historyId;
+    BigDecimal quantity;
+    final BigDecimal costNumber;
+    final String costCurrency;
+    final LocalDate costDate;
+    final String costLabel;
+
+    Lot(
+            long sequence,
+            int historyId,
+            BigDecimal quantity,
+            BigDecimal costNumber,
+            String costCurrency,
+            LocalDate costDate,
+            String costLabel) {
+        this.sequence = sequence;
+        this.historyId = historyId;
+        this.quantity = quantity;
+        this.costNumber = costNumber;
+        this.costCurrency = costCurrency;
+        this.costDate = costDate;
+        this.costLabel = costLabel;
+    }
+}
@@ -0,0 +1,223 @@
+package com.beancount.jdbc.loader.semantic.booking;
+
+import com.beancount.jdbc.ledger.PostingRecord;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Open lots of one account/currency inventory.
+ *
+ * <p>Lots are kept in insertion order and by cost number, and additionally bucketed by cost number,
+ * cost date and label. A reduction walks only the smallest bucket its cost spec pins down, in the
+ * order of its booking method, and stops as soon as the reduced quantity is covered, so adding and
+ * consuming a lot costs O(log n) regardless of how many lots the account holds. A lot whose cost
+ * field is unset matches any spec value, so the {@code null} bucket is merged into every lookup.</p>
+ */
+final class LotIndex {
+
+    private static final Comparator<Lot> HIGHEST_COST_FIRST =
+            Comparator.comparing(
+                            (Lot lot) -> lot.costNumber,
+                            Comparator.nullsLast(Comparator.<BigDecimal>reverseOrder()))
+                    .thenComparingLong(lot -> lot.sequence);
+
+    private final NavigableMap<Long, Lot> bySequence = new TreeMap<>();
+    private final NavigableSet<Lot> byCost = new TreeSet<>(HIGHEST_COST_FIRST);
+    private final Map<BigDecimal, NavigableMap<Long, Lot>> byCostNumber = new HashMap<>();
+    private final Map<LocalDate, NavigableMap<Long, Lot>> byCostDate = new HashMap<>();
+    private final Map<String, NavigableMap<Long, Lot>> byCostLabel = new HashMap<>();
+    private long nextSequence;
+
+    int size() {
+        return bySequence.size();
+    }
+
+    void add(
+            int historyId,
+            BigDecimal quantity,
+            BigDecimal costNumber,
+            String costCurrency,
+            LocalDate costDate,
+            String costLabel) {
+        Lot lot = new Lot(nextSequence++, historyId, quantity, costNumber, costCurrency, costDate, costLabel);
+        bySequence.put(lot.sequence, lot);
+        byCost.add(lot);
+        bucket(byCostNumber, costKey(costNumber)).put(lot.sequence, lot);
+        bucket(byCostDate, costDate).put(lot.sequence, lot);
+        bucket(byCostLabel, costLabel).put(lot.sequence, lot);
+    }
+
+    void remove(Lot lot) {
+        bySequence.remove(lot.sequence);
+        byCost.remove(lot);
+        unbucket(byCostNumber, costKey(lot.costNumber), lot);
+        unbucket(byCostDate, lot.costDate, lot);
+        unbucket(byCostLabel, lot.costLabel, lot);
+    }
+
+    /**
+     * Returns the lots matching {@code spec} in the order {@code method} consumes them, stopping
+     * once they cover {@code needed}. For {@link BookingMethod#STRICT} selection continues until
+     * the reduction is known to be ambiguous, i.e. two lots match and exceed {@code needed}.
+     */
+    List<Lot> select(PostingRecord spec, BookingMethod method, BigDecimal needed) {
+        boolean strict = method == BookingMethod.STRICT;
+        List<Lot> selected = new ArrayList<>();
+        BigDecimal covered = BigDecimal.ZERO;
+        for (Iterator<Lot> iterator = candidates(spec, method); iterator.hasNext(); ) {
+            Lot lot = iterator.next();
+            if (!matches(spec, lot)) {
+                continue;
+            }
+            selected.add(lot);
+            covered = covered.add(lot.quantity);
+            int cmp = covered.compareTo(needed);
+            if (strict ? cmp > 0 && selected.size() > 1 : cmp >= 0) {
+                break;
+            }
+        }
+        return selected;
+    }
+
+    private Iterator<Lot> candidates(PostingRecord spec, BookingMethod method) {
+        Candidates narrowest = null;
+        if (spec.getCostLabel() != null) {
+            narrowest = Candidates.narrower(narrowest, byCostLabel, spec.getCostLabel());
+        }
+        if (spec.getCostDate() != null) {
+            narrowest = Candidates.narrower(narrowest, byCostDate, spec.getCostDate());
+        }
+        if (spec.getCostNumber() != null) {
+            narrowest = Candidates.narrower(narrowest, byCostNumber, costKey(spec.getCostNumber()));
+        }
+        if (narrowest == null) {
+            return switch (method) {
+                case LIFO -> bySequence.descendingMap().values().iterator();
+                case HIFO -> byCost.iterator();
+                default -> bySequence.values().iterator();
+            };
+        }
+        Iterator<Lot> merged = merge(narrowest.exact, narrowest.wildcard, method == BookingMethod.LIFO);
+        if (method != BookingMethod.HIFO) {
+            return merged;
+        }
+        List<Lot> sorted = new ArrayList<>(narrowest.size());
+        merged.forEachRemaining(sorted::add);
+        sorted.sort(HIGHEST_COST_FIRST);
+        return sorted.iterator();
+    }
+
+    private static boolean matches(PostingRecord spec, Lot lot) {
+        if (spec.getCostNumber() != null
+                && lot.costNumber != null
+                && spec.getCostNumber().compareTo(lot.costNumber) != 0) {
+            return false;
+        }
+        if (spec.getCostCurrency() != null
+                && lot.costCurrency != null
+                && !spec.getCostCurrency().equals(lot.costCurrency)) {
+            return false;
+        }
+        if (spec.getCostDate() != null
+                && lot.costDate != null
+                && !spec.getCostDate().equals(lot.costDate)) {
+            return false;
+        }
+        if (spec.getCostLabel() != null
+                && lot.costLabel != null
+                && !spec.getCostLabel().equals(lot.costLabel)) {
+            return false;
+        }
+        return true;
+    }
+
+    private static BigDecimal costKey(BigDecimal costNumber) {
+        return costNumber == null ? null : costNumber.stripTrailingZeros();
+    }
+
+    private static <K> NavigableMap<Long, Lot> bucket(Map<K, NavigableMap<Long, Lot>> index, K key) {
+        return index.computeIfAbsent(key, k -> new TreeMap<>());
+    }
+
+    private static <K> void unbucket(Map<K, NavigableMap<Long, Lot>> index, K key, Lot lot) {
+        NavigableMap<Long, Lot> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(lot.sequence);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static Iterator<Lot> merge(
+            NavigableMap<Long, Lot> left, NavigableMap<Long, Lot> right, boolean descending) {
+        Iterator<Lot> first = (descending ? left.descendingMap() : left).values().iterator();
+        Iterator<Lot> second = (descending ? right.descendingMap() : right).values().iterator();
+        if (!second.hasNext()) {
+            return first;
+        }
+        if (!first.hasNext()) {
+            return second;
+        }
+        return new Iterator<>() {
+            private Lot nextFirst = first.next();
+            private Lot nextSecond = second.next();
+
+            @Override
+            public boolean hasNext() {
+                return nextFirst != null || nextSecond != null;
+            }
+
+            @Override
+            public Lot next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                boolean takeFirst =
+                        nextSecond == null
+                                || (nextFirst != null
+                                        && (descending
+                                                ? nextFirst.sequence > nextSecond.sequence
+                                                : nextFirst.sequence < nextSecond.sequence));
+                Lot lot;
+                if (takeFirst) {
+                    lot = nextFirst;
+                    nextFirst = first.hasNext() ? first.next() : null;
+                } else {
+                    lot = nextSecond;
+                    nextSecond = second.hasNext() ? second.next() : null;
+                }
+                return lot;
+            }
+        };
+    }
+
+    /** Lots whose field equals the spec value, plus lots that leave that field unset. */
+    private record Candidates(NavigableMap<Long, Lot> exact, NavigableMap<Long, Lot> wildcard) {
+
+        int size() {
+            return exact.size() + wildcard.size();
+        }
+
+        static <K> Candidates narrower(
+                Candidates current, Map<K, NavigableMap<Long, Lot>> index, K key) {
+            Candidates candidates =
+                    new Candidates(
+                            index.getOrDefault(key, Collections.emptyNavigableMap()),
+                            index.getOrDefault(null, Collections.emptyNavigableMap()));
+            return current == null || candidates.size() < current.size() ? candidates : current;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.AccountBalanceHistory;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The {@code account_balance_history} table: one row per account, currency and date on which the
+ * account's balance in that currency changed, holding the balance at the end of that date.
+ *
+ * <p>Rows come straight from the {@link AccountBalanceHistory} built while loading, in primary key
+ * order, so the rows of an account and currency are contiguous and ascend by date.</p>
+ */
+public final class AccountBalanceHistoryTable {
+    public static final String NAME = "account_balance_history";
+
+    public static final int ACCOUNT = 0;
+    public static final int CURRENCY = 1;
+    public static final int DATE = 2;
+    public static final int BALANCE = 3;
+
+    private static final TableDefinition DEFINITION = createDefinition();
+
+    private AccountBalanceHistoryTable() {}
+
+    public static TableDefinition getDefinition() {
+        return DEFINITION;
+    }
+
+    /** Rows of {@code history}, built on demand while scanning; {@code subList} keeps that. */
+    public static List<Object[]> lazyRows(AccountBalanceHistory history) {
+        return new Rows(history);
+    }
+
+    private static Object[] toRow(AccountBalanceHistory history, int row) {
+        return new Object[] {
+            history.account(row), history.currency(row), history.epochDay(row), history.balance(row)
+        };
+    }
+
+    private static TableDefinition createDefinition() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("account", Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("currency", Types.VARCHAR, "VARCHAR(10)", 10, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("date", Types.DATE, "DATE", 0, 0, false, Date.class.getName()));
+        columns.add(new ColumnDescriptor("balance", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, false, BigDecimal.class.getName()));
+        return new TableDefinition(
+                NAME,
+                "TABLE",
+                "Cumulative balance per account and currency at each change",
+                columns,
+                List.of("account", "currency", "date"),
+                List.of());
+    }
+
+    private static final class Rows extends AbstractList<Object[]> implements RandomAccess {
+        private final AccountBalanceHistory history;
+
+        Rows(AccountBalanceHistory history) {
+            this.history = history;
+        }
+
+        @Override
+        public Object[] get(int index) {
+            return toRow(history, index);
+        }
+
+        @Override
+        public int size() {
+            return history.size();
+        }
+    }
+}
@@ -29,21 +29,24 @@ public final class BalanceTable {
     public static List<Object[]> materializeDetailRows(List<BalanceRecord> records) {
         List<Object[]> rows = new ArrayList<>(records.size());
         for (BalanceRecord record : records) {
-            BigDecimal diffNumber = record.getDiffNumber();
-            String diffCurrency = record.getDiffCurrency();
-            rows.add(
-                    new Object[] {
-                        record.getEntryId(),
-                        record.getAccount(),
-                        record.getAmountNumber(),
-                        record.getAmountCurrency(),
-                        diffNumber,
-                        diffCurrency
-                    });
+            rows.add(toDetailRow(record));
         }
         return rows;
     }
 
+    public static Object[] toDetailRow(BalanceRecord record) {
+        BigDecimal diffNumber = record.getDiffNumber();
+        String diffCurrency = record.getDiffCurrency();
+        return new Object[] {
+            record.getEntryId(),
+            record.getAccount(),
+            record.getAmountNumber(),
+            record.getAmountCurrency(),
+            diffNumber,
+            diffCurrency
+        };
+    }
+
     public static List<Object[]> materializeViewRows(List<Object[]> entryRows, List<Object[]> detailRows) {
         Map<Integer, Object[]> entryById = new HashMap<>();
         for (Object[] entry : entryRows) {
@@ -80,7 +83,7 @@ public final class BalanceTable {
         columns.add(new ColumnDescriptor("amount_currency", Types.VARCHAR, "VARCHAR(10)", 10, 0, true, String.class.getName()));
         columns.add(new ColumnDescriptor("diff_number", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
         columns.add(new ColumnDescriptor("diff_currency", Types.VARCHAR, "VARCHAR(10)", 10, 0, true, String.class.getName()));
-        return new TableDefinition(DETAIL_NAME, "TABLE", "Balance directives", columns);
+        return new TableDefinition(DETAIL_NAME, "TABLE", "Balance directives", columns, List.of("id"), List.of());
     }
 
     private static TableDefinition createViewDefinition() {
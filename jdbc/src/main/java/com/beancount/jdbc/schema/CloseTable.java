@@ -28,11 +28,15 @@ public final class CloseTable {
     public static List<Object[]> materializeDetailRows(List<CloseRecord> records) {
         List<Object[]> rows = new ArrayList<>(records.size());
         for (CloseRecord record : records) {
-            rows.add(new Object[] {record.getEntryId(), record.getAccount()});
+            rows.add(toDetailRow(record));
         }
         return rows;
     }
 
+    public static Object[] toDetailRow(CloseRecord record) {
+        return new Object[] {record.getEntryId(), record.getAccount()};
+    }
+
     public static List<Object[]> materializeViewRows(List<Object[]> entryRows, List<Object[]> detailRows) {
         Map<Integer, Object[]> entryById = new HashMap<>();
         for (Object[] entry : entryRows) {
@@ -61,7 +65,7 @@ public final class CloseTable {
         List<ColumnDescriptor> columns = new ArrayList<>();
         columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
         columns.add(new ColumnDescriptor("account", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
-        return new TableDefinition(DETAIL_NAME, "TABLE", "Close account directives", columns);
+        return new TableDefinition(DETAIL_NAME, "TABLE", "Close account directives", columns, List.of("id"), List.of());
     }
 
     private static TableDefinition createViewDefinition() {
@@ -0,0 +1,93 @@
+package com.beancount.jdbc.schema;
+
+/**
+ * Primitive loops behind columnar aggregation, in a scalar and a SIMD flavor.
+ *
+ * <p>{@link #best()} returns the {@code jdk.incubator.vector} implementation when it was compiled
+ * in (build with {@code -PvectorKernels}), the JVM was started with {@code --add-modules
+ * jdk.incubator.vector} and the platform has at least two long lanes, and the scalar one otherwise; setting the system property {@value #SCALAR_PROPERTY} to
+ * {@code true} forces the scalar loops. Both produce identical results. Callers guarantee that
+ * the sums cannot overflow.</p>
+ */
+public abstract class ColumnKernels {
+
+    public static final String SCALAR_PROPERTY = "beancount.scalarKernels";
+
+    private static final ColumnKernels SCALAR = new Scalar();
+    private static final ColumnKernels BEST = loadBest();
+
+    ColumnKernels() {}
+
+    public static ColumnKernels best() {
+        return BEST;
+    }
+
+    public static ColumnKernels scalar() {
+        return SCALAR;
+    }
+
+    /** Short name for benchmarks and diagnostics, e.g. {@code scalar} or {@code vector(4 lanes)}. */
+    public abstract String name();
+
+    /** Sum of all {@code values}. */
+    public abstract long sum(long[] values);
+
+    /** Adds {@code values[i]} to {@code sums[groups[i]]} for every row {@code i}. */
+    public abstract void sumByGroup(long[] values, int[] groups, long[] sums);
+
+    /** Replaces each {@code ids[i]} with {@code ids[i] * radix + codes[i]}. */
+    public abstract void combine(int[] ids, int[] codes, int radix);
+
+    /** Rows processed per step; the SIMD kernels are only worth using with at least two. */
+    int lanes() {
+        return 1;
+    }
+
+    private static ColumnKernels loadBest() {
+        if (Boolean.getBoolean(SCALAR_PROPERTY)
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            // Absent unless the build included the vector source set.
+            ColumnKernels vector =
+                    (ColumnKernels)
+                            Class.forName(ColumnKernels.class.getPackageName() + ".VectorColumnKernels")
+                                    .getDeclaredConstructor()
+                                    .newInstance();
+            return vector.lanes() >= 2 ? vector : SCALAR;
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return SCALAR;
+        }
+    }
+
+    private static final class Scalar extends ColumnKernels {
+        @Override
+        public String name() {
+            return "scalar";
+        }
+
+        @Override
+        public long sum(long[] values) {
+            long sum = 0;
+            for (long value : values) {
+                sum += value;
+            }
+            return sum;
+        }
+
+        @Override
+        public void sumByGroup(long[] values, int[] groups, long[] sums) {
+            for (int i = 0; i < values.length; i++) {
+                sums[groups[i]] += values[i];
+            }
+        }
+
+        @Override
+        public void combine(int[] ids, int[] codes, int radix) {
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ids[i] * radix + codes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Postings in date order for the table functions that walk them once, as {@code long} keys with
+ * the epoch day of the posting's entry in the high half and its position in the postings list in
+ * the low half.
+ *
+ * <p>The loader emits postings in ledger order, so the keys normally come out sorted and the sort
+ * is skipped. Postings whose entry is missing or undated are left out, as in
+ * {@code postings JOIN entry}.</p>
+ */
+final class DatedPostings {
+
+    private DatedPostings() {}
+
+    /** Keys of the postings accepted by {@code filter}, sorted by day and then position. */
+    static long[] inDateOrder(
+            List<PostingRecord> postings, List<LedgerEntry> entries, Predicate<PostingRecord> filter) {
+        int maxId = -1;
+        for (LedgerEntry entry : entries) {
+            maxId = Math.max(maxId, entry.getId());
+        }
+        long[] dayById = new long[maxId + 1];
+        Arrays.fill(dayById, Long.MIN_VALUE);
+        for (LedgerEntry entry : entries) {
+            if (entry.getDate() != null) {
+                dayById[entry.getId()] = entry.getDate().toEpochDay();
+            }
+        }
+        long[] order = new long[postings.size()];
+        int count = 0;
+        boolean sorted = true;
+        for (int i = 0; i < postings.size(); i++) {
+            PostingRecord posting = postings.get(i);
+            int entryId = posting.getEntryId();
+            if (entryId < 0 || entryId > maxId || dayById[entryId] == Long.MIN_VALUE || !filter.test(posting)) {
+                continue;
+            }
+            long key = (dayById[entryId] << 32) | i;
+            sorted &= count == 0 || key > order[count - 1];
+            order[count++] = key;
+        }
+        order = Arrays.copyOf(order, count);
+        if (!sorted) {
+            Arrays.sort(order);
+        }
+        return order;
+    }
+
+    static int day(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int position(long key) {
+        return (int) key;
+    }
+
+    /** {@code account} is {@code prefix} or one of its descendants. */
+    static boolean isUnder(String account, String prefix) {
+        return account.startsWith(prefix)
+                && (account.length() == prefix.length() || account.charAt(prefix.length()) == ':');
+    }
+}
@@ -0,0 +1,201 @@
+package com.beancount.jdbc.schema;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Immutable column of nullable decimals stored as unscaled {@code long}s with a per-value scale.
+ *
+ * <p>Ledger amounts have at most a handful of fraction digits, so nearly every value fits 18
+ * digits and costs nine bytes here instead of a {@link BigDecimal}. Values that do not fit (or
+ * have a negative scale) keep their {@link BigDecimal} in a side array that is only allocated
+ * when such a value exists. {@link #get} returns a value equal in value and scale to the source,
+ * and {@link #addTo} feeds a {@link DecimalSum} without materializing anything.</p>
+ *
+ * <p>The column also keeps every compact value aligned to the largest scale in the column, so
+ * {@link #sumByGroup} can add plain longs with {@link ColumnKernels} whenever the largest aligned
+ * magnitude times the row count fits a long, i.e. whenever no partial sum can overflow.</p>
+ */
+public final class DecimalColumn {
+    private static final byte NULL = -1;
+    private static final byte ESCAPED = -2;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private final long[] unscaled;
+    private final byte[] scales;
+    private final BigDecimal[] escaped;
+    private final int alignedScale;
+    private final long[] aligned;
+    private final boolean safeToSum;
+    private final boolean allAtAlignedScale;
+    private final int compactCount;
+
+    private DecimalColumn(long[] unscaled, byte[] scales, BigDecimal[] escaped) {
+        this.unscaled = unscaled;
+        this.scales = scales;
+        this.escaped = escaped;
+        int maxScale = 0;
+        int compact = 0;
+        for (byte scale : scales) {
+            if (scale >= 0) {
+                maxScale = Math.max(maxScale, scale);
+                compact++;
+            }
+        }
+        this.alignedScale = maxScale;
+        this.compactCount = compact;
+        this.aligned = align(unscaled, scales, maxScale);
+        boolean uniform = compact == scales.length;
+        long maxAbs = 0;
+        if (aligned != null) {
+            for (int i = 0; i < scales.length; i++) {
+                uniform &= scales[i] == maxScale;
+                maxAbs = Math.max(maxAbs, Math.abs(aligned[i]));
+            }
+        }
+        this.allAtAlignedScale = uniform;
+        this.safeToSum = aligned != null && (maxAbs == 0 || maxAbs <= Long.MAX_VALUE / scales.length);
+    }
+
+    public static <T> DecimalColumn of(List<T> records, Function<? super T, BigDecimal> getter) {
+        Objects.requireNonNull(records, "records");
+        Objects.requireNonNull(getter, "getter");
+        int size = records.size();
+        long[] unscaled = new long[size];
+        byte[] scales = new byte[size];
+        BigDecimal[] escaped = null;
+        for (int i = 0; i < size; i++) {
+            BigDecimal value = getter.apply(records.get(i));
+            if (value == null) {
+                scales[i] = NULL;
+            } else if (value.scale() >= 0 && value.scale() <= Byte.MAX_VALUE && value.precision() <= 18) {
+                unscaled[i] = value.unscaledValue().longValue();
+                scales[i] = (byte) value.scale();
+            } else {
+                if (escaped == null) {
+                    escaped = new BigDecimal[size];
+                }
+                escaped[i] = value;
+                scales[i] = ESCAPED;
+            }
+        }
+        return new DecimalColumn(unscaled, scales, escaped);
+    }
+
+    public int size() {
+        return scales.length;
+    }
+
+    public BigDecimal get(int index) {
+        byte scale = scales[index];
+        if (scale == NULL) {
+            return null;
+        }
+        return scale == ESCAPED ? escaped[index] : BigDecimal.valueOf(unscaled[index], scale);
+    }
+
+    /**
+     * Exact {@code SUM} of every group: element {@code g} has the value and scale of folding
+     * {@link BigDecimal#add} from {@link BigDecimal#ZERO} over the non-null values of group
+     * {@code g}, or is {@code null} if the group has none.
+     */
+    public BigDecimal[] sumByGroup(GroupIds groups, ColumnKernels kernels) {
+        int count = groups.count();
+        BigDecimal[] result = new BigDecimal[count];
+        if (!safeToSum) {
+            DecimalSum[] sums = new DecimalSum[count];
+            for (int group = 0; group < count; group++) {
+                sums[group] = new DecimalSum();
+            }
+            for (int row = 0; row < scales.length; row++) {
+                addTo(row, sums[groups.groupOf(row)]);
+            }
+            for (int group = 0; group < count; group++) {
+                result[group] = sums[group].isEmpty() ? null : sums[group].toBigDecimal();
+            }
+            return result;
+        }
+        int[] ids = groups.ids();
+        long[] sums = new long[count];
+        int[] resultScales = new int[count];
+        if (ids == null) {
+            sums[0] = kernels.sum(aligned);
+            resultScales[0] = compactCount > 0 ? alignedScale : -1;
+        } else {
+            kernels.sumByGroup(aligned, ids, sums);
+            if (allAtAlignedScale) {
+                Arrays.fill(resultScales, alignedScale);
+            } else {
+                // Null and escaped markers are negative and never raise a group's scale.
+                Arrays.fill(resultScales, -1);
+                for (int row = 0; row < ids.length; row++) {
+                    if (scales[row] > resultScales[ids[row]]) {
+                        resultScales[ids[row]] = scales[row];
+                    }
+                }
+            }
+        }
+        for (int group = 0; group < count; group++) {
+            if (resultScales[group] >= 0) {
+                result[group] =
+                        BigDecimal.valueOf(sums[group], alignedScale)
+                                .setScale(resultScales[group], RoundingMode.UNNECESSARY);
+            }
+        }
+        if (escaped != null) {
+            for (int row = 0; row < scales.length; row++) {
+                if (scales[row] == ESCAPED) {
+                    int group = groups.groupOf(row);
+                    BigDecimal base = result[group] == null ? BigDecimal.ZERO : result[group];
+                    result[group] = base.add(escaped[row]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Adds the value at {@code index} to {@code sum}; a null value leaves it untouched. */
+    public void addTo(int index, DecimalSum sum) {
+        byte scale = scales[index];
+        if (scale >= 0) {
+            sum.add(unscaled[index], scale);
+        } else if (scale == ESCAPED) {
+            sum.add(escaped[index]);
+        }
+    }
+
+    /** Compact values rescaled to {@code scale}, or {@code null} if one of them would not fit. */
+    private static long[] align(long[] unscaled, byte[] scales, int scale) {
+        long[] aligned = new long[scales.length];
+        for (int i = 0; i < scales.length; i++) {
+            if (scales[i] < 0) {
+                continue;
+            }
+            int shift = scale - scales[i];
+            if (shift >= POWERS_OF_TEN.length) {
+                return null;
+            }
+            try {
+                aligned[i] = Math.multiplyExact(unscaled[i], POWERS_OF_TEN[shift]);
+            } catch (ArithmeticException e) {
+                return null;
+            }
+            if (aligned[i] == Long.MIN_VALUE) {
+                return null;
+            }
+        }
+        return aligned;
+    }
+}
@@ -0,0 +1,85 @@
+package com.beancount.jdbc.schema;
+
+import java.math.BigDecimal;
+
+/**
+ * Exact running sum of decimals held as an unscaled {@code long} and a scale.
+ *
+ * <p>The result has the value and scale of folding {@link BigDecimal#add} over the same amounts
+ * starting from {@link BigDecimal#ZERO}, which is how Calcite's {@code SUM} accumulates decimals.
+ * Amounts are added without allocating until the long would overflow or two scales cannot be
+ * aligned in 18 digits; from then on the sum continues as a {@link BigDecimal}.</p>
+ */
+public final class DecimalSum {
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private long unscaled;
+    private int scale;
+    private BigDecimal overflow;
+    private boolean empty = true;
+
+    /** Adds {@code value}; {@code null} is ignored, like SQL aggregates ignore nulls. */
+    public void add(BigDecimal value) {
+        if (value == null) {
+            return;
+        }
+        if (overflow == null && value.precision() <= 18) {
+            add(value.unscaledValue().longValue(), value.scale());
+        } else {
+            addBig(value);
+        }
+    }
+
+    /** Adds {@code unscaledValue * 10^-valueScale}. */
+    public void add(long unscaledValue, int valueScale) {
+        empty = false;
+        if (overflow == null) {
+            try {
+                if (valueScale == scale) {
+                    unscaled = Math.addExact(unscaled, unscaledValue);
+                } else if (valueScale > scale) {
+                    unscaled = Math.addExact(Math.multiplyExact(unscaled, pow10(valueScale - scale)), unscaledValue);
+                    scale = valueScale;
+                } else {
+                    unscaled = Math.addExact(unscaled, Math.multiplyExact(unscaledValue, pow10(scale - valueScale)));
+                }
+                return;
+            } catch (ArithmeticException e) {
+                // Fall through to BigDecimal; the compact state above is unchanged on overflow.
+            }
+        }
+        addBig(BigDecimal.valueOf(unscaledValue, valueScale));
+    }
+
+    /** Whether no non-null amount has been added, i.e. whether SQL {@code SUM} would be null. */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /** The exact sum; {@link BigDecimal#ZERO} when {@link #isEmpty()}. */
+    public BigDecimal toBigDecimal() {
+        return overflow != null ? overflow : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private void addBig(BigDecimal value) {
+        empty = false;
+        if (overflow == null) {
+            overflow = BigDecimal.valueOf(unscaled, scale);
+        }
+        overflow = overflow.add(value);
+    }
+
+    private static long pow10(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("scale difference too large");
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+}
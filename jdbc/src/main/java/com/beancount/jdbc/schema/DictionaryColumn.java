@@ -0,0 +1,66 @@
+package com.beancount.jdbc.schema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Immutable dictionary-coded column: each row holds the int code of its value, and codes are
+ * assigned in order of first appearance, {@code null} included.
+ *
+ * <p>Grouping on codes replaces hashing and comparing the values of every row with array
+ * indexing; accounts and currencies repeat so much that the dictionary stays small.</p>
+ */
+public final class DictionaryColumn {
+    private final int[] codes;
+    private final List<Object> values;
+
+    private DictionaryColumn(int[] codes, List<Object> values) {
+        this.codes = codes;
+        this.values = values;
+    }
+
+    public static <T> DictionaryColumn of(List<T> records, Function<? super T, ?> getter) {
+        Objects.requireNonNull(records, "records");
+        Objects.requireNonNull(getter, "getter");
+        int[] codes = new int[records.size()];
+        Map<Object, Integer> dictionary = new HashMap<>();
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            Object value = getter.apply(records.get(i));
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = values.size();
+                dictionary.put(value, code);
+                values.add(value);
+            }
+            codes[i] = code;
+        }
+        return new DictionaryColumn(codes, values);
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /** Number of distinct values, which bounds every code. */
+    public int cardinality() {
+        return values.size();
+    }
+
+    public int code(int row) {
+        return codes[row];
+    }
+
+    public Object value(int code) {
+        return values.get(code);
+    }
+
+    /** The codes of all rows. The array is shared and must not be modified. */
+    int[] codes() {
+        return codes;
+    }
+}
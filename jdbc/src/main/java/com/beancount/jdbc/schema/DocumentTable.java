@@ -28,11 +28,15 @@ public final class DocumentTable {
     public static List<Object[]> materializeDetailRows(List<DocumentRecord> records) {
         List<Object[]> rows = new ArrayList<>(records.size());
         for (DocumentRecord record : records) {
-            rows.add(new Object[] {record.getEntryId(), record.getAccount(), record.getFilename()});
+            rows.add(toDetailRow(record));
         }
         return rows;
     }
 
+    public static Object[] toDetailRow(DocumentRecord record) {
+        return new Object[] {record.getEntryId(), record.getAccount(), record.getFilename()};
+    }
+
     public static List<Object[]> materializeViewRows(List<Object[]> entryRows, List<Object[]> detailRows) {
         Map<Integer, Object[]> entryById = new HashMap<>();
         for (Object[] entry : entryRows) {
@@ -63,7 +67,7 @@ public final class DocumentTable {
         columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
         columns.add(new ColumnDescriptor("account", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
         columns.add(new ColumnDescriptor("filenam", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
-        return new TableDefinition(DETAIL_NAME, "TABLE", "Document directives", columns);
+        return new TableDefinition(DETAIL_NAME, "TABLE", "Document directives", columns, List.of("id"), List.of());
     }
 
     private static TableDefinition createViewDefinition() {
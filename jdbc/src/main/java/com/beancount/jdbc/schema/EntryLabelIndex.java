@@ -0,0 +1,157 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.TransactionPayload;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The tags or the links of the transactions, one row per entry id and label, with an
+ * {@link IdBitmap} of the entry ids carrying each label.
+ *
+ * <p>Labels are read from the comma-joined {@link TransactionPayload} strings, so a row per label
+ * of the {@code tags} or {@code links} column in the order that column lists them. Rows are sorted
+ * by entry id, and the rows of one id are found by an offset array indexed by id.</p>
+ */
+public final class EntryLabelIndex {
+    private static final EntryLabelIndex EMPTY =
+            new EntryLabelIndex(new int[] {0}, new int[0], new int[0], new String[0], Map.of(), new IdBitmap[0]);
+
+    /** Rows of id {@code i} are {@code [offsets[i], offsets[i + 1])}. */
+    private final int[] offsets;
+    private final int[] ids;
+    private final int[] codes;
+    private final String[] labels;
+    private final Map<String, Integer> codesByLabel;
+    private final IdBitmap[] idsByCode;
+
+    private EntryLabelIndex(
+            int[] offsets,
+            int[] ids,
+            int[] codes,
+            String[] labels,
+            Map<String, Integer> codesByLabel,
+            IdBitmap[] idsByCode) {
+        this.offsets = offsets;
+        this.ids = ids;
+        this.codes = codes;
+        this.labels = labels;
+        this.codesByLabel = codesByLabel;
+        this.idsByCode = idsByCode;
+    }
+
+    /** Tags of the transactions among {@code entries}. */
+    public static EntryLabelIndex tags(List<LedgerEntry> entries) {
+        return of(entries, TransactionPayload::getTags);
+    }
+
+    /** Links of the transactions among {@code entries}. */
+    public static EntryLabelIndex links(List<LedgerEntry> entries) {
+        return of(entries, TransactionPayload::getLinks);
+    }
+
+    private static EntryLabelIndex of(List<LedgerEntry> entries, Function<TransactionPayload, String> column) {
+        Objects.requireNonNull(entries, "entries");
+        LedgerEntry[] byId = new LedgerEntry[0];
+        int maxId = -1;
+        for (LedgerEntry entry : entries) {
+            if (entry.getTransactionPayload() == null || entry.getId() < 0) {
+                continue;
+            }
+            if (entry.getId() >= byId.length) {
+                byId = Arrays.copyOf(byId, Math.max(entry.getId() + 1, byId.length * 2));
+            }
+            byId[entry.getId()] = entry;
+            maxId = Math.max(maxId, entry.getId());
+        }
+        if (maxId < 0) {
+            return EMPTY;
+        }
+        int[] offsets = new int[maxId + 2];
+        List<Integer> rowIds = new ArrayList<>();
+        List<Integer> codes = new ArrayList<>();
+        Map<String, Integer> codesByLabel = new HashMap<>();
+        List<List<Integer>> idsByCode = new ArrayList<>();
+        for (int id = 0; id <= maxId; id++) {
+            offsets[id] = codes.size();
+            LedgerEntry entry = byId[id];
+            String joined = entry == null ? null : column.apply(entry.getTransactionPayload());
+            if (joined == null || joined.isEmpty()) {
+                continue;
+            }
+            for (String label : joined.split(",")) {
+                if (label.isEmpty()) {
+                    continue;
+                }
+                int code = codesByLabel.computeIfAbsent(label, l -> codesByLabel.size());
+                if (code == idsByCode.size()) {
+                    idsByCode.add(new ArrayList<>());
+                }
+                List<Integer> ids = idsByCode.get(code);
+                if (ids.isEmpty() || ids.get(ids.size() - 1) != id) {
+                    ids.add(id);
+                    rowIds.add(id);
+                    codes.add(code);
+                }
+            }
+        }
+        offsets[maxId + 1] = codes.size();
+        String[] labels = new String[codesByLabel.size()];
+        codesByLabel.forEach((label, code) -> labels[code] = label);
+        IdBitmap[] bitmaps = new IdBitmap[idsByCode.size()];
+        for (int code = 0; code < bitmaps.length; code++) {
+            bitmaps[code] = IdBitmap.of(toArray(idsByCode.get(code)));
+        }
+        return new EntryLabelIndex(offsets, toArray(rowIds), toArray(codes), labels, codesByLabel, bitmaps);
+    }
+
+    /** Number of (id, label) rows. */
+    public int size() {
+        return codes.length;
+    }
+
+    /** Entry id of {@code row}. */
+    public int id(int row) {
+        return ids[row];
+    }
+
+    public String label(int row) {
+        return labels[codes[row]];
+    }
+
+    /** Code of {@code label}, or -1 when no transaction carries it. */
+    public int code(String label) {
+        Integer code = label == null ? null : codesByLabel.get(label);
+        return code == null ? -1 : code;
+    }
+
+    /** Label code of {@code row}. */
+    public int code(int row) {
+        return codes[row];
+    }
+
+    /** Entry ids carrying {@code label}; empty when none does. */
+    public IdBitmap ids(String label) {
+        int code = code(label);
+        return code < 0 ? IdBitmap.empty() : idsByCode[code];
+    }
+
+    /** First row of entry {@code id}; equals {@link #endRow} when it has no labels. */
+    public int firstRow(int id) {
+        return offsets[Math.max(0, Math.min(id, offsets.length - 1))];
+    }
+
+    /** Row after the last one of entry {@code id}. */
+    public int endRow(int id) {
+        return id < 0 ? 0 : offsets[Math.min(id + 1, offsets.length - 1)];
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
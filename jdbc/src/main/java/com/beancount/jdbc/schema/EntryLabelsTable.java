@@ -0,0 +1,145 @@
+package com.beancount.jdbc.schema;
+
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The {@code entry_tags(id, tag)} and {@code entry_links(id, link)} tables, one row per tag or
+ * link of a transaction and joinable to {@code entry.id}, and the {@code tagged(tags [, links])}
+ * table function listing the ids of the transactions that carry every given tag and link.
+ *
+ * <p>Rows come from an {@link EntryLabelIndex} in id order, with the labels of one transaction in
+ * the order {@code transactions_detail.tags} and {@code links} list them; those comma-joined
+ * columns are unchanged. {@code tagged} intersects the labels' {@link IdBitmap}s.</p>
+ */
+public final class EntryLabelsTable {
+    public static final String TAGS_NAME = "entry_tags";
+    public static final String LINKS_NAME = "entry_links";
+    public static final String TAGGED_NAME = "tagged";
+
+    public static final int ID = 0;
+    public static final int LABEL = 1;
+
+    private static final TableDefinition TAGS_DEFINITION =
+            createDefinition(TAGS_NAME, "tag", "Tags of transactions, one row per tag");
+    private static final TableDefinition LINKS_DEFINITION =
+            createDefinition(LINKS_NAME, "link", "Links of transactions, one row per link");
+    private static final TableDefinition TAGGED_DEFINITION = createTaggedDefinition();
+
+    private EntryLabelsTable() {}
+
+    public static TableDefinition getTagsDefinition() {
+        return TAGS_DEFINITION;
+    }
+
+    public static TableDefinition getLinksDefinition() {
+        return LINKS_DEFINITION;
+    }
+
+    public static TableDefinition getTaggedDefinition() {
+        return TAGGED_DEFINITION;
+    }
+
+    /** Rows of {@code index}, built on demand while scanning; {@code subList} keeps that. */
+    public static List<Object[]> lazyRows(EntryLabelIndex index) {
+        return new Rows(index, null);
+    }
+
+    /** Rows of {@code index} at the ascending positions {@code rows}, built on demand. */
+    public static List<Object[]> lazyRows(EntryLabelIndex index, int[] rows) {
+        return new Rows(index, rows);
+    }
+
+    /**
+     * Ids of the transactions carrying all of {@code tags} and all of {@code links}, each a comma
+     * separated list with an optional leading {@code #} or {@code ^} per label; {@code null} or
+     * blank lists add no condition, but at least one label must be given.
+     */
+    public static List<Object[]> taggedRows(
+            EntryLabelIndex tagIndex, EntryLabelIndex linkIndex, String tags, String links) {
+        List<String> tagLabels = labels(tags, '#');
+        List<String> linkLabels = labels(links, '^');
+        if (tagLabels.isEmpty() && linkLabels.isEmpty()) {
+            throw new IllegalArgumentException(TAGGED_NAME + " needs at least one tag or link");
+        }
+        IdBitmap ids = null;
+        for (String tag : tagLabels) {
+            ids = ids == null ? tagIndex.ids(tag) : ids.and(tagIndex.ids(tag));
+        }
+        for (String link : linkLabels) {
+            ids = ids == null ? linkIndex.ids(link) : ids.and(linkIndex.ids(link));
+        }
+        int[] matches = ids.toArray();
+        List<Object[]> rows = new ArrayList<>(matches.length);
+        for (int id : matches) {
+            rows.add(new Object[] {id});
+        }
+        return rows;
+    }
+
+    private static List<String> labels(String list, char sigil) {
+        List<String> labels = new ArrayList<>();
+        if (list == null) {
+            return labels;
+        }
+        for (String part : list.split(",")) {
+            String label = part.trim();
+            if (!label.isEmpty() && label.charAt(0) == sigil) {
+                label = label.substring(1);
+            }
+            if (!label.isEmpty() && !labels.contains(label)) {
+                labels.add(label);
+            }
+        }
+        return labels;
+    }
+
+    private static TableDefinition createDefinition(String name, String labelColumn, String description) {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        columns.add(new ColumnDescriptor(labelColumn, Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        return new TableDefinition(
+                name,
+                "TABLE",
+                description,
+                columns,
+                List.of("id", labelColumn),
+                List.of(new IndexDefinition(name + "_" + labelColumn + "_idx", false, List.of(labelColumn))));
+    }
+
+    private static TableDefinition createTaggedDefinition() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        return new TableDefinition(
+                TAGGED_NAME,
+                "TABLE FUNCTION",
+                "Ids of transactions carrying every given tag and link",
+                columns,
+                List.of("id"),
+                List.of());
+    }
+
+    private static final class Rows extends AbstractList<Object[]> implements RandomAccess {
+        private final EntryLabelIndex index;
+        private final int[] rows;
+
+        Rows(EntryLabelIndex index, int[] rows) {
+            this.index = index;
+            this.rows = rows;
+        }
+
+        @Override
+        public Object[] get(int position) {
+            int row = rows == null ? position : rows[position];
+            return new Object[] {index.id(row), index.label(row)};
+        }
+
+        @Override
+        public int size() {
+            return rows == null ? index.size() : rows.length;
+        }
+    }
+}
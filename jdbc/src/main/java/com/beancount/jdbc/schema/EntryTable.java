@@ -23,18 +23,26 @@ public final class EntryTable {
     public static List<Object[]> materializeRows(List<LedgerEntry> entries) {
         List<Object[]> rows = new ArrayList<>(entries.size());
         for (LedgerEntry entry : entries) {
-            rows.add(
-                    new Object[] {
-                        entry.getId(),
-                        toEpochDay(entry.getDate()),
-                        entry.getType(),
-                        entry.getSourceFilename(),
-                        entry.getSourceLineno()
-                    });
+            rows.add(toRow(entry));
         }
         return rows;
     }
 
+    /** Same rows as {@link #materializeRows}, built on demand while scanning. */
+    public static List<Object[]> lazyRows(List<LedgerEntry> entries) {
+        return LazyRows.of(entries, EntryTable::toRow);
+    }
+
+    private static Object[] toRow(LedgerEntry entry) {
+        return new Object[] {
+            entry.getId(),
+            toEpochDay(entry.getDate()),
+            entry.getType(),
+            entry.getSourceFilename(),
+            entry.getSourceLineno()
+        };
+    }
+
     private static int toEpochDay(java.time.LocalDate date) {
         return Math.toIntExact(date.toEpochDay());
     }
@@ -68,6 +76,13 @@ public final class EntryTable {
                         0,
                         true,
                         Integer.class.getName()));
-        return new TableDefinition(NAME, "TABLE", "Common entry data", columns);
+        // Entries are materialized in ledger order, so they are clustered by date.
+        return new TableDefinition(
+                NAME,
+                "TABLE",
+                "Common entry data",
+                columns,
+                List.of("id"),
+                List.of(new IndexDefinition("entry_date_idx", false, List.of("date"))));
     }
 }
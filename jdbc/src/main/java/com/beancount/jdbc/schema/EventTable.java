@@ -28,11 +28,15 @@ public final class EventTable {
     public static List<Object[]> materializeDetailRows(List<EventRecord> records) {
         List<Object[]> rows = new ArrayList<>(records.size());
         for (EventRecord record : records) {
-            rows.add(new Object[] {record.getEntryId(), record.getType(), record.getDescription()});
+            rows.add(toDetailRow(record));
         }
         return rows;
     }
 
+    public static Object[] toDetailRow(EventRecord record) {
+        return new Object[] {record.getEntryId(), record.getType(), record.getDescription()};
+    }
+
     public static List<Object[]> materializeViewRows(List<Object[]> entryRows, List<Object[]> detailRows) {
         Map<Integer, Object[]> entryById = new HashMap<>();
         for (Object[] entry : entryRows) {
@@ -63,7 +67,7 @@ public final class EventTable {
         columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
         columns.add(new ColumnDescriptor("type", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
         columns.add(new ColumnDescriptor("description", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
-        return new TableDefinition(DETAIL_NAME, "TABLE", "Event directives", columns);
+        return new TableDefinition(DETAIL_NAME, "TABLE", "Event directives", columns, List.of("id"), List.of());
     }
 
     private static TableDefinition createViewDefinition() {
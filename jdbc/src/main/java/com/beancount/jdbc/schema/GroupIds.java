@@ -0,0 +1,120 @@
+package com.beancount.jdbc.schema;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dense group ids for the rows of a table grouped by one or more {@link DictionaryColumn}s.
+ *
+ * <p>Groups are numbered in order of their first row, which is the order a hash aggregate emits
+ * them in. The codes of all key columns are folded into one int per row ({@code id * cardinality
+ * + code}) with {@link ColumnKernels#combine}, renumbering densely whenever the next fold could
+ * exceed {@value #MAX_DIRECT_IDS} ids, and through a hash map only if even the dense ids cannot be
+ * combined directly.</p>
+ */
+public final class GroupIds {
+    private static final int MAX_DIRECT_IDS = 1 << 22;
+
+    private final int rows;
+    private final int[] ids;
+    private final int[] firstRows;
+
+    private GroupIds(int rows, int[] ids, int[] firstRows) {
+        this.rows = rows;
+        this.ids = ids;
+        this.firstRows = firstRows;
+    }
+
+    /**
+     * One group holding every row, as for an aggregate without {@code GROUP BY}; like SQL, the
+     * group exists even when the table is empty.
+     */
+    public static GroupIds all(int rows) {
+        return new GroupIds(rows, null, new int[] {0});
+    }
+
+    public static GroupIds of(ColumnKernels kernels, DictionaryColumn... keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("at least one key column is required");
+        }
+        int[] ids = keys[0].codes().clone();
+        long cardinality = keys[0].cardinality();
+        for (int k = 1; k < keys.length; k++) {
+            int radix = keys[k].cardinality();
+            if (cardinality * radix > MAX_DIRECT_IDS) {
+                cardinality = renumber(ids, (int) cardinality).length;
+            }
+            if (cardinality * radix > MAX_DIRECT_IDS) {
+                cardinality = combineHashed(ids, keys[k].codes(), radix);
+            } else {
+                kernels.combine(ids, keys[k].codes(), radix);
+                cardinality *= radix;
+            }
+        }
+        return new GroupIds(ids.length, ids, renumber(ids, (int) cardinality));
+    }
+
+    public int count() {
+        return firstRows.length;
+    }
+
+    /** Rows of the table; a row's key values can be read from the first row of its group. */
+    public int firstRow(int group) {
+        return firstRows[group];
+    }
+
+    /** Group of every row, or {@code null} for {@link #all}. Shared; must not be modified. */
+    int[] ids() {
+        return ids;
+    }
+
+    public int groupOf(int row) {
+        return ids == null ? 0 : ids[row];
+    }
+
+    /** Rows per group. */
+    public long[] sizes() {
+        long[] sizes = new long[count()];
+        if (ids == null) {
+            sizes[0] = rows;
+            return sizes;
+        }
+        for (int id : ids) {
+            sizes[id]++;
+        }
+        return sizes;
+    }
+
+    /** Renumbers {@code ids} (all below {@code bound}) by first appearance; returns first rows. */
+    private static int[] renumber(int[] ids, int bound) {
+        int[] dense = new int[bound];
+        Arrays.fill(dense, -1);
+        int[] firstRows = new int[Math.min(bound, ids.length)];
+        int count = 0;
+        for (int row = 0; row < ids.length; row++) {
+            int id = dense[ids[row]];
+            if (id < 0) {
+                id = count++;
+                dense[ids[row]] = id;
+                firstRows[id] = row;
+            }
+            ids[row] = id;
+        }
+        return Arrays.copyOf(firstRows, count);
+    }
+
+    private static long combineHashed(int[] ids, int[] codes, int radix) {
+        Map<Long, Integer> dense = new HashMap<>();
+        for (int row = 0; row < ids.length; row++) {
+            long key = (long) ids[row] * radix + codes[row];
+            Integer id = dense.get(key);
+            if (id == null) {
+                id = dense.size();
+                dense.put(key, id);
+            }
+            ids[row] = id;
+        }
+        return dense.size();
+    }
+}
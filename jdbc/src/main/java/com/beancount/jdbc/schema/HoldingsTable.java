@@ -0,0 +1,75 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.LotHistory;
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@code holdings(as_of)} table function: the lots of {@link LotsTable} open at the end of
+ * {@code as_of}, summed per account, currency and cost currency.
+ *
+ * <p>{@code book_value} adds up quantity times cost number over the lots that have a cost number
+ * and is {@code NULL} when none has. Rows are ordered by account, currency and cost currency.</p>
+ */
+public final class HoldingsTable {
+    public static final String NAME = "holdings";
+
+    private static final TableDefinition DEFINITION = createDefinition();
+
+    private static final Comparator<Key> KEY_ORDER =
+            Comparator.comparing(Key::account)
+                    .thenComparing(Key::currency)
+                    .thenComparing(Key::costCurrency, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private record Key(String account, String currency, String costCurrency) {}
+
+    private HoldingsTable() {}
+
+    public static TableDefinition getDefinition() {
+        return DEFINITION;
+    }
+
+    /** Holdings at the end of {@code asOf}, or at the end of the ledger when it is {@code null}. */
+    public static List<Object[]> rows(LotHistory history, LocalDate asOf) {
+        Map<Key, Object[]> holdings = new TreeMap<>(KEY_ORDER);
+        for (int version : history.openAt(asOf)) {
+            int lot = history.lot(version);
+            Key key = new Key(history.account(lot), history.currency(lot), history.costCurrency(lot));
+            Object[] row =
+                    holdings.computeIfAbsent(
+                            key,
+                            k -> new Object[] {k.account(), k.currency(), k.costCurrency(), BigDecimal.ZERO, null, 0});
+            BigDecimal quantity = history.quantity(version);
+            row[3] = ((BigDecimal) row[3]).add(quantity);
+            if (history.costNumber(lot) != null) {
+                BigDecimal value = quantity.multiply(history.costNumber(lot));
+                row[4] = row[4] == null ? value : ((BigDecimal) row[4]).add(value);
+            }
+            row[5] = (Integer) row[5] + 1;
+        }
+        return new ArrayList<>(holdings.values());
+    }
+
+    private static TableDefinition createDefinition() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("account", Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("currency", Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("cost_currency", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
+        columns.add(new ColumnDescriptor("quantity", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, false, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("book_value", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("lots", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        return new TableDefinition(
+                NAME,
+                "TABLE FUNCTION",
+                "Lots held at cost open at the end of a date, per account, currency and cost currency",
+                columns,
+                List.of("account", "currency", "cost_currency"),
+                List.of());
+    }
+}
@@ -0,0 +1,221 @@
+package com.beancount.jdbc.schema;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of non-negative ids, kept as a sorted array while it is sparse and as a bitmap
+ * of 64-bit words once an id costs fewer bits there than the 32 of an array slot.
+ *
+ * <p>That is the container choice of compressed bitmaps such as Roaring with one container for the
+ * whole id range, which is enough for entry ids: a tag used by a handful of transactions costs a
+ * few ints and one used by most of them an eighth of a byte per entry. {@link #and} and {@link #or}
+ * merge arrays, probe an array against words, or combine words, whichever the operands are.</p>
+ */
+public final class IdBitmap {
+    private static final IdBitmap EMPTY = new IdBitmap(new int[0], null, 0);
+
+    /** Ascending ids of a sparse set, {@code null} for a dense one. */
+    private final int[] ids;
+    /** Bit {@code id % 64} of word {@code id / 64} per id of a dense set, {@code null} for a sparse one. */
+    private final long[] words;
+    private final int cardinality;
+
+    private IdBitmap(int[] ids, long[] words, int cardinality) {
+        this.ids = ids;
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    public static IdBitmap empty() {
+        return EMPTY;
+    }
+
+    /** The set of {@code ascendingIds}, which must be distinct, non-negative and in order. */
+    public static IdBitmap of(int[] ascendingIds) {
+        int count = ascendingIds.length;
+        if (count == 0) {
+            return EMPTY;
+        }
+        for (int i = 0; i < count; i++) {
+            if (ascendingIds[i] < 0 || (i > 0 && ascendingIds[i] <= ascendingIds[i - 1])) {
+                throw new IllegalArgumentException("Ids must be non-negative and strictly ascending");
+            }
+        }
+        return sparse(ascendingIds.clone(), count);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        if (words == null) {
+            return Arrays.binarySearch(ids, 0, cardinality, id) >= 0;
+        }
+        int word = id >>> 6;
+        return word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    /** Ids in both sets. */
+    public IdBitmap and(IdBitmap other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        if (words == null && other.words == null) {
+            return intersectSorted(ids, cardinality, other.ids, other.cardinality);
+        }
+        if (words == null || other.words == null) {
+            IdBitmap sparse = words == null ? this : other;
+            IdBitmap dense = words == null ? other : this;
+            int[] kept = new int[sparse.cardinality];
+            int count = 0;
+            for (int i = 0; i < sparse.cardinality; i++) {
+                if (dense.contains(sparse.ids[i])) {
+                    kept[count++] = sparse.ids[i];
+                }
+            }
+            return count == 0 ? EMPTY : new IdBitmap(kept, null, count);
+        }
+        long[] result = new long[Math.min(words.length, other.words.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        return fromWords(result);
+    }
+
+    /** Ids in either set. */
+    public IdBitmap or(IdBitmap other) {
+        if (isEmpty()) {
+            return other;
+        }
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (words == null && other.words == null) {
+            return unionSorted(ids, cardinality, other.ids, other.cardinality);
+        }
+        long[] result = new long[Math.max(wordCount(), other.wordCount())];
+        orInto(result);
+        other.orInto(result);
+        return fromWords(result);
+    }
+
+    /** The ids in ascending order. */
+    public int[] toArray() {
+        if (words == null) {
+            return Arrays.copyOf(ids, cardinality);
+        }
+        int[] result = new int[cardinality];
+        int count = 0;
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                result[count++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return result;
+    }
+
+    /** Whether the set is held as words; for tests and benchmarks. */
+    boolean isDense() {
+        return words != null;
+    }
+
+    private int wordCount() {
+        return words != null ? words.length : (ids[cardinality - 1] >>> 6) + 1;
+    }
+
+    private void orInto(long[] target) {
+        if (words != null) {
+            for (int i = 0; i < words.length; i++) {
+                target[i] |= words[i];
+            }
+        } else {
+            for (int i = 0; i < cardinality; i++) {
+                target[ids[i] >>> 6] |= 1L << ids[i];
+            }
+        }
+    }
+
+    /** A set of {@code count} ascending ids, switched to words when that is smaller. */
+    private static IdBitmap sparse(int[] ids, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        int wordCount = (ids[count - 1] >>> 6) + 1;
+        // An array slot is 32 bits and a word holds 64 ids.
+        if ((long) count * 32 <= (long) wordCount * 64) {
+            return new IdBitmap(ids, null, count);
+        }
+        long[] words = new long[wordCount];
+        for (int i = 0; i < count; i++) {
+            words[ids[i] >>> 6] |= 1L << ids[i];
+        }
+        return new IdBitmap(null, words, count);
+    }
+
+    private static IdBitmap fromWords(long[] words) {
+        int cardinality = 0;
+        int last = -1;
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0) {
+                cardinality += Long.bitCount(words[i]);
+                last = i;
+            }
+        }
+        if (cardinality == 0) {
+            return EMPTY;
+        }
+        IdBitmap dense = new IdBitmap(null, Arrays.copyOf(words, last + 1), cardinality);
+        if ((long) cardinality * 32 > (long) (last + 1) * 64) {
+            return dense;
+        }
+        return new IdBitmap(dense.toArray(), null, cardinality);
+    }
+
+    private static IdBitmap intersectSorted(int[] left, int leftCount, int[] right, int rightCount) {
+        int[] result = new int[Math.min(leftCount, rightCount)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < leftCount && j < rightCount) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return count == 0 ? EMPTY : new IdBitmap(result, null, count);
+    }
+
+    private static IdBitmap unionSorted(int[] left, int leftCount, int[] right, int rightCount) {
+        int[] result = new int[leftCount + rightCount];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < leftCount || j < rightCount) {
+            if (j >= rightCount || (i < leftCount && left[i] < right[j])) {
+                result[count++] = left[i++];
+            } else if (i >= leftCount || right[j] < left[i]) {
+                result[count++] = right[j++];
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return sparse(result, count);
+    }
+}
@@ -0,0 +1,29 @@
+package com.beancount.jdbc.schema;
+
+import java.util.List;
+import java.util.Objects;
+
+/** Describes an access path over a table, published through {@code DatabaseMetaData#getIndexInfo}. */
+public final class IndexDefinition {
+    private final String name;
+    private final boolean unique;
+    private final List<String> columns;
+
+    public IndexDefinition(String name, boolean unique, List<String> columns) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.unique = unique;
+        this.columns = List.copyOf(columns);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,40 @@
+package com.beancount.jdbc.schema;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * Read-only row view over ledger records that builds each {@code Object[]} only when it is read.
+ *
+ * <p>Tables backed by this view keep a single reference per record instead of a fully
+ * materialized copy of every row, and scans that stop early (LIMIT, {@code setMaxRows}) never
+ * build the rows they skip.</p>
+ */
+public final class LazyRows<T> extends AbstractList<Object[]> implements RandomAccess {
+    private final List<T> records;
+    private final Function<? super T, Object[]> mapper;
+
+    private LazyRows(List<T> records, Function<? super T, Object[]> mapper) {
+        this.records = records;
+        this.mapper = mapper;
+    }
+
+    public static <T> List<Object[]> of(List<T> records, Function<? super T, Object[]> mapper) {
+        Objects.requireNonNull(records, "records");
+        Objects.requireNonNull(mapper, "mapper");
+        return new LazyRows<>(records, mapper);
+    }
+
+    @Override
+    public Object[] get(int index) {
+        return mapper.apply(records.get(index));
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+}
@@ -0,0 +1,74 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.LotHistory;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code lots(as_of)} table function: one row per lot held at cost that is open at the end of
+ * {@code as_of}, with the quantity it then held and its cost.
+ *
+ * <p>Rows come from the {@link LotHistory} recorded while booking, so they reflect exactly the lots
+ * reductions were booked against. Lots are listed in the order they were opened; {@code lot_id}
+ * identifies a lot across dates.</p>
+ */
+public final class LotsTable {
+    public static final String NAME = "lots";
+
+    private static final TableDefinition DEFINITION = createDefinition();
+
+    private LotsTable() {}
+
+    public static TableDefinition getDefinition() {
+        return DEFINITION;
+    }
+
+    /** Open lots at the end of {@code asOf}, or at the end of the ledger when it is {@code null}. */
+    public static List<Object[]> rows(LotHistory history, LocalDate asOf) {
+        int[] open = history.openAt(asOf);
+        List<Object[]> rows = new ArrayList<>(open.length);
+        for (int version : open) {
+            int lot = history.lot(version);
+            BigDecimal quantity = history.quantity(version);
+            BigDecimal costNumber = history.costNumber(lot);
+            LocalDate costDate = history.costDate(lot);
+            rows.add(
+                    new Object[] {
+                        lot,
+                        history.account(lot),
+                        history.currency(lot),
+                        quantity,
+                        costNumber,
+                        history.costCurrency(lot),
+                        costDate == null ? null : Math.toIntExact(costDate.toEpochDay()),
+                        history.costLabel(lot),
+                        costNumber == null ? null : quantity.multiply(costNumber)
+                    });
+        }
+        return rows;
+    }
+
+    private static TableDefinition createDefinition() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("lot_id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        columns.add(new ColumnDescriptor("account", Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("currency", Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("quantity", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, false, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("cost_number", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("cost_currency", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
+        columns.add(new ColumnDescriptor("cost_date", Types.DATE, "DATE", 0, 0, true, Date.class.getName()));
+        columns.add(new ColumnDescriptor("cost_label", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
+        columns.add(new ColumnDescriptor("book_value", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
+        return new TableDefinition(
+                NAME,
+                "TABLE FUNCTION",
+                "Lots held at cost open at the end of a date",
+                columns,
+                List.of("lot_id"),
+                List.of());
+    }
+}
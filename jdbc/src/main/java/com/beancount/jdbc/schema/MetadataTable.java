@@ -0,0 +1,88 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.MetadataStore;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The {@code entry_meta(id, key, value)} and {@code posting_meta(posting_id, key, value)} tables:
+ * one row per metadata key of a transaction or posting, joinable to {@code entry.id} and
+ * {@code postings.posting_id}.
+ *
+ * <p>Entry rows include the keys in effect through {@code pushmeta}. A posting booked into several
+ * lots carries its metadata on each of the booked postings. Rows come from a {@link MetadataStore}
+ * in id order; {@code value} is {@code NULL} for a key written without one.</p>
+ */
+public final class MetadataTable {
+    public static final String ENTRY_NAME = "entry_meta";
+    public static final String POSTING_NAME = "posting_meta";
+
+    public static final int ID = 0;
+    public static final int KEY = 1;
+    public static final int VALUE = 2;
+
+    private static final TableDefinition ENTRY_DEFINITION =
+            createDefinition(ENTRY_NAME, "id", "Metadata of transactions, one row per key");
+    private static final TableDefinition POSTING_DEFINITION =
+            createDefinition(POSTING_NAME, "posting_id", "Metadata of postings, one row per key");
+
+    private MetadataTable() {}
+
+    public static TableDefinition getEntryDefinition() {
+        return ENTRY_DEFINITION;
+    }
+
+    public static TableDefinition getPostingDefinition() {
+        return POSTING_DEFINITION;
+    }
+
+    /** Rows of {@code store}, built on demand while scanning; {@code subList} keeps that. */
+    public static List<Object[]> lazyRows(MetadataStore store) {
+        return new Rows(store, null);
+    }
+
+    /** Rows of {@code store} at the ascending positions {@code rows}, built on demand. */
+    public static List<Object[]> lazyRows(MetadataStore store, int[] rows) {
+        return new Rows(store, rows);
+    }
+
+    private static TableDefinition createDefinition(String name, String idColumn, String description) {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor(idColumn, Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        columns.add(new ColumnDescriptor("key", Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("value", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
+        return new TableDefinition(
+                name,
+                "TABLE",
+                description,
+                columns,
+                List.of(),
+                List.of(
+                        new IndexDefinition(name + "_id_idx", false, List.of(idColumn)),
+                        new IndexDefinition(name + "_key_value_idx", false, List.of("key", "value"))));
+    }
+
+    private static final class Rows extends AbstractList<Object[]> implements RandomAccess {
+        private final MetadataStore store;
+        private final int[] rows;
+
+        Rows(MetadataStore store, int[] rows) {
+            this.store = store;
+            this.rows = rows;
+        }
+
+        @Override
+        public Object[] get(int index) {
+            int row = rows == null ? index : rows[index];
+            return new Object[] {store.id(row), store.key(row), store.value(row)};
+        }
+
+        @Override
+        public int size() {
+            return rows == null ? store.size() : rows.length;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import com.beancount.jdbc.ledger.PriceIndex;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * The {@code networth(interval, currency [, account_prefix])} table function: the market value of
+ * the holdings of {@code Assets} and {@code Liabilities}, or of the accounts under
+ * {@code account_prefix}, at the end of every day, week, month, quarter or year, in
+ * {@code currency}.
+ *
+ * <p>Rows are computed in one pass over the postings in date order that keeps a running balance
+ * per currency and, at the end of each period, values every non-zero balance at the price in
+ * effect that day from the {@link PriceIndex}. Periods run from the one holding the first posting
+ * to the one holding the last. Balances of currencies without a price are left out of
+ * {@code value} and listed in {@code unpriced}.</p>
+ */
+public final class NetWorthTable {
+    public static final String NAME = "networth";
+
+    private static final TableDefinition DEFINITION = createDefinition();
+
+    /** Length of the periods, named by the function's {@code interval} argument. */
+    public enum Interval {
+        DAY,
+        WEEK,
+        MONTH,
+        QUARTER,
+        YEAR;
+
+        public static Interval parse(String name) {
+            Objects.requireNonNull(name, "interval");
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Unknown interval '" + name + "', expected one of " + Arrays.toString(values()), e);
+            }
+        }
+
+        /** First day of the period holding {@code date}; weeks start on Monday. */
+        LocalDate start(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+                case QUARTER -> date.with(IsoFields.DAY_OF_QUARTER, 1);
+                case YEAR -> date.withDayOfYear(1);
+            };
+        }
+
+        LocalDate next(LocalDate start) {
+            return switch (this) {
+                case DAY -> start.plusDays(1);
+                case WEEK -> start.plusWeeks(1);
+                case MONTH -> start.plusMonths(1);
+                case QUARTER -> start.plusMonths(3);
+                case YEAR -> start.plusYears(1);
+            };
+        }
+    }
+
+    private NetWorthTable() {}
+
+    public static TableDefinition getDefinition() {
+        return DEFINITION;
+    }
+
+    /**
+     * Net worth per period, with {@code accountPrefix} {@code null} for {@code Assets} and
+     * {@code Liabilities}.
+     */
+    public static List<Object[]> rows(
+            List<PostingRecord> postings,
+            List<LedgerEntry> entries,
+            PriceIndex prices,
+            Interval interval,
+            String currency,
+            String accountPrefix) {
+        Objects.requireNonNull(interval, "interval");
+        Objects.requireNonNull(currency, "currency");
+        Map<String, Boolean> inScope = new HashMap<>();
+        long[] order =
+                DatedPostings.inDateOrder(
+                        postings,
+                        entries,
+                        posting -> posting.getNumber() != null
+                                && posting.getCurrency() != null
+                                && posting.getAccount() != null
+                                && inScope.computeIfAbsent(
+                                        posting.getAccount(), account -> inScope(account, accountPrefix)));
+        if (order.length == 0) {
+            return List.of();
+        }
+        // Sorted so unpriced currencies are listed in a stable order.
+        Map<String, BigDecimal> balances = new TreeMap<>();
+        List<Object[]> rows = new ArrayList<>();
+        LocalDate last = LocalDate.ofEpochDay(DatedPostings.day(order[order.length - 1]));
+        int next = 0;
+        for (LocalDate start = interval.start(LocalDate.ofEpochDay(DatedPostings.day(order[0])));
+                !start.isAfter(last);
+                start = interval.next(start)) {
+            LocalDate end = interval.next(start).minusDays(1);
+            long endDay = end.toEpochDay();
+            while (next < order.length && DatedPostings.day(order[next]) <= endDay) {
+                PostingRecord posting = postings.get(DatedPostings.position(order[next++]));
+                balances.merge(posting.getCurrency(), posting.getNumber(), BigDecimal::add);
+            }
+            BigDecimal value = BigDecimal.ZERO;
+            StringJoiner unpriced = new StringJoiner(",");
+            for (Map.Entry<String, BigDecimal> balance : balances.entrySet()) {
+                if (balance.getValue().signum() == 0) {
+                    continue;
+                }
+                BigDecimal converted = prices.convert(balance.getValue(), balance.getKey(), currency, endDay);
+                if (converted == null) {
+                    unpriced.add(balance.getKey());
+                } else {
+                    value = value.add(converted);
+                }
+            }
+            rows.add(
+                    new Object[] {
+                        Math.toIntExact(start.toEpochDay()),
+                        Math.toIntExact(endDay),
+                        currency,
+                        value,
+                        unpriced.length() == 0 ? null : unpriced.toString()
+                    });
+        }
+        return rows;
+    }
+
+    private static boolean inScope(String account, String accountPrefix) {
+        if (accountPrefix == null) {
+            return DatedPostings.isUnder(account, "Assets") || DatedPostings.isUnder(account, "Liabilities");
+        }
+        return DatedPostings.isUnder(account, accountPrefix);
+    }
+
+    private static TableDefinition createDefinition() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("period_start", Types.DATE, "DATE", 0, 0, false, Date.class.getName()));
+        columns.add(new ColumnDescriptor("period_end", Types.DATE, "DATE", 0, 0, false, Date.class.getName()));
+        columns.add(new ColumnDescriptor("currency", Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("value", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, false, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("unpriced", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
+        return new TableDefinition(
+                NAME,
+                "TABLE FUNCTION",
+                "Market value of the holdings of a set of accounts at the end of each period",
+                columns,
+                List.of("period_start"),
+                List.of());
+    }
+}
@@ -28,11 +28,15 @@ public final class NoteTable {
     public static List<Object[]> materializeDetailRows(List<NoteRecord> records) {
         List<Object[]> rows = new ArrayList<>(records.size());
         for (NoteRecord record : records) {
-            rows.add(new Object[] {record.getEntryId(), record.getAccount(), record.getComment()});
+            rows.add(toDetailRow(record));
         }
         return rows;
     }
 
+    public static Object[] toDetailRow(NoteRecord record) {
+        return new Object[] {record.getEntryId(), record.getAccount(), record.getComment()};
+    }
+
     public static List<Object[]> materializeViewRows(List<Object[]> entryRows, List<Object[]> detailRows) {
         Map<Integer, Object[]> entryById = new HashMap<>();
         for (Object[] entry : entryRows) {
@@ -63,7 +67,7 @@ public final class NoteTable {
         columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
         columns.add(new ColumnDescriptor("account", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
         columns.add(new ColumnDescriptor("comment", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
-        return new TableDefinition(DETAIL_NAME, "TABLE", "Notes directives", columns);
+        return new TableDefinition(DETAIL_NAME, "TABLE", "Notes directives", columns, List.of("id"), List.of());
     }
 
     private static TableDefinition createViewDefinition() {
@@ -28,11 +28,15 @@ public final class OpenTable {
     public static List<Object[]> materializeDetailRows(List<OpenRecord> records) {
         List<Object[]> rows = new ArrayList<>(records.size());
         for (OpenRecord record : records) {
-            rows.add(new Object[] {record.getEntryId(), record.getAccount(), String.join(",", record.getCurrencies())});
+            rows.add(toDetailRow(record));
         }
         return rows;
     }
 
+    public static Object[] toDetailRow(OpenRecord record) {
+        return new Object[] {record.getEntryId(), record.getAccount(), String.join(",", record.getCurrencies())};
+    }
+
     public static List<Object[]> materializeViewRows(List<Object[]> entryRows, List<Object[]> detailRows) {
         Map<Integer, Object[]> entryById = new HashMap<>();
         for (Object[] entry : entryRows) {
@@ -63,7 +67,7 @@ public final class OpenTable {
         columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
         columns.add(new ColumnDescriptor("account", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
         columns.add(new ColumnDescriptor("currencies", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
-        return new TableDefinition(DETAIL_NAME, "TABLE", "Open account directives", columns);
+        return new TableDefinition(DETAIL_NAME, "TABLE", "Open account directives", columns, List.of("id"), List.of());
     }
 
     private static TableDefinition createViewDefinition() {
@@ -0,0 +1,174 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@code period_totals(account_prefix, bucket [, from [, to]])} table function: the sum and
+ * count of the postings of every account under {@code account_prefix} per currency and per day,
+ * week, month, quarter or year, over the dates from {@code from} to {@code to} inclusive.
+ *
+ * <p>It returns what grouping {@code postings JOIN entry} by the bucket's {@code EXTRACT} fields,
+ * account and currency returns, without the join or a date extraction per row. Postings are read
+ * once in date order, so a bucket's postings are contiguous: each day's bucket is looked up in an
+ * array of bucket numbers by epoch day built once for the call, and a bucket's groups are emitted
+ * as soon as the scan leaves it. A {@code NULL} prefix covers every account and a {@code NULL}
+ * bound leaves that side open. Rows are ordered by bucket, account and currency; {@code total} is
+ * {@code NULL} when none of the group's postings has a number, as {@code SUM} is.</p>
+ */
+public final class PeriodTotalsTable {
+    public static final String NAME = "period_totals";
+
+    private static final TableDefinition DEFINITION = createDefinition();
+
+    private static final Comparator<Object[]> ROW_ORDER =
+            Comparator.comparing((Object[] row) -> (String) row[2])
+                    .thenComparing(row -> (String) row[3], Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private record Key(String account, String currency) {}
+
+    private PeriodTotalsTable() {}
+
+    public static TableDefinition getDefinition() {
+        return DEFINITION;
+    }
+
+    /**
+     * Totals per bucket of {@code interval}, account and currency of the postings dated from
+     * {@code from} to {@code to}, either {@code null} for no bound.
+     */
+    public static List<Object[]> rows(
+            List<PostingRecord> postings,
+            List<LedgerEntry> entries,
+            String accountPrefix,
+            NetWorthTable.Interval interval,
+            LocalDate from,
+            LocalDate to) {
+        Objects.requireNonNull(interval, "interval");
+        Map<String, Boolean> inScope = new HashMap<>();
+        long[] order =
+                DatedPostings.inDateOrder(
+                        postings,
+                        entries,
+                        posting -> posting.getAccount() != null
+                                && (accountPrefix == null
+                                        || inScope.computeIfAbsent(
+                                                posting.getAccount(),
+                                                account -> DatedPostings.isUnder(account, accountPrefix))));
+        int start = from == null ? 0 : firstOnOrAfter(order, from.toEpochDay());
+        int end = to == null ? order.length : firstOnOrAfter(order, to.toEpochDay() + 1);
+        if (start >= end) {
+            return List.of();
+        }
+        int firstDay = DatedPostings.day(order[start]);
+        int lastDay = DatedPostings.day(order[end - 1]);
+        Buckets buckets = Buckets.of(interval, firstDay, lastDay);
+
+        List<Object[]> rows = new ArrayList<>();
+        Map<Key, Object[]> groups = new HashMap<>();
+        int current = -1;
+        for (int i = start; i < end; i++) {
+            int bucket = buckets.bucketOfDay[DatedPostings.day(order[i]) - firstDay];
+            if (bucket != current) {
+                flush(groups, rows);
+                current = bucket;
+            }
+            PostingRecord posting = postings.get(DatedPostings.position(order[i]));
+            Object[] row =
+                    groups.computeIfAbsent(
+                            new Key(posting.getAccount(), posting.getCurrency()),
+                            key -> new Object[] {
+                                buckets.starts[bucket], buckets.ends[bucket], key.account(), key.currency(), null, 0L
+                            });
+            BigDecimal number = posting.getNumber();
+            if (number != null) {
+                row[4] = row[4] == null ? number : ((BigDecimal) row[4]).add(number);
+            }
+            row[5] = (Long) row[5] + 1;
+        }
+        flush(groups, rows);
+        return rows;
+    }
+
+    private static void flush(Map<Key, Object[]> groups, List<Object[]> rows) {
+        int first = rows.size();
+        rows.addAll(groups.values());
+        rows.subList(first, rows.size()).sort(ROW_ORDER);
+        groups.clear();
+    }
+
+    private static int firstOnOrAfter(long[] order, long day) {
+        long key = day << 32;
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Bucket number of every day from the first to the last day scanned, and each bucket's dates. */
+    private static final class Buckets {
+        private final int[] bucketOfDay;
+        private final Integer[] starts;
+        private final Integer[] ends;
+
+        private Buckets(int[] bucketOfDay, Integer[] starts, Integer[] ends) {
+            this.bucketOfDay = bucketOfDay;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        static Buckets of(NetWorthTable.Interval interval, int firstDay, int lastDay) {
+            int[] bucketOfDay = new int[lastDay - firstDay + 1];
+            List<Integer> starts = new ArrayList<>();
+            List<Integer> ends = new ArrayList<>();
+            LocalDate start = interval.start(LocalDate.ofEpochDay(firstDay));
+            while (start.toEpochDay() <= lastDay) {
+                int bucket = starts.size();
+                int startDay = Math.toIntExact(start.toEpochDay());
+                LocalDate next = interval.next(start);
+                int endDay = Math.toIntExact(next.toEpochDay() - 1);
+                for (int day = Math.max(startDay, firstDay); day <= Math.min(endDay, lastDay); day++) {
+                    bucketOfDay[day - firstDay] = bucket;
+                }
+                starts.add(startDay);
+                ends.add(endDay);
+                start = next;
+            }
+            return new Buckets(bucketOfDay, starts.toArray(new Integer[0]), ends.toArray(new Integer[0]));
+        }
+    }
+
+    private static TableDefinition createDefinition() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("period_start", Types.DATE, "DATE", 0, 0, false, Date.class.getName()));
+        columns.add(new ColumnDescriptor("period_end", Types.DATE, "DATE", 0, 0, false, Date.class.getName()));
+        columns.add(new ColumnDescriptor("account", Types.VARCHAR, "VARCHAR", 0, 0, false, String.class.getName()));
+        columns.add(new ColumnDescriptor("currency", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
+        columns.add(new ColumnDescriptor("total", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("postings", Types.BIGINT, "BIGINT", 19, 0, false, Long.class.getName()));
+        return new TableDefinition(
+                NAME,
+                "TABLE FUNCTION",
+                "Sum and count of postings per period, account and currency",
+                columns,
+                List.of("period_start", "account", "currency"),
+                List.of());
+    }
+}
@@ -0,0 +1,274 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Prefix sums of posting numbers by date, per account-trie node and currency, so the sum over any
+ * date range costs two binary searches instead of a scan.
+ *
+ * <p>Every account has a series of its own postings ({@link Scope#ACCOUNT}) and every account
+ * prefix a series of the postings of all accounts strictly below it ({@link Scope#DESCENDANTS},
+ * what {@code account LIKE 'Income:%'} selects). A series holds one point per date with postings:
+ * the running sum and running count of non-null numbers up to that date, and a max-tree over the
+ * day's largest scale. A range sum is the difference of two prefix sums rescaled to the largest
+ * scale inside the range, which is the value and scale adding the range's numbers to
+ * {@link BigDecimal#ZERO} one by one would produce. Currencies are kept separately, {@code null}
+ * included, and only postings whose entry exists are indexed, as in {@code postings JOIN entry}.
+ * The index is immutable once built.</p>
+ */
+public final class PostingRangeIndex {
+
+    /** Which postings of an account node a lookup covers. */
+    public enum Scope {
+        /** Postings to exactly that account. */
+        ACCOUNT,
+        /** Postings to accounts strictly below it. */
+        DESCENDANTS
+    }
+
+    /**
+     * Sum over a date range: {@code sum} is {@code null} if none of the {@code rows} matching
+     * postings had a number.
+     */
+    public record RangeSum(long rows, BigDecimal sum) {}
+
+    private static final Comparator<String> CURRENCY_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final Map<String, Map<String, Series>> accounts;
+    private final Map<String, Map<String, Series>> descendants;
+
+    private PostingRangeIndex(Map<String, Map<String, Series>> accounts, Map<String, Map<String, Series>> descendants) {
+        this.accounts = accounts;
+        this.descendants = descendants;
+    }
+
+    public static PostingRangeIndex of(List<PostingRecord> postings, List<LedgerEntry> entries) {
+        Objects.requireNonNull(postings, "postings");
+        Objects.requireNonNull(entries, "entries");
+        int maxId = -1;
+        for (LedgerEntry entry : entries) {
+            maxId = Math.max(maxId, entry.getId());
+        }
+        long[] dayById = new long[maxId + 1];
+        Arrays.fill(dayById, Long.MIN_VALUE);
+        for (LedgerEntry entry : entries) {
+            if (entry.getDate() != null) {
+                dayById[entry.getId()] = entry.getDate().toEpochDay();
+            }
+        }
+        // Pack (day, position) so one primitive sort yields date order, stable within a day.
+        long[] order = new long[postings.size()];
+        int count = 0;
+        boolean sorted = true;
+        for (int i = 0; i < postings.size(); i++) {
+            int entryId = postings.get(i).getEntryId();
+            if (entryId < 0 || entryId > maxId || dayById[entryId] == Long.MIN_VALUE) {
+                continue;
+            }
+            long key = (dayById[entryId] << 32) | i;
+            sorted &= count == 0 || key > order[count - 1];
+            order[count++] = key;
+        }
+        if (!sorted) {
+            Arrays.sort(order, 0, count);
+        }
+        Map<String, Map<String, SeriesBuilder>> accountBuilders = new HashMap<>();
+        Map<String, Map<String, SeriesBuilder>> descendantBuilders = new HashMap<>();
+        Map<String, String[]> ancestorsByAccount = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            PostingRecord posting = postings.get((int) order[i]);
+            int day = (int) (order[i] >> 32);
+            String account = posting.getAccount();
+            if (account == null) {
+                continue;
+            }
+            builder(accountBuilders, account, posting.getCurrency()).add(day, posting.getNumber());
+            for (String ancestor : ancestorsByAccount.computeIfAbsent(account, PostingRangeIndex::ancestors)) {
+                builder(descendantBuilders, ancestor, posting.getCurrency()).add(day, posting.getNumber());
+            }
+        }
+        return new PostingRangeIndex(build(accountBuilders), build(descendantBuilders));
+    }
+
+    /** Currencies with postings under {@code account} in {@code scope}, {@code null} first. */
+    public List<String> currencies(String account, Scope scope) {
+        Map<String, Series> byCurrency = series(scope).get(account);
+        if (byCurrency == null) {
+            return List.of();
+        }
+        List<String> currencies = new ArrayList<>(byCurrency.keySet());
+        currencies.sort(CURRENCY_ORDER);
+        return currencies;
+    }
+
+    /**
+     * Postings of {@code account} in {@code scope} and {@code currency} dated within
+     * {@code [fromDay, toDay]}, both inclusive epoch days.
+     */
+    public RangeSum sum(String account, Scope scope, String currency, long fromDay, long toDay) {
+        Map<String, Series> byCurrency = series(scope).get(account);
+        Series series = byCurrency == null ? null : byCurrency.get(currency);
+        if (series == null || fromDay > toDay) {
+            return new RangeSum(0, null);
+        }
+        return series.sum(fromDay, toDay);
+    }
+
+    private Map<String, Map<String, Series>> series(Scope scope) {
+        return scope == Scope.ACCOUNT ? accounts : descendants;
+    }
+
+    private static SeriesBuilder builder(
+            Map<String, Map<String, SeriesBuilder>> builders, String account, String currency) {
+        return builders.computeIfAbsent(account, key -> new HashMap<>())
+                .computeIfAbsent(currency, key -> new SeriesBuilder());
+    }
+
+    private static Map<String, Map<String, Series>> build(Map<String, Map<String, SeriesBuilder>> builders) {
+        Map<String, Map<String, Series>> result = new HashMap<>(builders.size() * 2);
+        for (Map.Entry<String, Map<String, SeriesBuilder>> account : builders.entrySet()) {
+            Map<String, Series> byCurrency = new HashMap<>(account.getValue().size() * 2);
+            account.getValue().forEach((currency, builder) -> byCurrency.put(currency, builder.build()));
+            result.put(account.getKey(), byCurrency);
+        }
+        return result;
+    }
+
+    /** Proper prefixes of {@code account} at segment boundaries, e.g. {@code A} and {@code A:B} of {@code A:B:C}. */
+    private static String[] ancestors(String account) {
+        List<String> ancestors = new ArrayList<>();
+        for (int i = account.indexOf(':'); i >= 0; i = account.indexOf(':', i + 1)) {
+            ancestors.add(account.substring(0, i));
+        }
+        return ancestors.toArray(new String[0]);
+    }
+
+    private static final class SeriesBuilder {
+        private int[] days = new int[4];
+        private BigDecimal[] sums = new BigDecimal[4];
+        private int[] counts = new int[4];
+        private int[] rows = new int[4];
+        private int[] scales = new int[4];
+        private int size;
+
+        void add(int day, BigDecimal number) {
+            if (size == 0 || days[size - 1] != day) {
+                if (size == days.length) {
+                    int capacity = size * 2;
+                    days = Arrays.copyOf(days, capacity);
+                    sums = Arrays.copyOf(sums, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                    rows = Arrays.copyOf(rows, capacity);
+                    scales = Arrays.copyOf(scales, capacity);
+                }
+                days[size] = day;
+                sums[size] = BigDecimal.ZERO;
+                counts[size] = 0;
+                rows[size] = 0;
+                scales[size] = 0;
+                size++;
+            }
+            int last = size - 1;
+            rows[last]++;
+            if (number != null) {
+                sums[last] = sums[last].add(number);
+                counts[last]++;
+                scales[last] = Math.max(scales[last], number.scale());
+            }
+        }
+
+        Series build() {
+            int[] prefixDays = Arrays.copyOf(days, size);
+            BigDecimal[] prefixSums = new BigDecimal[size];
+            long[] prefixCounts = new long[size];
+            long[] prefixRows = new long[size];
+            BigDecimal sum = BigDecimal.ZERO;
+            long count = 0;
+            long rowCount = 0;
+            for (int i = 0; i < size; i++) {
+                sum = sum.add(sums[i]);
+                count += counts[i];
+                rowCount += rows[i];
+                prefixSums[i] = sum;
+                prefixCounts[i] = count;
+                prefixRows[i] = rowCount;
+            }
+            int[] scaleTree = new int[2 * size];
+            System.arraycopy(scales, 0, scaleTree, size, size);
+            for (int node = size - 1; node > 0; node--) {
+                scaleTree[node] = Math.max(scaleTree[2 * node], scaleTree[2 * node + 1]);
+            }
+            return new Series(prefixDays, prefixSums, prefixCounts, prefixRows, scaleTree);
+        }
+    }
+
+    /** One point per date, in date order, with running totals through that date. */
+    private static final class Series {
+        private final int[] days;
+        private final BigDecimal[] sums;
+        private final long[] counts;
+        private final long[] rows;
+        private final int[] scaleTree;
+
+        Series(int[] days, BigDecimal[] sums, long[] counts, long[] rows, int[] scaleTree) {
+            this.days = days;
+            this.sums = sums;
+            this.counts = counts;
+            this.rows = rows;
+            this.scaleTree = scaleTree;
+        }
+
+        RangeSum sum(long fromDay, long toDay) {
+            int from = firstOnOrAfter(fromDay);
+            int to = toDay == Long.MAX_VALUE ? days.length : firstOnOrAfter(toDay + 1);
+            if (from >= to) {
+                return new RangeSum(0, null);
+            }
+            long rowCount = rows[to - 1] - (from == 0 ? 0 : rows[from - 1]);
+            long count = counts[to - 1] - (from == 0 ? 0 : counts[from - 1]);
+            if (count == 0) {
+                return new RangeSum(rowCount, null);
+            }
+            BigDecimal sum = from == 0 ? sums[to - 1] : sums[to - 1].subtract(sums[from - 1]);
+            // Prefix sums may carry a larger scale from outside the range; the range's own is exact.
+            return new RangeSum(rowCount, sum.setScale(maxScale(from, to), RoundingMode.UNNECESSARY));
+        }
+
+        private int firstOnOrAfter(long day) {
+            int low = 0;
+            int high = days.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (days[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int maxScale(int from, int to) {
+            int max = 0;
+            for (int low = from + days.length, high = to + days.length; low < high; low >>= 1, high >>= 1) {
+                if ((low & 1) == 1) {
+                    max = Math.max(max, scaleTree[low++]);
+                }
+                if ((high & 1) == 1) {
+                    max = Math.max(max, scaleTree[--high]);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -16,6 +16,7 @@ public final class PostingsTable {
     public static final String NAME = "postings";
 
     private static final TableDefinition DEFINITION = createDefinition();
+    private static final int COLUMN_COUNT = DEFINITION.getColumns().size();
 
     private PostingsTable() {}
 
@@ -24,23 +25,36 @@ public final class PostingsTable {
     }
 
     public static List<Object[]> materializeRows(List<PostingRecord> postings, List<LedgerEntry> entries) {
+        List<PostingRecord> ordered = orderedPostings(postings, entries);
+        List<Object[]> rows = new ArrayList<>(ordered.size());
+        for (PostingRecord posting : ordered) {
+            rows.add(toRow(posting));
+        }
+        return rows;
+    }
+
+    /** Same rows as {@link #materializeRows}, built on demand while scanning. */
+    public static List<Object[]> lazyRows(List<PostingRecord> postings, List<LedgerEntry> entries) {
+        return LazyRows.of(orderedPostings(postings, entries), PostingsTable::toRow);
+    }
+
+    /**
+     * Postings in table row order: by their entry's position in the ledger, keeping per-entry
+     * posting order. Row {@code i} of {@link #lazyRows} is built from element {@code i}.
+     */
+    public static List<PostingRecord> orderedPostings(List<PostingRecord> postings, List<LedgerEntry> entries) {
         Map<Integer, Deque<PostingRecord>> byEntry = groupPostingsByEntry(postings);
-        List<Object[]> rows = new ArrayList<>(postings.size());
+        List<PostingRecord> ordered = new ArrayList<>(postings.size());
         for (LedgerEntry entry : entries) {
             Deque<PostingRecord> queue = byEntry.remove(entry.getId());
-            if (queue == null) {
-                continue;
-            }
-            while (!queue.isEmpty()) {
-                rows.add(toRow(queue.removeFirst()));
+            if (queue != null) {
+                ordered.addAll(queue);
             }
         }
         for (Deque<PostingRecord> leftovers : byEntry.values()) {
-            while (!leftovers.isEmpty()) {
-                rows.add(toRow(leftovers.removeFirst()));
-            }
+            ordered.addAll(leftovers);
         }
-        return rows;
+        return ordered;
     }
 
     private static Map<Integer, Deque<PostingRecord>> groupPostingsByEntry(List<PostingRecord> postings) {
@@ -51,20 +65,30 @@ public final class PostingsTable {
         return map;
     }
 
-    private static Object[] toRow(PostingRecord posting) {
-        return new Object[] {
-            posting.getPostingId(),
-            posting.getEntryId(),
-            posting.getFlag(),
-            posting.getAccount(),
-            posting.getNumber(),
-            posting.getCurrency(),
-            posting.getCostNumber(),
-            posting.getCostCurrency(),
-            posting.getCostDate() != null ? Math.toIntExact(posting.getCostDate().toEpochDay()) : null,
-            posting.getCostLabel(),
-            posting.getPriceNumber(),
-            posting.getPriceCurrency()
+    public static Object[] toRow(PostingRecord posting) {
+        Object[] row = new Object[COLUMN_COUNT];
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            row[column] = value(posting, column);
+        }
+        return row;
+    }
+
+    /** Value of column {@code column} (an ordinal of {@link #getDefinition()}) in the posting's row. */
+    public static Object value(PostingRecord posting, int column) {
+        return switch (column) {
+            case 0 -> posting.getPostingId();
+            case 1 -> posting.getEntryId();
+            case 2 -> posting.getFlag();
+            case 3 -> posting.getAccount();
+            case 4 -> posting.getNumber();
+            case 5 -> posting.getCurrency();
+            case 6 -> posting.getCostNumber();
+            case 7 -> posting.getCostCurrency();
+            case 8 -> posting.getCostDate() != null ? Math.toIntExact(posting.getCostDate().toEpochDay()) : null;
+            case 9 -> posting.getCostLabel();
+            case 10 -> posting.getPriceNumber();
+            case 11 -> posting.getPriceCurrency();
+            default -> throw new IndexOutOfBoundsException("postings column " + column);
         };
     }
 
@@ -82,6 +106,13 @@ public final class PostingsTable {
         columns.add(new ColumnDescriptor("cost_label", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
         columns.add(new ColumnDescriptor("price_number", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
         columns.add(new ColumnDescriptor("price_currency", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
-        return new TableDefinition(NAME, "TABLE", "Postings detail", columns);
+        // Postings are emitted entry by entry, so rows for one entry id are contiguous.
+        return new TableDefinition(
+                NAME,
+                "TABLE",
+                "Postings detail",
+                columns,
+                List.of("posting_id"),
+                List.of(new IndexDefinition("postings_entry_idx", false, List.of("id"))));
     }
 }
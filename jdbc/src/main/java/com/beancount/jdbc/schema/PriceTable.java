@@ -29,17 +29,17 @@ public final class PriceTable {
     public static List<Object[]> materializeDetailRows(List<PriceRecord> records) {
         List<Object[]> rows = new ArrayList<>(records.size());
         for (PriceRecord record : records) {
-            rows.add(
-                    new Object[] {
-                        record.getEntryId(),
-                        record.getCurrency(),
-                        record.getAmountNumber(),
-                        record.getAmountCurrency()
-                    });
+            rows.add(toDetailRow(record));
         }
         return rows;
     }
 
+    public static Object[] toDetailRow(PriceRecord record) {
+        return new Object[] {
+            record.getEntryId(), record.getCurrency(), record.getAmountNumber(), record.getAmountCurrency()
+        };
+    }
+
     public static List<Object[]> materializeViewRows(List<Object[]> entryRows, List<Object[]> detailRows) {
         Map<Integer, Object[]> entryById = new HashMap<>();
         for (Object[] entry : entryRows) {
@@ -72,7 +72,7 @@ public final class PriceTable {
         columns.add(new ColumnDescriptor("currency", Types.VARCHAR, "VARCHAR(10)", 10, 0, true, String.class.getName()));
         columns.add(new ColumnDescriptor("amount_number", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
         columns.add(new ColumnDescriptor("amount_currency", Types.VARCHAR, "VARCHAR(10)", 10, 0, true, String.class.getName()));
-        return new TableDefinition(DETAIL_NAME, "TABLE", "Price directives", columns);
+        return new TableDefinition(DETAIL_NAME, "TABLE", "Price directives", columns, List.of("id"), List.of());
     }
 
     private static TableDefinition createViewDefinition() {
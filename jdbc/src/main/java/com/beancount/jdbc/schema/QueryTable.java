@@ -28,11 +28,15 @@ public final class QueryTable {
     public static List<Object[]> materializeDetailRows(List<QueryRecord> records) {
         List<Object[]> rows = new ArrayList<>(records.size());
         for (QueryRecord record : records) {
-            rows.add(new Object[] {record.getEntryId(), record.getName(), record.getQueryString()});
+            rows.add(toDetailRow(record));
         }
         return rows;
     }
 
+    public static Object[] toDetailRow(QueryRecord record) {
+        return new Object[] {record.getEntryId(), record.getName(), record.getQueryString()};
+    }
+
     public static List<Object[]> materializeViewRows(List<Object[]> entryRows, List<Object[]> detailRows) {
         Map<Integer, Object[]> entryById = new HashMap<>();
         for (Object[] entry : entryRows) {
@@ -63,7 +67,7 @@ public final class QueryTable {
         columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
         columns.add(new ColumnDescriptor("name", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
         columns.add(new ColumnDescriptor("query_string", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
-        return new TableDefinition(DETAIL_NAME, "TABLE", "Query directives", columns);
+        return new TableDefinition(DETAIL_NAME, "TABLE", "Query directives", columns, List.of("id"), List.of());
     }
 
     private static TableDefinition createViewDefinition() {
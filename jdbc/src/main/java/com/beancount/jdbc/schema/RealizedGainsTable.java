@@ -0,0 +1,60 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.RealizedGainRecord;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code realized_gains} table: one row per lot a reduction was booked against, emitted by
+ * booking itself, so gains need no lot matching in SQL.
+ *
+ * <p>{@code posting_id} is the booked posting of {@code postings} that reduced the lot;
+ * {@code quantity} is the positive number of units disposed of, and {@code cost_number} and
+ * {@code proceeds_number} are per-unit amounts in {@code currency}. The gain of a row is
+ * {@code quantity * (proceeds_number - cost_number)}; {@code proceeds_number} is {@code NULL} when
+ * the reduction carried no price in that currency.</p>
+ */
+public final class RealizedGainsTable {
+    public static final String NAME = "realized_gains";
+
+    private static final TableDefinition DEFINITION = createDefinition();
+
+    private RealizedGainsTable() {}
+
+    public static TableDefinition getDefinition() {
+        return DEFINITION;
+    }
+
+    public static Object[] toRow(RealizedGainRecord record) {
+        return new Object[] {
+            record.getPostingId(),
+            Math.toIntExact(record.getLotCostDate().toEpochDay()),
+            record.getQuantity(),
+            record.getCostNumber(),
+            record.getProceedsNumber(),
+            record.getCurrency(),
+            record.getHoldingDays()
+        };
+    }
+
+    private static TableDefinition createDefinition() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("posting_id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        columns.add(new ColumnDescriptor("lot_cost_date", Types.DATE, "DATE", 0, 0, false, Date.class.getName()));
+        columns.add(new ColumnDescriptor("quantity", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, false, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("cost_number", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("proceeds_number", Types.DECIMAL, "DECIMAL(16,6)", 16, 6, true, BigDecimal.class.getName()));
+        columns.add(new ColumnDescriptor("currency", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
+        columns.add(new ColumnDescriptor("holding_days", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        return new TableDefinition(
+                NAME,
+                "TABLE",
+                "Lots consumed by booked reductions, with cost, proceeds and holding period",
+                columns,
+                List.of("posting_id"),
+                List.of());
+    }
+}
@@ -0,0 +1,59 @@
+package com.beancount.jdbc.schema;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/** Registry of every table and view definition exposed by the Beancount schema. */
+public final class SchemaCatalog {
+
+    private static final Map<String, TableDefinition> DEFINITIONS = createDefinitions();
+
+    private SchemaCatalog() {}
+
+    public static List<TableDefinition> definitions() {
+        return List.copyOf(DEFINITIONS.values());
+    }
+
+    public static Optional<TableDefinition> find(String name) {
+        return Optional.ofNullable(DEFINITIONS.get(name));
+    }
+
+    private static Map<String, TableDefinition> createDefinitions() {
+        Map<String, TableDefinition> map = new LinkedHashMap<>();
+        for (TableDefinition definition :
+                List.of(
+                        EntryTable.getDefinition(),
+                        TransactionsDetailTable.getDefinition(),
+                        TransactionsView.getDefinition(),
+                        PostingsTable.getDefinition(),
+                        AccountBalanceHistoryTable.getDefinition(),
+                        RealizedGainsTable.getDefinition(),
+                        MetadataTable.getEntryDefinition(),
+                        MetadataTable.getPostingDefinition(),
+                        EntryLabelsTable.getTagsDefinition(),
+                        EntryLabelsTable.getLinksDefinition(),
+                        OpenTable.getDetailDefinition(),
+                        OpenTable.getViewDefinition(),
+                        CloseTable.getDetailDefinition(),
+                        CloseTable.getViewDefinition(),
+                        PadTable.getDetailDefinition(),
+                        PadTable.getViewDefinition(),
+                        BalanceTable.getDetailDefinition(),
+                        BalanceTable.getViewDefinition(),
+                        NoteTable.getDetailDefinition(),
+                        NoteTable.getViewDefinition(),
+                        DocumentTable.getDetailDefinition(),
+                        DocumentTable.getViewDefinition(),
+                        EventTable.getDetailDefinition(),
+                        EventTable.getViewDefinition(),
+                        QueryTable.getDetailDefinition(),
+                        QueryTable.getViewDefinition(),
+                        PriceTable.getDetailDefinition(),
+                        PriceTable.getViewDefinition())) {
+            map.put(definition.getName(), definition);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,55 @@
+package com.beancount.jdbc.schema;
+
+import com.beancount.jdbc.ledger.TextSearchIndex;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code search(query [, limit])} table function: the transactions whose payee, narration or
+ * comments contain every word of {@code query}, ignoring case, with their {@code score}, best
+ * first and at most {@code limit} of them when it is given.
+ *
+ * <p>Candidates come from the {@link TextSearchIndex} built while loading, so a query reads the
+ * transactions sharing its trigrams instead of lower casing every row. See
+ * {@link TextSearchIndex#search} for the scoring.</p>
+ */
+public final class SearchTable {
+    public static final String NAME = "search";
+
+    private static final TableDefinition DEFINITION = createDefinition();
+
+    private SearchTable() {}
+
+    public static TableDefinition getDefinition() {
+        return DEFINITION;
+    }
+
+    public static List<Object[]> rows(TextSearchIndex index, String query, Integer limit) {
+        if (limit != null && limit < 0) {
+            throw new IllegalArgumentException(NAME + " limit must not be negative: " + limit);
+        }
+        if (limit != null && limit == 0) {
+            return List.of();
+        }
+        List<TextSearchIndex.Hit> hits = index.search(query == null ? "" : query, limit == null ? 0 : limit);
+        List<Object[]> rows = new ArrayList<>(hits.size());
+        for (TextSearchIndex.Hit hit : hits) {
+            rows.add(new Object[] {hit.id(), hit.score()});
+        }
+        return rows;
+    }
+
+    private static TableDefinition createDefinition() {
+        List<ColumnDescriptor> columns = new ArrayList<>();
+        columns.add(new ColumnDescriptor("id", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        columns.add(new ColumnDescriptor("score", Types.INTEGER, "INTEGER", 10, 0, false, Integer.class.getName()));
+        return new TableDefinition(
+                NAME,
+                "TABLE FUNCTION",
+                "Transactions matching a text query, best first",
+                columns,
+                List.of("id"),
+                List.of());
+    }
+}
@@ -9,12 +9,31 @@ public final class TableDefinition {
     private final String type;
     private final String remarks;
     private final List<ColumnDescriptor> columns;
+    private final List<String> primaryKey;
+    private final List<IndexDefinition> indexes;
 
     public TableDefinition(String name, String type, String remarks, List<ColumnDescriptor> columns) {
+        this(name, type, remarks, columns, List.of(), List.of());
+    }
+
+    /**
+     * @param primaryKey columns that uniquely identify a row, in key order; empty when the table has
+     *     no key
+     * @param indexes secondary access paths; the primary key is published as an index implicitly
+     */
+    public TableDefinition(
+            String name,
+            String type,
+            String remarks,
+            List<ColumnDescriptor> columns,
+            List<String> primaryKey,
+            List<IndexDefinition> indexes) {
         this.name = Objects.requireNonNull(name, "name");
         this.type = Objects.requireNonNull(type, "type");
         this.remarks = remarks;
         this.columns = List.copyOf(columns);
+        this.primaryKey = List.copyOf(primaryKey);
+        this.indexes = List.copyOf(indexes);
     }
 
     public String getName() {
@@ -32,4 +51,12 @@ public final class TableDefinition {
     public List<ColumnDescriptor> getColumns() {
         return Collections.unmodifiableList(columns);
     }
+
+    public List<String> getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public List<IndexDefinition> getIndexes() {
+        return indexes;
+    }
 }
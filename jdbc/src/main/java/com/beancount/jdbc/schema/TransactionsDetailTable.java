@@ -10,6 +10,9 @@ import java.util.List;
 public final class TransactionsDetailTable {
     public static final String NAME = "transactions_detail";
 
+    public static final int PAYEE = 2;
+    public static final int NARRATION = 3;
+
     private static final TableDefinition DEFINITION = createDefinition();
 
     private TransactionsDetailTable() {}
@@ -20,24 +23,39 @@ public final class TransactionsDetailTable {
 
     public static List<Object[]> materializeRows(List<LedgerEntry> entries) {
         List<Object[]> rows = new ArrayList<>();
+        for (LedgerEntry entry : transactions(entries)) {
+            rows.add(toRow(entry));
+        }
+        return rows;
+    }
+
+    /** Same rows as {@link #materializeRows}, built on demand while scanning. */
+    public static List<Object[]> lazyRows(List<LedgerEntry> entries) {
+        return LazyRows.of(transactions(entries), TransactionsDetailTable::toRow);
+    }
+
+    private static List<LedgerEntry> transactions(List<LedgerEntry> entries) {
+        List<LedgerEntry> transactions = new ArrayList<>();
         for (LedgerEntry entry : entries) {
-            if (!"txn".equals(entry.getType())) {
-                continue;
+            if ("txn".equals(entry.getType())) {
+                transactions.add(entry);
             }
-            TransactionPayload payload = entry.getTransactionPayload();
-            String tags = payload != null ? payload.getTags() : null;
-            String links = payload != null ? payload.getLinks() : null;
-            rows.add(
-                    new Object[] {
-                        entry.getId(),
-                        payload != null ? payload.getFlag() : null,
-                        payload != null ? payload.getPayee() : null,
-                        payload != null ? payload.getNarration() : null,
-                        tags,
-                        links
-                    });
         }
-        return rows;
+        return transactions;
+    }
+
+    private static Object[] toRow(LedgerEntry entry) {
+        TransactionPayload payload = entry.getTransactionPayload();
+        String tags = payload != null ? payload.getTags() : null;
+        String links = payload != null ? payload.getLinks() : null;
+        return new Object[] {
+            entry.getId(),
+            payload != null ? payload.getFlag() : null,
+            payload != null ? payload.getPayee() : null,
+            payload != null ? payload.getNarration() : null,
+            tags,
+            links
+        };
     }
 
     private static TableDefinition createDefinition() {
@@ -60,6 +78,6 @@ public final class TransactionsDetailTable {
         columns.add(
                 new ColumnDescriptor(
                         "links", Types.VARCHAR, "VARCHAR", 0, 0, true, String.class.getName()));
-        return new TableDefinition(NAME, "TABLE", "Transaction metadata", columns);
+        return new TableDefinition(NAME, "TABLE", "Transaction metadata", columns, List.of("id"), List.of());
     }
 }
@@ -0,0 +1,942 @@
+package com.beancount.jdbc.tools;
+
+import com.beancount.jdbc.ledger.LedgerData;
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import com.beancount.jdbc.ledger.PriceIndex;
+import com.beancount.jdbc.ledger.TextSearchIndex;
+import com.beancount.jdbc.ledger.TransactionPayload;
+import com.beancount.jdbc.loader.BeancountLoader;
+import com.beancount.jdbc.loader.DateParser;
+import com.beancount.jdbc.loader.DecimalParser;
+import com.beancount.jdbc.loader.LoaderException;
+import com.beancount.jdbc.loader.LoaderResult;
+import com.beancount.jdbc.loader.semantic.booking.BookingEngine;
+import com.beancount.jdbc.loader.semantic.booking.BookingMethod;
+import com.beancount.jdbc.schema.ColumnKernels;
+import com.beancount.jdbc.schema.DecimalColumn;
+import com.beancount.jdbc.schema.DecimalSum;
+import com.beancount.jdbc.schema.DictionaryColumn;
+import com.beancount.jdbc.schema.EntryLabelIndex;
+import com.beancount.jdbc.schema.EntryLabelsTable;
+import com.beancount.jdbc.schema.GroupIds;
+import com.beancount.jdbc.schema.NetWorthTable;
+import com.beancount.jdbc.schema.PeriodTotalsTable;
+import com.beancount.jdbc.schema.PostingRangeIndex;
+import com.beancount.jdbc.schema.PostingsTable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Synthetic-ledger benchmarks that run against the driver without Gradle or JMH.
+ *
+ * <p>Usage: {@code LedgerBenchmarkCli <benchmark> [size]}. Each benchmark generates its own
+ * synthetic data so results are reproducible across machines.</p>
+ *
+ * <ul>
+ *   <li>{@code stream}: exports every posting through a forward-only result set with a fetch size
+ *       and reports throughput plus the heap growth observed while the export runs, followed by a
+ *       {@code setMaxRows} run that must stop early. Size is the number of transactions.</li>
+ *   <li>{@code booking}: buys {@code size} lots into one account and sells them back under each
+ *       {@link BookingMethod} (one unit at a time, or whole lots by cost for {@code STRICT}),
+ *       timing the booking engine alone.</li>
+ *   <li>{@code load}: loads a synthetic ledger of {@code size} transactions a few times and reports
+ *       the load time and the bytes the loading thread allocated.</li>
+ *   <li>{@code literals}: decodes {@code size} amount and date tokens with {@link DecimalParser}
+ *       and {@link DateParser}, and for reference with the {@code DecimalFormat} and
+ *       {@code DateTimeFormatter} they replaced, reporting time and allocated bytes.</li>
+ *   <li>{@code sum}: sums the postings of a synthetic ledger of {@code size} transactions,
+ *       first as one total in memory from a {@link DecimalColumn} and by
+ *       {@link BigDecimal#add}, then per account and currency in memory with the scalar and the
+ *       best available {@link ColumnKernels} against a {@code HashMap} of {@link BigDecimal}s,
+ *       and finally through the driver, once as a plain {@code GROUP BY} that is pushed into the
+ *       postings table and once behind a {@code WHERE} that keeps Calcite's own aggregate. It
+ *       also times random period sums of {@code Expenses:%} from a {@link PostingRangeIndex}
+ *       against scanning every posting for each period. Build with {@code -PvectorKernels} and
+ *       run with {@code --add-modules jdk.incubator.vector} to include the SIMD kernels.</li>
+ *   <li>{@code prices}: builds a {@link PriceIndex} of daily prices over {@code size} days and
+ *       times as-of lookups, direct and through the operating currency, against scanning the
+ *       prices for the latest one on or before each date, as a correlated subquery over
+ *       {@code price} does.</li>
+ *   <li>{@code networth}: values the holdings of a synthetic ledger of {@code size} transactions
+ *       that also buys commodities with daily prices at every month end, in memory with
+ *       {@link NetWorthTable}, then through the driver with the {@code networth} table function
+ *       and with the equivalent SQL over {@code postings} and {@code price}.</li>
+ *   <li>{@code periods}: totals the {@code Expenses} postings of a synthetic ledger of
+ *       {@code size} transactions per month, account and currency in memory with
+ *       {@link PeriodTotalsTable} against grouping by the month of each posting's date, then
+ *       through the driver with the {@code period_totals} table function and with the
+ *       {@code GROUP BY EXTRACT} formulation over {@code postings} and {@code entry}.</li>
+ *   <li>{@code tags}: builds the {@link EntryLabelIndex} of {@code size} synthetic transactions
+ *       tagged from a pool of common and rare tags, and times {@code tagged} lookups of random tag
+ *       pairs, intersected from bitmaps, against matching each transaction's comma-joined
+ *       {@code tags} string as {@code LIKE} over {@code transactions_detail} does.</li>
+ *   <li>{@code search}: builds the {@link TextSearchIndex} of {@code size} synthetic transactions
+ *       with payees and narrations drawn from word pools, and times {@code search} queries of one
+ *       or two words against case folding every payee and narration and matching the words with
+ *       {@code contains}, as {@code LOWER(narration) LIKE} does.</li>
+ * </ul>
+ */
+public final class LedgerBenchmarkCli {
+
+    private static final int DEFAULT_TRANSACTIONS = 200_000;
+    private static final int DEFAULT_LOTS = 50_000;
+    private static final int FETCH_SIZE = 1_000;
+    private static final int SAMPLE_INTERVAL = 50_000;
+    private static final int LOAD_RUNS = 3;
+    private static final int DEFAULT_LITERALS = 1_000_000;
+    private static final int DEFAULT_SUM_TRANSACTIONS = 500_000;
+    private static final int KERNEL_WARMUP_RUNS = 20;
+    private static final int PERIOD_QUERIES = 1_000;
+    private static final int DEFAULT_PRICE_DAYS = 10_000;
+    private static final int PRICE_LOOKUPS = 1_000;
+    private static final int DEFAULT_TAGGED_TRANSACTIONS = 1_000_000;
+    private static final int TAG_LOOKUPS = 200;
+    private static final int TAG_POOL = 64;
+    private static final int DEFAULT_SEARCH_TRANSACTIONS = 500_000;
+    private static final int SEARCH_QUERIES = 200;
+    private static final String[] PAYEES = {
+        "Amazon", "Cafe Luna", "Deutsche Bahn", "Fresh Market", "City Utilities", "Corner Bookshop", "Landlord",
+        "Cinema Paradiso"
+    };
+    private static final String[] WORDS = {
+        "groceries", "lunch", "dinner", "ticket", "rent", "electricity", "novel", "office", "team", "weekend",
+        "refund", "birthday", "coffee", "monthly", "travel", "gift"
+    };
+    private static final String[] COMMODITIES = {"HOOL", "ACME", "VTI", "GLD"};
+    private static final int DEFAULT_NETWORTH_TRANSACTIONS = 20_000;
+    private static final String NETWORTH_SQL =
+            "SELECT w.\"period_end\", SUM(w.\"value\") FROM ("
+                    + "SELECT v.\"period_end\", v.\"balance\" * CASE WHEN v.\"currency\" = 'USD' THEN 1 ELSE ("
+                    + "SELECT MAX(pr.\"amount_number\") FROM \"beancount\".\"price\" AS pr "
+                    + "WHERE pr.\"currency\" = v.\"currency\" AND pr.\"amount_currency\" = 'USD' "
+                    + "AND pr.\"date\" = (SELECT MAX(x.\"date\") FROM \"beancount\".\"price\" AS x "
+                    + "WHERE x.\"currency\" = v.\"currency\" AND x.\"amount_currency\" = 'USD' "
+                    + "AND x.\"date\" <= v.\"period_end\")) END AS \"value\" "
+                    + "FROM (SELECT m.\"period_end\", p.\"currency\", SUM(p.\"number\") AS \"balance\" "
+                    + "FROM (SELECT DISTINCT LAST_DAY(\"date\") AS \"period_end\" FROM \"beancount\".\"entry\") AS m "
+                    + "JOIN \"beancount\".\"entry\" AS e ON e.\"date\" <= m.\"period_end\" "
+                    + "JOIN \"beancount\".\"postings\" AS p ON p.\"id\" = e.\"id\" "
+                    + "WHERE p.\"account\" LIKE 'Assets:%' OR p.\"account\" LIKE 'Liabilities:%' "
+                    + "GROUP BY m.\"period_end\", p.\"currency\") AS v) AS w "
+                    + "GROUP BY w.\"period_end\"";
+    private static final String PERIODS_SQL =
+            "SELECT EXTRACT(YEAR FROM e.\"date\") * 100 + EXTRACT(MONTH FROM e.\"date\"), p.\"account\", "
+                    + "SUM(p.\"number\"), p.\"currency\" FROM \"beancount\".\"postings\" AS p "
+                    + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                    + "WHERE p.\"account\" LIKE 'Expenses:%' "
+                    + "GROUP BY EXTRACT(YEAR FROM e.\"date\"), EXTRACT(MONTH FROM e.\"date\"), "
+                    + "p.\"account\", p.\"currency\"";
+    private static final String[] EXPENSES = {
+        "Expenses:Food:Groceries", "Expenses:Food:Restaurant", "Expenses:Transport:Train",
+        "Expenses:Home:Rent", "Expenses:Home:Utilities", "Expenses:Leisure:Books"
+    };
+
+    private LedgerBenchmarkCli() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println(
+                    "Usage: LedgerBenchmarkCli <stream|booking|load|literals|sum|prices|networth|periods|tags|search> [size]");
+            System.exit(1);
+        }
+        Integer size = args.length == 2 ? Integer.valueOf(args[1]) : null;
+        switch (args[0]) {
+            case "stream" -> {
+                Path directory = Files.createTempDirectory("beancount-bench");
+                int transactions = size != null ? size : DEFAULT_TRANSACTIONS;
+                streamBenchmark(writeLedger(directory, transactions));
+            }
+            case "booking" -> bookingBenchmark(size != null ? size : DEFAULT_LOTS);
+            case "load" -> {
+                Path directory = Files.createTempDirectory("beancount-bench");
+                int transactions = size != null ? size : DEFAULT_TRANSACTIONS;
+                loadBenchmark(writeLedger(directory, transactions));
+            }
+            case "literals" -> literalsBenchmark(size != null ? size : DEFAULT_LITERALS);
+            case "sum" -> {
+                Path directory = Files.createTempDirectory("beancount-bench");
+                int transactions = size != null ? size : DEFAULT_SUM_TRANSACTIONS;
+                sumBenchmark(writeLedger(directory, transactions));
+            }
+            case "prices" -> pricesBenchmark(size != null ? size : DEFAULT_PRICE_DAYS);
+            case "networth" -> {
+                Path directory = Files.createTempDirectory("beancount-bench");
+                int transactions = size != null ? size : DEFAULT_NETWORTH_TRANSACTIONS;
+                networthBenchmark(writeValuationLedger(directory, transactions));
+            }
+            case "periods" -> {
+                Path directory = Files.createTempDirectory("beancount-bench");
+                int transactions = size != null ? size : DEFAULT_SUM_TRANSACTIONS;
+                periodsBenchmark(writeLedger(directory, transactions));
+            }
+            case "tags" -> tagsBenchmark(size != null ? size : DEFAULT_TAGGED_TRANSACTIONS);
+            case "search" -> searchBenchmark(size != null ? size : DEFAULT_SEARCH_TRANSACTIONS);
+            default -> {
+                System.err.println("Unknown benchmark: " + args[0]);
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Writes a ledger of {@code transactions} two-leg transactions spread over the accounts in
+     * {@link #EXPENSES}, one per day starting in 2000.
+     */
+    static Path writeLedger(Path directory, int transactions) throws IOException {
+        Path ledger = directory.resolve("synthetic.beancount");
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        try (BufferedWriter writer = Files.newBufferedWriter(ledger, StandardCharsets.UTF_8)) {
+            writer.write("option \"operating_currency\" \"USD\"\n\n");
+            writer.write("1999-12-31 open Assets:Bank:Checking USD\n");
+            for (String account : EXPENSES) {
+                writer.write("1999-12-31 open " + account + " USD\n");
+            }
+            writer.write('\n');
+            for (int i = 0; i < transactions; i++) {
+                LocalDate date = start.plusDays(i / 8);
+                String account = EXPENSES[i % EXPENSES.length];
+                String amount = (i % 500 + 1) + "." + String.format("%02d", i % 100);
+                writer.write(date + " * \"Payee " + (i % 97) + "\" \"Synthetic #" + i + "\"\n");
+                writer.write("  " + account + "  " + amount + " USD\n");
+                writer.write("  Assets:Bank:Checking  -" + amount + " USD\n\n");
+            }
+        }
+        return ledger;
+    }
+
+    /**
+     * Writes the ledger of {@link #writeLedger} plus, every eighth transaction, a purchase of one
+     * unit of one of {@link #COMMODITIES} at cost, and a price for every commodity each day.
+     */
+    static Path writeValuationLedger(Path directory, int transactions) throws IOException {
+        Path ledger = writeLedger(directory, transactions);
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        try (BufferedWriter writer =
+                Files.newBufferedWriter(ledger, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+            writer.write("1999-12-31 open Assets:Broker\n\n");
+            for (int i = 0; i < transactions; i += 8) {
+                LocalDate date = start.plusDays(i / 8);
+                String commodity = COMMODITIES[(i / 8) % COMMODITIES.length];
+                String price = (100 + (i / 8) % 50) + ".00";
+                for (int k = 0; k < COMMODITIES.length; k++) {
+                    writer.write(date + " price " + COMMODITIES[k] + " " + (100 + (i / 8 + k) % 50) + ".00 USD\n");
+                }
+                writer.write(date + " * \"Buy " + commodity + "\"\n");
+                writer.write("  Assets:Broker  1 " + commodity + " {" + price + " USD}\n");
+                writer.write("  Assets:Bank:Checking  -" + price + " USD\n\n");
+            }
+        }
+        return ledger;
+    }
+
+    private static void streamBenchmark(Path ledger) throws SQLException {
+        String url = "jdbc:beancount:" + ledger.toUri();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        try (Connection connection = DriverManager.getConnection(url, new Properties())) {
+            warmUp(connection);
+            System.gc();
+            long baseline = memory.getHeapMemoryUsage().getUsed();
+            long peak = baseline;
+            long rows = 0;
+            long started = System.nanoTime();
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(FETCH_SIZE);
+                try (ResultSet resultSet =
+                        statement.executeQuery("SELECT * FROM \"beancount\".\"postings\"")) {
+                    int columns = resultSet.getMetaData().getColumnCount();
+                    while (resultSet.next()) {
+                        for (int column = 1; column <= columns; column++) {
+                            resultSet.getObject(column);
+                        }
+                        if (++rows % SAMPLE_INTERVAL == 0) {
+                            peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+                        }
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - started;
+            report("stream postings", rows, elapsed);
+            System.out.printf(
+                    "  heap before=%d MiB, peak growth while streaming=%d MiB%n",
+                    baseline >> 20, Math.max(0L, peak - baseline) >> 20);
+
+            started = System.nanoTime();
+            rows = 0;
+            try (Statement statement = connection.createStatement()) {
+                statement.setMaxRows(FETCH_SIZE);
+                try (ResultSet resultSet =
+                        statement.executeQuery("SELECT * FROM \"beancount\".\"postings\"")) {
+                    while (resultSet.next()) {
+                        rows++;
+                    }
+                }
+            }
+            report("maxRows=" + FETCH_SIZE, rows, System.nanoTime() - started);
+        }
+    }
+
+    private static void bookingBenchmark(int lots) {
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        for (BookingMethod method : BookingMethod.values()) {
+            if (method == BookingMethod.NONE) {
+                continue;
+            }
+            BookingEngine engine = new BookingEngine(method, Map.of());
+            int postingId = 0;
+            long started = System.nanoTime();
+            for (int i = 0; i < lots; i++) {
+                LedgerEntry buy = syntheticEntry(i, start.plusDays(i / 20));
+                BigDecimal cost = BigDecimal.valueOf(10_000 + (i * 7919L) % lots, 2);
+                engine.book(buy, List.of(lotPosting(postingId++, i, BigDecimal.TEN, cost)));
+            }
+            long bought = System.nanoTime();
+            long reductions = 0;
+            for (int i = 0; i < lots; i++) {
+                LedgerEntry sell = syntheticEntry(lots + i, start.plusDays((lots + i) / 20));
+                // STRICT needs an unambiguous spec, so it sells whole lots named by their cost.
+                PostingRecord reduction =
+                        method == BookingMethod.STRICT
+                                ? lotPosting(
+                                        postingId++,
+                                        lots + i,
+                                        BigDecimal.TEN.negate(),
+                                        BigDecimal.valueOf(10_000 + (i * 7919L) % lots, 2))
+                                : lotPosting(postingId++, lots + i, BigDecimal.ONE.negate(), null);
+                List<PostingRecord> booked = engine.book(sell, List.of(reduction));
+                reductions += booked.size();
+            }
+            long sold = System.nanoTime();
+            report(method + " add lots", lots, bought - started);
+            report(method + " reduce", reductions, sold - bought);
+        }
+    }
+
+    private static void loadBenchmark(Path ledger) throws LoaderException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean allocationTracked =
+                threads instanceof com.sun.management.ThreadMXBean tracked
+                        && tracked.isThreadAllocatedMemorySupported();
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long allocatedBefore = allocatedBytes(threads, allocationTracked);
+            long started = System.nanoTime();
+            LoaderResult result = new BeancountLoader().load(ledger);
+            long elapsed = System.nanoTime() - started;
+            long allocated = allocatedBytes(threads, allocationTracked) - allocatedBefore;
+            report("load #" + run, result.getLedgerData().getPostings().size(), elapsed);
+            if (allocationTracked) {
+                System.out.printf("  allocated=%d MiB%n", allocated >> 20);
+            }
+        }
+    }
+
+    private static void literalsBenchmark(int count) {
+        String[] amounts = new String[count];
+        String[] dates = new String[count];
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < count; i++) {
+            String amount = (i % 5000) + (i % 3 == 0 ? "," : ".") + String.format("%02d", i % 100);
+            amounts[i] = i % 2 == 0 ? "-" + amount : amount;
+            dates[i] = start.plusDays(i % 9000).toString();
+        }
+        DecimalFormat dotFormat = referenceFormat('.');
+        DecimalFormat commaFormat = referenceFormat(',');
+        DateTimeFormatter dateFormatter =
+                new DateTimeFormatterBuilder()
+                        .appendValue(ChronoField.YEAR, 4)
+                        .appendLiteral('-')
+                        .appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
+                        .appendLiteral('-')
+                        .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+                        .toFormatter();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean allocationTracked =
+                threads instanceof com.sun.management.ThreadMXBean tracked
+                        && tracked.isThreadAllocatedMemorySupported();
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long checksum = 0;
+            long allocated = allocatedBytes(threads, allocationTracked);
+            long started = System.nanoTime();
+            for (String amount : amounts) {
+                checksum += DecimalParser.parse(amount).scale();
+            }
+            reportLiterals("DecimalParser #" + run, count, started, allocated, threads, allocationTracked);
+
+            allocated = allocatedBytes(threads, allocationTracked);
+            started = System.nanoTime();
+            for (String amount : amounts) {
+                DecimalFormat format = amount.indexOf(',') >= 0 ? commaFormat : dotFormat;
+                checksum += ((BigDecimal) format.parse(amount, new ParsePosition(0))).scale();
+            }
+            reportLiterals("DecimalFormat #" + run, count, started, allocated, threads, allocationTracked);
+
+            allocated = allocatedBytes(threads, allocationTracked);
+            started = System.nanoTime();
+            for (String date : dates) {
+                checksum += DateParser.parse(date).getDayOfMonth();
+            }
+            reportLiterals("DateParser #" + run, count, started, allocated, threads, allocationTracked);
+
+            allocated = allocatedBytes(threads, allocationTracked);
+            started = System.nanoTime();
+            for (String date : dates) {
+                checksum += LocalDate.parse(date, dateFormatter).getDayOfMonth();
+            }
+            reportLiterals("DateTimeFormatter #" + run, count, started, allocated, threads, allocationTracked);
+            System.out.println("  checksum=" + checksum);
+        }
+    }
+
+    private static void sumBenchmark(Path ledger) throws LoaderException, SQLException {
+        LoaderResult loaded = new BeancountLoader().load(ledger);
+        List<PostingRecord> postings =
+                PostingsTable.orderedPostings(loaded.getLedgerData().getPostings(), loaded.getLedgerData().getEntries());
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean allocationTracked =
+                threads instanceof com.sun.management.ThreadMXBean tracked
+                        && tracked.isThreadAllocatedMemorySupported();
+        DecimalColumn column = DecimalColumn.of(postings, PostingRecord::getNumber);
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long allocated = allocatedBytes(threads, allocationTracked);
+            long started = System.nanoTime();
+            BigDecimal compact = sumColumn(column);
+            reportLiterals("DecimalSum #" + run, postings.size(), started, allocated, threads, allocationTracked);
+
+            allocated = allocatedBytes(threads, allocationTracked);
+            started = System.nanoTime();
+            BigDecimal total = sumNumbers(postings);
+            reportLiterals("BigDecimal.add #" + run, postings.size(), started, allocated, threads, allocationTracked);
+            if (!total.equals(compact)) {
+                throw new IllegalStateException("Sums differ: " + total + " != " + compact);
+            }
+        }
+
+        DictionaryColumn accounts = DictionaryColumn.of(postings, PostingRecord::getAccount);
+        DictionaryColumn currencies = DictionaryColumn.of(postings, PostingRecord::getCurrency);
+        System.out.println("best kernels: " + ColumnKernels.best().name());
+        // The vector kernels only reach steady state once C2 has intrinsified them.
+        for (int run = 0; run < KERNEL_WARMUP_RUNS; run++) {
+            sumGrouped(column, ColumnKernels.scalar(), accounts, currencies);
+            sumGrouped(column, ColumnKernels.best(), accounts, currencies);
+        }
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long allocated = allocatedBytes(threads, allocationTracked);
+            long started = System.nanoTime();
+            BigDecimal[] scalar = sumGrouped(column, ColumnKernels.scalar(), accounts, currencies);
+            reportLiterals("grouped scalar #" + run, postings.size(), started, allocated, threads, allocationTracked);
+
+            allocated = allocatedBytes(threads, allocationTracked);
+            started = System.nanoTime();
+            BigDecimal[] best = sumGrouped(column, ColumnKernels.best(), accounts, currencies);
+            reportLiterals("grouped best #" + run, postings.size(), started, allocated, threads, allocationTracked);
+
+            allocated = allocatedBytes(threads, allocationTracked);
+            started = System.nanoTime();
+            Map<List<String>, BigDecimal> reference = sumGroupedReference(postings);
+            reportLiterals("grouped HashMap #" + run, postings.size(), started, allocated, threads, allocationTracked);
+            List<BigDecimal> expected = new ArrayList<>(reference.values());
+            if (!expected.equals(Arrays.asList(scalar)) || !expected.equals(Arrays.asList(best))) {
+                throw new IllegalStateException("Grouped sums differ from the HashMap reference");
+            }
+        }
+
+        List<LedgerEntry> entries = loaded.getLedgerData().getEntries();
+        Map<Integer, Long> dayById = new HashMap<>();
+        for (LedgerEntry entry : entries) {
+            dayById.put(entry.getId(), entry.getDate().toEpochDay());
+        }
+        long[] postingDays = new long[postings.size()];
+        for (int i = 0; i < postingDays.length; i++) {
+            postingDays[i] = dayById.get(postings.get(i).getEntryId());
+        }
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long allocated = allocatedBytes(threads, allocationTracked);
+            long started = System.nanoTime();
+            PostingRangeIndex index = PostingRangeIndex.of(postings, entries);
+            reportLiterals("range index build #" + run, postings.size(), started, allocated, threads, allocationTracked);
+
+            long[][] periods = periods(entries);
+            started = System.nanoTime();
+            BigDecimal indexed = BigDecimal.ZERO;
+            for (long[] period : periods) {
+                BigDecimal sum =
+                        index.sum("Expenses", PostingRangeIndex.Scope.DESCENDANTS, "USD", period[0], period[1]).sum();
+                indexed = sum == null ? indexed : indexed.add(sum);
+            }
+            report("period sums indexed #" + run, periods.length, System.nanoTime() - started);
+
+            started = System.nanoTime();
+            BigDecimal scanned = BigDecimal.ZERO;
+            for (long[] period : periods) {
+                scanned = scanned.add(sumPeriod(postings, postingDays, period[0], period[1]));
+            }
+            report("period sums scanned #" + run, periods.length, System.nanoTime() - started);
+            if (indexed.compareTo(scanned) != 0) {
+                throw new IllegalStateException("Period sums differ: " + indexed + " != " + scanned);
+            }
+        }
+
+        String grouped =
+                "SELECT \"account\", \"currency\", SUM(\"number\") FROM \"beancount\".\"postings\" "
+                        + "GROUP BY \"account\", \"currency\"";
+        String filtered =
+                "SELECT \"account\", \"currency\", SUM(\"number\") FROM \"beancount\".\"postings\" "
+                        + "WHERE \"posting_id\" >= 0 GROUP BY \"account\", \"currency\"";
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger.toUri(), new Properties())) {
+            warmUp(connection);
+            for (int run = 1; run <= LOAD_RUNS; run++) {
+                sumQuery(connection, "SQL pushed-down #" + run, grouped, postings.size());
+                sumQuery(connection, "SQL Calcite agg #" + run, filtered, postings.size());
+            }
+        }
+    }
+
+    private static void networthBenchmark(Path ledger) throws LoaderException, SQLException {
+        LedgerData data = new BeancountLoader().load(ledger).getLedgerData();
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long started = System.nanoTime();
+            List<Object[]> rows =
+                    NetWorthTable.rows(
+                            data.getPostings(),
+                            data.getEntries(),
+                            data.getPriceIndex(),
+                            NetWorthTable.Interval.MONTH,
+                            "USD",
+                            null);
+            report("networth in memory #" + run, rows.size(), System.nanoTime() - started);
+        }
+        String function = "SELECT \"period_end\", \"value\" FROM TABLE(\"beancount\".\"networth\"('month', 'USD'))";
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger.toUri(), new Properties())) {
+            warmUp(connection);
+            for (int run = 1; run <= LOAD_RUNS; run++) {
+                valueQuery(connection, "SQL networth() #" + run, function, data.getPostings().size());
+                valueQuery(connection, "SQL equivalent #" + run, NETWORTH_SQL, data.getPostings().size());
+            }
+        }
+    }
+
+    private static void periodsBenchmark(Path ledger) throws LoaderException, SQLException {
+        LedgerData data = new BeancountLoader().load(ledger).getLedgerData();
+        List<PostingRecord> postings = data.getPostings();
+        // Both loops are short enough for the first runs to be dominated by compilation.
+        for (int run = 0; run < KERNEL_WARMUP_RUNS; run++) {
+            PeriodTotalsTable.rows(postings, data.getEntries(), "Expenses", NetWorthTable.Interval.MONTH, null, null);
+            monthlyTotalsReference(postings, data.getEntries());
+        }
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long started = System.nanoTime();
+            List<Object[]> rows =
+                    PeriodTotalsTable.rows(
+                            postings, data.getEntries(), "Expenses", NetWorthTable.Interval.MONTH, null, null);
+            report("period_totals in memory #" + run, postings.size(), System.nanoTime() - started);
+
+            started = System.nanoTime();
+            Map<List<String>, BigDecimal> reference = monthlyTotalsReference(postings, data.getEntries());
+            report("per-row month grouping #" + run, postings.size(), System.nanoTime() - started);
+            Map<List<String>, BigDecimal> totals = new HashMap<>();
+            for (Object[] row : rows) {
+                totals.put(
+                        List.of(YearMonth.from(LocalDate.ofEpochDay((Integer) row[0])).toString(),
+                                (String) row[2], (String) row[3]),
+                        (BigDecimal) row[4]);
+            }
+            if (!totals.equals(reference)) {
+                throw new IllegalStateException("Period totals differ from the per-row grouping");
+            }
+        }
+        String function =
+                "SELECT \"period_start\", \"account\", \"total\", \"currency\" "
+                        + "FROM TABLE(\"beancount\".\"period_totals\"('Expenses', 'month'))";
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger.toUri(), new Properties())) {
+            warmUp(connection);
+            for (int run = 1; run <= LOAD_RUNS; run++) {
+                sumQuery(connection, "SQL period_totals() #" + run, function, postings.size());
+                sumQuery(connection, "SQL GROUP BY #" + run, PERIODS_SQL, postings.size());
+            }
+        }
+    }
+
+    private static void pricesBenchmark(int days) {
+        long first = LocalDate.of(2000, 1, 1).toEpochDay();
+        int[] priceDays = new int[COMMODITIES.length * days];
+        BigDecimal[] prices = new BigDecimal[priceDays.length];
+        for (int i = 0; i < priceDays.length; i++) {
+            priceDays[i] = (int) (first + i / COMMODITIES.length);
+            prices[i] = BigDecimal.valueOf(10_000 + (i * 7919L) % 5_000, 2);
+        }
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long started = System.nanoTime();
+            PriceIndex.Builder builder = new PriceIndex.Builder();
+            for (int i = 0; i < priceDays.length; i++) {
+                builder.add(
+                        COMMODITIES[i % COMMODITIES.length], "USD", LocalDate.ofEpochDay(priceDays[i]), prices[i]);
+            }
+            for (int day = 0; day < days; day += 7) {
+                builder.add("EUR", "USD", LocalDate.ofEpochDay(first + day), BigDecimal.valueOf(110 + day % 20, 2));
+            }
+            PriceIndex index = builder.build(List.of("USD"));
+            report("price index build #" + run, priceDays.length, System.nanoTime() - started);
+
+            Random random = new Random(7);
+            int[] lookups = new int[PRICE_LOOKUPS];
+            for (int i = 0; i < lookups.length; i++) {
+                lookups[i] = random.nextInt(priceDays.length);
+            }
+            started = System.nanoTime();
+            BigDecimal indexed = BigDecimal.ZERO;
+            for (int lookup : lookups) {
+                String commodity = COMMODITIES[lookup % COMMODITIES.length];
+                indexed = indexed.add(index.priceAt(commodity, "USD", priceDays[lookup]));
+            }
+            report("as-of indexed #" + run, lookups.length, System.nanoTime() - started);
+
+            started = System.nanoTime();
+            BigDecimal converted = BigDecimal.ZERO;
+            for (int lookup : lookups) {
+                BigDecimal price = index.priceAt(COMMODITIES[lookup % COMMODITIES.length], "EUR", priceDays[lookup]);
+                converted = price == null ? converted : converted.add(price);
+            }
+            report("as-of via USD #" + run, lookups.length, System.nanoTime() - started);
+
+            started = System.nanoTime();
+            BigDecimal scanned = BigDecimal.ZERO;
+            for (int lookup : lookups) {
+                scanned = scanned.add(latestPrice(priceDays, prices, lookup % COMMODITIES.length, priceDays[lookup]));
+            }
+            report("as-of scanned #" + run, lookups.length, System.nanoTime() - started);
+            if (indexed.compareTo(scanned) != 0) {
+                throw new IllegalStateException("Prices differ: " + indexed + " != " + scanned);
+            }
+        }
+    }
+
+    private static void tagsBenchmark(int transactions) {
+        // Tag t is used by about one transaction in t + 1, so low tags are dense and high ones rare.
+        Random random = new Random(7);
+        List<LedgerEntry> entries = new ArrayList<>(transactions);
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        for (int id = 0; id < transactions; id++) {
+            StringBuilder tags = new StringBuilder();
+            for (int tag = 0; tag < TAG_POOL; tag++) {
+                if (random.nextInt(tag + 1) == 0) {
+                    tags.append(tags.length() == 0 ? "" : ",").append("tag-").append(tag);
+                }
+            }
+            entries.add(new LedgerEntry(
+                    id,
+                    start.plusDays(id / 50),
+                    "txn",
+                    "synthetic.beancount",
+                    id + 1,
+                    new TransactionPayload("*", null, "Entry " + id, tags.toString(), "")));
+        }
+        String[][] pairs = new String[TAG_LOOKUPS][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new String[] {"tag-" + random.nextInt(TAG_POOL), "tag-" + random.nextInt(TAG_POOL)};
+        }
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long started = System.nanoTime();
+            EntryLabelIndex tags = EntryLabelIndex.tags(entries);
+            EntryLabelIndex links = EntryLabelIndex.links(entries);
+            report("tag index build #" + run, tags.size(), System.nanoTime() - started);
+
+            started = System.nanoTime();
+            long indexed = 0;
+            for (String[] pair : pairs) {
+                indexed += EntryLabelsTable.taggedRows(tags, links, pair[0] + "," + pair[1], null).size();
+            }
+            report("tagged bitmaps #" + run, pairs.length, System.nanoTime() - started);
+
+            started = System.nanoTime();
+            long scanned = 0;
+            for (String[] pair : pairs) {
+                for (LedgerEntry entry : entries) {
+                    List<String> entryTags = Arrays.asList(entry.getTransactionPayload().getTags().split(","));
+                    if (entryTags.contains(pair[0]) && entryTags.contains(pair[1])) {
+                        scanned++;
+                    }
+                }
+            }
+            report("tagged scanned #" + run, pairs.length, System.nanoTime() - started);
+            if (indexed != scanned) {
+                throw new IllegalStateException("Tagged counts differ: " + indexed + " != " + scanned);
+            }
+        }
+    }
+
+    private static void searchBenchmark(int transactions) {
+        Random random = new Random(11);
+        String[] payees = new String[transactions];
+        String[] narrations = new String[transactions];
+        for (int id = 0; id < transactions; id++) {
+            payees[id] = PAYEES[random.nextInt(PAYEES.length)];
+            narrations[id] =
+                    WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " #" + id;
+        }
+        String[] queries = new String[SEARCH_QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            String payeeWord = PAYEES[random.nextInt(PAYEES.length)].split(" ")[0].toUpperCase(Locale.ROOT);
+            queries[i] = i % 2 == 0 ? word : payeeWord + " " + word;
+        }
+        for (int run = 1; run <= LOAD_RUNS; run++) {
+            long started = System.nanoTime();
+            TextSearchIndex.Builder builder = new TextSearchIndex.Builder();
+            for (int id = 0; id < transactions; id++) {
+                builder.add(id, payees[id], narrations[id], null);
+            }
+            TextSearchIndex index = builder.build();
+            report("text index build #" + run, index.size(), System.nanoTime() - started);
+
+            started = System.nanoTime();
+            long indexed = 0;
+            for (String query : queries) {
+                indexed += index.search(query, 0).size();
+            }
+            report("search indexed #" + run, queries.length, System.nanoTime() - started);
+
+            started = System.nanoTime();
+            long scanned = 0;
+            for (String query : queries) {
+                String[] terms = query.toLowerCase(Locale.ROOT).split(" ");
+                for (int id = 0; id < transactions; id++) {
+                    String payee = payees[id].toLowerCase(Locale.ROOT);
+                    String narration = narrations[id].toLowerCase(Locale.ROOT);
+                    boolean all = true;
+                    for (String term : terms) {
+                        all &= payee.contains(term) || narration.contains(term);
+                    }
+                    if (all) {
+                        scanned++;
+                    }
+                }
+            }
+            report("search scanned #" + run, queries.length, System.nanoTime() - started);
+            if (indexed != scanned) {
+                throw new IllegalStateException("Search counts differ: " + indexed + " != " + scanned);
+            }
+        }
+    }
+
+    /** The price of commodity {@code commodity} with the latest date on or before {@code day}. */
+    private static BigDecimal latestPrice(int[] priceDays, BigDecimal[] prices, int commodity, int day) {
+        int latest = -1;
+        for (int i = commodity; i < priceDays.length; i += COMMODITIES.length) {
+            if (priceDays[i] <= day && (latest < 0 || priceDays[i] >= priceDays[latest])) {
+                latest = i;
+            }
+        }
+        return prices[latest];
+    }
+
+    private static BigDecimal sumColumn(DecimalColumn column) {
+        DecimalSum sum = new DecimalSum();
+        for (int i = 0; i < column.size(); i++) {
+            column.addTo(i, sum);
+        }
+        return sum.toBigDecimal();
+    }
+
+    private static BigDecimal[] sumGrouped(
+            DecimalColumn column, ColumnKernels kernels, DictionaryColumn accounts, DictionaryColumn currencies) {
+        return column.sumByGroup(GroupIds.of(kernels, accounts, currencies), kernels);
+    }
+
+    private static Map<List<String>, BigDecimal> sumGroupedReference(List<PostingRecord> postings) {
+        Map<List<String>, BigDecimal> totals = new LinkedHashMap<>();
+        for (PostingRecord posting : postings) {
+            List<String> key = Arrays.asList(posting.getAccount(), posting.getCurrency());
+            BigDecimal total = totals.get(key);
+            if (posting.getNumber() != null) {
+                totals.put(key, (total == null ? BigDecimal.ZERO : total).add(posting.getNumber()));
+            } else if (!totals.containsKey(key)) {
+                totals.put(key, null);
+            }
+        }
+        return totals;
+    }
+
+    /** {@link #PERIOD_QUERIES} inclusive epoch-day ranges of up to a year within the ledger's dates. */
+    /** Expenses totals by (month, account, currency), extracting the month of every posting's date. */
+    private static Map<List<String>, BigDecimal> monthlyTotalsReference(
+            List<PostingRecord> postings, List<LedgerEntry> entries) {
+        Map<Integer, LocalDate> dateById = new HashMap<>();
+        for (LedgerEntry entry : entries) {
+            dateById.put(entry.getId(), entry.getDate());
+        }
+        Map<List<String>, BigDecimal> totals = new HashMap<>();
+        for (PostingRecord posting : postings) {
+            if (!posting.getAccount().startsWith("Expenses:") || posting.getNumber() == null) {
+                continue;
+            }
+            String month = YearMonth.from(dateById.get(posting.getEntryId())).toString();
+            totals.merge(
+                    List.of(month, posting.getAccount(), posting.getCurrency()), posting.getNumber(), BigDecimal::add);
+        }
+        return totals;
+    }
+
+    private static long[][] periods(List<LedgerEntry> entries) {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (LedgerEntry entry : entries) {
+            first = Math.min(first, entry.getDate().toEpochDay());
+            last = Math.max(last, entry.getDate().toEpochDay());
+        }
+        Random random = new Random(7);
+        long[][] periods = new long[PERIOD_QUERIES][];
+        for (int i = 0; i < periods.length; i++) {
+            long from = first + (long) (random.nextDouble() * (last - first + 1));
+            periods[i] = new long[] {from, from + random.nextInt(366)};
+        }
+        return periods;
+    }
+
+    private static BigDecimal sumPeriod(
+            List<PostingRecord> postings, long[] postingDays, long fromDay, long toDay) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < postingDays.length; i++) {
+            PostingRecord posting = postings.get(i);
+            if (postingDays[i] >= fromDay
+                    && postingDays[i] <= toDay
+                    && posting.getNumber() != null
+                    && "USD".equals(posting.getCurrency())
+                    && posting.getAccount().startsWith("Expenses:")) {
+                total = total.add(posting.getNumber());
+            }
+        }
+        return total;
+    }
+
+    private static BigDecimal sumNumbers(List<PostingRecord> postings) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (PostingRecord posting : postings) {
+            if (posting.getNumber() != null) {
+                total = total.add(posting.getNumber());
+            }
+        }
+        return total;
+    }
+
+    private static void sumQuery(Connection connection, String name, String sql, int postings) throws SQLException {
+        long started = System.nanoTime();
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                resultSet.getBigDecimal(3);
+            }
+        }
+        report(name, postings, System.nanoTime() - started);
+    }
+
+    /** Runs a query of (period end, value) rows and reports it against the ledger's postings. */
+    private static void valueQuery(Connection connection, String name, String sql, int postings) throws SQLException {
+        long started = System.nanoTime();
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                resultSet.getBigDecimal(2);
+            }
+        }
+        report(name, postings, System.nanoTime() - started);
+    }
+
+    private static DecimalFormat referenceFormat(char decimalSeparator) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.ROOT);
+        symbols.setDecimalSeparator(decimalSeparator);
+        DecimalFormat format = new DecimalFormat();
+        format.setDecimalFormatSymbols(symbols);
+        format.setParseBigDecimal(true);
+        format.setGroupingUsed(false);
+        return format;
+    }
+
+    private static void reportLiterals(
+            String name,
+            int count,
+            long started,
+            long allocatedBefore,
+            ThreadMXBean threads,
+            boolean allocationTracked) {
+        report(name, count, System.nanoTime() - started);
+        if (allocationTracked) {
+            System.out.printf(
+                    "  allocated=%d MiB%n",
+                    (allocatedBytes(threads, allocationTracked) - allocatedBefore) >> 20);
+        }
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads, boolean allocationTracked) {
+        if (!allocationTracked) {
+            return 0L;
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+    }
+
+    private static LedgerEntry syntheticEntry(int id, LocalDate date) {
+        return new LedgerEntry(id, date, "txn", "synthetic.beancount", id + 1, null);
+    }
+
+    private static PostingRecord lotPosting(
+            int postingId, int entryId, BigDecimal units, BigDecimal cost) {
+        return new PostingRecord(
+                postingId,
+                entryId,
+                null,
+                "Assets:Broker:ACME",
+                units,
+                "ACME",
+                cost,
+                "USD",
+                null,
+                null,
+                null,
+                null);
+    }
+
+    private static void warmUp(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet =
+                        statement.executeQuery("SELECT COUNT(*) FROM \"beancount\".\"entry\"")) {
+            resultSet.next();
+        }
+    }
+
+    private static void report(String name, long rows, long elapsedNanos) {
+        double millis = elapsedNanos / 1_000_000.0;
+        System.out.printf(
+                "%-20s rows=%d time=%.1f ms (%.0f rows/s)%n",
+                name, rows, millis, millis == 0 ? 0 : rows / (millis / 1000.0));
+    }
+}
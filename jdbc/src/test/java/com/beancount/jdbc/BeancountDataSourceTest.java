@@ -0,0 +1,144 @@
+package com.beancount.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class BeancountDataSourceTest {
+
+    private static final String LEDGER =
+            """
+            2024-01-01 open Assets:Cash USD
+            2024-01-01 open Expenses:Food USD
+
+            2024-01-05 * "Lunch"
+              Expenses:Food   12.00 USD
+              Assets:Cash
+            """;
+
+    @TempDir Path tempDir;
+
+    @Test
+    void closedConnectionsAreReusedWhileLedgerIsUnchanged() throws Exception {
+        Path ledger = Files.writeString(tempDir.resolve("ledger.beancount"), LEDGER);
+        try (BeancountDataSource dataSource = new BeancountDataSource()) {
+            dataSource.setLedger(ledger.toString());
+            dataSource.setMinIdle(1);
+
+            CalciteConnection first;
+            try (Connection connection = dataSource.getConnection()) {
+                first = connection.unwrap(CalciteConnection.class);
+                assertEquals(1, countTransactions(connection));
+            }
+            try (Connection connection = dataSource.getConnection()) {
+                assertSame(first, connection.unwrap(CalciteConnection.class));
+                assertEquals(1, countTransactions(connection));
+            }
+        }
+    }
+
+    @Test
+    void ledgerChangesInvalidatePooledConnections() throws Exception {
+        Path ledger = Files.writeString(tempDir.resolve("ledger.beancount"), LEDGER);
+        try (BeancountDataSource dataSource = new BeancountDataSource()) {
+            dataSource.setLedger(ledger.toString());
+
+            CalciteConnection first;
+            try (Connection connection = dataSource.getConnection()) {
+                first = connection.unwrap(CalciteConnection.class);
+                assertEquals(1, countTransactions(connection));
+            }
+
+            Files.writeString(
+                    ledger,
+                    """
+
+                    2024-01-06 * "Dinner"
+                      Expenses:Food   20.00 USD
+                      Assets:Cash
+                    """,
+                    StandardOpenOption.APPEND);
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertNotSame(first, connection.unwrap(CalciteConnection.class));
+                assertEquals(2, countTransactions(connection));
+            }
+        }
+    }
+
+    @Test
+    void closedHandleRejectsFurtherUse() throws Exception {
+        Path ledger = Files.writeString(tempDir.resolve("ledger.beancount"), LEDGER);
+        try (BeancountDataSource dataSource = new BeancountDataSource()) {
+            dataSource.setLedger(ledger.toString());
+            Connection connection = dataSource.getConnection();
+            connection.close();
+            assertTrue(connection.isClosed());
+        }
+    }
+
+    @Test
+    void sessionStateIsResetBeforeReuse() throws Exception {
+        Path ledger = Files.writeString(tempDir.resolve("ledger.beancount"), LEDGER);
+        try (BeancountDataSource dataSource = new BeancountDataSource()) {
+            dataSource.setLedger(ledger.toString());
+
+            CalciteConnection first;
+            try (Connection connection = dataSource.getConnection();
+                    Statement statement = connection.createStatement()) {
+                first = connection.unwrap(CalciteConnection.class);
+                statement.execute("CREATE VIEW \"lunches\" AS SELECT 1 AS \"one\"");
+                connection.setAutoCommit(false);
+                connection.setSchema("metadata");
+            }
+            try (Connection connection = dataSource.getConnection()) {
+                assertSame(first, connection.unwrap(CalciteConnection.class));
+                assertEquals("beancount", connection.getSchema());
+                assertTrue(connection.getAutoCommit());
+                try (Statement statement = connection.createStatement()) {
+                    assertThrows(
+                            SQLException.class,
+                            () -> statement.executeQuery("SELECT * FROM \"beancount\".\"lunches\""));
+                }
+                assertEquals(1, countTransactions(connection));
+            }
+        }
+    }
+
+    @Test
+    void credentialsAreRejectedInsteadOfIgnored() throws Exception {
+        Path ledger = Files.writeString(tempDir.resolve("ledger.beancount"), LEDGER);
+        try (BeancountDataSource dataSource = new BeancountDataSource()) {
+            dataSource.setLedger(ledger.toString());
+            assertThrows(SQLException.class, () -> dataSource.getConnection("alice", "secret"));
+            assertThrows(SQLException.class, () -> dataSource.getPooledConnection("alice", null));
+            try (Connection connection = dataSource.getConnection(null, "")) {
+                assertFalse(connection.isClosed());
+            }
+        }
+    }
+
+    private static int countTransactions(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs =
+                        statement.executeQuery(
+                                "SELECT COUNT(*) FROM \"beancount\".\"transactions_detail\"")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.beancount.jdbc;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.beancount.jdbc.testing.TestResources;
@@ -9,7 +11,9 @@ import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
@@ -53,4 +57,45 @@ final class BeancountDriverIntegrationTest {
         }
     }
 
+    @Test
+    void beancountSchemaMetadataPublishesKeysAndIndexes() throws Exception {
+        Class.forName("com.beancount.jdbc.BeancountDriver");
+        Path ledger = TestResources.absolutePath("third_party/beancount/examples/example.beancount");
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger)) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            List<String> columns = new ArrayList<>();
+            try (ResultSet rs = metaData.getColumns(null, "beancount", "postings", "%")) {
+                while (rs.next()) {
+                    columns.add(rs.getString("COLUMN_NAME"));
+                    assertEquals(columns.size(), rs.getInt("ORDINAL_POSITION"));
+                }
+            }
+            assertEquals("posting_id", columns.get(0));
+            assertTrue(columns.contains("account"), "postings columns should include account");
+
+            try (ResultSet rs = metaData.getPrimaryKeys(null, "beancount", "postings")) {
+                assertTrue(rs.next(), "postings should publish a primary key");
+                assertEquals("posting_id", rs.getString("COLUMN_NAME"));
+                assertEquals(1, rs.getShort("KEY_SEQ"));
+                assertFalse(rs.next());
+            }
+
+            Set<String> indexes = new LinkedHashSet<>();
+            try (ResultSet rs = metaData.getIndexInfo(null, "beancount", "postings", false, true)) {
+                while (rs.next()) {
+                    indexes.add(rs.getString("INDEX_NAME"));
+                }
+            }
+            assertEquals(Set.of("postings_pk", "postings_entry_idx"), indexes);
+
+            Set<String> views = new LinkedHashSet<>();
+            try (ResultSet rs = metaData.getTables(null, "beancount", "%", new String[] {"VIEW"})) {
+                while (rs.next()) {
+                    views.add(rs.getString("TABLE_NAME"));
+                }
+            }
+            assertTrue(views.contains("transactions"), "transactions view should be listed");
+            assertFalse(views.contains("postings"), "postings is a table, not a view");
+        }
+    }
 }
@@ -0,0 +1,156 @@
+package com.beancount.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Properties;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+final class BeancountDriverQueryGuardTest {
+
+    private static final int TRANSACTIONS = 2000;
+
+    @TempDir static Path tempDir;
+    private static Path ledger;
+
+    @BeforeAll
+    static void writeLedger() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        builder.append("2020-01-01 open Assets:Cash USD\n");
+        builder.append("2020-01-01 open Expenses:Food USD\n\n");
+        LocalDate date = LocalDate.of(2020, 1, 2);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            builder.append(date.plusDays(i % 365)).append(" * \"Meal ").append(i).append("\"\n");
+            builder.append("  Expenses:Food   1.00 USD\n");
+            builder.append("  Assets:Cash\n\n");
+        }
+        ledger = Files.writeString(tempDir.resolve("guard.beancount"), builder.toString());
+        Class.forName("com.beancount.jdbc.BeancountDriver");
+    }
+
+    @Test
+    void queriesWithinBudgetsSucceed() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("maxScanRows", "100000");
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger, props);
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM \"beancount\".\"postings\"")) {
+            assertTrue(rs.next());
+            assertEquals(TRANSACTIONS * 2, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void rowBudgetAbortsLargeScans() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("maxScanRows", "500");
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger, props);
+                Statement statement = connection.createStatement()) {
+            SQLException ex =
+                    assertThrows(
+                            SQLException.class,
+                            () -> {
+                                try (ResultSet rs =
+                                        statement.executeQuery(
+                                                "SELECT COUNT(*) FROM \"beancount\".\"postings\"")) {
+                                    rs.next();
+                                }
+                            });
+            assertEquals("54000", ex.getSQLState());
+            assertTrue(ex.getMessage().contains("maxScanRows"), ex.getMessage());
+        }
+    }
+
+    @Test
+    void rowBudgetAppliesToPreparedStatements() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("maxScanRows", "500");
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger, props);
+                PreparedStatement statement =
+                        connection.prepareStatement(
+                                "SELECT COUNT(*) FROM \"beancount\".\"postings\" WHERE \"account\" <> ?")) {
+            statement.setString(1, "Equity:Opening");
+            SQLException ex =
+                    assertThrows(
+                            SQLException.class,
+                            () -> {
+                                try (ResultSet rs = statement.executeQuery()) {
+                                    rs.next();
+                                }
+                            });
+            assertEquals("54000", ex.getSQLState());
+            assertTrue(ex.getMessage().contains("maxScanRows"), ex.getMessage());
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void queryTimeoutAppliesToPreparedStatements() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger);
+                PreparedStatement statement =
+                        connection.prepareStatement(
+                                "SELECT p.\"account\", q.\"account\" FROM \"beancount\".\"postings\" p, "
+                                        + "\"beancount\".\"postings\" q, \"beancount\".\"postings\" r")) {
+            statement.setQueryTimeout(1);
+            assertThrows(
+                    SQLTimeoutException.class,
+                    () -> {
+                        try (ResultSet rs = statement.executeQuery()) {
+                            while (rs.next()) {
+                                // Drain until the timeout cancels the query.
+                            }
+                        }
+                    });
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void memoryBudgetStopsRunawayCrossJoin() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("maxQueryBytes", String.valueOf(64L * 1024 * 1024));
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger, props);
+                Statement statement = connection.createStatement()) {
+            SQLException ex =
+                    assertThrows(
+                            SQLException.class,
+                            () -> {
+                                try (ResultSet rs =
+                                        statement.executeQuery(
+                                                "SELECT p.\"account\", e.\"date\" FROM \"beancount\".\"postings\" p, "
+                                                        + "\"beancount\".\"entry\" e ORDER BY e.\"date\"")) {
+                                    while (rs.next()) {
+                                        // Drain until the guard aborts the query.
+                                    }
+                                }
+                            });
+            assertEquals("54000", ex.getSQLState());
+            assertTrue(ex.getMessage().contains("maxQueryBytes"), ex.getMessage());
+        }
+    }
+
+    @Test
+    void malformedBudgetIsRejectedAtConnect() {
+        Properties props = new Properties();
+        props.setProperty("maxScanRows", "lots");
+        SQLException ex =
+                assertThrows(
+                        SQLException.class,
+                        () -> DriverManager.getConnection("jdbc:beancount:" + ledger, props).close());
+        assertTrue(ex.getMessage().contains("maxScanRows"), ex.getMessage());
+    }
+}
@@ -0,0 +1,97 @@
+package com.beancount.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class BeancountDriverStreamingTest {
+
+    private static final int TRANSACTIONS = 500;
+
+    @TempDir static Path tempDir;
+    private static Path ledger;
+
+    @BeforeAll
+    static void writeLedger() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        builder.append("2020-01-01 open Assets:Cash USD\n");
+        builder.append("2020-01-01 open Expenses:Food USD\n\n");
+        LocalDate date = LocalDate.of(2020, 1, 2);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            builder.append(date.plusDays(i % 365)).append(" * \"Meal ").append(i).append("\"\n");
+            builder.append("  Expenses:Food   1.00 USD\n");
+            builder.append("  Assets:Cash\n\n");
+        }
+        ledger = Files.writeString(tempDir.resolve("streaming.beancount"), builder.toString());
+        Class.forName("com.beancount.jdbc.BeancountDriver");
+    }
+
+    @Test
+    void maxRowsStopsTheCursorEarly() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger);
+                Statement statement = connection.createStatement()) {
+            statement.setMaxRows(7);
+            try (ResultSet rs = statement.executeQuery("SELECT * FROM \"beancount\".\"postings\"")) {
+                int rows = 0;
+                while (rs.next()) {
+                    rows++;
+                }
+                assertEquals(7, rows);
+                assertFalse(rs.next());
+            }
+        }
+    }
+
+    @Test
+    void fetchSizeIsReportedOnResultSet() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger);
+                Statement statement = connection.createStatement()) {
+            statement.setFetchSize(100);
+            try (ResultSet rs = statement.executeQuery("SELECT \"account\" FROM \"beancount\".\"postings\"")) {
+                assertEquals(100, rs.getFetchSize());
+                int rows = 0;
+                while (rs.next()) {
+                    assertTrue(rs.getString(1).startsWith("Assets:") || rs.getString(1).startsWith("Expenses:"));
+                    rows++;
+                }
+                assertEquals(TRANSACTIONS * 2, rows);
+            }
+        }
+    }
+
+    @Test
+    void projectedScansReturnOnlyRequestedColumns() throws Exception {
+        String query =
+                "SELECT \"narration\", \"flag\" FROM \"beancount\".\"transactions_detail\" "
+                        + "WHERE \"narration\" = 'Meal 42'";
+        try (Connection connection = DriverManager.getConnection("jdbc:beancount:" + ledger);
+                Statement statement = connection.createStatement()) {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN PLAN FOR " + query);
+                    ResultSet plan = explain.executeQuery()) {
+                assertTrue(plan.next());
+                String text = plan.getString(1);
+                // narration and flag are ordinals 3 and 1 of (id, flag, payee, narration, tags, links).
+                assertTrue(text.contains("projects=[[3, 1]]"), text);
+            }
+            try (ResultSet rs = statement.executeQuery(query)) {
+                assertEquals(2, rs.getMetaData().getColumnCount());
+                assertTrue(rs.next());
+                assertEquals("Meal 42", rs.getString(1));
+                assertEquals("*", rs.getString(2));
+                assertFalse(rs.next());
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.EXAMPLE_LEDGER;
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+final class AccountBalanceHistoryIntegrationTest {
+
+    @Test
+    void rowsMatchRunningSumsOverPostingsAndEntries() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            Map<String, Map<String, TreeMap<LocalDate, BigDecimal>>> expected = expectedHistory(statement);
+            assertFalse(expected.isEmpty(), "Expected postings in the example ledger");
+
+            List<String> expectedRows = new ArrayList<>();
+            expected.forEach(
+                    (account, byCurrency) ->
+                            byCurrency.forEach(
+                                    (currency, byDate) ->
+                                            byDate.forEach(
+                                                    (date, balance) ->
+                                                            expectedRows.add(
+                                                                    account + " " + currency + " " + date + " "
+                                                                            + balance.stripTrailingZeros()
+                                                                                    .toPlainString()))));
+            List<String> actualRows = new ArrayList<>();
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"account\", \"currency\", \"date\", \"balance\" "
+                                    + "FROM \"beancount\".\"account_balance_history\" "
+                                    + "ORDER BY \"account\", \"currency\", \"date\"")) {
+                while (rs.next()) {
+                    actualRows.add(
+                            rs.getString(1) + " " + rs.getString(2) + " " + rs.getDate(3).toLocalDate() + " "
+                                    + rs.getBigDecimal(4).stripTrailingZeros().toPlainString());
+                }
+            }
+            assertEquals(expectedRows, actualRows);
+        }
+    }
+
+    @Test
+    void balanceAtDateLookupsNarrowToOneSeries() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            Map<String, Map<String, TreeMap<LocalDate, BigDecimal>>> expected = expectedHistory(statement);
+            String account = expected.keySet().iterator().next();
+            String currency = expected.get(account).keySet().iterator().next();
+            TreeMap<LocalDate, BigDecimal> series = expected.get(account).get(currency);
+            for (LocalDate date :
+                    List.of(series.firstKey().minusDays(1), series.firstKey(), series.lastKey().plusDays(1))) {
+                Map.Entry<LocalDate, BigDecimal> change = series.floorEntry(date);
+                try (ResultSet rs =
+                        statement.executeQuery(
+                                "SELECT \"balance\" FROM \"beancount\".\"account_balance_history\" "
+                                        + "WHERE \"account\" = '" + account + "' AND \"currency\" = '" + currency
+                                        + "' AND \"date\" <= DATE '" + date + "' "
+                                        + "ORDER BY \"date\" DESC LIMIT 1")) {
+                    if (change == null) {
+                        assertFalse(rs.next(), date.toString());
+                    } else {
+                        assertTrue(rs.next(), date.toString());
+                        assertEquals(0, change.getValue().compareTo(rs.getBigDecimal(1)), date.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    private static Map<String, Map<String, TreeMap<LocalDate, BigDecimal>>> expectedHistory(Statement statement)
+            throws Exception {
+        Map<String, Map<String, TreeMap<LocalDate, BigDecimal>>> changes = new TreeMap<>();
+        try (ResultSet rs =
+                statement.executeQuery(
+                        "SELECT p.\"account\", p.\"currency\", e.\"date\", p.\"number\" "
+                                + "FROM \"beancount\".\"postings\" AS p "
+                                + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                                + "WHERE p.\"number\" IS NOT NULL AND p.\"currency\" IS NOT NULL")) {
+            while (rs.next()) {
+                changes.computeIfAbsent(rs.getString(1), key -> new TreeMap<>())
+                        .computeIfAbsent(rs.getString(2), key -> new TreeMap<>())
+                        .merge(rs.getDate(3).toLocalDate(), rs.getBigDecimal(4), BigDecimal::add);
+            }
+        }
+        for (Map<String, TreeMap<LocalDate, BigDecimal>> byCurrency : changes.values()) {
+            for (TreeMap<LocalDate, BigDecimal> byDate : byCurrency.values()) {
+                BigDecimal balance = BigDecimal.ZERO;
+                for (Map.Entry<LocalDate, BigDecimal> change : byDate.entrySet()) {
+                    balance = balance.add(change.getValue());
+                    change.setValue(balance);
+                }
+            }
+        }
+        return changes;
+    }
+}
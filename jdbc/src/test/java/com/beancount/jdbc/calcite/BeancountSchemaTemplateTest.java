@@ -0,0 +1,62 @@
+package com.beancount.jdbc.calcite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.beancount.jdbc.ledger.LedgerProvider;
+import com.beancount.jdbc.ledger.LedgerSnapshot;
+import com.beancount.jdbc.testing.TestResources;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.schema.SchemaPlus;
+import org.junit.jupiter.api.Test;
+
+final class BeancountSchemaTemplateTest {
+
+    @Test
+    void connectionsShareTablesAndViewsFromSnapshotTemplate() throws Exception {
+        LedgerSnapshot snapshot =
+                LedgerProvider.snapshot(TestResources.absolutePath("third_party/beancount/examples/example.beancount"));
+        try (Connection first = CalciteConnectionFactory.connect(snapshot, new Properties());
+                Connection second = CalciteConnectionFactory.connect(snapshot, new Properties())) {
+            SchemaPlus firstSchema = beancountSchema(first);
+            SchemaPlus secondSchema = beancountSchema(second);
+            assertSame(firstSchema.getTable("entry"), secondSchema.getTable("entry"));
+            assertSame(firstSchema.getTable("open"), secondSchema.getTable("open"));
+            assertEquals(countRows(first, "open"), countRows(second, "open"));
+        }
+    }
+
+    @Test
+    void ddlTablesStayLocalToTheirConnection() throws Exception {
+        LedgerSnapshot snapshot =
+                LedgerProvider.snapshot(TestResources.absolutePath("third_party/beancount/examples/example.beancount"));
+        try (Connection first = CalciteConnectionFactory.connect(snapshot, new Properties());
+                Connection second = CalciteConnectionFactory.connect(snapshot, new Properties())) {
+            try (Statement statement = first.createStatement()) {
+                statement.execute("CREATE TABLE \"scratch\" (\"id\" INTEGER)");
+            }
+            assertNotNull(beancountSchema(first).getTable("scratch"));
+            assertNull(beancountSchema(second).getTable("scratch"));
+            assertNull(BeancountSchemaTemplate.of(snapshot).tables(List.of("beancount")).get("scratch"));
+        }
+    }
+
+    private static SchemaPlus beancountSchema(Connection connection) throws Exception {
+        return connection.unwrap(CalciteConnection.class).getRootSchema().getSubSchema("beancount");
+    }
+
+    private static long countRows(Connection connection, String table) throws Exception {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM \"beancount\".\"" + table + "\"")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
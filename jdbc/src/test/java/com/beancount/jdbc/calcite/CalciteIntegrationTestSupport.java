@@ -2,6 +2,11 @@ package com.beancount.jdbc.calcite;
 
 import com.beancount.jdbc.testing.TestResources;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.Properties;
 
 /**
@@ -10,8 +15,21 @@ import java.util.Properties;
  */
 final class CalciteIntegrationTestSupport {
 
+    static final String EXAMPLE_LEDGER = "classpath:regression/ledgers/beancount-beancount-example.beancount";
+
     private CalciteIntegrationTestSupport() {}
 
+    /** Opens a Calcite connection over the ledger resource at {@code resourcePath}. */
+    static Connection connectToResource(String resourcePath) throws SQLException {
+        return connect(moduleLedgerPath(resourcePath));
+    }
+
+    /** Writes {@code ledgerText} to {@code file} and opens a Calcite connection over it. */
+    static Connection connectToLedgerText(Path file, String ledgerText) throws IOException, SQLException {
+        Path ledger = Files.writeString(file, ledgerText);
+        return connect(ledger.toString());
+    }
+
     static Properties newCalciteConnectionProperties(String ledgerPath) {
         Properties props = new Properties();
         props.setProperty("model", inlineModel(ledgerPath));
@@ -29,6 +47,15 @@ final class CalciteIntegrationTestSupport {
         }
     }
 
+    private static Connection connect(String ledgerPath) throws SQLException {
+        try {
+            Class.forName("org.apache.calcite.jdbc.Driver");
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException("Calcite JDBC driver is not on the classpath", ex);
+        }
+        return DriverManager.getConnection("jdbc:calcite:", newCalciteConnectionProperties(ledgerPath));
+    }
+
     private static String inlineModel(String ledgerPath) {
         return """
                 inline:{
@@ -0,0 +1,156 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToLedgerText;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class EntryLabelsIntegrationTest {
+
+    private static final String LEDGER =
+            """
+            2024-01-01 open Assets:Cash
+            2024-01-01 open Expenses:Travel
+            2024-01-01 open Expenses:Food
+
+            pushtag #trip-2024
+            2024-03-01 * "Rail" "Ticket" #business ^inv-1
+              Expenses:Travel  80 USD
+              Assets:Cash  -80 USD
+
+            2024-03-02 * "Cafe" "Lunch"
+              Expenses:Food  12 USD
+              Assets:Cash  -12 USD
+            poptag #trip-2024
+
+            2024-04-01 * "Cafe" "Dinner" #business ^inv-1 ^inv-2
+              Expenses:Food  30 USD
+              Assets:Cash  -30 USD
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void tagRowsMatchTheTagsColumn() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("labels.beancount"), LEDGER);
+                Statement statement = connection.createStatement()) {
+            List<String> expected = new ArrayList<>();
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"id\", \"tags\" FROM \"beancount\".\"transactions_detail\" ORDER BY \"id\"")) {
+                while (rs.next()) {
+                    String tags = rs.getString(2);
+                    if (tags != null && !tags.isEmpty()) {
+                        for (String tag : tags.split(",")) {
+                            expected.add(rs.getInt(1) + " " + tag);
+                        }
+                    }
+                }
+            }
+            List<String> actual = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery("SELECT \"id\", \"tag\" FROM \"beancount\".\"entry_tags\"")) {
+                while (rs.next()) {
+                    actual.add(rs.getInt(1) + " " + rs.getString(2));
+                }
+            }
+            assertEquals(expected, actual);
+            assertEquals(4, actual.size());
+        }
+    }
+
+    @Test
+    void tagEqualitiesAndInListsSelectTheTaggedEntries() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("labels.beancount"), LEDGER);
+                Statement statement = connection.createStatement()) {
+            assertEquals(
+                    List.of("Lunch", "Ticket"),
+                    narrations(
+                            statement,
+                            "SELECT d.\"narration\" FROM \"beancount\".\"entry_tags\" AS t "
+                                    + "JOIN \"beancount\".\"transactions_detail\" AS d ON t.\"id\" = d.\"id\" "
+                                    + "WHERE t.\"tag\" = 'trip-2024' ORDER BY d.\"narration\""));
+            assertEquals(
+                    List.of("Dinner", "Lunch", "Ticket"),
+                    narrations(
+                            statement,
+                            "SELECT DISTINCT d.\"narration\" FROM \"beancount\".\"entry_tags\" AS t "
+                                    + "JOIN \"beancount\".\"transactions_detail\" AS d ON t.\"id\" = d.\"id\" "
+                                    + "WHERE t.\"tag\" IN ('trip-2024', 'business', 'missing') "
+                                    + "ORDER BY d.\"narration\""));
+            assertEquals(
+                    List.of("Dinner", "Ticket"),
+                    narrations(
+                            statement,
+                            "SELECT d.\"narration\" FROM \"beancount\".\"entry_links\" AS l "
+                                    + "JOIN \"beancount\".\"transactions_detail\" AS d ON l.\"id\" = d.\"id\" "
+                                    + "WHERE l.\"link\" = 'inv-1' ORDER BY d.\"narration\""));
+        }
+    }
+
+    @Test
+    void preparedTagProbeUsesEachBoundValue() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("labels.beancount"), LEDGER);
+                PreparedStatement statement =
+                        connection.prepareStatement(
+                                "SELECT COUNT(*) FROM \"beancount\".\"entry_tags\" WHERE \"tag\" = ?")) {
+            statement.setString(1, "business");
+            assertEquals(2, count(statement));
+            statement.setString(1, "trip-2024");
+            assertEquals(2, count(statement));
+            statement.setString(1, "missing");
+            assertEquals(0, count(statement));
+        }
+    }
+
+    @Test
+    void taggedIntersectsTagsAndLinks() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("labels.beancount"), LEDGER);
+                Statement statement = connection.createStatement()) {
+            assertEquals(
+                    List.of("Ticket"),
+                    narrations(
+                            statement,
+                            "SELECT d.\"narration\" FROM TABLE(\"beancount\".\"tagged\"('trip-2024, business')) AS t "
+                                    + "JOIN \"beancount\".\"transactions_detail\" AS d ON t.\"id\" = d.\"id\""));
+            assertEquals(
+                    List.of("Dinner"),
+                    narrations(
+                            statement,
+                            "SELECT d.\"narration\" FROM TABLE(\"beancount\".\"tagged\"('#business', '^inv-2')) AS t "
+                                    + "JOIN \"beancount\".\"transactions_detail\" AS d ON t.\"id\" = d.\"id\""));
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"id\" FROM TABLE(\"beancount\".\"tagged\"('trip-2024', 'inv-2'))")) {
+                assertFalse(rs.next());
+            }
+        }
+    }
+
+    private static List<String> narrations(Statement statement, String sql) throws Exception {
+        List<String> narrations = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                narrations.add(rs.getString(1));
+            }
+        }
+        return narrations;
+    }
+
+    private static int count(PreparedStatement statement) throws Exception {
+        try (ResultSet rs = statement.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+}
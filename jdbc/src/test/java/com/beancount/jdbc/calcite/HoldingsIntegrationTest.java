@@ -0,0 +1,119 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.EXAMPLE_LEDGER;
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+final class HoldingsIntegrationTest {
+
+    @Test
+    void holdingsMatchPostingsHeldAtCostUpToTheDate() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            for (LocalDate asOf : new LocalDate[] {LocalDate.of(2014, 6, 30), LocalDate.of(2015, 12, 31)}) {
+                Map<String, BigDecimal> expected = new TreeMap<>();
+                try (ResultSet rs =
+                        statement.executeQuery(
+                                "SELECT p.\"account\", p.\"currency\", p.\"cost_currency\", p.\"number\" "
+                                        + "FROM \"beancount\".\"postings\" AS p "
+                                        + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                                        + "WHERE p.\"cost_number\" IS NOT NULL "
+                                        + "AND e.\"date\" <= DATE '" + asOf + "'")) {
+                    while (rs.next()) {
+                        expected.merge(
+                                rs.getString(1) + " " + rs.getString(2) + " " + rs.getString(3),
+                                rs.getBigDecimal(4),
+                                BigDecimal::add);
+                    }
+                }
+                expected.values().removeIf(quantity -> quantity.signum() == 0);
+
+                Map<String, BigDecimal> actual = new TreeMap<>();
+                try (ResultSet rs =
+                        statement.executeQuery(
+                                "SELECT \"account\", \"currency\", \"cost_currency\", \"quantity\" "
+                                        + "FROM TABLE(\"beancount\".\"holdings\"(DATE '" + asOf + "'))")) {
+                    while (rs.next()) {
+                        actual.put(
+                                rs.getString(1) + " " + rs.getString(2) + " " + rs.getString(3),
+                                rs.getBigDecimal(4));
+                    }
+                }
+                assertFalse(actual.isEmpty(), "Expected holdings at " + asOf);
+                assertEquals(expected.keySet(), actual.keySet(), asOf.toString());
+                for (Map.Entry<String, BigDecimal> holding : expected.entrySet()) {
+                    assertEquals(0, holding.getValue().compareTo(actual.get(holding.getKey())), holding.getKey());
+                }
+            }
+        }
+    }
+
+    @Test
+    void lotsAddUpToHoldings() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            Map<String, BigDecimal[]> lots = new TreeMap<>();
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"account\", \"currency\", \"quantity\", \"book_value\" "
+                                    + "FROM TABLE(\"beancount\".\"lots\"())")) {
+                while (rs.next()) {
+                    BigDecimal[] sums =
+                            lots.computeIfAbsent(
+                                    rs.getString(1) + " " + rs.getString(2),
+                                    key -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO});
+                    sums[0] = sums[0].add(rs.getBigDecimal(3));
+                    sums[1] = sums[1].add(rs.getBigDecimal(4));
+                }
+            }
+            assertFalse(lots.isEmpty(), "Expected open lots at the end of the example ledger");
+            int holdings = 0;
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"account\", \"currency\", \"quantity\", \"book_value\", \"lots\" "
+                                    + "FROM TABLE(\"beancount\".\"holdings\"(CAST(NULL AS DATE)))")) {
+                while (rs.next()) {
+                    holdings++;
+                    BigDecimal[] sums = lots.get(rs.getString(1) + " " + rs.getString(2));
+                    assertEquals(0, sums[0].compareTo(rs.getBigDecimal(3)), rs.getString(1));
+                    assertEquals(0, sums[1].compareTo(rs.getBigDecimal(4)), rs.getString(1));
+                    assertTrue(rs.getInt(5) > 0);
+                }
+            }
+            assertEquals(lots.size(), holdings);
+        }
+    }
+
+    @Test
+    void asOfDateArgumentsReachTheFunctions() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            for (String function : new String[] {"holdings", "lots"}) {
+                assertTrue(
+                        count(statement, function, "CAST(NULL AS DATE)") > 0,
+                        "Expected " + function + " at the end of the ledger");
+                assertEquals(0, count(statement, function, "DATE '1900-01-01'"), function);
+            }
+        }
+    }
+
+    private static int count(Statement statement, String function, String asOf) throws Exception {
+        try (ResultSet rs =
+                statement.executeQuery(
+                        "SELECT COUNT(*) FROM TABLE(\"beancount\".\"" + function + "\"(" + asOf + "))")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.beancount.jdbc.calcite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class InMemoryResultSetTest {
+
+    private static final List<InMemoryResultSet.Column> COLUMNS =
+            List.of(
+                    new InMemoryResultSet.Column("COLUMN_NAME", Types.VARCHAR),
+                    new InMemoryResultSet.Column("KEY_SEQ", Types.SMALLINT),
+                    new InMemoryResultSet.Column("NON_UNIQUE", Types.BOOLEAN),
+                    new InMemoryResultSet.Column("REMARKS", Types.VARCHAR));
+
+    @Test
+    void typedGettersConvertStoredValues() throws Exception {
+        try (ResultSet rs =
+                InMemoryResultSet.of(
+                        COLUMNS, List.<Object[]>of(new Object[] {"2024-01-05", (short) 2, Boolean.FALSE, null}))) {
+            assertTrue(rs.next());
+            assertEquals((byte) 2, rs.getByte("KEY_SEQ"));
+            assertEquals(2.0d, rs.getDouble(2));
+            assertEquals(new BigDecimal("2"), rs.getBigDecimal(2));
+            assertEquals(2L, rs.getObject("KEY_SEQ", Long.class));
+            assertEquals("2", rs.getObject(2, String.class));
+            assertEquals(0, rs.getInt("NON_UNIQUE"));
+            assertEquals(Date.valueOf("2024-01-05"), rs.getDate(1));
+            assertEquals(LocalDate.of(2024, 1, 5), rs.getObject(1, LocalDate.class));
+
+            assertNull(rs.getBigDecimal("REMARKS"));
+            assertTrue(rs.wasNull());
+            assertEquals(0L, rs.getLong(4));
+            assertFalse(rs.getBoolean(4));
+
+            assertThrows(SQLException.class, () -> rs.getInt("COLUMN_NAME"));
+            assertFalse(rs.next());
+        }
+    }
+}
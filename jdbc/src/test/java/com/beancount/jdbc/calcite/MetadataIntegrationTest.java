@@ -0,0 +1,156 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToLedgerText;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class MetadataIntegrationTest {
+
+    private static final String LEDGER =
+            """
+            2024-01-01 open Assets:Cash
+            2024-01-01 open Expenses:Office
+            2024-01-01 open Expenses:Travel
+
+            2024-01-05 * "Shop" "Paper"
+              invoice: "INV-1"
+              Expenses:Office  10 USD
+                receipt: "r1.pdf"
+              Assets:Cash  -10 USD
+
+            pushmeta trip: "berlin"
+            2024-02-10 * "Rail" "Ticket"
+              invoice: "INV-2"
+              Expenses:Travel  80 USD
+              Assets:Cash  -80 USD
+            popmeta trip:
+
+            2024-03-01 * "Shop" "Toner"
+              invoice: "INV-1"
+              Expenses:Office  30 USD
+              Assets:Cash  -30 USD
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void entryMetadataJoinsToEntries() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("metadata.beancount"), LEDGER);
+                Statement statement = connection.createStatement();
+                ResultSet rs =
+                        statement.executeQuery(
+                                "SELECT e.\"date\", m.\"key\", m.\"value\" "
+                                        + "FROM \"beancount\".\"entry_meta\" AS m "
+                                        + "JOIN \"beancount\".\"entry\" AS e ON m.\"id\" = e.\"id\" "
+                                        + "ORDER BY e.\"date\", m.\"key\"")) {
+            List<String> rows = new ArrayList<>();
+            while (rs.next()) {
+                rows.add(rs.getDate(1) + " " + rs.getString(2) + "=" + rs.getString(3));
+            }
+            assertEquals(
+                    List.of(
+                            "2024-01-05 invoice=INV-1",
+                            "2024-02-10 invoice=INV-2",
+                            "2024-02-10 trip=berlin",
+                            "2024-03-01 invoice=INV-1"),
+                    rows);
+        }
+    }
+
+    @Test
+    void keyAndValueProbeWithParameters() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("metadata.beancount"), LEDGER);
+                PreparedStatement statement =
+                        connection.prepareStatement(
+                                "SELECT m.\"id\", m.\"value\" FROM \"beancount\".\"entry_meta\" AS m "
+                                        + "WHERE m.\"key\" = ? AND m.\"value\" = ? ORDER BY m.\"id\"")) {
+            statement.setString(1, "invoice");
+            statement.setString(2, "INV-1");
+            try (ResultSet rs = statement.executeQuery()) {
+                int matches = 0;
+                int previous = -1;
+                while (rs.next()) {
+                    matches++;
+                    assertTrue(rs.getInt(1) > previous);
+                    previous = rs.getInt(1);
+                    assertEquals("INV-1", rs.getString(2));
+                }
+                assertEquals(2, matches);
+            }
+            statement.setString(2, "INV-9");
+            try (ResultSet rs = statement.executeQuery()) {
+                assertFalse(rs.next());
+            }
+            statement.setString(1, "trip");
+            statement.setString(2, "berlin");
+            try (ResultSet rs = statement.executeQuery()) {
+                assertTrue(rs.next());
+                assertFalse(rs.next());
+            }
+        }
+    }
+
+    @Test
+    void postingMetadataJoinsToPostings() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("metadata.beancount"), LEDGER);
+                Statement statement = connection.createStatement();
+                ResultSet rs =
+                        statement.executeQuery(
+                                "SELECT p.\"account\", p.\"number\", m.\"value\" "
+                                        + "FROM \"beancount\".\"posting_meta\" AS m "
+                                        + "JOIN \"beancount\".\"postings\" AS p ON m.\"posting_id\" = p.\"posting_id\" "
+                                        + "WHERE m.\"key\" = 'receipt'")) {
+            assertTrue(rs.next());
+            assertEquals("Expenses:Office", rs.getString(1));
+            assertEquals(0, rs.getBigDecimal(2).compareTo(BigDecimal.TEN));
+            assertEquals("r1.pdf", rs.getString(3));
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void idEqualityReadsOnlyThatEntrysRows() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("metadata.beancount"), LEDGER);
+                Statement statement = connection.createStatement()) {
+            int id;
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"id\" FROM \"beancount\".\"entry_meta\" "
+                                    + "WHERE \"key\" = 'trip' AND \"value\" = 'berlin'")) {
+                assertTrue(rs.next());
+                id = rs.getInt(1);
+            }
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT COUNT(*) FROM \"beancount\".\"entry_meta\" WHERE \"id\" = " + id)) {
+                assertTrue(rs.next());
+                assertEquals(2, rs.getInt(1));
+            }
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"value\" FROM \"beancount\".\"entry_meta\" "
+                                    + "WHERE \"id\" = " + id + " AND \"key\" = 'missing'")) {
+                assertFalse(rs.next());
+            }
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"value\" FROM \"beancount\".\"entry_meta\" "
+                                    + "WHERE \"value\" = CAST(NULL AS VARCHAR)")) {
+                assertFalse(rs.next());
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.EXAMPLE_LEDGER;
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import org.junit.jupiter.api.Test;
+
+final class NetWorthIntegrationTest {
+
+    private static final String BALANCES =
+            "SELECT p.\"currency\", SUM(p.\"number\") FROM \"beancount\".\"postings\" AS p "
+                    + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                    + "WHERE (p.\"account\" LIKE 'Assets:%' OR p.\"account\" LIKE 'Liabilities:%') "
+                    + "AND e.\"date\" <= ? "
+                    + "GROUP BY p.\"currency\" ORDER BY p.\"currency\"";
+    private static final String LATEST_PRICE =
+            "SELECT \"amount_number\" FROM \"beancount\".\"price\" "
+                    + "WHERE \"currency\" = ? AND \"amount_currency\" = 'USD' AND \"date\" <= ? "
+                    + "ORDER BY \"date\" DESC LIMIT 1";
+
+    @Test
+    void monthlyNetWorthMatchesBalancesValuedAtTheLatestPrices() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement();
+                PreparedStatement balances = connection.prepareStatement(BALANCES);
+                PreparedStatement latest = connection.prepareStatement(LATEST_PRICE)) {
+            List<Object[]> months = new ArrayList<>();
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"period_start\", \"period_end\", \"currency\", \"value\", \"unpriced\" "
+                                    + "FROM TABLE(\"beancount\".\"networth\"('month', 'USD')) "
+                                    + "ORDER BY \"period_start\"")) {
+                while (rs.next()) {
+                    assertEquals("USD", rs.getString(3));
+                    assertEquals(rs.getDate(1).toLocalDate().plusMonths(1).minusDays(1), rs.getDate(2).toLocalDate());
+                    months.add(new Object[] {rs.getDate(2), rs.getBigDecimal(4), rs.getString(5)});
+                }
+            }
+            assertTrue(months.size() >= 24, "Expected two years of months in the example ledger");
+
+            for (int i = 0; i < months.size(); i += 6) {
+                Date end = (Date) months.get(i)[0];
+                BigDecimal expected = BigDecimal.ZERO;
+                StringJoiner unpriced = new StringJoiner(",");
+                balances.setDate(1, end);
+                try (ResultSet rs = balances.executeQuery()) {
+                    while (rs.next()) {
+                        String currency = rs.getString(1);
+                        BigDecimal balance = rs.getBigDecimal(2);
+                        if (currency == null || balance.signum() == 0) {
+                            continue;
+                        }
+                        BigDecimal price = "USD".equals(currency) ? BigDecimal.ONE : latestPrice(latest, currency, end);
+                        if (price == null) {
+                            unpriced.add(currency);
+                        } else {
+                            expected = expected.add(balance.multiply(price));
+                        }
+                    }
+                }
+                assertEquals(0, expected.compareTo((BigDecimal) months.get(i)[1]), "value at " + end);
+                assertEquals(unpriced.length() == 0 ? null : unpriced.toString(), months.get(i)[2]);
+            }
+        }
+    }
+
+    @Test
+    void accountPrefixRestrictsTheHoldingsValued() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement();
+                ResultSet rs =
+                        statement.executeQuery(
+                                "SELECT COUNT(*), SUM(CASE WHEN \"unpriced\" IS NULL THEN 1 ELSE 0 END) "
+                                        + "FROM TABLE(\"beancount\".\"networth\"('year', 'USD', 'Assets:US:ETrade'))")) {
+            assertTrue(rs.next());
+            assertTrue(rs.getInt(1) > 0);
+            // Every commodity held at the broker has price directives.
+            assertEquals(rs.getInt(1), rs.getInt(2));
+        }
+    }
+
+    @Test
+    void nullArgumentsAreRejected() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            SQLException interval =
+                    assertThrows(
+                            SQLException.class,
+                            () -> statement.executeQuery(
+                                    "SELECT * FROM TABLE(\"beancount\".\"networth\"(CAST(NULL AS VARCHAR), 'USD'))"));
+            assertTrue(interval.getMessage().contains("networth requires a non-null interval"), interval.getMessage());
+            SQLException currency =
+                    assertThrows(
+                            SQLException.class,
+                            () -> statement.executeQuery(
+                                    "SELECT * FROM TABLE(\"beancount\".\"networth\"('month', CAST(NULL AS VARCHAR)))"));
+            assertTrue(currency.getMessage().contains("networth requires a non-null currency"), currency.getMessage());
+        }
+    }
+
+    private static BigDecimal latestPrice(PreparedStatement latest, String currency, Date date) throws Exception {
+        latest.setString(1, currency);
+        latest.setDate(2, date);
+        try (ResultSet rs = latest.executeQuery()) {
+            return rs.next() ? rs.getBigDecimal(1) : null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.EXAMPLE_LEDGER;
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+final class PeriodTotalsIntegrationTest {
+
+    private static final String MONTHLY_EXPENSES =
+            "SELECT EXTRACT(YEAR FROM e.\"date\"), EXTRACT(MONTH FROM e.\"date\"), p.\"account\", p.\"currency\", "
+                    + "SUM(p.\"number\"), COUNT(*) FROM \"beancount\".\"postings\" AS p "
+                    + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                    + "WHERE p.\"account\" = 'Expenses' OR p.\"account\" LIKE 'Expenses:%' "
+                    + "GROUP BY EXTRACT(YEAR FROM e.\"date\"), EXTRACT(MONTH FROM e.\"date\"), "
+                    + "p.\"account\", p.\"currency\"";
+
+    @Test
+    void monthlyTotalsMatchTheGroupByFormulation() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            Map<String, String> expected = new TreeMap<>();
+            try (ResultSet rs = statement.executeQuery(MONTHLY_EXPENSES)) {
+                while (rs.next()) {
+                    LocalDate month = LocalDate.of(rs.getInt(1), rs.getInt(2), 1);
+                    expected.put(
+                            key(month, rs.getString(3), rs.getString(4)), render(rs.getBigDecimal(5), rs.getLong(6)));
+                }
+            }
+            assertTrue(expected.size() > 100, "Expected many months of expenses in the example ledger");
+
+            Map<String, String> actual = new TreeMap<>();
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"period_start\", \"period_end\", \"account\", \"currency\", \"total\", "
+                                    + "\"postings\" "
+                                    + "FROM TABLE(\"beancount\".\"period_totals\"('Expenses', 'month'))")) {
+                while (rs.next()) {
+                    LocalDate start = rs.getDate(1).toLocalDate();
+                    assertEquals(start.plusMonths(1).minusDays(1), rs.getDate(2).toLocalDate());
+                    actual.put(
+                            key(start, rs.getString(3), rs.getString(4)), render(rs.getBigDecimal(5), rs.getLong(6)));
+                }
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void boundsRestrictTheDatesSummed() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            BigDecimal expected;
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT SUM(p.\"number\") FROM \"beancount\".\"postings\" AS p "
+                                    + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                                    + "WHERE p.\"account\" LIKE 'Assets:US:ETrade:%' AND p.\"currency\" = 'USD' "
+                                    + "AND e.\"date\" BETWEEN DATE '2014-03-15' AND DATE '2015-02-10'")) {
+                assertTrue(rs.next());
+                expected = rs.getBigDecimal(1);
+            }
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT MIN(\"period_start\"), SUM(\"total\") FROM TABLE(\"beancount\".\"period_totals\"("
+                                    + "'Assets:US:ETrade', 'year', DATE '2014-03-15', DATE '2015-02-10')) "
+                                    + "WHERE \"currency\" = 'USD'")) {
+                assertTrue(rs.next());
+                assertEquals(LocalDate.of(2014, 1, 1), rs.getDate(1).toLocalDate());
+                assertEquals(0, expected.compareTo(rs.getBigDecimal(2)));
+            }
+        }
+    }
+
+    @Test
+    void nullBucketIsRejected() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            SQLException error =
+                    assertThrows(
+                            SQLException.class,
+                            () -> statement.executeQuery(
+                                    "SELECT * FROM TABLE(\"beancount\".\"period_totals\"("
+                                            + "'Assets', CAST(NULL AS VARCHAR), DATE '2014-01-01', DATE '2014-12-31'))"));
+            assertTrue(error.getMessage().contains("period_totals requires a non-null bucket"), error.getMessage());
+        }
+    }
+
+    private static String key(LocalDate month, String account, String currency) {
+        return month + " " + account + " " + currency;
+    }
+
+    private static String render(BigDecimal total, long postings) {
+        return (total == null ? "null" : total.stripTrailingZeros().toPlainString()) + " x" + postings;
+    }
+}
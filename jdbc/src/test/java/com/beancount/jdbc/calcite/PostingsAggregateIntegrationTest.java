@@ -0,0 +1,87 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.EXAMPLE_LEDGER;
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+final class PostingsAggregateIntegrationTest {
+
+    private static final String GROUPED =
+            "SELECT \"account\", SUM(\"number\") AS \"total\", COUNT(*) AS \"n\", COUNT(\"price_number\") AS \"priced\" "
+                    + "FROM \"beancount\".\"postings\" GROUP BY \"account\"";
+
+    @Test
+    void groupedSumsMatchRowByRowAddition() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            Map<String, BigDecimal> expectedTotals = new HashMap<>();
+            Map<String, long[]> expectedCounts = new HashMap<>();
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"account\", \"number\", \"price_number\" FROM \"beancount\".\"postings\"")) {
+                while (rs.next()) {
+                    String account = rs.getString(1);
+                    BigDecimal number = rs.getBigDecimal(2);
+                    if (number != null) {
+                        expectedTotals.merge(account, BigDecimal.ZERO.add(number), BigDecimal::add);
+                    }
+                    long[] counts = expectedCounts.computeIfAbsent(account, key -> new long[2]);
+                    counts[0]++;
+                    if (rs.getBigDecimal(3) != null) {
+                        counts[1]++;
+                    }
+                }
+            }
+            assertFalse(expectedCounts.isEmpty(), "Expected postings in the example ledger");
+
+            int groups = 0;
+            try (ResultSet rs = statement.executeQuery(GROUPED)) {
+                while (rs.next()) {
+                    groups++;
+                    String account = rs.getString("account");
+                    // Same value and scale as Calcite's BigDecimal accumulation.
+                    assertEquals(expectedTotals.get(account), rs.getBigDecimal("total"), account);
+                    assertEquals(expectedCounts.get(account)[0], rs.getLong("n"), account);
+                    assertEquals(expectedCounts.get(account)[1], rs.getLong("priced"), account);
+                }
+            }
+            assertEquals(expectedCounts.size(), groups);
+        }
+    }
+
+    @Test
+    void plainAggregatesArePushedIntoThePostingsTable() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            assertTrue(explain(statement, GROUPED).contains("PostingsAggregate"));
+            String filtered =
+                    "SELECT SUM(\"number\") FROM \"beancount\".\"postings\" WHERE \"currency\" = 'USD'";
+            assertFalse(explain(statement, filtered).contains("PostingsAggregate"));
+            try (ResultSet rs = statement.executeQuery("SELECT SUM(\"number\") FROM \"beancount\".\"postings\"")) {
+                assertTrue(rs.next());
+                assertTrue(rs.getBigDecimal(1) != null);
+                assertFalse(rs.next());
+            }
+        }
+    }
+
+    private static String explain(Statement statement, String sql) throws Exception {
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet rs = statement.executeQuery("EXPLAIN PLAN FOR " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.EXAMPLE_LEDGER;
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+final class PostingsRangeAggregateIntegrationTest {
+
+    private static final String PERIOD_BY_CURRENCY =
+            "SELECT p.\"currency\", SUM(p.\"number\") FROM \"beancount\".\"postings\" AS p "
+                    + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                    + "WHERE p.\"account\" LIKE 'Income:%' AND e.\"date\" BETWEEN ? AND ? "
+                    + "GROUP BY p.\"currency\"";
+
+    @Test
+    void periodSumsMatchRowByRowAddition() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement();
+                PreparedStatement period = connection.prepareStatement(PERIOD_BY_CURRENCY)) {
+            LocalDate first;
+            LocalDate last;
+            try (ResultSet rs =
+                    statement.executeQuery("SELECT MIN(\"date\"), MAX(\"date\") FROM \"beancount\".\"entry\"")) {
+                assertTrue(rs.next());
+                first = rs.getDate(1).toLocalDate();
+                last = rs.getDate(2).toLocalDate();
+            }
+            for (LocalDate from = first; !from.isAfter(last); from = from.plusMonths(7)) {
+                LocalDate to = from.plusMonths(11).minusDays(1);
+                Map<String, BigDecimal> expected = expectedSums(statement, from, to);
+                Map<String, BigDecimal> actual = new TreeMap<>();
+                period.setDate(1, Date.valueOf(from));
+                period.setDate(2, Date.valueOf(to));
+                try (ResultSet rs = period.executeQuery()) {
+                    while (rs.next()) {
+                        actual.put(rs.getString(1), rs.getBigDecimal(2));
+                    }
+                }
+                // Same value and scale as adding the matching postings one by one.
+                assertEquals(expected, actual, from + ".." + to);
+            }
+        }
+    }
+
+    @Test
+    void periodAggregatesAreAnsweredFromTheRangeIndex() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            String literal =
+                    "SELECT SUM(p.\"number\") FROM \"beancount\".\"postings\" AS p "
+                            + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                            + "WHERE p.\"account\" LIKE 'Income:%' AND p.\"currency\" = 'USD' "
+                            + "AND e.\"date\" >= DATE '2014-01-01' AND e.\"date\" < DATE '2015-01-01'";
+            assertTrue(explain(statement, literal).contains("PostingsRangeAggregate"));
+            String unsupported = literal.replace("'Income:%'", "'%Salary%'");
+            assertFalse(explain(statement, unsupported).contains("PostingsRangeAggregate"));
+
+            BigDecimal expected =
+                    expectedSums(statement, LocalDate.of(2014, 1, 1), LocalDate.of(2014, 12, 31)).get("USD");
+            try (ResultSet rs = statement.executeQuery(literal)) {
+                assertTrue(rs.next());
+                assertEquals(expected, rs.getBigDecimal(1));
+                assertFalse(rs.next());
+            }
+        }
+    }
+
+    @Test
+    void numericFiltersUnderAnAggregateStillPlan() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            int expected = 0;
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT \"number\", \"cost_number\" FROM \"beancount\".\"postings\"")) {
+                while (rs.next()) {
+                    BigDecimal number = rs.getBigDecimal(1);
+                    if (number != null && number.signum() < 0 && rs.getBigDecimal(2) != null) {
+                        expected++;
+                    }
+                }
+            }
+            assertTrue(expected > 0);
+            String numeric =
+                    "SELECT COUNT(*) FROM \"beancount\".\"postings\" "
+                            + "WHERE \"number\" < 0 AND \"cost_number\" IS NOT NULL";
+            assertFalse(explain(statement, numeric).contains("PostingsRangeAggregate"));
+            try (ResultSet rs = statement.executeQuery(numeric)) {
+                assertTrue(rs.next());
+                assertEquals(expected, rs.getInt(1));
+            }
+        }
+    }
+
+    private static Map<String, BigDecimal> expectedSums(Statement statement, LocalDate from, LocalDate to)
+            throws Exception {
+        Map<String, BigDecimal> sums = new TreeMap<>();
+        try (ResultSet rs =
+                statement.executeQuery(
+                        "SELECT p.\"account\", p.\"currency\", e.\"date\", p.\"number\" "
+                                + "FROM \"beancount\".\"postings\" AS p "
+                                + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                                + "WHERE p.\"number\" IS NOT NULL AND p.\"currency\" IS NOT NULL")) {
+            while (rs.next()) {
+                LocalDate date = rs.getDate(3).toLocalDate();
+                if (rs.getString(1).startsWith("Income:") && !date.isBefore(from) && !date.isAfter(to)) {
+                    sums.merge(rs.getString(2), BigDecimal.ZERO.add(rs.getBigDecimal(4)), BigDecimal::add);
+                }
+            }
+        }
+        return sums;
+    }
+
+    private static String explain(Statement statement, String sql) throws Exception {
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet rs = statement.executeQuery("EXPLAIN PLAN FOR " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
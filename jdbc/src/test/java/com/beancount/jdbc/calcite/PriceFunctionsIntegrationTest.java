@@ -0,0 +1,77 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.EXAMPLE_LEDGER;
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import org.junit.jupiter.api.Test;
+
+final class PriceFunctionsIntegrationTest {
+
+    @Test
+    void priceAtUsesTheLatestPriceDirectiveOnOrBeforeTheDate() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement();
+                ResultSet rs =
+                        statement.executeQuery(
+                                "SELECT \"beancount\".\"price_at\"('VBMPX', 'USD', DATE '2014-01-20'), "
+                                        + "\"beancount\".\"price_at\"('VBMPX', 'USD', DATE '2013-01-01'), "
+                                        + "\"beancount\".\"price_at\"('USD', 'VBMPX', DATE '2014-01-03'), "
+                                        + "\"beancount\".\"price_at\"('USD', 'USD', DATE '2014-01-03'), "
+                                        + "\"beancount\".\"convert\"(10, 'VBMPX', 'USD', DATE '2014-01-03'), "
+                                        + "\"beancount\".\"convert\"(10, 'VBMPX', 'USD', CAST(NULL AS DATE))")) {
+            assertTrue(rs.next());
+            assertEquals(0, new BigDecimal("74.88").compareTo(rs.getBigDecimal(1)));
+            assertNull(rs.getBigDecimal(2));
+            assertEquals(
+                    0,
+                    BigDecimal.ONE.divide(new BigDecimal("76.15"), MathContext.DECIMAL64)
+                            .compareTo(rs.getBigDecimal(3).round(MathContext.DECIMAL64)));
+            assertEquals(0, BigDecimal.ONE.compareTo(rs.getBigDecimal(4)));
+            assertEquals(0, new BigDecimal("761.5").compareTo(rs.getBigDecimal(5)));
+            assertNull(rs.getBigDecimal(6));
+        }
+    }
+
+    @Test
+    void convertMatchesTheLatestPriceFromPriceDetail() throws Exception {
+        String sql =
+                "SELECT p.\"currency\", e.\"date\", p.\"number\", "
+                        + "\"beancount\".\"convert\"(p.\"number\", p.\"currency\", 'USD', e.\"date\") "
+                        + "FROM \"beancount\".\"postings\" AS p "
+                        + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\" "
+                        + "WHERE p.\"currency\" IN ('VBMPX', 'VEA', 'GLD')";
+        String latest =
+                "SELECT \"amount_number\" FROM \"beancount\".\"price\" "
+                        + "WHERE \"currency\" = ? AND \"amount_currency\" = 'USD' AND \"date\" <= ? "
+                        + "ORDER BY \"date\" DESC LIMIT 1";
+        int rows = 0;
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement();
+                PreparedStatement lookup = connection.prepareStatement(latest);
+                ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                lookup.setString(1, rs.getString(1));
+                lookup.setDate(2, rs.getDate(2));
+                try (ResultSet price = lookup.executeQuery()) {
+                    if (price.next()) {
+                        rows++;
+                        BigDecimal expected = rs.getBigDecimal(3).multiply(price.getBigDecimal(1));
+                        assertEquals(0, expected.compareTo(rs.getBigDecimal(4)));
+                    } else {
+                        assertNull(rs.getBigDecimal(4));
+                    }
+                }
+            }
+        }
+        assertTrue(rows > 0, "Expected postings in priced currencies in the example ledger");
+    }
+}
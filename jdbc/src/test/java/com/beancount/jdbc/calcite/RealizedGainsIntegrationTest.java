@@ -0,0 +1,55 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.EXAMPLE_LEDGER;
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToResource;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.temporal.ChronoUnit;
+import org.junit.jupiter.api.Test;
+
+final class RealizedGainsIntegrationTest {
+
+    @Test
+    void everyGainMatchesTheBookedPostingItCameFrom() throws Exception {
+        try (Connection connection = connectToResource(EXAMPLE_LEDGER);
+                Statement statement = connection.createStatement()) {
+            int gains = 0;
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT g.\"quantity\", p.\"number\", g.\"cost_number\", p.\"cost_number\", "
+                                    + "g.\"proceeds_number\", p.\"price_number\", g.\"currency\", p.\"cost_currency\", "
+                                    + "g.\"lot_cost_date\", p.\"cost_date\", g.\"holding_days\", e.\"date\" "
+                                    + "FROM \"beancount\".\"realized_gains\" AS g "
+                                    + "JOIN \"beancount\".\"postings\" AS p ON g.\"posting_id\" = p.\"posting_id\" "
+                                    + "JOIN \"beancount\".\"entry\" AS e ON p.\"id\" = e.\"id\"")) {
+                while (rs.next()) {
+                    gains++;
+                    assertEquals(0, rs.getBigDecimal(1).compareTo(rs.getBigDecimal(2).negate()));
+                    assertEquals(0, rs.getBigDecimal(3).compareTo(rs.getBigDecimal(4)));
+                    if (rs.getBigDecimal(5) != null) {
+                        assertEquals(0, rs.getBigDecimal(5).compareTo(rs.getBigDecimal(6)));
+                    }
+                    assertEquals(rs.getString(8), rs.getString(7));
+                    assertEquals(rs.getDate(10), rs.getDate(9));
+                    assertEquals(
+                            ChronoUnit.DAYS.between(rs.getDate(9).toLocalDate(), rs.getDate(12).toLocalDate()),
+                            rs.getInt(11));
+                }
+            }
+            assertTrue(gains > 0, "Expected sales of lots in the example ledger");
+
+            try (ResultSet rs =
+                    statement.executeQuery(
+                            "SELECT COUNT(*) FROM \"beancount\".\"postings\" "
+                                    + "WHERE \"number\" < 0 AND \"cost_number\" IS NOT NULL")) {
+                assertTrue(rs.next());
+                // Every reduction of a lot in the example ledger is booked.
+                assertEquals(rs.getInt(1), gains);
+            }
+        }
+    }
+}
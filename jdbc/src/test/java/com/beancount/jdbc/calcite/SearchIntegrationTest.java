@@ -0,0 +1,140 @@
+package com.beancount.jdbc.calcite;
+
+import static com.beancount.jdbc.calcite.CalciteIntegrationTestSupport.connectToLedgerText;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class SearchIntegrationTest {
+
+    private static final String LEDGER =
+            """
+            2024-01-01 open Assets:Cash
+            2024-01-01 open Expenses:Books
+            2024-01-01 open Expenses:Food
+
+            2024-03-01 * "Amazon" "Books for the office"
+              Expenses:Books  40 USD
+              Assets:Cash  -40 USD
+
+            2024-03-02 * "Cafe Luna" "Lunch with the Amazon team"
+              Expenses:Food  12 USD
+              Assets:Cash  -12 USD
+
+            2024-03-03 * "Market" "Groceries"
+              Expenses:Food  30 USD
+              Assets:Cash  -30 USD
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void searchRanksMatchingTransactions() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("search.beancount"), LEDGER);
+                Statement statement = connection.createStatement()) {
+            assertEquals(
+                    List.of("Books for the office", "Lunch with the Amazon team"),
+                    strings(
+                            statement,
+                            "SELECT d.\"narration\" FROM TABLE(\"beancount\".\"search\"('AMAZON')) AS s "
+                                    + "JOIN \"beancount\".\"transactions_detail\" AS d ON s.\"id\" = d.\"id\" "
+                                    + "ORDER BY s.\"score\" DESC"));
+            assertEquals(
+                    List.of("Books for the office"),
+                    strings(
+                            statement,
+                            "SELECT d.\"narration\" FROM TABLE(\"beancount\".\"search\"('amazon', 1)) AS s "
+                                    + "JOIN \"beancount\".\"transactions_detail\" AS d ON s.\"id\" = d.\"id\""));
+            assertEquals(
+                    List.of(),
+                    strings(
+                            statement,
+                            "SELECT CAST(\"id\" AS VARCHAR) FROM TABLE(\"beancount\".\"search\"('amazon groceries'))"));
+            assertThrows(
+                    SQLException.class,
+                    () -> statement.executeQuery("SELECT * FROM TABLE(\"beancount\".\"search\"('amazon', -1))"));
+            SQLException nullQuery =
+                    assertThrows(
+                            SQLException.class,
+                            () -> statement.executeQuery(
+                                    "SELECT * FROM TABLE(\"beancount\".\"search\"(CAST(NULL AS VARCHAR)))"));
+            assertTrue(nullQuery.getMessage().contains("search requires a non-null query"), nullQuery.getMessage());
+        }
+    }
+
+    @Test
+    void likeFiltersMatchTheUnindexedResults() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("search.beancount"), LEDGER);
+                Statement statement = connection.createStatement()) {
+            assertEquals(
+                    List.of("Lunch with the Amazon team"),
+                    strings(
+                            statement,
+                            "SELECT \"narration\" FROM \"beancount\".\"transactions_detail\" "
+                                    + "WHERE \"narration\" LIKE '%Amazon%'"));
+            assertEquals(
+                    List.of("Books for the office", "Lunch with the Amazon team"),
+                    strings(
+                            statement,
+                            "SELECT \"narration\" FROM \"beancount\".\"transactions_detail\" "
+                                    + "WHERE LOWER(\"narration\") LIKE '%amazon%' OR LOWER(\"payee\") LIKE 'amaz%' "
+                                    + "ORDER BY \"narration\""));
+            assertEquals(
+                    List.of("Groceries"),
+                    strings(
+                            statement,
+                            "SELECT \"narration\" FROM \"beancount\".\"transactions_detail\" "
+                                    + "WHERE UPPER(\"payee\") LIKE 'MAR_ET' AND \"narration\" LIKE 'Gro%'"));
+            assertEquals(
+                    List.of(),
+                    strings(
+                            statement,
+                            "SELECT \"narration\" FROM \"beancount\".\"transactions_detail\" "
+                                    + "WHERE \"payee\" LIKE '%amazon%'"));
+        }
+    }
+
+    @Test
+    void preparedLikeUsesEachBoundPattern() throws Exception {
+        try (Connection connection = connectToLedgerText(tempDir.resolve("search.beancount"), LEDGER);
+                PreparedStatement statement =
+                        connection.prepareStatement(
+                                "SELECT COUNT(*) FROM \"beancount\".\"transactions_detail\" WHERE \"narration\" LIKE ?")) {
+            statement.setString(1, "%the%");
+            assertEquals(2, count(statement));
+            statement.setString(1, "Gr%");
+            assertEquals(1, count(statement));
+            statement.setString(1, "%zebra%");
+            assertEquals(0, count(statement));
+        }
+    }
+
+    private static List<String> strings(Statement statement, String sql) throws Exception {
+        List<String> values = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+
+    private static int count(PreparedStatement statement) throws Exception {
+        try (ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.beancount.jdbc.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.beancount.jdbc.loader.BeancountLoader;
+import com.beancount.jdbc.testing.TestResources;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+final class AccountBalanceHistoryTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+    private static final LocalDate JAN_5 = LocalDate.of(2024, 1, 5);
+    private static final LocalDate FEB_1 = LocalDate.of(2024, 2, 1);
+
+    @Test
+    void keepsOneRowPerDateInKeyOrder() {
+        AccountBalanceHistory.Builder builder = new AccountBalanceHistory.Builder();
+        builder.add("Assets:Cash", "USD", JAN_1, new BigDecimal("10.00"));
+        builder.add("Assets:Bank", "USD", JAN_1, new BigDecimal("5"));
+        builder.add("Assets:Cash", "EUR", JAN_5, new BigDecimal("3"));
+        builder.add("Assets:Cash", "USD", JAN_5, new BigDecimal("-2.5"));
+        builder.add("Assets:Cash", "USD", JAN_5, new BigDecimal("1"));
+        builder.add("Assets:Cash", "USD", FEB_1, new BigDecimal("0.125"));
+        builder.add("Assets:Cash", null, FEB_1, new BigDecimal("7"));
+        AccountBalanceHistory history = builder.build();
+
+        List<String> rows = new ArrayList<>();
+        for (int row = 0; row < history.size(); row++) {
+            rows.add(history.account(row) + " " + history.currency(row) + " " + history.date(row) + " "
+                    + history.balance(row));
+        }
+        assertEquals(
+                List.of(
+                        "Assets:Bank USD 2024-01-01 5",
+                        "Assets:Cash EUR 2024-01-05 3",
+                        "Assets:Cash USD 2024-01-01 10.00",
+                        "Assets:Cash USD 2024-01-05 8.50",
+                        "Assets:Cash USD 2024-02-01 8.625"),
+                rows);
+        assertEquals(1, history.firstRow("Assets:Cash", null));
+        assertEquals(5, history.endRow("Assets:Cash", null));
+        assertEquals(2, history.firstRow("Assets:Cash", "USD"));
+        assertEquals(history.firstRow("Assets:Card", null), history.endRow("Assets:Card", null));
+    }
+
+    @Test
+    void balanceAtFindsTheLastChangeOnOrBeforeTheDate() {
+        AccountBalanceHistory.Builder builder = new AccountBalanceHistory.Builder();
+        builder.add("Assets:Cash", "USD", JAN_1, new BigDecimal("10"));
+        builder.add("Assets:Cash", "USD", FEB_1, new BigDecimal("-4"));
+        AccountBalanceHistory history = builder.build();
+
+        assertEquals(BigDecimal.ZERO, history.balanceAt("Assets:Cash", "USD", JAN_1.minusDays(1)));
+        assertEquals(new BigDecimal("10"), history.balanceAt("Assets:Cash", "USD", JAN_1));
+        assertEquals(new BigDecimal("10"), history.balanceAt("Assets:Cash", "USD", JAN_5));
+        assertEquals(new BigDecimal("6"), history.balanceAt("Assets:Cash", "USD", FEB_1));
+        assertEquals(BigDecimal.ZERO, history.balanceAt("Assets:Cash", "EUR", FEB_1));
+        assertEquals(BigDecimal.ZERO, history.balanceAt("Assets:Bank", "USD", FEB_1));
+    }
+
+    @Test
+    void rejectsPostingsOutOfDateOrder() {
+        AccountBalanceHistory.Builder builder = new AccountBalanceHistory.Builder();
+        builder.add("Assets:Cash", "USD", JAN_5, BigDecimal.ONE);
+        assertThrows(
+                IllegalArgumentException.class, () -> builder.add("Assets:Cash", "USD", JAN_1, BigDecimal.ONE));
+    }
+
+    @Test
+    void loadedHistoryMatchesRunningSumsOfPostings() throws Exception {
+        LedgerData data =
+                new BeancountLoader()
+                        .load(TestResources.absolutePath(
+                                "jdbc/src/test/resources/regression/ledgers/beancount-beancount-example.beancount"))
+                        .getLedgerData();
+        Map<Integer, LocalDate> dates = new HashMap<>();
+        for (LedgerEntry entry : data.getEntries()) {
+            dates.put(entry.getId(), entry.getDate());
+        }
+        Map<String, TreeMap<LocalDate, BigDecimal>> changes = new TreeMap<>();
+        for (PostingRecord posting : data.getPostings()) {
+            if (posting.getNumber() != null && posting.getCurrency() != null) {
+                changes.computeIfAbsent(posting.getAccount() + " " + posting.getCurrency(), key -> new TreeMap<>())
+                        .merge(dates.get(posting.getEntryId()), posting.getNumber(), BigDecimal::add);
+            }
+        }
+        AccountBalanceHistory history = data.getBalanceHistory();
+        int row = 0;
+        for (Map.Entry<String, TreeMap<LocalDate, BigDecimal>> series : changes.entrySet()) {
+            BigDecimal balance = BigDecimal.ZERO;
+            for (Map.Entry<LocalDate, BigDecimal> change : series.getValue().entrySet()) {
+                balance = balance.add(change.getValue());
+                assertEquals(series.getKey(), history.account(row) + " " + history.currency(row));
+                assertEquals(change.getKey(), history.date(row));
+                assertEquals(0, balance.compareTo(history.balance(row)), series.getKey() + " " + change.getKey());
+                row++;
+            }
+        }
+        assertEquals(row, history.size());
+        assertTrue(row > 0, "Expected balance history for the example ledger");
+    }
+}
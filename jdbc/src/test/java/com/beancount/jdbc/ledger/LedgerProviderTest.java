@@ -0,0 +1,67 @@
+package com.beancount.jdbc.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class LedgerProviderTest {
+
+    private static final String LEDGER =
+            """
+            2024-01-01 open Assets:Cash USD
+            include "food.beancount"
+            """;
+
+    private static final String INCLUDED =
+            """
+            2024-01-01 open Expenses:Food USD
+
+            2024-01-05 * "Lunch"
+              Expenses:Food   12.00 USD
+              Assets:Cash
+            """;
+
+    @TempDir Path tempDir;
+
+    @Test
+    void editsToIncludedFilesInvalidateTheSnapshot() throws Exception {
+        Path ledger = Files.writeString(tempDir.resolve("main.beancount"), LEDGER);
+        Path included = Files.writeString(tempDir.resolve("food.beancount"), INCLUDED);
+
+        LedgerSnapshot first = LedgerProvider.snapshot(ledger);
+        assertTrue(first.isCurrent());
+        assertSame(first, LedgerProvider.snapshot(ledger));
+
+        Files.writeString(
+                included,
+                """
+
+                2024-01-06 * "Dinner"
+                  Expenses:Food   20.00 USD
+                  Assets:Cash
+                """,
+                StandardOpenOption.APPEND);
+
+        LedgerSnapshot second = LedgerProvider.snapshot(ledger);
+        assertNotSame(first, second);
+        assertEquals(4, second.getLedgerData().getPostings().size());
+    }
+
+    @Test
+    void onlyRecentlyUsedLedgersStayCached() throws Exception {
+        for (int i = 0; i <= LedgerProvider.MAX_CACHED_LEDGERS; i++) {
+            Path ledger =
+                    Files.writeString(
+                            tempDir.resolve("ledger" + i + ".beancount"), "2024-01-01 open Assets:Cash USD\n");
+            LedgerProvider.snapshot(ledger);
+        }
+        assertTrue(LedgerProvider.cachedLedgerCount() <= LedgerProvider.MAX_CACHED_LEDGERS);
+    }
+}
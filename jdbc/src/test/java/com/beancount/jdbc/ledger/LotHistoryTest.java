@@ -0,0 +1,64 @@
+package com.beancount.jdbc.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class LotHistoryTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+    private static final LocalDate JAN_5 = LocalDate.of(2024, 1, 5);
+    private static final LocalDate FEB_1 = LocalDate.of(2024, 2, 1);
+
+    @Test
+    void versionsCoverTheDatesEachQuantityWasHeld() {
+        LotHistory.Builder builder = new LotHistory.Builder();
+        int first = open(builder, "Assets:Broker", "10", JAN_1);
+        int second = open(builder, "Assets:Broker", "4", JAN_1);
+        builder.change(first, JAN_5, new BigDecimal("6"));
+        // Two reductions on one day leave one version with the day's final quantity.
+        builder.change(second, JAN_5, new BigDecimal("3"));
+        builder.change(second, JAN_5, new BigDecimal("1"));
+        int third = open(builder, "Assets:Other", "2", FEB_1);
+        builder.change(third, FEB_1, BigDecimal.ZERO);
+        builder.change(first, FEB_1, BigDecimal.ZERO);
+        LotHistory history = builder.build();
+
+        assertEquals(3, history.lotCount());
+        assertEquals(List.of(), quantities(history, JAN_1.minusDays(1)));
+        assertEquals(List.of("10", "4"), quantities(history, JAN_1));
+        assertEquals(List.of("10", "4"), quantities(history, JAN_5.minusDays(1)));
+        assertEquals(List.of("6", "1"), quantities(history, JAN_5));
+        // A lot opened and closed on the same day is never open at the end of a day.
+        assertEquals(List.of("1"), quantities(history, FEB_1));
+        assertEquals(List.of("1"), quantities(history, null));
+        assertEquals("Assets:Other", history.account(third));
+    }
+
+    @Test
+    void rejectsChangesOutOfDateOrderAndAfterClosing() {
+        LotHistory.Builder builder = new LotHistory.Builder();
+        int lot = open(builder, "Assets:Broker", "1", JAN_5);
+        assertThrows(IllegalArgumentException.class, () -> builder.change(lot, JAN_1, BigDecimal.ZERO));
+        builder.change(lot, FEB_1, BigDecimal.ZERO);
+        assertThrows(IllegalStateException.class, () -> builder.change(lot, FEB_1, BigDecimal.ONE));
+        assertEquals(0, new LotHistory.Builder().build().openAt(null).length);
+    }
+
+    private static int open(LotHistory.Builder builder, String account, String quantity, LocalDate date) {
+        return builder.open(account, "ACME", new BigDecimal(quantity), new BigDecimal("100"), "USD", date, null, date);
+    }
+
+    private static List<String> quantities(LotHistory history, LocalDate date) {
+        List<String> quantities = new ArrayList<>();
+        for (int version : history.openAt(date)) {
+            quantities.add(history.quantity(version).toPlainString());
+        }
+        return quantities;
+    }
+}
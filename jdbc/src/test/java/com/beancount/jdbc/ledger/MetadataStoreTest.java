@@ -0,0 +1,128 @@
+package com.beancount.jdbc.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.beancount.jdbc.loader.BeancountLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class MetadataStoreTest {
+
+    @TempDir Path tempDir;
+
+    @Test
+    void keepsRowsInIdOrderAndIndexesKeysAndValues() {
+        MetadataStore store =
+                new MetadataStore.Builder()
+                        .add(7, "invoice", "INV-2")
+                        .add(3, "invoice", "INV-1")
+                        .add(3, "receipt", null)
+                        .add(7, "project", "alpha")
+                        .add(9, "invoice", "INV-1")
+                        .build();
+
+        assertEquals(
+                List.of("3 invoice INV-1", "3 receipt null", "7 invoice INV-2", "7 project alpha", "9 invoice INV-1"),
+                render(store, null));
+        assertEquals(List.of("3 invoice INV-1", "9 invoice INV-1"), render(store, store.rows("invoice", "INV-1")));
+        assertEquals(
+                List.of("3 invoice INV-1", "7 invoice INV-2", "9 invoice INV-1"), render(store, store.rows("invoice")));
+        assertEquals(0, store.rows("invoice", "INV-3").length);
+        assertEquals(0, store.rows("receipt", null).length);
+        assertEquals(0, store.rows("missing").length);
+
+        assertEquals(2, store.firstRow(7));
+        assertEquals(4, store.endRow(7));
+        assertEquals(store.endRow(5), store.firstRow(5));
+        assertEquals(0, MetadataStore.empty().size());
+        assertThrows(IllegalArgumentException.class, () -> new MetadataStore.Builder().add(-1, "key", "value"));
+    }
+
+    @Test
+    void loadedMetadataFollowsEntriesAndBookedPostings() throws Exception {
+        Path ledger =
+                Files.writeString(
+                        tempDir.resolve("metadata.beancount"),
+                        """
+                        2024-01-01 open Assets:Broker
+                        2024-01-01 open Assets:Cash
+                        2024-01-01 open Expenses:Office
+                        2024-01-01 open Income:Gains
+
+                        2024-03-01 * "Supplies"
+                          invoice: "INV-2"
+                          Expenses:Office  20 USD
+                            receipt: "r2.pdf"
+                          Assets:Cash  -20 USD
+
+                        2024-01-10 * "Buy"
+                          Assets:Broker  1 HOOL {100 USD}
+                          Assets:Cash  -100 USD
+
+                        2024-01-11 * "Buy"
+                          Assets:Broker  1 HOOL {100 USD}
+                          Assets:Cash  -100 USD
+
+                        2024-04-01 * "Sell"
+                          Assets:Broker  -2 HOOL {100 USD}
+                            lot: "both"
+                          Assets:Cash  240 USD
+                          Income:Gains  -40 USD
+
+                        pushmeta project: "alpha"
+                        2024-02-01 * "Paper"
+                          invoice: "INV-1"
+                          Expenses:Office  10 USD
+                          Assets:Cash  -10 USD
+                        popmeta project:
+                        """);
+        LedgerData data = new BeancountLoader().load(ledger).getLedgerData();
+
+        MetadataStore entries = data.getEntryMetadata();
+        List<String> entryRows = new ArrayList<>();
+        for (int row = 0; row < entries.size(); row++) {
+            LedgerEntry entry = data.getEntries().get(entries.id(row));
+            entryRows.add(
+                    entry.getTransactionPayload().getNarration() + " " + entries.key(row) + "=" + entries.value(row));
+        }
+        // Entries are renumbered in date order, and pushed keys follow the transaction's own.
+        assertEquals(List.of("Paper invoice=INV-1", "Paper project=alpha", "Supplies invoice=INV-2"), entryRows);
+
+        MetadataStore postings = data.getPostingMetadata();
+        int[] receipts = postings.rows("receipt", "r2.pdf");
+        assertEquals(1, receipts.length);
+        assertEquals("Expenses:Office", posting(data, postings.id(receipts[0])).getAccount());
+        // The sale is booked against both lots, and each booked posting keeps the metadata.
+        int[] lots = postings.rows("lot");
+        assertEquals(2, lots.length);
+        for (int row : lots) {
+            PostingRecord booked = posting(data, postings.id(row));
+            assertEquals("Assets:Broker", booked.getAccount());
+            assertEquals("HOOL", booked.getCurrency());
+        }
+        assertEquals(2, Arrays.stream(lots).map(postings::id).distinct().count());
+    }
+
+    private static PostingRecord posting(LedgerData data, int postingId) {
+        return data.getPostings().stream()
+                .filter(posting -> posting.getPostingId() == postingId)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static List<String> render(MetadataStore store, int[] rows) {
+        List<String> rendered = new ArrayList<>();
+        int count = rows == null ? store.size() : rows.length;
+        for (int i = 0; i < count; i++) {
+            int row = rows == null ? i : rows[i];
+            rendered.add(store.id(row) + " " + store.key(row) + " " + store.value(row));
+        }
+        return rendered;
+    }
+}
@@ -0,0 +1,59 @@
+package com.beancount.jdbc.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class PriceIndexTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+    private static final LocalDate JAN_5 = LocalDate.of(2024, 1, 5);
+    private static final LocalDate FEB_1 = LocalDate.of(2024, 2, 1);
+
+    @Test
+    void looksUpTheLatestPriceOnOrBeforeADate() {
+        PriceIndex index =
+                new PriceIndex.Builder()
+                        .add("HOOL", "USD", FEB_1, new BigDecimal("530"))
+                        .add("HOOL", "USD", JAN_1, new BigDecimal("510"))
+                        .add("HOOL", "USD", JAN_5, new BigDecimal("515"))
+                        // The last price added for a date wins.
+                        .add("HOOL", "USD", JAN_5, new BigDecimal("520"))
+                        .build(List.of());
+
+        assertNull(index.priceAt("HOOL", "USD", day(JAN_1.minusDays(1))));
+        assertEquals(new BigDecimal("510"), index.priceAt("HOOL", "USD", day(JAN_1)));
+        assertEquals(new BigDecimal("520"), index.priceAt("HOOL", "USD", day(JAN_5)));
+        assertEquals(new BigDecimal("520"), index.priceAt("HOOL", "USD", day(FEB_1.minusDays(1))));
+        assertEquals(new BigDecimal("530"), index.priceAt("HOOL", "USD", day(FEB_1.plusYears(1))));
+        assertEquals(BigDecimal.ONE, index.priceAt("USD", "USD", day(JAN_1)));
+        assertEquals(new BigDecimal("1040"), index.convert(new BigDecimal("2"), "HOOL", "USD", day(JAN_5)));
+        assertNull(index.convert(BigDecimal.ONE, "HOOL", "CAD", day(JAN_5)));
+    }
+
+    @Test
+    void answersInversesAndPathsThroughOperatingCurrencies() {
+        PriceIndex index =
+                new PriceIndex.Builder()
+                        .add("HOOL", "USD", JAN_1, new BigDecimal("500"))
+                        .add("EUR", "USD", JAN_1, new BigDecimal("1.25"))
+                        .add("USD", "EUR", JAN_5, new BigDecimal("0.5"))
+                        .build(List.of("USD"));
+
+        assertEquals(new BigDecimal("0.8"), index.priceAt("USD", "EUR", day(JAN_1)));
+        // The later of a pair's own price and its inverse's is in effect.
+        assertEquals(new BigDecimal("2"), index.priceAt("EUR", "USD", day(JAN_5)));
+        assertEquals(new BigDecimal("400.0"), index.priceAt("HOOL", "EUR", day(JAN_1)));
+        assertEquals(new BigDecimal("250.0"), index.priceAt("HOOL", "EUR", day(JAN_5)));
+        assertNull(index.priceAt("HOOL", "EUR", day(JAN_1.minusDays(1))));
+        assertNull(new PriceIndex.Builder().build(List.of()).priceAt("HOOL", "USD", day(JAN_1)));
+    }
+
+    private static long day(LocalDate date) {
+        return date.toEpochDay();
+    }
+}
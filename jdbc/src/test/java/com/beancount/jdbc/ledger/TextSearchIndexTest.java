@@ -0,0 +1,94 @@
+package com.beancount.jdbc.ledger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.beancount.jdbc.loader.BeancountLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class TextSearchIndexTest {
+
+    @TempDir Path tempDir;
+
+    private static final TextSearchIndex INDEX =
+            new TextSearchIndex.Builder()
+                    .add(2, "Amazon", "Books for the office", List.of())
+                    .add(5, "Cafe Luna", "Lunch with Amazon team", null)
+                    .add(8, "Rail", "Ticket", List.of("paid by card", "ask for Amazon receipt"))
+                    .add(9, null, "Straße fee", List.of())
+                    .build();
+
+    @Test
+    void candidatesContainEveryMatchingTransaction() {
+        assertArrayEquals(new int[] {2, 5, 8}, INDEX.candidates(List.of("AMAZON")));
+        assertArrayEquals(new int[] {2}, INDEX.candidates(List.of("amazon", "books")));
+        assertArrayEquals(new int[0], INDEX.candidates(List.of("zebra")));
+        assertNull(INDEX.candidates(List.of("ab", "")));
+        // Upper casing turns ß into SS, which the indexed variant still finds.
+        assertArrayEquals(new int[] {9}, INDEX.candidates(List.of("STRASSE")));
+        assertArrayEquals(new int[] {9}, INDEX.candidates(List.of("straße")));
+    }
+
+    @Test
+    void searchRanksByFieldAndWordStart() {
+        List<String> hits = render(INDEX.search("amazon", 0));
+        // Payee at a word start scores 6, narration 4 and comments 2.
+        assertEquals(List.of("2:6", "5:4", "8:2"), hits);
+        assertEquals(List.of("2:6"), render(INDEX.search("  Amazon  ", 1)));
+        assertEquals(List.of("2:10"), render(INDEX.search("amazon books", 0)));
+        assertEquals(List.of("5:10"), render(INDEX.search("lun", 0)));
+        assertEquals(List.of("8:1"), render(INDEX.search("rd", 0)));
+        assertEquals(List.of(), INDEX.search("amazon zebra", 0));
+        assertEquals(List.of(), INDEX.search(" ", 0));
+        assertEquals(0, TextSearchIndex.empty().search("amazon", 0).size());
+    }
+
+    @Test
+    void builderRequiresAscendingIds() {
+        TextSearchIndex.Builder builder = new TextSearchIndex.Builder().add(4, "a", "b", null);
+        assertThrows(IllegalArgumentException.class, () -> builder.add(4, "c", "d", null));
+    }
+
+    @Test
+    void loadedIndexCoversTransactions() throws Exception {
+        Path ledger =
+                Files.writeString(
+                        tempDir.resolve("search.beancount"),
+                        """
+                        2024-01-01 open Assets:Cash
+                        2024-01-01 open Expenses:Food
+
+                        2024-03-02 * "Cafe Luna" "Lunch"
+                          Expenses:Food  12 USD
+                          Assets:Cash  -12 USD
+
+                        2024-02-01 * "Market" "Groceries for the cafe"
+                          Expenses:Food  30 USD
+                          Assets:Cash  -30 USD
+                        """);
+        LedgerData data = new BeancountLoader().load(ledger).getLedgerData();
+
+        TextSearchIndex index = data.getTextIndex();
+        assertEquals(2, index.size());
+        List<String> narrations = new ArrayList<>();
+        for (TextSearchIndex.Hit hit : index.search("cafe", 0)) {
+            narrations.add(data.getEntries().get(hit.id()).getTransactionPayload().getNarration());
+        }
+        assertEquals(List.of("Lunch", "Groceries for the cafe"), narrations);
+    }
+
+    private static List<String> render(List<TextSearchIndex.Hit> hits) {
+        List<String> rendered = new ArrayList<>();
+        for (TextSearchIndex.Hit hit : hits) {
+            rendered.add(hit.id() + ":" + hit.score());
+        }
+        return rendered;
+    }
+}
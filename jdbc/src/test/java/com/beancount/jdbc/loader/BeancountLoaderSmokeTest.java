@@ -1,10 +1,17 @@
 package com.beancount.jdbc.loader;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.beancount.jdbc.ledger.OpenRecord;
+import com.beancount.jdbc.ledger.PostingRecord;
 import com.beancount.jdbc.testing.TestResources;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 final class BeancountLoaderSmokeTest {
 
@@ -16,4 +23,46 @@ final class BeancountLoaderSmokeTest {
                 result.getLedgerData().getEntries().size() > 0,
                 "Expected entries when loading " + ledger);
     }
+
+    @Test
+    void openBookingMethodSelectsLots(@TempDir Path tempDir) throws Exception {
+        Path ledger =
+                Files.writeString(
+                        tempDir.resolve("booking.beancount"),
+                        String.join(
+                                "\n",
+                                "2024-01-01 open Assets:Broker:ACME ACME \"LIFO\"",
+                                "2024-01-01 open Assets:Cash USD",
+                                "",
+                                "2024-01-02 * \"Buy\"",
+                                "  Assets:Broker:ACME  10 ACME {100 USD}",
+                                "  Assets:Cash",
+                                "",
+                                "2024-01-03 * \"Buy\"",
+                                "  Assets:Broker:ACME  10 ACME {120 USD}",
+                                "  Assets:Cash",
+                                "",
+                                "2024-01-04 * \"Buy\"",
+                                "  Assets:Broker:ACME  10 ACME {120 USD}",
+                                "  Assets:Cash",
+                                "",
+                                "2024-01-05 * \"Sell\"",
+                                "  Assets:Broker:ACME  -12 ACME {120 USD} @ 130 USD",
+                                "  Assets:Cash",
+                                ""));
+        LoaderResult result = new BeancountLoader().load(ledger);
+
+        OpenRecord open = result.getLedgerData().getOpens().get(0);
+        assertEquals(List.of("ACME"), open.getCurrencies());
+        assertEquals("LIFO", open.getBookingMethod());
+
+        List<String> reductions = new ArrayList<>();
+        for (PostingRecord posting : result.getLedgerData().getPostings()) {
+            // Only the broker account holds lots; the cash legs are interpolated without a cost.
+            if ("Assets:Broker:ACME".equals(posting.getAccount()) && posting.getNumber().signum() < 0) {
+                reductions.add(posting.getNumber().toPlainString() + "@" + posting.getCostDate());
+            }
+        }
+        assertEquals(List.of("-10@2024-01-04", "-2@2024-01-03"), reductions);
+    }
 }
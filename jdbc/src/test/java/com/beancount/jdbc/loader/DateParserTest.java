@@ -0,0 +1,89 @@
+package com.beancount.jdbc.loader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+final class DateParserTest {
+
+    /** The formatter the analyzer used before dates were decoded by hand. */
+    private static final DateTimeFormatter REFERENCE =
+            new DateTimeFormatterBuilder()
+                    .appendValue(ChronoField.YEAR, 4)
+                    .appendLiteral('-')
+                    .appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
+                    .appendLiteral('-')
+                    .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+                    .toFormatter();
+
+    @Test
+    void parsesPaddedAndUnpaddedFields() {
+        assertEquals(LocalDate.of(2024, 3, 9), DateParser.parse("2024-03-09"));
+        assertEquals(LocalDate.of(2024, 3, 9), DateParser.parse("2024-3-9"));
+    }
+
+    @Test
+    void clampsDayToEndOfMonth() {
+        assertEquals(LocalDate.of(2023, 2, 28), DateParser.parse("2023-02-30"));
+        assertEquals(LocalDate.of(2024, 2, 29), DateParser.parse("2024-02-31"));
+        assertEquals(LocalDate.of(2024, 4, 30), DateParser.parse("2024-04-31"));
+    }
+
+    @Test
+    void rejectsMalformedDates() {
+        assertThrows(DateTimeParseException.class, () -> DateParser.parse("2024-13-01"));
+        assertThrows(DateTimeParseException.class, () -> DateParser.parse("2024-01-32"));
+        assertThrows(DateTimeParseException.class, () -> DateParser.parse("2024/01/01"));
+        assertThrows(DateTimeParseException.class, () -> DateParser.parse("24-01-01"));
+        assertThrows(DateTimeParseException.class, () -> DateParser.parse("2024-01-01 "));
+    }
+
+    @Test
+    void matchesFormatterOnGeneratedDates() {
+        Random random = new Random(38);
+        char[] alphabet = "0123456789--/ ".toCharArray();
+        for (int i = 0; i < 50_000; i++) {
+            String text;
+            if (random.nextBoolean()) {
+                text =
+                        (1900 + random.nextInt(200))
+                                + "-"
+                                + random.nextInt(14)
+                                + "-"
+                                + (random.nextBoolean() ? "0" : "")
+                                + random.nextInt(33);
+            } else {
+                char[] token = new char[6 + random.nextInt(6)];
+                for (int j = 0; j < token.length; j++) {
+                    token[j] = alphabet[random.nextInt(alphabet.length)];
+                }
+                text = new String(token);
+            }
+            assertEquals(reference(text), outcome(text), text);
+        }
+    }
+
+    private static String outcome(String text) {
+        try {
+            return DateParser.parse(text).toString();
+        } catch (DateTimeParseException ex) {
+            return "invalid";
+        }
+    }
+
+    private static String reference(String text) {
+        try {
+            return LocalDate.parse(text, REFERENCE).toString();
+        } catch (DateTimeParseException ex) {
+            return "invalid";
+        }
+    }
+}
@@ -5,6 +5,11 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 final class DecimalParserTest {
@@ -34,4 +39,90 @@ final class DecimalParserTest {
     void rejectsMixedSeparators() {
         assertThrows(NumberFormatException.class, () -> DecimalParser.parse("1,234.56"));
     }
+
+    @Test
+    void rejectsGroupingAndSigns() {
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("1,234,567"));
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("1.234.567"));
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("1 234"));
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("+5"));
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("-"));
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("."));
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("1e5"));
+    }
+
+    @Test
+    void rejectsExponentsBeyondIntRange() {
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("1E2147483648"));
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("1E-2147483648"));
+        assertThrows(NumberFormatException.class, () -> DecimalParser.parse("1E99999999999999999999"));
+        assertEquals(new BigDecimal("1E+2147483647"), DecimalParser.parse("1E2147483647"));
+    }
+
+    @Test
+    void keepsScaleAndFallsBackBeyondLongPrecision() {
+        assertEquals(new BigDecimal("0.50"), DecimalParser.parse("0,50"));
+        assertEquals(new BigDecimal("0.000"), DecimalParser.parse("-000.000"));
+        assertEquals(new BigDecimal("1.5E+2"), DecimalParser.parse("1.5E2"));
+        assertEquals(
+                new BigDecimal("-123456789012345678901234.5678"),
+                DecimalParser.parse("-123456789012345678901234,5678"));
+    }
+
+    @Test
+    void matchesDecimalFormatOnGeneratedTokens() {
+        Random random = new Random(38);
+        char[] alphabet = "0123456789000.,-E+ e\u0661".toCharArray();
+        for (int i = 0; i < 50_000; i++) {
+            char[] token = new char[1 + random.nextInt(24)];
+            for (int j = 0; j < token.length; j++) {
+                token[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String text = new String(token);
+            int exponent = text.indexOf('E');
+            if (exponent >= 0 && text.length() - exponent > 10) {
+                // DecimalFormat silently wraps exponents beyond int range; those are rejected now.
+                continue;
+            }
+            assertEquals(referenceParse(text), outcome(text), text);
+        }
+    }
+
+    private static String outcome(String text) {
+        try {
+            BigDecimal parsed = DecimalParser.parse(text);
+            return parsed == null ? "null" : parsed.unscaledValue() + "/" + parsed.scale();
+        } catch (NumberFormatException ex) {
+            return "invalid";
+        }
+    }
+
+    /** The DecimalFormat-based implementation DecimalParser used to delegate to. */
+    private static String referenceParse(String text) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return "null";
+        }
+        boolean hasComma = trimmed.indexOf(',') >= 0;
+        if (hasComma && trimmed.indexOf('.') >= 0) {
+            return "invalid";
+        }
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.ROOT);
+        symbols.setDecimalSeparator(hasComma ? ',' : '.');
+        DecimalFormat format = new DecimalFormat();
+        format.setDecimalFormatSymbols(symbols);
+        format.setParseBigDecimal(true);
+        format.setGroupingUsed(false);
+        format.setMaximumFractionDigits(Integer.MAX_VALUE);
+        format.setMaximumIntegerDigits(Integer.MAX_VALUE);
+        ParsePosition position = new ParsePosition(0);
+        Number parsed = format.parse(trimmed, position);
+        if (parsed == null || position.getIndex() != trimmed.length()) {
+            return "invalid";
+        }
+        if (!(parsed instanceof BigDecimal decimal)) {
+            return "invalid";
+        }
+        return decimal.unscaledValue() + "/" + decimal.scale();
+    }
 }
@@ -0,0 +1,105 @@
+package com.beancount.jdbc.loader.semantic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.beancount.jdbc.ledger.LedgerData;
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import com.beancount.jdbc.ledger.TransactionPayload;
+import com.beancount.jdbc.loader.BeancountLoader;
+import com.beancount.jdbc.loader.LoaderMessage;
+import com.beancount.jdbc.loader.LoaderResult;
+import com.beancount.jdbc.testing.TestResources;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pins the entry and posting order produced by {@link SemanticAnalyzer} on real ledgers.
+ *
+ * <p>The digests were recorded from the analyzer as it was before finalization was fused into a
+ * single ordered pass (sort, id assignment, booking, currency bucketing and posting ids each ran
+ * as a separate whole-ledger pass). Each covers the entries and postings in emitted order with
+ * their ids, plus every loader message, so any change to ordering or id assignment shows up
+ * here.</p>
+ */
+final class AnalyzerOrderingParityTest {
+
+    private static final Map<String, String> EXPECTED_DIGESTS = new LinkedHashMap<>();
+
+    static {
+        EXPECTED_DIGESTS.put(
+                "beancount-beancount-example.beancount", "326c22df54c2e8f947986b7f3c98dea93e87962c93338fc523aec62b0fd91b67");
+        EXPECTED_DIGESTS.put(
+                "lots.beancount", "4b9e6a57b07a1b00f87a3402628d1b23d4d76f6a434bef9b8ff2a583334c3f03");
+        EXPECTED_DIGESTS.put(
+                "long-example.beancount", "c714ff7389e0dcb87ef1e061ef7aef7526f875ded32e569e8e87d6dd2cad4a98");
+        EXPECTED_DIGESTS.put(
+                "beancount-fava-example.beancount", "62cacc67bc71f4f64a40ad493ca236daf81274a356f27997062a1756634b714b");
+    }
+
+    @Test
+    void outputMatchesThePreviousMultiPassOrdering() throws Exception {
+        Map<String, String> actual = new LinkedHashMap<>();
+        for (String ledgerName : EXPECTED_DIGESTS.keySet()) {
+            Path ledger = TestResources.absolutePath("jdbc/src/test/resources/regression/ledgers/" + ledgerName);
+            LoaderResult result = new BeancountLoader().load(ledger);
+            actual.put(ledgerName, digest(dump(result)));
+        }
+        assertEquals(EXPECTED_DIGESTS, actual);
+    }
+
+    private static String dump(LoaderResult result) {
+        LedgerData data = result.getLedgerData();
+        StringBuilder out = new StringBuilder();
+        for (LedgerEntry entry : data.getEntries()) {
+            out.append("E|").append(entry.getId())
+                    .append('|').append(entry.getDate())
+                    .append('|').append(entry.getType())
+                    .append('|').append(Path.of(entry.getSourceFilename()).getFileName())
+                    .append('|').append(entry.getSourceLineno());
+            TransactionPayload payload = entry.getTransactionPayload();
+            if (payload != null) {
+                out.append('|').append(payload.getFlag())
+                        .append('|').append(payload.getPayee())
+                        .append('|').append(payload.getNarration())
+                        .append('|').append(payload.getTags())
+                        .append('|').append(payload.getLinks());
+            }
+            out.append('\n');
+        }
+        for (PostingRecord posting : data.getPostings()) {
+            out.append("P|").append(posting.getPostingId())
+                    .append('|').append(posting.getEntryId())
+                    .append('|').append(posting.getFlag())
+                    .append('|').append(posting.getAccount())
+                    .append('|').append(plain(posting.getNumber()))
+                    .append('|').append(posting.getCurrency())
+                    .append('|').append(plain(posting.getCostNumber()))
+                    .append('|').append(posting.getCostCurrency())
+                    .append('|').append(posting.getCostDate())
+                    .append('|').append(posting.getCostLabel())
+                    .append('|').append(plain(posting.getPriceNumber()))
+                    .append('|').append(posting.getPriceCurrency())
+                    .append('\n');
+        }
+        for (LoaderMessage message : result.getMessages()) {
+            out.append("M|").append(message.getLevel()).append('|').append(message.getMessage()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "null" : value.toPlainString();
+    }
+
+    private static String digest(String dump) throws Exception {
+        MessageDigest sha = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(sha.digest(dump.getBytes(StandardCharsets.UTF_8)));
+    }
+}
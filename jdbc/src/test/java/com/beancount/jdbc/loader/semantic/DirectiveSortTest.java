@@ -0,0 +1,70 @@
+package com.beancount.jdbc.loader.semantic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.beancount.jdbc.loader.semantic.SemanticAnalyzer.DirectiveDescriptor;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+final class DirectiveSortTest {
+
+    private static final String[] TYPES = {
+        "transaction", "open", "close", "balance", "pad", "note", "document", "event", "price", "query"
+    };
+
+    @Test
+    void packedKeysMatchTheComparatorOnMixedDirectives() {
+        Random random = new Random(34);
+        List<DirectiveDescriptor> descriptors = new ArrayList<>();
+        LocalDate start = LocalDate.of(2019, 12, 30);
+        for (int id = 0; id < 5_000; id++) {
+            // Few distinct dates and lines so date, type and line ties all occur.
+            descriptors.add(
+                    new DirectiveDescriptor(
+                            id,
+                            start.plusDays(random.nextInt(40)),
+                            TYPES[random.nextInt(TYPES.length)],
+                            random.nextBoolean() ? "main.beancount" : "include.beancount",
+                            1 + random.nextInt(200)));
+        }
+        Collections.shuffle(descriptors, random);
+
+        assertSameOrder(descriptors);
+    }
+
+    @Test
+    void rangesBeyondSixtyThreeBitsFallBackToTheComparator() {
+        // 22 bits of days, 3 of type rank, 31 of line and 11 of id do not fit in one long.
+        List<DirectiveDescriptor> descriptors = new ArrayList<>();
+        descriptors.add(directive(2000, "9999-12-31", "open", "a.beancount", 1));
+        descriptors.add(directive(7, "0001-01-01", "close", "a.beancount", Integer.MAX_VALUE));
+        descriptors.add(directive(3, "0001-01-01", "open", "a.beancount", Integer.MAX_VALUE));
+        descriptors.add(directive(1, "0001-01-01", "transaction", "b.beancount", 0));
+        descriptors.add(directive(5, "2024-02-29", "balance", "a.beancount", 12));
+        descriptors.add(directive(4, "2024-02-29", "balance", "b.beancount", 12));
+
+        assertSameOrder(descriptors);
+    }
+
+    private static DirectiveDescriptor directive(int id, String date, String type, String file, int line) {
+        return new DirectiveDescriptor(id, LocalDate.parse(date), type, file, line);
+    }
+
+    private static void assertSameOrder(List<DirectiveDescriptor> descriptors) {
+        List<DirectiveDescriptor> expected = new ArrayList<>(descriptors);
+        expected.sort(SemanticAnalyzer.DIRECTIVE_COMPARATOR);
+        assertEquals(ids(expected), ids(SemanticAnalyzer.sortDirectives(descriptors)));
+    }
+
+    private static List<Integer> ids(List<DirectiveDescriptor> descriptors) {
+        List<Integer> ids = new ArrayList<>(descriptors.size());
+        for (DirectiveDescriptor descriptor : descriptors) {
+            ids.add(descriptor.tempId());
+        }
+        return ids;
+    }
+}
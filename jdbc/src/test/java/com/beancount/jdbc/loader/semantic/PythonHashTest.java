@@ -2,6 +2,7 @@ package com.beancount.jdbc.loader.semantic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -21,6 +22,42 @@ final class PythonHashTest {
         assertEquals(-1696825221828146139L, hash.hash("bar"));
     }
 
+    @Test
+    void hashesWordAlignedAndWideStrings() {
+        PythonHash hash = PythonHash.withSecret(K0, K1);
+        assertEquals(4788392105583824765L, hash.hash("abcdefgh"));
+        assertEquals(3720761437220286620L, hash.hash("abcdefghijklmnop"));
+        assertEquals(-5887385601356443919L, hash.hash("caf\u00e9"));
+        assertEquals(-1318859910470323264L, hash.hash("\u65e5\u672c"));
+        assertEquals(4616995914125982315L, hash.hash("\ud83d\ude42x"));
+        // Second lookups are served from the per-string cache.
+        assertEquals(4788392105583824765L, hash.hash("abcdefgh"));
+    }
+
+    @Test
+    void secretDerivationMatchesCPython() {
+        // {seed, k0, k1, hash("travel")} read from _Py_HashSecret of CPython runs.
+        long[][] golden = {
+            {29L, K0, K1, 5109853538790556365L},
+            {979L, 0x935fc1c7e57669a3L, 0xd8e8de5e363d06c1L, -6603065703264520507L},
+            {1L, 0xaed66ce184be2329L, 0xebe9bbf1f1499052L, 4621550529829387243L},
+            {42L, 0xdc504fd368cd90afL, 0xb920bb9ffe99e9c1L, 4393048143262557472L},
+            {4294967295L, 0x8d85be4c852e2b23L, 0x778977fb98719852L, 2139913874284176492L},
+        };
+        for (long[] row : golden) {
+            PythonHash derived = PythonHash.forSeed(row[0]);
+            PythonHash expected = PythonHash.withSecret(row[1], row[2]);
+            assertEquals(row[3], derived.hash("travel"), "seed " + row[0]);
+            assertEquals(expected.hash("trip-chicago-2021"), derived.hash("trip-chicago-2021"), "seed " + row[0]);
+        }
+    }
+
+    @Test
+    void zeroSeedDisablesRandomization() {
+        assertEquals(PythonHash.withSecret(0L, 0L).hash("travel"), PythonHash.forSeed(0L).hash("travel"));
+        assertThrows(IllegalArgumentException.class, () -> PythonHash.forSeed(4294967296L));
+    }
+
     @Test
     void setIterationAlignsWithPythonSeed29() {
         PythonSetOrdering ordering = new PythonSetOrdering(PythonHash.withSecret(K0, K1));
@@ -0,0 +1,51 @@
+package com.beancount.jdbc.loader.semantic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+final class RunningBalancesTest {
+
+    @Test
+    void amountsRollUpIntoAncestors() {
+        RunningBalances balances = new RunningBalances();
+        balances.add("Assets:Bank:Checking", "USD", new BigDecimal("10.50"));
+        balances.add("Assets:Bank:Savings", "USD", new BigDecimal("4.5"));
+        balances.add("Assets:Cash", "EUR", new BigDecimal("3"));
+        assertEquals(new BigDecimal("10.50"), balances.get("Assets:Bank:Checking", "USD"));
+        assertEquals(new BigDecimal("15.00"), balances.get("Assets:Bank", "USD"));
+        assertEquals(new BigDecimal("15.00"), balances.get("Assets", "USD"));
+        assertEquals(new BigDecimal("3"), balances.get("Assets", "EUR"));
+        assertEquals(BigDecimal.ZERO, balances.get("Assets:Cash", "USD"));
+        assertEquals(BigDecimal.ZERO, balances.get("Liabilities", "USD"));
+    }
+
+    @Test
+    void scaleMatchesBigDecimalAddition() {
+        RunningBalances balances = new RunningBalances();
+        BigDecimal expected = null;
+        for (String amount : new String[] {"1", "-0.25", "7.125", "-8.000", "0.1250"}) {
+            BigDecimal number = new BigDecimal(amount);
+            balances.add("Assets:Cash", "USD", number);
+            expected = expected == null ? number : expected.add(number);
+            assertEquals(expected, balances.get("Assets:Cash", "USD"));
+        }
+    }
+
+    @Test
+    void overflowFallsBackToBigDecimal() {
+        RunningBalances balances = new RunningBalances();
+        BigDecimal large = new BigDecimal("900000000000000000");
+        balances.add("Equity:Opening", "USD", large);
+        balances.add("Equity:Opening", "USD", large);
+        balances.add("Equity:Opening", "USD", new BigDecimal("0.000000000000000000001"));
+        balances.add("Equity:Opening", "USD", new BigDecimal("1E+3"));
+        BigDecimal expected =
+                large.add(large)
+                        .add(new BigDecimal("0.000000000000000000001"))
+                        .add(new BigDecimal("1E+3"));
+        assertEquals(expected, balances.get("Equity:Opening", "USD"));
+        assertEquals(expected, balances.get("Equity", "USD"));
+    }
+}
@@ -0,0 +1,176 @@
+package com.beancount.jdbc.loader.semantic.booking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.LotHistory;
+import com.beancount.jdbc.ledger.PostingRecord;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+final class BookingEngineTest {
+
+    private static final String ACCOUNT = "Assets:Broker:ACME";
+
+    private int nextId;
+
+    @Test
+    void fifoConsumesOldestLotsFirst() {
+        BookingEngine engine = new BookingEngine(BookingMethod.FIFO, Map.of());
+        buy(engine, "10", "100", "2024-01-01");
+        buy(engine, "10", "120", "2024-02-01");
+        List<PostingRecord> booked = sell(engine, "15", "2024-03-01");
+        assertCosts(booked, "-10@100", "-5@120");
+    }
+
+    @Test
+    void lifoConsumesNewestLotsFirst() {
+        BookingEngine engine = new BookingEngine(BookingMethod.FIFO, Map.of(ACCOUNT, BookingMethod.LIFO));
+        buy(engine, "10", "100", "2024-01-01");
+        buy(engine, "10", "120", "2024-02-01");
+        buy(engine, "10", "90", "2024-03-01");
+        assertCosts(sell(engine, "12", "2024-04-01"), "-10@90", "-2@120");
+    }
+
+    @Test
+    void hifoConsumesHighestCostFirst() {
+        BookingEngine engine = new BookingEngine(BookingMethod.HIFO, Map.of());
+        buy(engine, "10", "100", "2024-01-01");
+        buy(engine, "10", "120", "2024-02-01");
+        buy(engine, "10", "90", "2024-03-01");
+        assertCosts(sell(engine, "25", "2024-04-01"), "-10@120", "-10@100", "-5@90");
+    }
+
+    @Test
+    void costSpecSelectsMatchingLotsOnly() {
+        BookingEngine engine = new BookingEngine(BookingMethod.FIFO, Map.of());
+        buy(engine, "10", "100", "2024-01-01");
+        buy(engine, "10", "120", "2024-02-01");
+        List<PostingRecord> booked =
+                engine.book(entry("2024-03-01"), List.of(posting("-4", new BigDecimal("120.00"), null)));
+        assertCosts(booked, "-4@120.00");
+        assertCosts(sell(engine, "16", "2024-04-01"), "-10@100", "-6@120");
+    }
+
+    @Test
+    void strictRejectsAmbiguousReductions() {
+        BookingEngine engine = new BookingEngine(BookingMethod.STRICT, Map.of());
+        buy(engine, "10", "100", "2024-01-01");
+        buy(engine, "10", "120", "2024-02-01");
+        List<PostingRecord> ambiguous = sell(engine, "5", "2024-03-01");
+        assertEquals(1, ambiguous.size());
+        assertEquals(null, ambiguous.get(0).getCostNumber());
+        assertEquals(1, engine.getMessages().size());
+        assertCosts(sell(engine, "20", "2024-03-02"), "-10@100", "-10@120");
+    }
+
+    @Test
+    void insufficientLotsLeaveReductionUnbooked() {
+        BookingEngine engine = new BookingEngine(BookingMethod.FIFO, Map.of());
+        buy(engine, "10", "100", "2024-01-01");
+        List<PostingRecord> booked = sell(engine, "11", "2024-02-01");
+        assertEquals(1, booked.size());
+        assertEquals(0, new BigDecimal("-11").compareTo(booked.get(0).getNumber()));
+    }
+
+    @Test
+    void largeInventoriesReduceWithoutRescanning() {
+        BookingEngine engine = new BookingEngine(BookingMethod.FIFO, Map.of());
+        int lots = 50_000;
+        List<PostingRecord> buys = new ArrayList<>(lots);
+        for (int i = 0; i < lots; i++) {
+            buys.add(posting("1", BigDecimal.valueOf(100 + i % 50), null));
+        }
+        engine.book(entry("2024-01-01"), buys);
+        List<PostingRecord> sells = new ArrayList<>(lots);
+        for (int i = 0; i < lots; i++) {
+            sells.add(posting("-1", null, null));
+        }
+        List<PostingRecord> booked = engine.book(entry("2024-06-01"), sells);
+        assertEquals(lots, booked.size());
+        assertTrue(booked.stream().allMatch(posting -> posting.getCostNumber() != null));
+    }
+
+    @Test
+    void lotHistoryKeepsTheOpenLotsOfEveryDate() {
+        BookingEngine engine = new BookingEngine(BookingMethod.FIFO, Map.of());
+        buy(engine, "10", "100", "2024-01-01");
+        buy(engine, "10", "120", "2024-02-01");
+        sell(engine, "15", "2024-03-01");
+        sell(engine, "5", "2024-04-01");
+        LotHistory history = engine.lotHistory();
+
+        assertEquals(List.of(), openLots(history, "2023-12-31"));
+        assertEquals(List.of("10@100"), openLots(history, "2024-01-31"));
+        assertEquals(List.of("10@100", "10@120"), openLots(history, "2024-02-29"));
+        assertEquals(List.of("5@120"), openLots(history, "2024-03-01"));
+        assertEquals(List.of(), openLots(history, "2024-04-01"));
+        assertEquals(List.of(), openLots(history, null));
+        assertEquals(2, history.lotCount());
+        assertEquals(LocalDate.parse("2024-02-01"), history.costDate(1));
+    }
+
+    @Test
+    void onlyPostingsMatchedAgainstLotsAreBookedReductions() {
+        BookingEngine engine = new BookingEngine(BookingMethod.FIFO, Map.of());
+        buy(engine, "10", "100", "2024-01-01");
+        buy(engine, "10", "120", "2024-02-01");
+        List<PostingRecord> booked = sell(engine, "15", "2024-03-01");
+        assertEquals(2, booked.size());
+        assertTrue(booked.stream().allMatch(engine::isBookedReduction));
+        List<PostingRecord> unbooked = sell(engine, "50", "2024-04-01");
+        assertEquals(1, unbooked.size());
+        assertFalse(engine.isBookedReduction(unbooked.get(0)));
+        assertFalse(engine.isBookedReduction(booked.get(0)));
+    }
+
+    private static List<String> openLots(LotHistory history, String date) {
+        List<String> lots = new ArrayList<>();
+        for (int version : history.openAt(date == null ? null : LocalDate.parse(date))) {
+            lots.add(history.quantity(version).toPlainString() + "@" + history.costNumber(history.lot(version)));
+        }
+        return lots;
+    }
+
+    private void buy(BookingEngine engine, String units, String cost, String date) {
+        engine.book(entry(date), List.of(posting(units, new BigDecimal(cost), null)));
+    }
+
+    private List<PostingRecord> sell(BookingEngine engine, String units, String date) {
+        return engine.book(entry(date), List.of(posting("-" + units, null, null)));
+    }
+
+    private LedgerEntry entry(String date) {
+        return new LedgerEntry(nextId++, LocalDate.parse(date), "txn", "test.beancount", nextId, null);
+    }
+
+    private PostingRecord posting(String units, BigDecimal cost, LocalDate costDate) {
+        return new PostingRecord(
+                nextId++,
+                nextId,
+                null,
+                ACCOUNT,
+                new BigDecimal(units),
+                "ACME",
+                cost,
+                "USD",
+                costDate,
+                null,
+                null,
+                null);
+    }
+
+    private static void assertCosts(List<PostingRecord> booked, String... expected) {
+        List<String> actual = new ArrayList<>();
+        for (PostingRecord posting : booked) {
+            actual.add(posting.getNumber().toPlainString() + "@" + posting.getCostNumber().toPlainString());
+        }
+        assertEquals(List.of(expected), actual);
+    }
+}
@@ -0,0 +1,124 @@
+package com.beancount.jdbc.schema;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+final class ColumnKernelsTest {
+
+    private record Row(String account, String currency, BigDecimal number) {}
+
+    @Test
+    void bestKernelsMatchScalarKernels() {
+        Random random = new Random(40);
+        long[] values = new long[10_003];
+        int[] groups = new int[values.length];
+        int[] codes = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt() - random.nextInt();
+            groups[i] = random.nextInt(37);
+            codes[i] = random.nextInt(5);
+        }
+        ColumnKernels scalar = ColumnKernels.scalar();
+        ColumnKernels best = ColumnKernels.best();
+        assertEquals(scalar.sum(values), best.sum(values), best.name());
+
+        long[] expected = new long[37];
+        long[] actual = new long[37];
+        scalar.sumByGroup(values, groups, expected);
+        best.sumByGroup(values, groups, actual);
+        assertArrayEquals(expected, actual, best.name());
+
+        int[] scalarIds = groups.clone();
+        int[] bestIds = groups.clone();
+        scalar.combine(scalarIds, codes, 5);
+        best.combine(bestIds, codes, 5);
+        assertArrayEquals(scalarIds, bestIds, best.name());
+    }
+
+    @Test
+    void groupedSumsMatchBigDecimalAdditionInFirstRowOrder() {
+        Random random = new Random(41);
+        String[] accounts = {"Assets:Cash", "Expenses:Food", "Income:Salary", "Liabilities:Card"};
+        String[] currencies = {"USD", "EUR", null};
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            BigDecimal number =
+                    switch (random.nextInt(10)) {
+                        case 0 -> null;
+                        case 1 -> new BigDecimal("1E+2");
+                        case 2 -> new BigDecimal("12345678901234567890.125");
+                        default -> BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, random.nextInt(4));
+                    };
+            rows.add(new Row(accounts[random.nextInt(accounts.length)], currencies[random.nextInt(3)], number));
+        }
+        Map<List<Object>, BigDecimal> expected = new LinkedHashMap<>();
+        for (Row row : rows) {
+            List<Object> key = Arrays.asList(row.account(), row.currency());
+            expected.putIfAbsent(key, null);
+            if (row.number() != null) {
+                BigDecimal total = expected.get(key);
+                expected.put(key, (total == null ? BigDecimal.ZERO : total).add(row.number()));
+            }
+        }
+        DecimalColumn numbers = DecimalColumn.of(rows, Row::number);
+        DictionaryColumn accountCodes = DictionaryColumn.of(rows, Row::account);
+        DictionaryColumn currencyCodes = DictionaryColumn.of(rows, Row::currency);
+        for (ColumnKernels kernels : List.of(ColumnKernels.scalar(), ColumnKernels.best())) {
+            GroupIds groups = GroupIds.of(kernels, accountCodes, currencyCodes);
+            BigDecimal[] sums = numbers.sumByGroup(groups, kernels);
+            List<List<Object>> keys = new ArrayList<>(expected.keySet());
+            assertEquals(keys.size(), groups.count());
+            for (int group = 0; group < groups.count(); group++) {
+                Row first = rows.get(groups.firstRow(group));
+                assertEquals(keys.get(group), Arrays.asList(first.account(), first.currency()));
+                assertEquals(expected.get(keys.get(group)), sums[group], kernels.name());
+            }
+        }
+    }
+
+    @Test
+    void sumsThatCouldOverflowStayExact() {
+        List<BigDecimal> values =
+                List.of(
+                        new BigDecimal("900000000000000000"),
+                        new BigDecimal("900000000000000000"),
+                        new BigDecimal("-0.5"));
+        BigDecimal[] sums = DecimalColumn.of(values, value -> value).sumByGroup(GroupIds.all(3), ColumnKernels.best());
+        assertEquals(new BigDecimal("1799999999999999999.5"), sums[0]);
+    }
+
+    @Test
+    void emptyTableStillHasOneUngroupedRow() {
+        GroupIds groups = GroupIds.all(0);
+        assertEquals(1, groups.count());
+        assertEquals(0L, groups.sizes()[0]);
+        assertNull(DecimalColumn.of(List.<BigDecimal>of(), value -> value).sumByGroup(groups, ColumnKernels.best())[0]);
+    }
+
+    @Test
+    void wideKeyCombinationsFallBackToHashedIds() {
+        int rows = 6_000;
+        List<int[]> records = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            records.add(new int[] {i, i % 1_000});
+        }
+        DictionaryColumn first = DictionaryColumn.of(records, record -> record[0]);
+        DictionaryColumn second = DictionaryColumn.of(records, record -> record[1]);
+        GroupIds groups = GroupIds.of(ColumnKernels.best(), first, second);
+        assertEquals(rows, groups.count());
+        for (int row = 0; row < rows; row++) {
+            assertEquals(row, groups.groupOf(row));
+            assertEquals(row, groups.firstRow(row));
+        }
+    }
+}
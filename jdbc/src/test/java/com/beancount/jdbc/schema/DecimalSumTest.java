@@ -0,0 +1,88 @@
+package com.beancount.jdbc.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+final class DecimalSumTest {
+
+    @Test
+    void matchesBigDecimalAdditionFromZero() {
+        List<BigDecimal> values =
+                Arrays.asList(
+                        new BigDecimal("1"),
+                        null,
+                        new BigDecimal("-0.25"),
+                        new BigDecimal("7.125"),
+                        new BigDecimal("1E+3"),
+                        new BigDecimal("-8.000"),
+                        new BigDecimal("0.1250"));
+        DecimalSum direct = new DecimalSum();
+        DecimalSum fromColumn = new DecimalSum();
+        DecimalColumn column = DecimalColumn.of(values, value -> value);
+        BigDecimal expected = BigDecimal.ZERO;
+        assertTrue(direct.isEmpty());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), column.get(i));
+            direct.add(values.get(i));
+            column.addTo(i, fromColumn);
+            if (values.get(i) != null) {
+                expected = expected.add(values.get(i));
+            }
+            assertEquals(expected, direct.toBigDecimal());
+            assertEquals(expected, fromColumn.toBigDecimal());
+        }
+        assertFalse(direct.isEmpty());
+    }
+
+    @Test
+    void overflowContinuesExactly() {
+        List<BigDecimal> values =
+                List.of(
+                        new BigDecimal("900000000000000000"),
+                        new BigDecimal("900000000000000000"),
+                        new BigDecimal("0.000000000000000000001"),
+                        new BigDecimal("12345678901234567890.5"),
+                        new BigDecimal("-3.5"));
+        DecimalColumn column = DecimalColumn.of(values, value -> value);
+        DecimalSum sum = new DecimalSum();
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), column.get(i));
+            column.addTo(i, sum);
+            expected = expected.add(values.get(i));
+        }
+        assertEquals(expected, sum.toBigDecimal());
+    }
+
+    @Test
+    void nullsOnlyLeaveTheSumEmpty() {
+        DecimalColumn column = DecimalColumn.of(Arrays.asList(null, null), value -> (BigDecimal) value);
+        DecimalSum sum = new DecimalSum();
+        column.addTo(0, sum);
+        column.addTo(1, sum);
+        assertNull(column.get(0));
+        assertTrue(sum.isEmpty());
+        assertEquals(BigDecimal.ZERO, sum.toBigDecimal());
+    }
+
+    @Test
+    void randomAmountsMatchBigDecimal() {
+        Random random = new Random(39);
+        DecimalSum sum = new DecimalSum();
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal value = BigDecimal.valueOf(random.nextLong() >> random.nextInt(64), random.nextInt(8));
+            sum.add(value);
+            expected = expected.add(value);
+        }
+        assertEquals(expected, sum.toBigDecimal());
+    }
+}
@@ -0,0 +1,121 @@
+package com.beancount.jdbc.schema;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.TransactionPayload;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+final class EntryLabelIndexTest {
+
+    @Test
+    void bitmapsMatchSetOperationsInBothRepresentations() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            // Densities on either side of the switch between sorted ids and words.
+            TreeSet<Integer> left = randomIds(random, 2000, round % 2 == 0 ? 0.01 : 0.4);
+            TreeSet<Integer> right = randomIds(random, 2500, round % 3 == 0 ? 0.02 : 0.5);
+            IdBitmap a = IdBitmap.of(toArray(left));
+            IdBitmap b = IdBitmap.of(toArray(right));
+
+            TreeSet<Integer> both = new TreeSet<>(left);
+            both.retainAll(right);
+            TreeSet<Integer> either = new TreeSet<>(left);
+            either.addAll(right);
+            assertArrayEquals(toArray(both), a.and(b).toArray());
+            assertArrayEquals(toArray(either), a.or(b).toArray());
+            assertEquals(either.size(), b.or(a).cardinality());
+            assertArrayEquals(toArray(left), a.toArray());
+            for (int id = -1; id < 2600; id += 13) {
+                assertEquals(left.contains(id), a.contains(id));
+            }
+        }
+        assertFalse(IdBitmap.of(new int[] {1, 500, 9000}).isDense());
+        int[] dense = new int[200];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = i * 2;
+        }
+        assertTrue(IdBitmap.of(dense).isDense());
+        assertArrayEquals(new int[] {2, 398}, IdBitmap.of(dense).and(IdBitmap.of(new int[] {2, 3, 398})).toArray());
+        assertThrows(IllegalArgumentException.class, () -> IdBitmap.of(new int[] {3, 3}));
+    }
+
+    @Test
+    void rowsFollowEntryIdsAndTheTagsColumnOrder() {
+        List<LedgerEntry> entries = new ArrayList<>();
+        entries.add(transaction(0, "trip-2024,food", "inv-1"));
+        entries.add(new LedgerEntry(1, LocalDate.of(2024, 1, 2), "open", "main.beancount", 2, null));
+        entries.add(transaction(2, "", ""));
+        entries.add(transaction(3, "food", "inv-1,inv-2"));
+        entries.add(transaction(4, "trip-2024", ""));
+
+        EntryLabelIndex tags = EntryLabelIndex.tags(entries);
+        assertEquals(List.of("0 trip-2024", "0 food", "3 food", "4 trip-2024"), render(tags));
+        assertArrayEquals(new int[] {0, 4}, tags.ids("trip-2024").toArray());
+        assertTrue(tags.ids("missing").isEmpty());
+        assertEquals(-1, tags.code("missing"));
+        assertEquals(tags.firstRow(1), tags.endRow(1));
+        assertEquals(tags.firstRow(2), tags.endRow(2));
+        assertEquals(2, tags.firstRow(3));
+        assertEquals(tags.size(), tags.firstRow(99));
+
+        EntryLabelIndex links = EntryLabelIndex.links(entries);
+        assertEquals(List.of("0 inv-1", "3 inv-1", "3 inv-2"), render(links));
+
+        assertEquals(List.of(0, 4), ids(EntryLabelsTable.taggedRows(tags, links, "trip-2024", null)));
+        assertEquals(List.of(0), ids(EntryLabelsTable.taggedRows(tags, links, "#trip-2024, food", null)));
+        assertEquals(List.of(3), ids(EntryLabelsTable.taggedRows(tags, links, "food", "^inv-2")));
+        assertEquals(List.of(0, 3), ids(EntryLabelsTable.taggedRows(tags, links, null, "inv-1")));
+        assertEquals(List.of(), ids(EntryLabelsTable.taggedRows(tags, links, "food,missing", null)));
+        assertThrows(IllegalArgumentException.class, () -> EntryLabelsTable.taggedRows(tags, links, " ", null));
+    }
+
+    private static LedgerEntry transaction(int id, String tags, String links) {
+        return new LedgerEntry(
+                id,
+                LocalDate.of(2024, 1, 1).plusDays(id),
+                "txn",
+                "main.beancount",
+                id + 1,
+                new TransactionPayload("*", null, "Entry " + id, tags, links));
+    }
+
+    private static TreeSet<Integer> randomIds(Random random, int bound, double density) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (int id = 0; id < bound; id++) {
+            if (random.nextDouble() < density) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static int[] toArray(TreeSet<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static List<String> render(EntryLabelIndex index) {
+        List<String> rows = new ArrayList<>();
+        for (Object[] row : EntryLabelsTable.lazyRows(index)) {
+            rows.add(row[0] + " " + row[1]);
+        }
+        return rows;
+    }
+
+    private static List<Integer> ids(List<Object[]> rows) {
+        List<Integer> ids = new ArrayList<>();
+        for (Object[] row : rows) {
+            ids.add((Integer) row[0]);
+        }
+        return ids;
+    }
+}
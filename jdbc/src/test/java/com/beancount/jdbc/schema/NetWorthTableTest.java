@@ -0,0 +1,95 @@
+package com.beancount.jdbc.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import com.beancount.jdbc.ledger.PriceIndex;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class NetWorthTableTest {
+
+    private final List<LedgerEntry> entries = new ArrayList<>();
+    private final List<PostingRecord> postings = new ArrayList<>();
+
+    @Test
+    void valuesEveryCurrencyHeldAtTheEndOfEachPeriod() {
+        // Out of date order on purpose: the function sorts what it is given.
+        transaction(LocalDate.of(2024, 3, 10), "Assets:Broker", "2", "HOOL", "Assets:Cash", "-1000", "USD");
+        transaction(LocalDate.of(2024, 1, 15), "Assets:Cash", "5000", "USD", "Income:Salary", "-5000", "USD");
+        transaction(LocalDate.of(2024, 1, 20), "Liabilities:Card", "-100", "USD", "Expenses:Food", "100", "USD");
+        transaction(LocalDate.of(2024, 3, 12), "Assets:Broker", "7", "ODD", "Income:Gift", "-7", "ODD");
+        PriceIndex prices =
+                new PriceIndex.Builder()
+                        .add("HOOL", "USD", LocalDate.of(2024, 3, 1), new BigDecimal("500"))
+                        .add("HOOL", "USD", LocalDate.of(2024, 3, 31), new BigDecimal("550"))
+                        .add("EUR", "USD", LocalDate.of(2024, 1, 1), new BigDecimal("1.25"))
+                        .build(List.of("USD"));
+
+        List<Object[]> months =
+                NetWorthTable.rows(postings, entries, prices, NetWorthTable.Interval.MONTH, "USD", null);
+        assertEquals(
+                List.of(
+                        List.of("2024-01-01", "2024-01-31", "USD", "4900", "-"),
+                        List.of("2024-02-01", "2024-02-29", "USD", "4900", "-"),
+                        List.of("2024-03-01", "2024-03-31", "USD", "5000", "ODD")),
+                render(months));
+
+        List<Object[]> broker =
+                NetWorthTable.rows(postings, entries, prices, NetWorthTable.Interval.QUARTER, "EUR", "Assets:Broker");
+        assertEquals(List.of(List.of("2024-01-01", "2024-03-31", "EUR", "880.0", "ODD")), render(broker));
+
+        assertEquals(
+                List.of(),
+                NetWorthTable.rows(postings, entries, prices, NetWorthTable.Interval.YEAR, "USD", "Assets:Other"));
+    }
+
+    @Test
+    void parsesIntervalsIgnoringCase() {
+        assertEquals(NetWorthTable.Interval.WEEK, NetWorthTable.Interval.parse(" Week"));
+        assertThrows(IllegalArgumentException.class, () -> NetWorthTable.Interval.parse("fortnight"));
+        assertEquals(
+                LocalDate.of(2024, 1, 1),
+                NetWorthTable.Interval.WEEK.start(LocalDate.of(2024, 1, 7)));
+    }
+
+    private void transaction(
+            LocalDate date,
+            String account,
+            String number,
+            String currency,
+            String otherAccount,
+            String otherNumber,
+            String otherCurrency) {
+        int id = entries.size();
+        entries.add(new LedgerEntry(id, date, "txn", "ledger.beancount", id + 1, null));
+        postings.add(posting(id, account, number, currency));
+        postings.add(posting(id, otherAccount, otherNumber, otherCurrency));
+    }
+
+    private PostingRecord posting(int entryId, String account, String number, String currency) {
+        return new PostingRecord(
+                postings.size(), entryId, "*", account, new BigDecimal(number), currency,
+                null, null, null, null, null, null);
+    }
+
+    private static List<List<String>> render(List<Object[]> rows) {
+        List<List<String>> rendered = new ArrayList<>();
+        for (Object[] row : rows) {
+            rendered.add(
+                    Arrays.asList(
+                            LocalDate.ofEpochDay((Integer) row[0]).toString(),
+                            LocalDate.ofEpochDay((Integer) row[1]).toString(),
+                            (String) row[2],
+                            ((BigDecimal) row[3]).toPlainString(),
+                            row[4] == null ? "-" : (String) row[4]));
+        }
+        return rendered;
+    }
+}
@@ -0,0 +1,104 @@
+package com.beancount.jdbc.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class PeriodTotalsTableTest {
+
+    private final List<LedgerEntry> entries = new ArrayList<>();
+    private final List<PostingRecord> postings = new ArrayList<>();
+
+    @Test
+    void sumsAndCountsPostingsPerBucketAccountAndCurrency() {
+        // Out of date order on purpose: the function sorts what it is given.
+        transaction(LocalDate.of(2024, 2, 3), "Expenses:Food", "12.50", "USD", "Assets:Cash", "-12.50", "USD");
+        transaction(LocalDate.of(2024, 1, 5), "Expenses:Food", "10", "USD", "Assets:Cash", "-10", "USD");
+        transaction(LocalDate.of(2024, 1, 31), "Expenses:Food", "8", "EUR", "Assets:Cash", "-8", "EUR");
+        transaction(LocalDate.of(2024, 1, 20), "Expenses:Food", "2.25", "USD", "Assets:Cash", null, null);
+        transaction(LocalDate.of(2024, 4, 1), "Expenses:Rent", "900", "USD", "Assets:Cash", "-900", "USD");
+
+        assertEquals(
+                List.of(
+                        List.of("2024-01-01", "2024-01-31", "Expenses:Food", "EUR", "8", "1"),
+                        List.of("2024-01-01", "2024-01-31", "Expenses:Food", "USD", "12.25", "2"),
+                        List.of("2024-02-01", "2024-02-29", "Expenses:Food", "USD", "12.50", "1"),
+                        List.of("2024-04-01", "2024-04-30", "Expenses:Rent", "USD", "900", "1")),
+                render(PeriodTotalsTable.rows(
+                        postings, entries, "Expenses", NetWorthTable.Interval.MONTH, null, null)));
+
+        assertEquals(
+                List.of(
+                        List.of("2024-01-01", "2024-03-31", "Assets:Cash", "-", "-", "1"),
+                        List.of("2024-01-01", "2024-03-31", "Assets:Cash", "EUR", "-8", "1"),
+                        List.of("2024-01-01", "2024-03-31", "Assets:Cash", "USD", "-22.50", "2"),
+                        List.of("2024-01-01", "2024-03-31", "Expenses:Food", "EUR", "8", "1"),
+                        List.of("2024-01-01", "2024-03-31", "Expenses:Food", "USD", "24.75", "3")),
+                render(PeriodTotalsTable.rows(
+                        postings, entries, null, NetWorthTable.Interval.QUARTER, null, LocalDate.of(2024, 3, 31))));
+    }
+
+    @Test
+    void boundsAreInclusiveAndPrefixesMatchWholeSegments() {
+        transaction(LocalDate.of(2024, 1, 1), "Expenses:Food", "1", "USD", "Assets:Cash", "-1", "USD");
+        transaction(LocalDate.of(2024, 1, 2), "Expenses:Foodstuff", "2", "USD", "Assets:Cash", "-2", "USD");
+        transaction(LocalDate.of(2024, 1, 3), "Expenses:Food:Snacks", "3", "USD", "Assets:Cash", "-3", "USD");
+
+        assertEquals(
+                List.of(
+                        List.of("2024-01-01", "2024-01-01", "Expenses:Food", "USD", "1", "1"),
+                        List.of("2024-01-03", "2024-01-03", "Expenses:Food:Snacks", "USD", "3", "1")),
+                render(PeriodTotalsTable.rows(postings, entries, "Expenses:Food", NetWorthTable.Interval.DAY,
+                        LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 3))));
+        assertEquals(
+                List.of(List.of("2024-01-01", "2024-12-31", "Expenses:Foodstuff", "USD", "2", "1")),
+                render(PeriodTotalsTable.rows(postings, entries, "Expenses:Foodstuff", NetWorthTable.Interval.YEAR,
+                        LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 2))));
+        assertEquals(
+                List.of(),
+                PeriodTotalsTable.rows(postings, entries, "Expenses", NetWorthTable.Interval.WEEK,
+                        LocalDate.of(2024, 1, 4), null));
+    }
+
+    private void transaction(
+            LocalDate date,
+            String account,
+            String number,
+            String currency,
+            String otherAccount,
+            String otherNumber,
+            String otherCurrency) {
+        int id = entries.size();
+        entries.add(new LedgerEntry(id, date, "txn", "ledger.beancount", id + 1, null));
+        postings.add(posting(id, account, number, currency));
+        postings.add(posting(id, otherAccount, otherNumber, otherCurrency));
+    }
+
+    private PostingRecord posting(int entryId, String account, String number, String currency) {
+        return new PostingRecord(
+                postings.size(), entryId, "*", account, number == null ? null : new BigDecimal(number), currency,
+                null, null, null, null, null, null);
+    }
+
+    private static List<List<String>> render(List<Object[]> rows) {
+        List<List<String>> rendered = new ArrayList<>();
+        for (Object[] row : rows) {
+            rendered.add(
+                    Arrays.asList(
+                            LocalDate.ofEpochDay((Integer) row[0]).toString(),
+                            LocalDate.ofEpochDay((Integer) row[1]).toString(),
+                            (String) row[2],
+                            row[3] == null ? "-" : (String) row[3],
+                            row[4] == null ? "-" : ((BigDecimal) row[4]).toPlainString(),
+                            String.valueOf(row[5])));
+        }
+        return rendered;
+    }
+}
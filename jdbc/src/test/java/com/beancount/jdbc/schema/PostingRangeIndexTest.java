@@ -0,0 +1,103 @@
+package com.beancount.jdbc.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.beancount.jdbc.ledger.LedgerEntry;
+import com.beancount.jdbc.ledger.PostingRecord;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+final class PostingRangeIndexTest {
+
+    private static final String[] ACCOUNTS = {
+        "Income", "Income:Salary", "Income:Salary:Bonus", "Income:Dividends", "Expenses:Food", "IncomeTax"
+    };
+    private static final String[] CURRENCIES = {"USD", "EUR", null};
+    private static final LocalDate START = LocalDate.of(2010, 1, 1);
+
+    @Test
+    void rangeSumsMatchAddingEveryPostingInRange() {
+        Random random = new Random(42);
+        List<LedgerEntry> entries = new ArrayList<>();
+        List<PostingRecord> postings = new ArrayList<>();
+        for (int id = 0; id < 600; id++) {
+            LocalDate date = START.plusDays(random.nextInt(5_000));
+            entries.add(new LedgerEntry(id, date, "txn", "ledger.beancount", id + 1, null));
+            for (int leg = 0; leg < 3; leg++) {
+                BigDecimal number =
+                        random.nextInt(8) == 0
+                                ? null
+                                : BigDecimal.valueOf(random.nextInt(200_000) - 100_000, random.nextInt(4) - 1);
+                postings.add(
+                        new PostingRecord(
+                                postings.size(), id, "*", ACCOUNTS[random.nextInt(ACCOUNTS.length)], number,
+                                CURRENCIES[random.nextInt(CURRENCIES.length)], null, null, null, null, null, null));
+            }
+        }
+        // Postings of entries that do not exist are not part of postings JOIN entry.
+        postings.add(new PostingRecord(postings.size(), 10_000, "*", "Income:Salary", BigDecimal.TEN, "USD",
+                null, null, null, null, null, null));
+        PostingRangeIndex index = PostingRangeIndex.of(postings, entries);
+
+        for (int query = 0; query < 300; query++) {
+            long from = START.toEpochDay() + random.nextInt(5_200) - 100;
+            long to = from + random.nextInt(2_000);
+            String account = random.nextBoolean() ? "Income" : ACCOUNTS[random.nextInt(ACCOUNTS.length)];
+            PostingRangeIndex.Scope scope =
+                    random.nextBoolean() ? PostingRangeIndex.Scope.ACCOUNT : PostingRangeIndex.Scope.DESCENDANTS;
+            String currency = CURRENCIES[random.nextInt(CURRENCIES.length)];
+
+            long rows = 0;
+            BigDecimal expected = null;
+            for (PostingRecord posting : postings) {
+                if (posting.getEntryId() >= entries.size()) {
+                    continue;
+                }
+                long day = entries.get(posting.getEntryId()).getDate().toEpochDay();
+                boolean inScope =
+                        scope == PostingRangeIndex.Scope.ACCOUNT
+                                ? posting.getAccount().equals(account)
+                                : posting.getAccount().startsWith(account + ":");
+                if (inScope && java.util.Objects.equals(posting.getCurrency(), currency) && day >= from && day <= to) {
+                    rows++;
+                    if (posting.getNumber() != null) {
+                        expected = (expected == null ? BigDecimal.ZERO : expected).add(posting.getNumber());
+                    }
+                }
+            }
+            PostingRangeIndex.RangeSum actual = index.sum(account, scope, currency, from, to);
+            String label = account + " " + scope + " " + currency + " " + from + ".." + to;
+            assertEquals(rows, actual.rows(), label);
+            // Same value and scale.
+            assertEquals(expected, actual.sum(), label);
+        }
+    }
+
+    @Test
+    void currenciesAndEmptyRanges() {
+        List<LedgerEntry> entries = List.of(new LedgerEntry(0, START, "txn", "ledger.beancount", 1, null));
+        List<PostingRecord> postings =
+                List.of(
+                        new PostingRecord(0, 0, "*", "Income:Salary", new BigDecimal("-10.00"), "USD",
+                                null, null, null, null, null, null),
+                        new PostingRecord(1, 0, "*", "Income:Salary", null, null,
+                                null, null, null, null, null, null));
+        PostingRangeIndex index = PostingRangeIndex.of(postings, entries);
+        assertEquals(Arrays.asList(null, "USD"), index.currencies("Income", PostingRangeIndex.Scope.DESCENDANTS));
+        assertEquals(List.of(), index.currencies("Income", PostingRangeIndex.Scope.ACCOUNT));
+        long day = START.toEpochDay();
+        assertEquals(
+                new BigDecimal("-10.00"),
+                index.sum("Income", PostingRangeIndex.Scope.DESCENDANTS, "USD", day, day).sum());
+        PostingRangeIndex.RangeSum nulls = index.sum("Income:Salary", PostingRangeIndex.Scope.ACCOUNT, null, day, day);
+        assertEquals(1, nulls.rows());
+        assertNull(nulls.sum());
+        assertEquals(0, index.sum("Income", PostingRangeIndex.Scope.DESCENDANTS, "USD", day + 1, Long.MAX_VALUE).rows());
+    }
+}
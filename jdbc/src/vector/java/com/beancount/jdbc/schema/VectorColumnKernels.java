@@ -0,0 +1,102 @@
+package com.beancount.jdbc.schema;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ColumnKernels} on {@code jdk.incubator.vector} lanes. Only {@link ColumnKernels#best()}
+ * touches this class, reflectively and only once the module is known to be present. It lives in
+ * the {@code vector} source set, which the build compiles only with {@code -PvectorKernels}.
+ *
+ * <p>Grouped sums cannot add a whole vector into {@code sums} because two lanes may hit the same
+ * group. Each lane therefore owns its own row of partial sums ({@code group * lanes + lane}), so
+ * one gather/add/scatter never has colliding indexes, and the rows are folded at the end.</p>
+ */
+final class VectorColumnKernels extends ColumnKernels {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.length() * Integer.SIZE));
+
+    private final int[] laneIndexes;
+
+    VectorColumnKernels() {
+        laneIndexes = new int[LONGS.length()];
+        for (int lane = 0; lane < laneIndexes.length; lane++) {
+            laneIndexes[lane] = lane;
+        }
+    }
+
+    @Override
+    int lanes() {
+        return LONGS.length();
+    }
+
+    @Override
+    public String name() {
+        return "vector(" + lanes() + " lanes)";
+    }
+
+    @Override
+    public long sum(long[] values) {
+        LongVector acc = LongVector.zero(LONGS);
+        int bound = LONGS.loopBound(values.length);
+        int i = 0;
+        for (; i < bound; i += LONGS.length()) {
+            acc = acc.add(LongVector.fromArray(LONGS, values, i));
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void sumByGroup(long[] values, int[] groups, long[] sums) {
+        int lanes = lanes();
+        if ((long) sums.length * lanes > values.length) {
+            // Mostly singleton groups: the partial rows would outweigh the rows themselves.
+            ColumnKernels.scalar().sumByGroup(values, groups, sums);
+            return;
+        }
+        long[] partial = new long[sums.length * lanes];
+        int[] slots = new int[lanes];
+        IntVector laneOffsets = IntVector.fromArray(INTS, laneIndexes, 0);
+        int bound = LONGS.loopBound(values.length);
+        int i = 0;
+        for (; i < bound; i += lanes) {
+            IntVector.fromArray(INTS, groups, i).mul(lanes).add(laneOffsets).intoArray(slots, 0);
+            LongVector.fromArray(LONGS, partial, 0, slots, 0)
+                    .add(LongVector.fromArray(LONGS, values, i))
+                    .intoArray(partial, 0, slots, 0);
+        }
+        for (; i < values.length; i++) {
+            sums[groups[i]] += values[i];
+        }
+        for (int group = 0; group < sums.length; group++) {
+            long sum = 0;
+            for (int lane = 0; lane < lanes; lane++) {
+                sum += partial[group * lanes + lane];
+            }
+            sums[group] += sum;
+        }
+    }
+
+    @Override
+    public void combine(int[] ids, int[] codes, int radix) {
+        int bound = INTS.loopBound(ids.length);
+        int i = 0;
+        for (; i < bound; i += INTS.length()) {
+            IntVector.fromArray(INTS, ids, i)
+                    .mul(radix)
+                    .add(IntVector.fromArray(INTS, codes, i))
+                    .intoArray(ids, i);
+        }
+        for (; i < ids.length; i++) {
+            ids[i] = ids[i] * radix + codes[i];
+        }
+    }
+}